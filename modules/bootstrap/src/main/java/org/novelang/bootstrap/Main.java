@@ -24,10 +24,12 @@ import org.apache.commons.lang.SystemUtils;
 
 import org.novelang.batch.CannotStartException;
 import org.novelang.batch.DocumentGenerator;
+import org.novelang.batch.DocumentGeneratorWorker;
 import org.novelang.batch.LevelExploder;
 import org.novelang.configuration.parse.ArgumentException;
 import org.novelang.configuration.parse.DaemonParameters;
 import org.novelang.configuration.parse.DocumentGeneratorParameters;
+import org.novelang.configuration.parse.DocumentGeneratorWorkerParameters;
 import org.novelang.configuration.parse.GenericParameters;
 import org.novelang.configuration.parse.LevelExploderParameters;
 import org.novelang.daemon.HttpDaemon;
@@ -248,6 +250,24 @@ public class Main {
       }
     }
     ,
+    new MainCaller< DocumentGeneratorWorkerParameters >( DocumentGeneratorWorker.COMMAND_NAME ) {
+      @Override
+      public void main( final DocumentGeneratorWorkerParameters parameters ) throws Exception {
+        new DocumentGeneratorWorker().main( parameters ) ;
+      }
+
+      @Override
+      public DocumentGeneratorWorkerParameters createParameters( final String[] arguments )
+          throws ArgumentException {
+        return DocumentGeneratorWorker.createParameters( arguments, USER_DIRECTORY ) ;
+      }
+
+      @Override
+      public String getSpecificCommandLineParametersDescriptor() {
+        return DocumentGeneratorWorker.getSpecificCommandLineParametersDescriptor() ;
+      }
+    }
+    ,
     new MainCaller< LevelExploderParameters >( "explodelevels" ) {
       @Override
       public void main( final LevelExploderParameters parameters ) throws Exception {
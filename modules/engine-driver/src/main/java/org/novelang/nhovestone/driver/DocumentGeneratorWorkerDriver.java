@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.nhovestone.driver;
+
+import com.google.common.base.Predicate;
+
+import org.novelang.batch.DocumentGeneratorWorker;
+import org.novelang.outfit.Husk;
+
+/**
+ * Starts a {@link DocumentGeneratorWorker} in a separate JVM.
+ * Use {@link WarmDocumentGenerator} to talk to it.
+ *
+ * @author Laurent Caillette
+ */
+public class DocumentGeneratorWorkerDriver extends EngineDriver {
+
+  public DocumentGeneratorWorkerDriver( final Configuration configuration ) {
+    super(
+        configuration,
+        DocumentGeneratorWorker.COMMAND_NAME,
+        PROCESS_STARTED_SENSOR
+    ) ;
+  }
+
+  private static final Predicate< String > PROCESS_STARTED_SENSOR = new Predicate< String >() {
+    @Override
+    public boolean apply( final String lineInConsole ) {
+      return lineInConsole.contains( DocumentGeneratorWorker.READY_MESSAGE ) ;
+    }
+  } ;
+
+
+  @Husk.Converter( converterClass = ConfigurationHelper.class )
+  public interface Configuration extends EngineDriver.Configuration< Configuration > { }
+
+}
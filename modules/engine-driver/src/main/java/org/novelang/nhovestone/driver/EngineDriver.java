@@ -20,7 +20,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang.StringUtils;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -48,6 +50,8 @@ import org.novelang.outfit.shell.ShutdownStyle;
 public abstract class EngineDriver {
 
   private final JavaShell javaShell;
+  private final int jmxPort ;
+  private final String processSignature ;
   
   public static final String NOVELANG_BOOTSTRAP_MAIN_CLASS_NAME = "org.novelang.bootstrap.Main";
 
@@ -129,18 +133,31 @@ public abstract class EngineDriver {
     }
 
 
+    final ImmutableList< String > jvmOptions = jvmOptionsBuilder.build() ;
+    final ImmutableList< String > programOptions = programOptionsBuilder.build() ;
+    processSignature = Joiner.on( ' ' ).join( Iterables.concat(
+        jvmOptions,
+        configuration.getJavaClasses().asStringList(),
+        programOptions
+    ) ) ;
+    jmxPort = TcpPortBooker.THIS.find() ;
+
     JavaShellParameters parameters =
         org.novelang.outfit.Husk.create( JavaShellParameters.class );
     parameters = parameters
         .withWorkingDirectory( configuration.getWorkingDirectory() )
         .withNickname( "Novelang-" + version.getName() )
-        .withJvmArguments( jvmOptionsBuilder.build() )
+        .withJvmArguments( jvmOptions )
         .withJavaClasses( configuration.getJavaClasses() )
-        .withProgramArguments( programOptionsBuilder.build() )
+        .withProgramArguments( programOptions )
         .withStartupSensor( startupSensor )
-        .withJmxPortConfiguredAtJvmStartup( TcpPortBooker.THIS.find() )
+        .withJmxPortConfiguredAtJvmStartup( jmxPort )
         .withJmxKit( new DefaultJmxKit() )
     ;
+    if( configuration.getHeartbeatFatalDelayMilliseconds() != null ) {
+      parameters = parameters.withHeartbeatFatalDelayMilliseconds(
+          configuration.getHeartbeatFatalDelayMilliseconds() ) ;
+    }
 
 
     javaShell = new JavaShell( parameters ) ;
@@ -163,6 +180,30 @@ public abstract class EngineDriver {
     return javaShell.shutdown( force ? ShutdownStyle.FORCED : ShutdownStyle.WAIT ) ;
   }
 
+  /**
+   * Leaves the process running after this JVM stops, see {@link JavaShell#detach()}.
+   */
+  public void detach() {
+    javaShell.detach() ;
+  }
+
+  /**
+   * Returns the port for connecting to the JMX beans of the process.
+   */
+  public final int getJmxPort() {
+    return jmxPort ;
+  }
+
+  /**
+   * Returns the same value for two {@link EngineDriver}s which would start the same process,
+   * JMX port aside.
+   *
+   * @return a non-null object.
+   */
+  public final String getProcessSignature() {
+    return processSignature ;
+  }
+
   
 
 
@@ -196,6 +237,12 @@ public abstract class EngineDriver {
     Iterable< String > getProgramArguments() ;
     CONFIGURATION withProgramArguments( String... options ) ;
 
+    /**
+     * @return a possibly null object, meaning {@link JavaShell}'s default.
+     */
+    Integer getHeartbeatFatalDelayMilliseconds() ;
+    CONFIGURATION withHeartbeatFatalDelayMilliseconds( Integer delay ) ;
+
   }
 
   @SuppressWarnings( { "UnusedDeclaration" } )
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.nhovestone.driver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.FileUtils;
+
+import org.novelang.batch.DocumentGeneratorService;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.shell.DefaultJmxKit;
+import org.novelang.outfit.shell.HeartbeatSender;
+import org.novelang.outfit.shell.JmxBeanPool;
+import org.novelang.outfit.shell.JmxKit;
+import org.novelang.outfit.shell.ProcessCreationException;
+import org.novelang.outfit.shell.ProcessInitializationException;
+import org.novelang.outfit.shell.insider.Insider;
+
+/**
+ * Submits document requests to a {@link org.novelang.batch.DocumentGeneratorWorker} which
+ * survives the JVM that started it, so next builds skip JVM startup and warm-up.
+ * <p>
+ * The worker's JMX port and {@link EngineDriver#getProcessSignature() process signature}
+ * go into a state file. Next time, if the signature didn't change and the worker still answers,
+ * it gets reused. Otherwise a new worker starts.
+ * <p>
+ * Heartbeats go to the worker only while it generates documents. So it halts by itself after
+ * {@link EngineDriver.Configuration#getHeartbeatFatalDelayMilliseconds()} without builds,
+ * and a worker made obsolete by a new one (after a change in the classpath or in the
+ * {@link EngineDriver.Configuration}) doesn't stay for longer.
+ *
+ * @author Laurent Caillette
+ */
+public class WarmDocumentGenerator {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( WarmDocumentGenerator.class ) ;
+
+  private static final String JMX_PORT_PROPERTYNAME = "jmxPort" ;
+  private static final String SIGNATURE_PROPERTYNAME = "processSignature" ;
+
+  private final int jmxPort ;
+  private final JmxBeanPool jmxBeanPool ;
+  private final Insider insider ;
+  private final DocumentGeneratorService service ;
+
+  /**
+   * @throws java.lang.reflect.UndeclaredThrowableException if some JMX bean is missing.
+   */
+  private WarmDocumentGenerator( final int jmxPort ) throws IOException, InterruptedException {
+    this.jmxPort = jmxPort ;
+    jmxBeanPool = new JmxBeanPool( "localhost", jmxPort ) ;
+    final JmxKit jmxKit = new DefaultJmxKit() ;
+    insider = jmxBeanPool.getManagedBean( Insider.class, Insider.NAME, jmxKit ) ;
+    service = jmxBeanPool.getManagedBean(
+        DocumentGeneratorService.class, DocumentGeneratorService.NAME, jmxKit ) ;
+
+    // Proxies don't check if beans exist, calling them does.
+    try {
+      insider.keepAlive() ;
+      service.isInitialized() ;
+    } catch( RuntimeException e ) {
+      jmxBeanPool.closeConnections() ;
+      throw e ;
+    }
+  }
+
+  /**
+   * Reuses the worker recorded in given state file, or starts a new one and records it.
+   *
+   * @param configuration a non-null object.
+   * @param stateFile a non-null object, may not exist.
+   * @return a non-null object.
+   */
+  public static WarmDocumentGenerator connectOrStart(
+      final DocumentGeneratorWorkerDriver.Configuration configuration,
+      final File stateFile
+  )
+      throws
+      IOException,
+      InterruptedException,
+      ProcessCreationException,
+      ProcessInitializationException
+  {
+    final DocumentGeneratorWorkerDriver driver = new DocumentGeneratorWorkerDriver( configuration ) ;
+
+    final Properties state = readState( stateFile ) ;
+    if( state != null
+        && driver.getProcessSignature().equals( state.getProperty( SIGNATURE_PROPERTYNAME ) )
+    ) {
+      final int jmxPort = Integer.parseInt( state.getProperty( JMX_PORT_PROPERTYNAME ) ) ;
+      try {
+        final WarmDocumentGenerator warmDocumentGenerator = new WarmDocumentGenerator( jmxPort ) ;
+        LOGGER.info( "Reusing worker on JMX port ", jmxPort, "." ) ;
+        return warmDocumentGenerator ;
+      } catch( Exception e ) {
+        LOGGER.info( "Couldn't reuse worker on JMX port ", jmxPort,
+            " (", e.getClass().getSimpleName(), "), starting a new one..." ) ;
+      }
+    }
+
+    driver.start( 1L, TimeUnit.MINUTES ) ;
+    driver.detach() ;
+    writeState( stateFile, driver ) ;
+    return new WarmDocumentGenerator( driver.getJmxPort() ) ;
+  }
+
+  /**
+   * Generates documents, sending heartbeats meanwhile.
+   *
+   * @param arguments same as for {@link DocumentGeneratorService#generate(String[])}.
+   * @return a non-null object iterating over problem messages, empty if there was none.
+   */
+  public Iterable< String > generate( final String... arguments ) throws Exception {
+    insider.keepAlive() ;
+    final HeartbeatSender heartbeatSender = new HeartbeatSender(
+        insider, HEARTBEAT_NOTIFIEE, "DocumentGeneratorWorker@" + jmxPort ) ;
+    try {
+      return ImmutableList.copyOf( service.generate( arguments ) ) ;
+    } finally {
+      heartbeatSender.stop() ;
+    }
+  }
+
+  /**
+   * Closes JMX connections, leaving the worker alive.
+   */
+  public void close() {
+    jmxBeanPool.closeConnections() ;
+  }
+
+  /**
+   * Also called after a normal {@link HeartbeatSender#stop()}; if the worker died meanwhile,
+   * {@link #generate(String...)} fails anyway.
+   */
+  private static final HeartbeatSender.Notifiee HEARTBEAT_NOTIFIEE =
+      new HeartbeatSender.Notifiee() {
+        @Override
+        public void onUnreachableProcess() { }
+      }
+  ;
+
+
+// ==========
+// State file
+// ==========
+
+  /**
+   * @return null if there was no state file or if it was unreadable.
+   */
+  private static Properties readState( final File stateFile ) {
+    if( ! stateFile.isFile() ) {
+      return null ;
+    }
+    final Properties properties = new Properties() ;
+    try {
+      final InputStream inputStream = new FileInputStream( stateFile ) ;
+      try {
+        properties.load( inputStream ) ;
+      } finally {
+        inputStream.close() ;
+      }
+    } catch( IOException e ) {
+      LOGGER.warn( "Couldn't read '", stateFile.getAbsolutePath(), "': ", e.getMessage() ) ;
+      return null ;
+    }
+    if( properties.getProperty( JMX_PORT_PROPERTYNAME ) == null
+        || properties.getProperty( SIGNATURE_PROPERTYNAME ) == null
+    ) {
+      return null ;
+    }
+    return properties ;
+  }
+
+  private static void writeState( final File stateFile, final EngineDriver driver )
+      throws IOException
+  {
+    final Properties properties = new Properties() ;
+    properties.setProperty( JMX_PORT_PROPERTYNAME, Integer.toString( driver.getJmxPort() ) ) ;
+    properties.setProperty( SIGNATURE_PROPERTYNAME, driver.getProcessSignature() ) ;
+    FileUtils.forceMkdir( stateFile.getAbsoluteFile().getParentFile() ) ;
+    final OutputStream outputStream = new FileOutputStream( stateFile ) ;
+    try {
+      properties.store( outputStream, "Novelang document generator worker" ) ;
+    } finally {
+      outputStream.close() ;
+    }
+    LOGGER.info( "Recorded worker on JMX port ", driver.getJmxPort(),
+        " into '", stateFile.getAbsolutePath(), "'." ) ;
+  }
+
+}
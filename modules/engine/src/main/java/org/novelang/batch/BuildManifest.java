@@ -0,0 +1,796 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.novelang.Version;
+import org.novelang.configuration.FopFontStatus;
+import org.novelang.configuration.FopTools;
+import org.novelang.configuration.RenderingConfiguration;
+import org.novelang.configuration.parse.GenericParameters;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
+import org.novelang.produce.DocumentRequest;
+import org.novelang.rendering.RenditionMimeType;
+
+/**
+ * Remembers, in a file of the output directory, what every generated document was made of,
+ * so the next run of {@link DocumentGenerator} only renders again the documents with
+ * a changed input, keeping the others untouched.
+ * <p>
+ * Inputs are source files (Opus or Novella, inserted Novellas, scanned directories, images,
+ * as given by {@link org.novelang.produce.DocumentProducer#stampSources}), stylesheets with
+ * what they import, and fonts for PDF. Each input gets a digest of its content, so a fresh
+ * checkout touching every modification time doesn't mean a full rebuild. A file keeping the
+ * same {@link ResourceStamp} as last time doesn't get read again. Digests only get recorded
+ * for the {@link ResourceStamp}s taken before rendering, so an input changing meanwhile
+ * causes the document to be rendered again next time.
+ * <p>
+ * A document rendered with {@link org.novelang.common.Problem}s doesn't get recorded,
+ * so it is rendered again next time. The manifest keeps a fingerprint of the options
+ * (like charsets, style and font directories): changing them, or running a new product
+ * version, forces a full rebuild.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class BuildManifest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( BuildManifest.class ) ;
+
+  public static final String FILE_NAME = ".novelang-build.manifest" ;
+
+  /**
+   * Renders every document, records nothing.
+   */
+  public static final BuildManifest DISABLED = new BuildManifest( null, null, null ) ;
+
+  private static final String FORMAT_HEADER = "# Novelang build manifest 2" ;
+
+  private static final String MISSING_DIGEST = "missing" ;
+
+  private static final String NO_FONT_DIGEST = "none" ;
+
+  /**
+   * Null if {@link #DISABLED}.
+   */
+  private final File outputDirectory ;
+
+  /**
+   * Null if {@link #DISABLED}.
+   */
+  private final RenderingConfiguration renderingConfiguration ;
+
+  /**
+   * Null if {@link #DISABLED}.
+   */
+  private final String optionsFingerprint ;
+
+  /**
+   * Keys are {@link DocumentRequest#getOriginalTarget()}. Guarded by {@link #entries}.
+   */
+  private final Map< String, Entry > entries = Maps.newHashMap() ;
+
+  /**
+   * Digests of files as loaded from the manifest, keys are absolute paths.
+   * Doesn't change after loading.
+   */
+  private final Map< String, FileDigest > previousFileDigests = Maps.newHashMap() ;
+
+  /**
+   * Digests of files read during this run, keys are absolute paths.
+   */
+  private final ConcurrentMap< String, FileDigest > currentFileDigests =
+      new ConcurrentHashMap< String, FileDigest >() ;
+
+  /**
+   * Digests of resources that are not files (like entries of a jar file), supposed to never
+   * change during the lifetime of the JVM. Keys are locations.
+   */
+  private final ConcurrentMap< String, String > resourceDigests =
+      new ConcurrentHashMap< String, String >() ;
+
+  /**
+   * Null until calculated once.
+   */
+  private volatile String fontDigest = null ;
+
+  private BuildManifest(
+      final File outputDirectory,
+      final RenderingConfiguration renderingConfiguration,
+      final String optionsFingerprint
+  ) {
+    this.outputDirectory = outputDirectory ;
+    this.renderingConfiguration = renderingConfiguration ;
+    this.optionsFingerprint = optionsFingerprint ;
+  }
+
+  /**
+   * Loads the manifest from given directory, removing a report of previous problems.
+   * If there is no usable manifest, or if it was written with other options, the directory
+   * gets deleted and created again, so every document will be rendered.
+   *
+   * @param outputDirectory a non-null object.
+   * @param renderingConfiguration a non-null object, telling where stylesheets and fonts are.
+   * @param optionsFingerprint a non-null object, as given by
+   *     {@link #fingerprint(GenericParameters)} or describing equivalent options.
+   * @return a non-null object.
+   */
+  public static BuildManifest open(
+      final File outputDirectory,
+      final RenderingConfiguration renderingConfiguration,
+      final String optionsFingerprint
+  ) throws IOException {
+    final BuildManifest buildManifest = new BuildManifest(
+        checkNotNull( outputDirectory ),
+        checkNotNull( renderingConfiguration ),
+        checkNotNull( optionsFingerprint )
+    ) ;
+    final File file = buildManifest.getFile() ;
+    boolean loaded = false ;
+    if( file.isFile() ) {
+      try {
+        buildManifest.load( file ) ;
+        loaded = true ;
+        LOGGER.info( "Loaded build manifest with ", buildManifest.entries.size(),
+            " document(s) from '", file.getAbsolutePath(), "'." ) ;
+      } catch( IOException e ) {
+        LOGGER.warn( e, "Could not load build manifest from '", file.getAbsolutePath(), "'." ) ;
+      }
+    }
+    if( loaded ) {
+      final File problemFile =
+          new File( outputDirectory, AbstractDocumentGenerator.PROBLEMS_FILENAME ) ;
+      if( problemFile.exists() && ! problemFile.delete() ) {
+        throw new IOException( "Could not delete '" + problemFile.getAbsolutePath() + "'" ) ;
+      }
+    } else {
+      buildManifest.entries.clear() ;
+      buildManifest.previousFileDigests.clear() ;
+      AbstractDocumentGenerator.resetTargetDirectory( outputDirectory ) ;
+    }
+    return buildManifest ;
+  }
+
+  private File getFile() {
+    return new File( outputDirectory, FILE_NAME ) ;
+  }
+
+  /**
+   * Returns a digest of the options that change rendered documents, other than document
+   * requests. Directories left to their default value depend on the base directory.
+   *
+   * @return a non-null object.
+   */
+  public static String fingerprint( final GenericParameters parameters ) {
+    final StringBuilder options = new StringBuilder() ;
+    appendOption( options, "baseDirectory", parameters.getBaseDirectory() ) ;
+    appendOption( options, "contentRoot", parameters.getContentRoot() ) ;
+    appendOption( options, "styleDirectories", parameters.getStyleDirectories() ) ;
+    appendOption( options, "fontDirectories", parameters.getFontDirectories() ) ;
+    appendOption( options, "hyphenationDirectory", parameters.getHyphenationDirectory() ) ;
+    appendOption( options, "sourceCharset", parameters.getDefaultSourceCharset() ) ;
+    appendOption( options, "renderingCharset", parameters.getDefaultRenderingCharset() ) ;
+    try {
+      return toHexadecimal(
+          createMessageDigest().digest( options.toString().getBytes( Charsets.UTF_8.name() ) ) ) ;
+    } catch( UnsupportedEncodingException e ) {
+      throw new RuntimeException( e ) ;
+    }
+  }
+
+  /**
+   * @param value a possibly null object, a {@code File}, or an {@code Iterable} of them.
+   */
+  private static void appendOption(
+      final StringBuilder builder,
+      final String name,
+      final Object value
+  ) {
+    builder.append( name ).append( '=' ) ;
+    if( value instanceof File ) {
+      builder.append( ( ( File ) value ).getAbsolutePath() ) ;
+    } else if( value instanceof Iterable ) {
+      for( final Object element : ( Iterable< ? > ) value ) {
+        builder.append( element instanceof File
+            ? ( ( File ) element ).getAbsolutePath() : element ).append( File.pathSeparator ) ;
+      }
+    } else {
+      builder.append( value ) ;
+    }
+    builder.append( '\n' ) ;
+  }
+
+
+// ==========
+// Life cycle
+// ==========
+
+  /**
+   * Tells if the output files of given {@link DocumentRequest} all exist, and if its inputs
+   * didn't change since they were {@link #record(DocumentRequest, Iterable, Map, Map)
+   * recorded}.
+   */
+  public boolean isUpToDate( final DocumentRequest documentRequest ) {
+    if( outputDirectory == null ) {
+      return false ;
+    }
+    final Entry entry ;
+    synchronized( entries ) {
+      entry = entries.get( documentRequest.getOriginalTarget() ) ;
+    }
+    if( entry == null ) {
+      return false ;
+    }
+    for( final String output : entry.outputs ) {
+      if( ! new File( outputDirectory, output ).isFile() ) {
+        LOGGER.debug( "Missing output '", output, "' for '", entry.target, "'." ) ;
+        return false ;
+      }
+    }
+    try {
+      for( final Input input : entry.inputs ) {
+        if( ! input.digest.equals( digest( input.kind, input.name ) ) ) {
+          LOGGER.debug( "Changed ", input.kind, " '", input.name, "' for '", entry.target, "'." ) ;
+          return false ;
+        }
+      }
+    } catch( IOException e ) {
+      LOGGER.warn( e, "Could not check inputs of '", entry.target, "'." ) ;
+      return false ;
+    }
+    return true ;
+  }
+
+  /**
+   * Forgets given {@link DocumentRequest}, deleting its previous output files, before
+   * rendering it again. This prevents pages that disappeared from staying around.
+   */
+  public void discard( final DocumentRequest documentRequest ) {
+    if( outputDirectory == null ) {
+      return ;
+    }
+    final Entry entry ;
+    synchronized( entries ) {
+      entry = entries.remove( documentRequest.getOriginalTarget() ) ;
+    }
+    if( entry != null ) {
+      deleteOutputs( entry ) ;
+    }
+  }
+
+  /**
+   * Records the inputs of a successfully rendered document, calculating their digests.
+   * An input with a {@link ResourceStamp} different from the one taken before rendering
+   * changed meanwhile, so the document doesn't get recorded.
+   * Failures only get logged, the document will just be rendered again next time.
+   *
+   * @param outputFiles a non-null object, files inside the output directory.
+   * @param sources a non-null object, as given by
+   *     {@link org.novelang.produce.DocumentProducer#stampSources} before rendering.
+   * @param stylesheetDependencies a non-null object, as collected by
+   *     {@link org.novelang.produce.DocumentProducer#produce(DocumentRequest,
+   *     org.novelang.common.Renderable, org.novelang.produce.StreamDirector, Map)}
+   *     when compiling the stylesheet.
+   */
+  public void record(
+      final DocumentRequest documentRequest,
+      final Iterable< File > outputFiles,
+      final Map< File, ResourceStamp > sources,
+      final Map< ResourceName, ResourceStamp > stylesheetDependencies
+  ) {
+    if( outputDirectory == null ) {
+      return ;
+    }
+    final String target = documentRequest.getOriginalTarget() ;
+    final ImmutableList.Builder< String > outputs = ImmutableList.builder() ;
+    for( final File outputFile : outputFiles ) {
+      outputs.add( relativize( outputFile ) ) ;
+    }
+    final ImmutableList.Builder< Input > inputs = ImmutableList.builder() ;
+    try {
+      for( final Map.Entry< File, ResourceStamp > source : sources.entrySet() ) {
+        inputs.add( new Input( Kind.SOURCE, source.getKey().getAbsolutePath(),
+            digestFile( source.getKey(), source.getValue() ) ) ) ;
+      }
+      for( final Map.Entry< ResourceName, ResourceStamp > dependency :
+          stylesheetDependencies.entrySet()
+      ) {
+        inputs.add( new Input( Kind.STYLESHEET, dependency.getKey().getName(),
+            digestStylesheet( dependency.getKey(), dependency.getValue() ) ) ) ;
+      }
+      if( documentRequest.getRenditionMimeType() == RenditionMimeType.PDF ) {
+        inputs.add( new Input( Kind.FONTS, "", digest( Kind.FONTS, "" ) ) ) ;
+      }
+    } catch( IOException e ) {
+      LOGGER.warn( e, "Could not record inputs of '", target, "'." ) ;
+      return ;
+    }
+    final Entry entry = new Entry( target, outputs.build(), inputs.build() ) ;
+    synchronized( entries ) {
+      entries.put( target, entry ) ;
+    }
+  }
+
+  /**
+   * Forgets the documents that are not requested any longer, deleting their output files,
+   * and writes the manifest into the output directory. Failures only get logged, as a stale
+   * manifest only causes documents to be rendered again.
+   * Synchronized so concurrent calls don't write the same temporary file.
+   *
+   * @param documentRequests a non-null object, all the documents requested for this run.
+   */
+  public synchronized void save( final Iterable< ? extends DocumentRequest > documentRequests ) {
+    if( outputDirectory == null ) {
+      return ;
+    }
+    final Set< String > targets = Sets.newHashSet() ;
+    for( final DocumentRequest documentRequest : documentRequests ) {
+      targets.add( documentRequest.getOriginalTarget() ) ;
+    }
+    final List< Entry > keptEntries = Lists.newArrayList() ;
+    final List< Entry > obsoleteEntries = Lists.newArrayList() ;
+    synchronized( entries ) {
+      final Iterator< Entry > iterator = entries.values().iterator() ;
+      while( iterator.hasNext() ) {
+        final Entry entry = iterator.next() ;
+        if( targets.contains( entry.target ) ) {
+          keptEntries.add( entry ) ;
+        } else {
+          obsoleteEntries.add( entry ) ;
+          iterator.remove() ;
+        }
+      }
+    }
+    for( final Entry entry : obsoleteEntries ) {
+      LOGGER.info( "Deleting output of '", entry.target, "' which is no longer requested." ) ;
+      deleteOutputs( entry ) ;
+    }
+
+    final Map< String, FileDigest > fileDigests = Maps.newTreeMap() ;
+    fileDigests.putAll( currentFileDigests ) ;
+    for( final Entry entry : keptEntries ) {
+      for( final Input input : entry.inputs ) {
+        final FileDigest previous = previousFileDigests.get( input.name ) ;
+        if( input.kind == Kind.SOURCE && previous != null
+            && ! fileDigests.containsKey( input.name )
+        ) {
+          fileDigests.put( input.name, previous ) ;
+        }
+      }
+    }
+
+    final StringBuilder content = new StringBuilder( FORMAT_HEADER ).append( '\n' ) ;
+    content.append( "version\t" )
+        .append( Version.CURRENT_PRODUCT_VERSION.getName() ).append( '\n' ) ;
+    content.append( "options\t" ).append( optionsFingerprint ).append( '\n' ) ;
+    for( final FileDigest fileDigest : fileDigests.values() ) {
+      fileDigest.appendTo( content ) ;
+    }
+    for( final Entry entry : keptEntries ) {
+      entry.appendTo( content ) ;
+    }
+
+    final File file = getFile() ;
+    final File temporaryFile = new File( file.getPath() + ".tmp" ) ;
+    try {
+      final Writer writer =
+          new OutputStreamWriter( new FileOutputStream( temporaryFile ), Charsets.UTF_8 ) ;
+      try {
+        writer.write( content.toString() ) ;
+      } finally {
+        writer.close() ;
+      }
+      if( ! temporaryFile.renameTo( file ) ) {
+        // Windows doesn't rename onto an existing file.
+        if( ! file.delete() || ! temporaryFile.renameTo( file ) ) {
+          throw new IOException( "Could not rename '" + temporaryFile.getAbsolutePath() + "'" ) ;
+        }
+      }
+      LOGGER.info( "Saved build manifest with ", keptEntries.size(), " document(s) into '",
+          file.getAbsolutePath(), "'." ) ;
+    } catch( IOException e ) {
+      LOGGER.warn( e, "Could not save build manifest into '", file.getAbsolutePath(), "'." ) ;
+    }
+  }
+
+  private void deleteOutputs( final Entry entry ) {
+    for( final String output : entry.outputs ) {
+      final File outputFile = new File( outputDirectory, output ) ;
+      if( outputFile.exists() && ! outputFile.delete() ) {
+        LOGGER.warn( "Could not delete '", outputFile.getAbsolutePath(), "'." ) ;
+      }
+    }
+  }
+
+  private String relativize( final File outputFile ) {
+    final String directoryPath = outputDirectory.getAbsolutePath() + File.separator ;
+    final String path = outputFile.getAbsolutePath() ;
+    checkArgument( path.startsWith( directoryPath ),
+        "Not inside '%s': '%s'", directoryPath, path ) ;
+    return path.substring( directoryPath.length() ).replace( File.separatorChar, '/' ) ;
+  }
+
+
+// =======
+// Digests
+// =======
+
+  private String digest( final Kind kind, final String name ) throws IOException {
+    switch( kind ) {
+      case SOURCE :
+        final File file = new File( name ) ;
+        return digestFile( file, ResourceStamp.create( file ) ) ;
+      case STYLESHEET :
+        final ResourceName resourceName = new ResourceName( name ) ;
+        return digestStylesheet( resourceName,
+            ResourceStamp.create( renderingConfiguration.getResourceLoader(), resourceName ) ) ;
+      case FONTS :
+        return digestFonts() ;
+      default :
+        throw new IllegalArgumentException( "Unsupported: " + kind ) ;
+    }
+  }
+
+  /**
+   * @param stamp the {@link ResourceStamp} the digest stands for.
+   * @throws IOException if given file doesn't match given stamp any longer.
+   */
+  private String digestFile( final File file, final ResourceStamp stamp ) throws IOException {
+    checkUnchanged( stamp, ResourceStamp.create( file ) ) ;
+    final String location = stamp.getLocation() ;
+    final FileDigest current = currentFileDigests.get( location ) ;
+    if( current != null && current.matches( stamp ) ) {
+      return current.digest ;
+    }
+    final FileDigest previous = previousFileDigests.get( location ) ;
+    final String digest ;
+    if( previous != null && previous.matches( stamp ) ) {
+      digest = previous.digest ;
+    } else if( ! file.exists() ) {
+      digest = MISSING_DIGEST ;
+    } else if( file.isDirectory() ) {
+      // Scanned directories only matter for the files they contain.
+      final String[] names = file.list() ;
+      if( names == null ) {
+        throw new IOException( "Could not list '" + file.getAbsolutePath() + "'" ) ;
+      }
+      Arrays.sort( names ) ;
+      final MessageDigest messageDigest = createMessageDigest() ;
+      for( final String name : names ) {
+        messageDigest.update( ( name + "\n" ).getBytes( Charsets.UTF_8.name() ) ) ;
+      }
+      digest = toHexadecimal( messageDigest.digest() ) ;
+    } else {
+      LOGGER.debug( "Calculating digest of '", location, "'..." ) ;
+      digest = digest( new FileInputStream( file ) ) ;
+      // Not reading a file being written.
+      checkUnchanged( stamp, ResourceStamp.create( file ) ) ;
+    }
+    currentFileDigests.put( location, new FileDigest(
+        location, stamp.getLastModified(), stamp.getLength(), digest ) ) ;
+    return digest ;
+  }
+
+  /**
+   * @param stamp the {@link ResourceStamp} the digest stands for.
+   * @throws IOException if given resource doesn't resolve to given stamp any longer.
+   */
+  private String digestStylesheet( final ResourceName resourceName, final ResourceStamp stamp )
+      throws IOException
+  {
+    final URL url = renderingConfiguration.getResourceLoader().maybeLocate( resourceName ) ;
+    checkUnchanged( stamp, ResourceStamp.create( url ) ) ;
+    return digestResource( url ) ;
+  }
+
+  private static void checkUnchanged( final ResourceStamp expected, final ResourceStamp actual )
+      throws IOException
+  {
+    if( ! expected.equals( actual ) ) {
+      throw new IOException( "Changed during rendering: " + actual ) ;
+    }
+  }
+
+  /**
+   * @param url a possibly null object.
+   */
+  private String digestResource( final URL url ) throws IOException {
+    if( url == null ) {
+      return MISSING_DIGEST ;
+    }
+    final File file = ResourceStamp.asFile( url ) ;
+    if( file != null ) {
+      return digestFile( file, ResourceStamp.create( file ) ) ;
+    }
+    final String location = url.toExternalForm() ;
+    String digest = resourceDigests.get( location ) ;
+    if( digest == null ) {
+      digest = digest( url.openStream() ) ;
+      resourceDigests.put( location, digest ) ;
+    }
+    return digest ;
+  }
+
+  /**
+   * Adding or removing a font changes the digest, as FOP may pick another one.
+   */
+  private String digestFonts() throws IOException {
+    if( fontDigest == null ) {
+      final FopFontStatus fontStatus = renderingConfiguration.getCurrentFopFontStatus() ;
+      if( fontStatus == null ) {
+        fontDigest = NO_FONT_DIGEST ;
+      } else {
+        final SortedSet< String > embedFiles = Sets.newTreeSet( Iterables.filter(
+            Iterables.transform(
+                fontStatus.getFontInfos(), FopTools.EXTRACT_EMBEDFONTINFO_FUNCTION ),
+            Predicates.notNull()
+        ) ) ;
+        final MessageDigest messageDigest = createMessageDigest() ;
+        for( final String embedFile : embedFiles ) {
+          final String line = embedFile + "\t" + digestResource( new URL( embedFile ) ) + "\n" ;
+          messageDigest.update( line.getBytes( Charsets.UTF_8.name() ) ) ;
+        }
+        fontDigest = toHexadecimal( messageDigest.digest() ) ;
+      }
+    }
+    return fontDigest ;
+  }
+
+  private static String digest( final InputStream inputStream ) throws IOException {
+    final MessageDigest messageDigest = createMessageDigest() ;
+    try {
+      final byte[] buffer = new byte[ 8192 ] ;
+      int read ;
+      while( ( read = inputStream.read( buffer ) ) >= 0 ) {
+        messageDigest.update( buffer, 0, read ) ;
+      }
+    } finally {
+      inputStream.close() ;
+    }
+    return toHexadecimal( messageDigest.digest() ) ;
+  }
+
+  private static MessageDigest createMessageDigest() {
+    try {
+      return MessageDigest.getInstance( "MD5" ) ;
+    } catch( NoSuchAlgorithmException e ) {
+      throw new RuntimeException( e ) ;
+    }
+  }
+
+  private static String toHexadecimal( final byte[] bytes ) {
+    final StringBuilder hexadecimal = new StringBuilder( bytes.length * 2 ) ;
+    for( final byte b : bytes ) {
+      hexadecimal.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ) ;
+      hexadecimal.append( Character.forDigit( b & 0xF, 16 ) ) ;
+    }
+    return hexadecimal.toString() ;
+  }
+
+
+// =======
+// Loading
+// =======
+
+  private void load( final File file ) throws IOException {
+    final BufferedReader reader = new BufferedReader(
+        new InputStreamReader( new FileInputStream( file ), Charsets.UTF_8 ) ) ;
+    try {
+      if( ! FORMAT_HEADER.equals( reader.readLine() ) ) {
+        throw new IOException( "Unsupported format" ) ;
+      }
+      final String versionLine = "version\t" + Version.CURRENT_PRODUCT_VERSION.getName() ;
+      final String line = reader.readLine() ;
+      if( ! versionLine.equals( line ) ) {
+        throw new IOException( "Written by another version: '" + line + "'" ) ;
+      }
+      if( ! ( "options\t" + optionsFingerprint ).equals( reader.readLine() ) ) {
+        throw new IOException( "Written with other options" ) ;
+      }
+      String target = null ;
+      List< String > outputs = null ;
+      List< Input > inputs = null ;
+      String nextLine ;
+      while( true ) {
+        nextLine = reader.readLine() ;
+        if( nextLine == null || nextLine.startsWith( "document\t" ) ) {
+          if( target != null ) {
+            entries.put( target, new Entry(
+                target, ImmutableList.copyOf( outputs ), ImmutableList.copyOf( inputs ) ) ) ;
+          }
+          if( nextLine == null ) {
+            break ;
+          }
+          target = nextLine.substring( "document\t".length() ) ;
+          outputs = Lists.newArrayList() ;
+          inputs = Lists.newArrayList() ;
+        } else if( nextLine.startsWith( "file\t" ) ) {
+          final FileDigest fileDigest = FileDigest.parse( nextLine ) ;
+          previousFileDigests.put( fileDigest.location, fileDigest ) ;
+        } else if( nextLine.startsWith( "output\t" ) && target != null ) {
+          outputs.add( nextLine.substring( "output\t".length() ) ) ;
+        } else if( nextLine.startsWith( "input\t" ) && target != null ) {
+          inputs.add( Input.parse( nextLine ) ) ;
+        } else if( nextLine.length() > 0 ) {
+          throw new IOException( "Malformed line: '" + nextLine + "'" ) ;
+        }
+      }
+    } finally {
+      reader.close() ;
+    }
+  }
+
+
+// =======
+// Entries
+// =======
+
+  private enum Kind { SOURCE, STYLESHEET, FONTS }
+
+  private static final class Input {
+
+    private final Kind kind ;
+    private final String name ;
+    private final String digest ;
+
+    private Input( final Kind kind, final String name, final String digest ) {
+      this.kind = kind ;
+      this.name = name ;
+      this.digest = digest ;
+    }
+
+    private void appendTo( final StringBuilder builder ) {
+      builder
+          .append( "input\t" )
+          .append( kind.name() ).append( '\t' )
+          .append( digest ).append( '\t' )
+          .append( name ).append( '\n' )
+      ;
+    }
+
+    private static Input parse( final String line ) throws IOException {
+      final String[] values = line.split( "\t", 4 ) ;
+      if( values.length != 4 ) {
+        throw new IOException( "Malformed line: '" + line + "'" ) ;
+      }
+      try {
+        return new Input( Kind.valueOf( values[ 1 ] ), values[ 3 ], values[ 2 ] ) ;
+      } catch( IllegalArgumentException e ) {
+        throw new IOException( "Malformed line: '" + line + "'", e ) ;
+      }
+    }
+  }
+
+  private static final class Entry {
+
+    private final String target ;
+
+    /**
+     * Paths relative to the output directory, with a solidus as separator.
+     */
+    private final ImmutableList< String > outputs ;
+
+    private final ImmutableList< Input > inputs ;
+
+    private Entry(
+        final String target,
+        final ImmutableList< String > outputs,
+        final ImmutableList< Input > inputs
+    ) {
+      this.target = target ;
+      this.outputs = outputs ;
+      this.inputs = inputs ;
+    }
+
+    private void appendTo( final StringBuilder builder ) {
+      builder.append( "document\t" ).append( target ).append( '\n' ) ;
+      for( final String output : outputs ) {
+        builder.append( "output\t" ).append( output ).append( '\n' ) ;
+      }
+      for( final Input input : inputs ) {
+        input.appendTo( builder ) ;
+      }
+    }
+  }
+
+  private static final class FileDigest {
+
+    private final String location ;
+    private final long lastModified ;
+    private final long length ;
+    private final String digest ;
+
+    private FileDigest(
+        final String location,
+        final long lastModified,
+        final long length,
+        final String digest
+    ) {
+      this.location = location ;
+      this.lastModified = lastModified ;
+      this.length = length ;
+      this.digest = digest ;
+    }
+
+    private boolean matches( final ResourceStamp stamp ) {
+      return lastModified == stamp.getLastModified() && length == stamp.getLength() ;
+    }
+
+    private void appendTo( final StringBuilder builder ) {
+      builder
+          .append( "file\t" )
+          .append( lastModified ).append( '\t' )
+          .append( length ).append( '\t' )
+          .append( digest ).append( '\t' )
+          .append( location ).append( '\n' )
+      ;
+    }
+
+    private static FileDigest parse( final String line ) throws IOException {
+      final String[] values = line.split( "\t", 5 ) ;
+      if( values.length != 5 ) {
+        throw new IOException( "Malformed line: '" + line + "'" ) ;
+      }
+      try {
+        return new FileDigest(
+            values[ 4 ],
+            Long.parseLong( values[ 1 ] ),
+            Long.parseLong( values[ 2 ] ),
+            values[ 3 ]
+        ) ;
+      } catch( NumberFormatException e ) {
+        throw new IOException( "Malformed line: '" + line + "'", e ) ;
+      }
+    }
+  }
+
+}
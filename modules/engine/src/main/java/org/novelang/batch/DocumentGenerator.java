@@ -18,19 +18,36 @@
 package org.novelang.batch;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.commons.lang.SystemUtils;
 
 import org.novelang.common.Problem;
+import org.novelang.common.Renderable;
 import org.novelang.configuration.ConfigurationTools;
 import org.novelang.configuration.DocumentGeneratorConfiguration;
 import org.novelang.configuration.parse.ArgumentException;
 import org.novelang.configuration.parse.DocumentGeneratorParameters;
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
 import org.novelang.produce.DocumentProducer;
 import org.novelang.produce.DocumentRequest;
 import org.novelang.produce.StreamDirector;
@@ -57,17 +74,26 @@ public class DocumentGenerator extends AbstractDocumentGenerator< DocumentGenera
     final DocumentGeneratorConfiguration configuration =
         ConfigurationTools.createDocumentGeneratorConfiguration( parameters ) ;
     final File outputDirectory = configuration.getOutputDirectory();
-    resetTargetDirectory( outputDirectory ) ;
+    final BuildManifest buildManifest = BuildManifest.open(
+        outputDirectory,
+        configuration.getProducerConfiguration().getRenderingConfiguration(),
+        BuildManifest.fingerprint( parameters )
+    ) ;
     final DocumentProducer documentProducer =
         new DocumentProducer( configuration.getProducerConfiguration() ) ;
     final List< Problem > allProblems = Lists.newArrayList() ;
 
-    processDocumentRequests(
-        configuration,
-        outputDirectory,
-        documentProducer,
-        allProblems
-    ) ;
+    try {
+      processDocumentRequests(
+          configuration,
+          outputDirectory,
+          documentProducer,
+          buildManifest,
+          allProblems
+      ) ;
+    } finally {
+      buildManifest.save( configuration.getDocumentRequests() ) ;
+    }
 
     if( ! allProblems.isEmpty() ) {
       reportProblems( outputDirectory, allProblems ) ;
@@ -95,39 +121,176 @@ public class DocumentGenerator extends AbstractDocumentGenerator< DocumentGenera
     return createParameters( arguments, new File( SystemUtils.USER_DIR ) ) ;
   }
 
+  /**
+   * Processes document requests, concurrently if
+   * {@link DocumentGeneratorConfiguration#getParallelism()} says so.
+   * Problems get collected in the order of document requests, whatever the order of completion.
+   * Requests share the same {@link DocumentProducer}, so they share parsed Novellas and
+   * compiled stylesheets.
+   *
+   * @param buildManifest a non-null object, {@link BuildManifest#DISABLED} for rendering
+   *     every document.
+   */
   public static void processDocumentRequests(
       final DocumentGeneratorConfiguration configuration,
       final File outputDirectory,
       final DocumentProducer documentProducer,
+      final BuildManifest buildManifest,
       final List< Problem > allProblems
   ) throws Exception {
-    for( final DocumentRequest documentRequest : configuration.getDocumentRequests() ) {
-      Iterables.addAll(
-          allProblems,
-          processDocumentRequest(
-              documentRequest,
-              outputDirectory,
-              documentProducer
-          )
+    final ExecutorService pageExecutorService =
+        configuration.getProducerConfiguration().getExecutorService() ;
+    if( configuration.getParallelism() <= 1 ) {
+      for( final DocumentRequest documentRequest : configuration.getDocumentRequests() ) {
+        final Iterable< Problem > problems = processDocumentRequest(
+            documentRequest,
+            outputDirectory,
+            documentProducer,
+            pageExecutorService,
+            buildManifest
+        ) ;
+        Iterables.addAll( allProblems, problems ) ;
+        if( configuration.getFailFast() && ! Iterables.isEmpty( problems ) ) {
+          LOGGER.warn( "Stopping after problems with ", documentRequest.getOriginalTarget() ) ;
+          return ;
+        }
+      }
+    } else {
+      processDocumentRequestsConcurrently(
+          configuration,
+          outputDirectory,
+          documentProducer,
+          pageExecutorService,
+          buildManifest,
+          allProblems
       ) ;
     }
   }
 
+  /**
+   * Uses its own {@code ExecutorService} because a document request waits for tasks
+   * (parsing Novellas, rendering pages) running on the one from the
+   * {@link org.novelang.configuration.ProducerConfiguration}.
+   */
+  private static void processDocumentRequestsConcurrently(
+      final DocumentGeneratorConfiguration configuration,
+      final File outputDirectory,
+      final DocumentProducer documentProducer,
+      final ExecutorService pageExecutorService,
+      final BuildManifest buildManifest,
+      final List< Problem > allProblems
+  ) throws Exception {
+    final ExecutorService documentExecutorService = Executors.newFixedThreadPool(
+        configuration.getParallelism(), ConfigurationTools.getExecutorThreadFactory() ) ;
+    try {
+      final CompletionService< Iterable< Problem > > completionService =
+          new ExecutorCompletionService< Iterable< Problem > >( documentExecutorService ) ;
+      final List< Future< Iterable< Problem > > > futures = Lists.newArrayList() ;
+      for( final DocumentRequest documentRequest : configuration.getDocumentRequests() ) {
+        futures.add( completionService.submit( new Callable< Iterable< Problem > >() {
+          @Override
+          public Iterable< Problem > call() throws Exception {
+            return processDocumentRequest(
+                documentRequest,
+                outputDirectory,
+                documentProducer,
+                pageExecutorService,
+                buildManifest
+            ) ;
+          }
+        } ) ) ;
+      }
+
+      if( configuration.getFailFast() ) {
+        for( int i = 0 ; i < futures.size() ; i ++ ) {
+          if( hasFailed( completionService.take() ) ) {
+            LOGGER.warn( "Cancelling remaining document requests after a failure." ) ;
+            for( final Future< Iterable< Problem > > future : futures ) {
+              future.cancel( true ) ;
+            }
+            break ;
+          }
+        }
+      }
+
+      // Collecting in request order for a stable report.
+      Throwable firstFailure = null ;
+      for( final Future< Iterable< Problem > > future : futures ) {
+        if( ! future.isCancelled() ) {
+          try {
+            Iterables.addAll( allProblems, future.get() ) ;
+          } catch( ExecutionException e ) {
+            if( firstFailure == null ) {
+              firstFailure = e.getCause() ;
+            }
+          }
+        }
+      }
+      if( firstFailure instanceof Exception ) {
+        throw ( Exception ) firstFailure ;
+      } else if( firstFailure instanceof Error ) {
+        throw ( Error ) firstFailure ;
+      }
+    } finally {
+      documentExecutorService.shutdownNow() ;
+    }
+  }
+
+  private static boolean hasFailed( final Future< Iterable< Problem > > future )
+      throws InterruptedException
+  {
+    try {
+      return ! Iterables.isEmpty( future.get() ) ;
+    } catch( ExecutionException e ) {
+      return true ;
+    }
+  }
+
   public static String getSpecificCommandLineParametersDescriptor() {
     return " [OPTIONS] document1 [document2...]";
   }
 
 
-  private static Iterable< Problem > processDocumentRequest(
+  /**
+   * Renders one document, unless given {@link BuildManifest} tells it is up to date.
+   * A document rendered without {@link Problem} gets recorded into the {@link BuildManifest}.
+   *
+   * @param pageExecutorService a possibly null object, renders pages of multipage documents
+   *     concurrently.
+   */
+  public static Iterable< Problem > processDocumentRequest(
       final DocumentRequest documentRequest,
       final File targetDirectory,
-      final DocumentProducer documentProducer
+      final DocumentProducer documentProducer,
+      final ExecutorService pageExecutorService,
+      final BuildManifest buildManifest
   ) throws Exception {
+    if( buildManifest.isUpToDate( documentRequest ) ) {
+      LOGGER.info( "Keeping up-to-date '", documentRequest.getOriginalTarget(), "'." ) ;
+      return ImmutableList.of() ;
+    }
+    buildManifest.discard( documentRequest ) ;
+    final Renderable renderable = documentProducer.createRenderable( documentRequest ) ;
+    // Stamping before rendering, so a source changing meanwhile doesn't get recorded.
+    final ImmutableMap< File, ResourceStamp > sources =
+        documentProducer.stampSources( documentRequest, renderable ) ;
+    // Pages of a multipage document may get written concurrently.
+    final Set< File > outputFiles = Collections.synchronizedSet( Sets.< File >newLinkedHashSet() ) ;
+    final Map< ResourceName, ResourceStamp > stylesheetDependencies = Maps.newHashMap() ;
     final Iterable< Problem > problems = documentProducer.produce(
         documentRequest,
-        documentProducer.createRenderable( documentRequest ),
-        StreamDirector.forDirectory( documentRequest, targetDirectory )
+        renderable,
+        StreamDirector.forDirectory(
+            documentRequest, targetDirectory, pageExecutorService, outputFiles ),
+        stylesheetDependencies
     ) ;
+    if( Iterables.isEmpty( problems ) ) {
+      final ImmutableList< File > writtenFiles ;
+      synchronized( outputFiles ) {
+        writtenFiles = ImmutableList.copyOf( outputFiles ) ;
+      }
+      buildManifest.record( documentRequest, writtenFiles, sources, stylesheetDependencies ) ;
+    }
     return problems ;
   }
 
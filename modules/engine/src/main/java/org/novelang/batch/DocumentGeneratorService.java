@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.batch;
+
+import javax.management.MXBean;
+import javax.management.ObjectName;
+
+/**
+ * Lets other JVMs submit document requests to a {@link DocumentGeneratorWorker}.
+ *
+ * @author Laurent Caillette
+ */
+@MXBean
+public interface DocumentGeneratorService {
+
+  /**
+   * JMX stuff.
+   */
+  ObjectName NAME = DocumentGeneratorWorker.createObjectName(
+      "org.novelang.batch:type=DocumentGeneratorService" ) ;
+
+  /**
+   * Generates documents like {@link DocumentGenerator} does.
+   *
+   * @param arguments a non-null array with the same arguments as for
+   *     {@value DocumentGenerator#COMMAND_NAME} command. Only output directory, parallelism,
+   *     fail-fast and document requests are taken in account, other options are the ones
+   *     the {@link DocumentGeneratorWorker} started with.
+   * @return a non-null array, with one message per {@link org.novelang.common.Problem},
+   *     empty if there was none.
+   */
+  String[] generate( String[] arguments ) throws Exception ;
+
+  /**
+   * Returns true once the {@link DocumentGeneratorWorker} warmed up, so
+   * {@link #generate(String[])} won't wait for it.
+   */
+  boolean isInitialized() ;
+
+}
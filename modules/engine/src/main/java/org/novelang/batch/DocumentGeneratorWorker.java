@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.batch;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.google.common.collect.Lists;
+
+import org.novelang.common.Problem;
+import org.novelang.configuration.ConfigurationTools;
+import org.novelang.configuration.DocumentGeneratorConfiguration;
+import org.novelang.configuration.ProducerConfiguration;
+import org.novelang.configuration.RenditionKinematic;
+import org.novelang.configuration.parse.ArgumentException;
+import org.novelang.configuration.parse.DocumentGeneratorParameters;
+import org.novelang.configuration.parse.DocumentGeneratorWorkerParameters;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.produce.DocumentProducer;
+
+/**
+ * Keeps a {@link DocumentProducer} warm (compiled stylesheets, discovered fonts, parsed Novellas)
+ * and generates documents on requests coming through JMX, as a {@link DocumentGeneratorService}.
+ * This saves JVM startup and warm-up for a build running {@link DocumentGenerator} again and
+ * again.
+ * <p>
+ * There is nothing to stop this worker but the {@code Insider} which is supposed to come with it,
+ * halting the JVM when nobody sent a heartbeat for a while.
+ *
+ * @author Laurent Caillette
+ */
+public class DocumentGeneratorWorker
+    extends AbstractDocumentGenerator< DocumentGeneratorWorkerParameters >
+{
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( DocumentGeneratorWorker.class ) ;
+
+  public static final String COMMAND_NAME = "generateworker" ;
+
+  /**
+   * Printed on standard output once {@link DocumentGeneratorService} is registered.
+   */
+  public static final String READY_MESSAGE = "Document generator worker ready." ;
+
+  /**
+   * Registers the {@link DocumentGeneratorService} first, so callers may connect to it
+   * while the {@link DocumentProducer} warms up.
+   */
+  @Override
+  public void main( final DocumentGeneratorWorkerParameters parameters ) throws Exception {
+    final Service service = new Service( parameters.getBaseDirectory() ) ;
+    ManagementFactory.getPlatformMBeanServer().registerMBean(
+        service, DocumentGeneratorService.NAME ) ;
+    LOGGER.info( "Registered ", DocumentGeneratorService.NAME, "." ) ;
+
+    //noinspection UseOfSystemOutOrSystemErr
+    System.out.println( READY_MESSAGE ) ;
+    System.out.flush() ;
+
+    try {
+      final ProducerConfiguration producerConfiguration =
+          ConfigurationTools.createProducerConfiguration( parameters, RenditionKinematic.BATCH ) ;
+      service.initialize( producerConfiguration, new DocumentProducer( producerConfiguration ) ) ;
+    } catch( Exception e ) {
+      service.initializationFailed( e ) ;
+      // So next builds don't try to reuse this worker.
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean( DocumentGeneratorService.NAME ) ;
+      throw e ;
+    }
+
+    // Nobody counts down, the JVM ends with System.exit() or Runtime.halt() from the Insider.
+    new CountDownLatch( 1 ).await() ;
+  }
+
+  public static DocumentGeneratorWorkerParameters createParameters(
+      final String[] arguments,
+      final File baseDirectory
+  ) throws ArgumentException {
+    return new DocumentGeneratorWorkerParameters( baseDirectory, arguments ) ;
+  }
+
+  public static String getSpecificCommandLineParametersDescriptor() {
+    return " [OPTIONS]" ;
+  }
+
+  /*package*/ static ObjectName createObjectName( final String name ) {
+    try {
+      return new ObjectName( name ) ;
+    } catch( MalformedObjectNameException e ) {
+      throw new RuntimeException( e ) ;
+    }
+  }
+
+
+// =======
+// Service
+// =======
+
+  private static class Service implements DocumentGeneratorService {
+
+    private final File baseDirectory ;
+    private final CountDownLatch initialized = new CountDownLatch( 1 ) ;
+
+    /**
+     * Safely published by {@link #initialized}.
+     */
+    private ProducerConfiguration producerConfiguration = null ;
+    private DocumentProducer documentProducer = null ;
+    private Exception initializationFailure = null ;
+
+    public Service( final File baseDirectory ) {
+      this.baseDirectory = baseDirectory ;
+    }
+
+    public void initialize(
+        final ProducerConfiguration producerConfiguration,
+        final DocumentProducer documentProducer
+    ) {
+      this.producerConfiguration = producerConfiguration ;
+      this.documentProducer = documentProducer ;
+      initialized.countDown() ;
+    }
+
+    public void initializationFailed( final Exception e ) {
+      initializationFailure = e ;
+      initialized.countDown() ;
+    }
+
+    @Override
+    public boolean isInitialized() {
+      return initialized.getCount() == 0L ;
+    }
+
+    @Override
+    public String[] generate( final String[] arguments ) throws Exception {
+      initialized.await() ;
+      if( initializationFailure != null ) {
+        throw new IllegalStateException(
+            "Worker initialization failed: " + initializationFailure.getMessage() ) ;
+      }
+      LOGGER.info( "Generating for ", asString( arguments ), "..." ) ;
+      final DocumentGeneratorParameters parameters ;
+      try {
+        parameters = DocumentGenerator.createParameters( arguments, baseDirectory ) ;
+      } catch( ArgumentException e ) {
+        // Its HelpPrinter doesn't travel through JMX.
+        throw new IllegalArgumentException( e.getMessage() ) ;
+      }
+      final DocumentGeneratorConfiguration configuration =
+          ConfigurationTools.createDocumentGeneratorConfiguration(
+              parameters, producerConfiguration ) ;
+      final File outputDirectory = configuration.getOutputDirectory() ;
+      final BuildManifest buildManifest = BuildManifest.open(
+          outputDirectory,
+          producerConfiguration.getRenderingConfiguration(),
+          BuildManifest.fingerprint( parameters )
+      ) ;
+
+      final List< Problem > allProblems = Lists.newArrayList() ;
+      try {
+        DocumentGenerator.processDocumentRequests(
+            configuration,
+            outputDirectory,
+            documentProducer,
+            buildManifest,
+            allProblems
+        ) ;
+      } finally {
+        buildManifest.save( configuration.getDocumentRequests() ) ;
+      }
+
+      final String[] problemMessages = new String[ allProblems.size() ] ;
+      for( int i = 0 ; i < problemMessages.length ; i ++ ) {
+        problemMessages[ i ] = allProblems.get( i ).toString() ;
+      }
+      if( problemMessages.length > 0 ) {
+        reportProblems( outputDirectory, allProblems ) ;
+        LOGGER.warn( "There were problems. See ", outputDirectory, "/", PROBLEMS_FILENAME ) ;
+      }
+      LOGGER.info( "Generated for ", asString( arguments ), "." ) ;
+      return problemMessages ;
+    }
+  }
+
+}
@@ -31,6 +31,11 @@ public class Nodepath {
   final NodeKind current ;
   final Nodepath ancestor ;
 
+  /**
+   * Lazily created by {@link #child(NodeKind)}, indexed by {@link NodeKind#ordinal()}.
+   */
+  private Nodepath[] children = null ;
+
   public Nodepath() {
     depth = 0 ;
     current = null ;
@@ -61,6 +66,31 @@ public class Nodepath {
     return current;
   }
 
+  /**
+   * Returns a {@code Nodepath} with this one as ancestor, the same for a given
+   * {@code NodeKind} each time, so rendering doesn't create one for each node.
+   * As a {@code Nodepath} is immutable, concurrent calls may only cause
+   * some useless instantiations.
+   *
+   * @param kind a non-null object.
+   * @return a non-null object.
+   */
+  public Nodepath child( final NodeKind kind ) {
+    Nodepath[] children = this.children ;
+    if( children == null ) {
+      children = new Nodepath[ NODE_KIND_COUNT ] ;
+      this.children = children ;
+    }
+    Nodepath child = children[ kind.ordinal() ] ;
+    if( child == null ) {
+      child = current == null ? new Nodepath( kind ) : new Nodepath( this, kind ) ;
+      children[ kind.ordinal() ] = child ;
+    }
+    return child ;
+  }
+
+  private static final int NODE_KIND_COUNT = NodeKind.values().length ;
+
   private String getPathAsString() {
     return
         current.name() +
@@ -202,11 +202,7 @@ public class MetadataHelper {
       return tree ;
     }
 
-    final SyntacticTree pageTree = new SimpleTree(
-        _PAGE,
-        new SimpleTree( _PAGE_IDENTIFIER, new SimpleTree( page.getPageIdentifier().getName() ) ),
-        new SimpleTree( _PAGE_PATH, new SimpleTree( page.getPath() ) )
-    ) ;
+    final SyntacticTree pageTree = createPageTree( page ) ;
 
     final Treepath< SyntacticTree > treepath = Treepath.create( tree ) ;
 
@@ -235,4 +231,33 @@ public class MetadataHelper {
     return treepathToMetaChild.getTreeAtStart() ;
   }
 
+  /**
+   * Creates the {@link org.novelang.parser.NodeKind#_PAGE} element that
+   * {@link #createMetadataDecoration(SyntacticTree, Page)} adds.
+   *
+   * @param page a non-null object.
+   * @return a non-null object.
+   */
+  public static SyntacticTree createPageTree( final Page page ) {
+    return new SimpleTree(
+        _PAGE,
+        new SimpleTree( _PAGE_IDENTIFIER, new SimpleTree( page.getPageIdentifier().getName() ) ),
+        new SimpleTree( _PAGE_PATH, new SimpleTree( page.getPath() ) )
+    ) ;
+  }
+
+  /**
+   * Tells if {@link #createMetadataDecoration(SyntacticTree, Page)} adds its
+   * {@link org.novelang.parser.NodeKind#_PAGE} into an existing
+   * {@link org.novelang.parser.NodeKind#_META}.
+   */
+  public static boolean hasMetaChild( final SyntacticTree tree ) {
+    for( int i = 0 ; i < tree.getChildCount() ; i ++ ) {
+      if( tree.getChildAt( i ).isOneOf( _META ) ) {
+        return true ;
+      }
+    }
+    return false ;
+  }
+
 }
@@ -19,12 +19,14 @@ package org.novelang.configuration;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.nio.charset.Charset;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FopFactory;
@@ -37,6 +39,8 @@ import org.novelang.configuration.parse.GenericParametersConstants;
 import org.novelang.configuration.parse.LevelExploderParameters;
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
+import org.novelang.novella.ImageMetadataCache;
+import org.novelang.novella.NovellaCache;
 import org.novelang.outfit.DefaultCharset;
 import org.novelang.outfit.LogbackConfigurationTools;
 import org.novelang.outfit.loader.AbstractResourceLoader;
@@ -45,6 +49,8 @@ import org.novelang.outfit.loader.CompositeResourceLoader;
 import org.novelang.outfit.loader.ResourceLoader;
 import org.novelang.outfit.loader.UrlResourceLoader;
 import org.novelang.produce.DocumentRequest;
+import org.novelang.rendering.PdfRenderingService;
+import org.novelang.rendering.RenditionMimeType;
 
 /**
  * Creates various Configuration objects from {@link GenericParameters}.
@@ -68,12 +74,38 @@ public class ConfigurationTools {
 
   public static final int DEFAULT_HTTP_DAEMON_PORT = 8080 ;
   public static final boolean DEFAULT_HTTP_DAEMON_SERVE_REMOTES = false ;
+  public static final int DEFAULT_HTTP_DAEMON_RENDITION_CACHE = 0 ;
+  public static final int DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCY =
+      Runtime.getRuntime().availableProcessors() ;
+
+  /**
+   * PDF goes through FOP after XSLT, which takes much more heap than other renditions.
+   */
+  public static final ImmutableMap< RenditionMimeType, Integer >
+      DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCIES = ImmutableMap.of(
+          RenditionMimeType.PDF, Math.max( 1, DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCY / 2 ) ) ;
+
+  public static final int DEFAULT_HTTP_DAEMON_RENDERING_QUEUE = 16 ;
   public static final String DEFAULT_FONTS_DIRECTORY_NAME = "fonts" ;
   public static final String DEFAULT_HYPHENATION_DIRECTORY_NAME = "hyphenation" ;
+
+  /**
+   * Where the daemon keeps FOP's font cache, relative to the base directory.
+   */
+  public static final String FONT_CACHE_FILE_NAME = ".novelang-fop-fonts.cache" ;
+
+  /**
+   * Where {@link ImageMetadataCache} persists image dimensions for the daemon, relative to
+   * the base directory.
+   */
+  public static final String IMAGE_METADATA_CACHE_FILE_NAME = ".novelang-images.cache" ;
   public static final String BUNDLED_STYLE_DIR = "style" ;
   public static final String DEFAULT_STYLE_DIR = "style" ;
   public static final String DEFAULT_OUTPUT_DIRECTORY_NAME = "output" ;
   public static final Charset DEFAULT_RENDERING_CHARSET = DefaultCharset.RENDERING ;
+  public static final int DEFAULT_NOVELLA_CACHE_MEGABYTES = 16 ;
+  public static final int DEFAULT_PARALLELISM = 1 ;
+  public static final boolean DEFAULT_FAIL_FAST = false ;
 
 
   private static final ThreadGroup EXECUTOR_THREAD_GROUP = new ThreadGroup( "Executor" ) ;
@@ -108,7 +140,7 @@ public class ConfigurationTools {
     final RenderingConfiguration renderingConfiguration =
         createRenderingConfiguration( parameters, renderingKinematic ) ;
     final ContentConfiguration contentConfiguration =
-        createContentConfiguration( parameters ) ;
+        createContentConfiguration( parameters, renderingKinematic ) ;
 
     return new ProducerConfiguration() {
       @Override
@@ -180,6 +212,95 @@ public class ConfigurationTools {
       ) ;
     }
 
+    final int renditionCacheCapacity ;
+    final Integer customRenditionCacheCapacity = parameters.getRenditionCacheCapacity() ;
+    if( null == customRenditionCacheCapacity ) {
+      renditionCacheCapacity = DEFAULT_HTTP_DAEMON_RENDITION_CACHE ;
+      LOGGER.info(
+          "Got rendition cache capacity from default value [",
+          DEFAULT_HTTP_DAEMON_RENDITION_CACHE,
+          "] (option not set: ",
+          parameters.getHttpDaemonRenditionCacheOptionDescription(),
+          ")."
+      ) ;
+    } else {
+      renditionCacheCapacity = customRenditionCacheCapacity ;
+      LOGGER.info(
+          "Got rendition cache capacity from custom value '",
+          customRenditionCacheCapacity,
+          "' (from option: ",
+          parameters.getHttpDaemonRenditionCacheOptionDescription(),
+          ")."
+      ) ;
+    }
+
+    final int renderingConcurrency ;
+    final Integer customRenderingConcurrency = parameters.getRenderingConcurrency() ;
+    if( null == customRenderingConcurrency ) {
+      renderingConcurrency = DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCY ;
+      LOGGER.info(
+          "Got rendering concurrency from default value [",
+          DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCY,
+          "] (option not set: ",
+          parameters.getHttpDaemonRenderingConcurrencyOptionDescription(),
+          ")."
+      ) ;
+    } else {
+      renderingConcurrency = customRenderingConcurrency ;
+      LOGGER.info(
+          "Got rendering concurrency from custom value '",
+          customRenderingConcurrency,
+          "' (from option: ",
+          parameters.getHttpDaemonRenderingConcurrencyOptionDescription(),
+          ")."
+      ) ;
+    }
+
+    final Map< RenditionMimeType, Integer > renderingConcurrencies ;
+    final Map< RenditionMimeType, Integer > customRenderingConcurrencies =
+        parameters.getRenderingConcurrencies() ;
+    if( null == customRenderingConcurrencies ) {
+      renderingConcurrencies = DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCIES ;
+      LOGGER.info(
+          "Got rendering concurrencies from default value ",
+          DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCIES,
+          " (option not set: ",
+          parameters.getHttpDaemonRenderingConcurrencyOptionDescription(),
+          ")."
+      ) ;
+    } else {
+      renderingConcurrencies = customRenderingConcurrencies ;
+      LOGGER.info(
+          "Got rendering concurrencies from custom value ",
+          customRenderingConcurrencies,
+          " (from option: ",
+          parameters.getHttpDaemonRenderingConcurrencyOptionDescription(),
+          ")."
+      ) ;
+    }
+
+    final int renderingQueueCapacity ;
+    final Integer customRenderingQueueCapacity = parameters.getRenderingQueueCapacity() ;
+    if( null == customRenderingQueueCapacity ) {
+      renderingQueueCapacity = DEFAULT_HTTP_DAEMON_RENDERING_QUEUE ;
+      LOGGER.info(
+          "Got rendering queue capacity from default value [",
+          DEFAULT_HTTP_DAEMON_RENDERING_QUEUE,
+          "] (option not set: ",
+          parameters.getHttpDaemonRenderingQueueOptionDescription(),
+          ")."
+      ) ;
+    } else {
+      renderingQueueCapacity = customRenderingQueueCapacity ;
+      LOGGER.info(
+          "Got rendering queue capacity from custom value '",
+          customRenderingQueueCapacity,
+          "' (from option: ",
+          parameters.getHttpDaemonRenderingQueueOptionDescription(),
+          ")."
+      ) ;
+    }
+
     return new DaemonConfiguration() {
       @Override
       public int getPort() {
@@ -191,6 +312,26 @@ public class ConfigurationTools {
         return serveRemotes ;
       }
 
+      @Override
+      public int getRenditionCacheCapacity() {
+        return renditionCacheCapacity ;
+      }
+
+      @Override
+      public int getRenderingConcurrency() {
+        return renderingConcurrency ;
+      }
+
+      @Override
+      public Map< RenditionMimeType, Integer > getRenderingConcurrencies() {
+        return renderingConcurrencies ;
+      }
+
+      @Override
+      public int getRenderingQueueCapacity() {
+        return renderingQueueCapacity ;
+      }
+
       @Override
       public ProducerConfiguration getProducerConfiguration() {
         return producerConfiguration ;
@@ -231,12 +372,70 @@ public class ConfigurationTools {
   )
       throws FOPException, IllegalArgumentException
   {
-    final ProducerConfiguration producerConfiguration = createProducerConfiguration(
-        parameters, RenditionKinematic.BATCH ) ;
+    return createDocumentGeneratorConfiguration(
+        parameters,
+        createProducerConfiguration( parameters, RenditionKinematic.BATCH )
+    ) ;
+  }
 
+  /**
+   * Same as {@link #createDocumentGeneratorConfiguration(DocumentGeneratorParameters)}
+   * but reusing a {@link ProducerConfiguration} created before, like
+   * {@link org.novelang.batch.DocumentGeneratorWorker} does.
+   */
+  public static DocumentGeneratorConfiguration createDocumentGeneratorConfiguration(
+      final DocumentGeneratorParameters parameters,
+      final ProducerConfiguration producerConfiguration
+  )
+      throws IllegalArgumentException
+  {
     final File outputDirectory ;
     outputDirectory = extractOutputDirectory( parameters ) ;
 
+    final int parallelism ;
+    final Integer customParallelism = parameters.getParallelism() ;
+    if( null == customParallelism ) {
+      parallelism = DEFAULT_PARALLELISM ;
+      LOGGER.info(
+          "Got parallelism from default value [",
+          DEFAULT_PARALLELISM,
+          "] (option not set: ",
+          parameters.getParallelismOptionDescription(),
+          ")."
+      ) ;
+    } else {
+      parallelism = customParallelism ;
+      LOGGER.info(
+          "Got parallelism from custom value '",
+          customParallelism,
+          "' (from option: ",
+          parameters.getParallelismOptionDescription(),
+          ")."
+      ) ;
+    }
+
+    final boolean failFast ;
+    final Boolean customFailFast = parameters.getFailFast() ;
+    if( null == customFailFast ) {
+      failFast = DEFAULT_FAIL_FAST ;
+      LOGGER.info(
+          "Got fail-fast from default value [",
+          DEFAULT_FAIL_FAST,
+          "] (option not set: ",
+          parameters.getFailFastOptionDescription(),
+          ")."
+      ) ;
+    } else {
+      failFast = customFailFast ;
+      LOGGER.info(
+          "Got fail-fast from custom value '",
+          customFailFast,
+          "' (from option: ",
+          parameters.getFailFastOptionDescription(),
+          ")."
+      ) ;
+    }
+
     return new DocumentGeneratorConfiguration() {
       @Override
       public ProducerConfiguration getProducerConfiguration() {
@@ -247,6 +446,14 @@ public class ConfigurationTools {
         return parameters.getDocumentRequests() ;
       }
       @Override
+      public int getParallelism() {
+        return parallelism ;
+      }
+      @Override
+      public boolean getFailFast() {
+        return failFast ;
+      }
+      @Override
       public File getOutputDirectory() {
         return outputDirectory ;
       }
@@ -283,7 +490,8 @@ public class ConfigurationTools {
   }
 
   public static ContentConfiguration createContentConfiguration(
-      final GenericParameters parameters
+      final GenericParameters parameters,
+      final RenditionKinematic renditionKinematic
   ) {
     final Charset defaultSourceCharset ;
     {
@@ -326,6 +534,41 @@ public class ConfigurationTools {
       }
     }
 
+    final NovellaCache novellaCache ;
+    {
+      final int megabytes ;
+      if( null == parameters.getNovellaCacheMegabytes() ) {
+        megabytes = DEFAULT_NOVELLA_CACHE_MEGABYTES ;
+        LOGGER.info(
+            "Novella cache size is ",
+            megabytes,
+            " MB by default (option not set: ",
+            GenericParametersConstants.getNovellaCacheOptionDescription(),
+            ")."
+        ) ;
+      } else {
+        megabytes = parameters.getNovellaCacheMegabytes() ;
+        LOGGER.info(
+            "Novella cache size set as ",
+            megabytes,
+            " MB (from option ",
+            GenericParametersConstants.getNovellaCacheOptionDescription(),
+            ")."
+        ) ;
+      }
+      // Only the daemon lives long enough to benefit from an image metadata cache on disk.
+      novellaCache = megabytes == 0 ?
+          NovellaCache.DISABLED :
+          new NovellaCache(
+              megabytes * 1024L * 1024L,
+              Preconditions.checkNotNull( renditionKinematic ) == RenditionKinematic.DAEMON
+                  ? new ImageMetadataCache(
+                      new File( parameters.getBaseDirectory(), IMAGE_METADATA_CACHE_FILE_NAME ) )
+                  : new ImageMetadataCache()
+          )
+      ;
+    }
+
     return new ContentConfiguration() {
       @Override
       public File getContentRoot() {
@@ -335,6 +578,10 @@ public class ConfigurationTools {
       public Charset getSourceCharset() {
         return defaultSourceCharset ;
       }
+      @Override
+      public NovellaCache getNovellaCache() {
+        return novellaCache ;
+      }
     } ;
   }
 
@@ -367,6 +614,14 @@ public class ConfigurationTools {
 
     Preconditions.checkNotNull( renditionKinematic ) ;
 
+    // Only the daemon lives long enough to benefit from a font cache on disk.
+    final File fontCacheFile = renditionKinematic == RenditionKinematic.DAEMON
+        ? new File( parameters.getBaseDirectory(), FONT_CACHE_FILE_NAME )
+        : null
+    ;
+    final PdfRenderingService pdfRenderingService =
+        new PdfRenderingService( fopFactory, fontCacheFile ) ;
+
     final Charset defaultRenderingCharset ;
     {
       final Charset charset = parameters.getDefaultRenderingCharset() ;
@@ -401,10 +656,15 @@ public class ConfigurationTools {
         return fopFactory ;
       }
 
+      @Override
+      public PdfRenderingService getPdfRenderingService() {
+        return pdfRenderingService ;
+      }
+
       @Override
       public FopFontStatus getCurrentFopFontStatus() {
         try {
-          return FopTools.createGlobalFontStatus( fopFactory, fontDirectories ) ;
+          return pdfRenderingService.getFontStatus( fontDirectories ) ;
         } catch( FOPException e ) {
           throw new RuntimeException( e ) ;
         }
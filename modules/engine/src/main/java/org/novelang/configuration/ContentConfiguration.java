@@ -20,6 +20,8 @@ package org.novelang.configuration;
 import java.io.File;
 import java.nio.charset.Charset;
 
+import org.novelang.novella.NovellaCache;
+
 /**
  * @author Laurent Caillette
  */
@@ -28,4 +30,9 @@ public interface ContentConfiguration {
   File getContentRoot() ;
 
   Charset getSourceCharset() ;
+
+  /**
+   * @return a non-null object, {@link NovellaCache#DISABLED} if no caching should happen.
+   */
+  NovellaCache getNovellaCache() ;
 }
@@ -16,6 +16,10 @@
  */
 package org.novelang.configuration;
 
+import java.util.Map;
+
+import org.novelang.rendering.RenditionMimeType;
+
 /**
  * @author Laurent Caillette
  */
@@ -25,6 +29,28 @@ public interface DaemonConfiguration {
   
   boolean getServeRemotes() ;
 
+  /**
+   * Returns how many rendered documents to keep in memory, 0 means none
+   * (only their {@code ETag}s).
+   */
+  int getRenditionCacheCapacity() ;
+
+  /**
+   * Returns how many documents of the same rendition type may render at the same time.
+   */
+  int getRenderingConcurrency() ;
+
+  /**
+   * Overrides {@link #getRenderingConcurrency()} for some rendition types.
+   */
+  Map< RenditionMimeType, Integer > getRenderingConcurrencies() ;
+
+  /**
+   * Returns how many requests for the same rendition type may wait for rendering,
+   * before getting a {@code 503 Service Unavailable}.
+   */
+  int getRenderingQueueCapacity() ;
+
   ProducerConfiguration getProducerConfiguration() ;
 
 }
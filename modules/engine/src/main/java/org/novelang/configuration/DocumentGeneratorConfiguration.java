@@ -29,5 +29,16 @@ public interface DocumentGeneratorConfiguration extends BatchConfiguration {
    */
   Iterable<DocumentRequest> getDocumentRequests() ;
 
+  /**
+   * Returns how many document requests to process concurrently.
+   * @return 1 or more.
+   */
+  int getParallelism() ;
+
+  /**
+   * Returns true if generation stops at the first document request with problems.
+   */
+  boolean getFailFast() ;
+
 
 }
@@ -145,7 +145,6 @@ public class FopTools {
         createPdfRendererConfiguration( fontDirectories ) ;
     final FOUserAgent foUserAgent = fopFactory.newFOUserAgent() ;
     final FontResolver fontResolver = new DefaultFontResolver( foUserAgent ) ;
-    final FontCache fontCache = new FontCache() ;
 
     @SuppressWarnings( { "unchecked" } )
     final List< EmbedFontInfo > fontList = ( List< EmbedFontInfo > )
@@ -22,6 +22,7 @@ import java.nio.charset.Charset;
 import org.apache.fop.apps.FopFactory;
 
 import org.novelang.outfit.loader.ResourceLoader;
+import org.novelang.rendering.PdfRenderingService;
 
 /**
  * @author Laurent Caillette
@@ -40,6 +41,12 @@ public interface RenderingConfiguration {
    */
   FopFactory getFopFactory() ;
 
+  /**
+   * Returns what PDF renditions share, wrapping {@link #getFopFactory()}.
+   * @return a possibly null object.
+   */
+  PdfRenderingService getPdfRenderingService() ;
+
   /**
    * Returns a descriptor of current FOP's font status regarding initial settings like
    * directories, but reflecting latest changes inside those directories.
@@ -17,13 +17,17 @@
 package org.novelang.configuration.parse;
 
 import java.io.File;
+import java.util.Map;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
+import org.novelang.rendering.RenditionMimeType;
 
 /**
  * Parses command-line arguments for {@link org.novelang.daemon.HttpDaemon}.
@@ -38,6 +42,10 @@ public class DaemonParameters extends GenericParameters {
 
   private final Integer port ;
   private final Boolean serveRemotes;
+  private final Integer renditionCacheCapacity ;
+  private final Integer renderingConcurrency ;
+  private final ImmutableMap< RenditionMimeType, Integer > renderingConcurrencies ;
+  private final Integer renderingQueueCapacity ;
 
   public DaemonParameters( final File baseDirectory, final String... parameters )
       throws ArgumentException
@@ -68,6 +76,111 @@ public class DaemonParameters extends GenericParameters {
       serveRemotes = null ;
     }
 
+    if( line.hasOption( OPTION_HTTPDAEMON_RENDITIONCACHE.getLongOpt() ) ) {
+      final String capacityParameter =
+          line.getOptionValue( OPTION_HTTPDAEMON_RENDITIONCACHE.getLongOpt() ) ;
+      LOGGER.debug( "found: ",
+          OPTION_HTTPDAEMON_RENDITIONCACHE.getLongOpt(),
+          " = '",
+          capacityParameter,
+          "'"
+      ) ;
+      try {
+        renditionCacheCapacity = Integer.parseInt( capacityParameter ) ;
+      } catch( NumberFormatException e ) {
+        throw new ArgumentException( e, helpPrinter );
+      }
+      if( renditionCacheCapacity < 0 ) {
+        throw new ArgumentException(
+            "Rendition cache capacity must be 0 or more, was " + renditionCacheCapacity,
+            helpPrinter
+        ) ;
+      }
+    } else {
+      renditionCacheCapacity = null ;
+    }
+
+    if( line.hasOption( OPTION_HTTPDAEMON_RENDERINGCONCURRENCY.getLongOpt() ) ) {
+      final String concurrencyParameter =
+          line.getOptionValue( OPTION_HTTPDAEMON_RENDERINGCONCURRENCY.getLongOpt() ) ;
+      LOGGER.debug( "found: ",
+          OPTION_HTTPDAEMON_RENDERINGCONCURRENCY.getLongOpt(),
+          " = '",
+          concurrencyParameter,
+          "'"
+      ) ;
+      Integer concurrency = null ;
+      final Map< RenditionMimeType, Integer > concurrencies = Maps.newHashMap() ;
+      for( final String element : concurrencyParameter.split( "," ) ) {
+        final int equalSign = element.indexOf( '=' ) ;
+        if( equalSign < 0 ) {
+          concurrency = parseConcurrency( element ) ;
+        } else {
+          final String extension = element.substring( 0, equalSign ).trim() ;
+          final RenditionMimeType renditionMimeType =
+              RenditionMimeType.maybeValueOf( extension.toUpperCase() ) ;
+          if( renditionMimeType == null ) {
+            throw new ArgumentException(
+                "Unknown rendition type '" + extension + "' in " +
+                    OPTION_HTTPDAEMON_RENDERINGCONCURRENCY.getLongOpt(),
+                helpPrinter
+            ) ;
+          }
+          concurrencies.put(
+              renditionMimeType, parseConcurrency( element.substring( equalSign + 1 ) ) ) ;
+        }
+      }
+      renderingConcurrency = concurrency ;
+      renderingConcurrencies = ImmutableMap.copyOf( concurrencies ) ;
+    } else {
+      renderingConcurrency = null ;
+      renderingConcurrencies = null ;
+    }
+    renderingQueueCapacity = parsePositiveInteger( OPTION_HTTPDAEMON_RENDERINGQUEUE, 0 ) ;
+
+  }
+
+  private int parseConcurrency( final String parameter ) throws ArgumentException {
+    final int value ;
+    try {
+      value = Integer.parseInt( parameter.trim() ) ;
+    } catch( NumberFormatException e ) {
+      throw new ArgumentException( e, helpPrinter );
+    }
+    if( value < 1 ) {
+      throw new ArgumentException(
+          OPTION_HTTPDAEMON_RENDERINGCONCURRENCY.getLongOpt() + " must be 1 or more, was " + value,
+          helpPrinter
+      ) ;
+    }
+    return value ;
+  }
+
+  /**
+   * @return null if the option is not set.
+   */
+  private Integer parsePositiveInteger( final Option option, final int minimum )
+      throws ArgumentException
+  {
+    if( line.hasOption( option.getLongOpt() ) ) {
+      final String parameter = line.getOptionValue( option.getLongOpt() ) ;
+      LOGGER.debug( "found: ", option.getLongOpt(), " = '", parameter, "'" ) ;
+      final int value ;
+      try {
+        value = Integer.parseInt( parameter ) ;
+      } catch( NumberFormatException e ) {
+        throw new ArgumentException( e, helpPrinter );
+      }
+      if( value < minimum ) {
+        throw new ArgumentException(
+            option.getLongOpt() + " must be " + minimum + " or more, was " + value,
+            helpPrinter
+        ) ;
+      }
+      return value ;
+    } else {
+      return null ;
+    }
   }
 
 
@@ -75,6 +188,9 @@ public class DaemonParameters extends GenericParameters {
   protected void enrich( final Options options ) {
     options.addOption( OPTION_HTTPDAEMON_PORT ) ;
     options.addOption( OPTION_HTTPDAEMON_SERVEREMOTES ) ;
+    options.addOption( OPTION_HTTPDAEMON_RENDITIONCACHE ) ;
+    options.addOption( OPTION_HTTPDAEMON_RENDERINGCONCURRENCY ) ;
+    options.addOption( OPTION_HTTPDAEMON_RENDERINGQUEUE ) ;
   }
 
   /**
@@ -92,6 +208,40 @@ public class DaemonParameters extends GenericParameters {
     return serveRemotes;
   }
 
+  /**
+   * Returns how many rendered documents to keep in memory.
+   * @return an integer with a value of 0 or more, or null if undefined.
+   */
+  public Integer getRenditionCacheCapacity() {
+    return renditionCacheCapacity ;
+  }
+
+  /**
+   * Returns how many documents of the same rendition type may render at the same time,
+   * unless {@link #getRenderingConcurrencies()} says otherwise.
+   * @return an integer with a value of 1 or more, or null if undefined.
+   */
+  public Integer getRenderingConcurrency() {
+    return renderingConcurrency ;
+  }
+
+  /**
+   * Returns how many documents of some rendition types may render at the same time.
+   * @return a possibly empty map with values of 1 or more, or null if the option is not set.
+   */
+  public Map< RenditionMimeType, Integer > getRenderingConcurrencies() {
+    return renderingConcurrencies ;
+  }
+
+  /**
+   * Returns how many requests for the same rendition type may wait for rendering
+   * before the daemon answers {@code 503 Service Unavailable}.
+   * @return an integer with a value of 0 or more, or null if undefined.
+   */
+  public Integer getRenderingQueueCapacity() {
+    return renderingQueueCapacity ;
+  }
+
   public String getHttpDaemonPortOptionDescription() {
     return GenericParametersConstants.createOptionDescription( OPTION_HTTPDAEMON_PORT ) ;
   }
@@ -118,5 +268,47 @@ public class DaemonParameters extends GenericParameters {
       .create()
   ;
 
+  public static final String OPTIONNAME_HTTPDAEMON_RENDITIONCACHE = "rendition-cache" ;
+
+  public String getHttpDaemonRenditionCacheOptionDescription() {
+    return GenericParametersConstants.createOptionDescription( OPTION_HTTPDAEMON_RENDITIONCACHE ) ;
+  }
+
+  private static final Option OPTION_HTTPDAEMON_RENDITIONCACHE = OptionBuilder
+      .withLongOpt( OPTIONNAME_HTTPDAEMON_RENDITIONCACHE )
+      .withDescription( "Number of rendered documents to keep in memory (0 for none)" )
+      .hasArg()
+      .create()
+  ;
+
+  public static final String OPTIONNAME_HTTPDAEMON_RENDERINGCONCURRENCY =
+      "rendering-concurrency" ;
+
+  public String getHttpDaemonRenderingConcurrencyOptionDescription() {
+    return GenericParametersConstants.createOptionDescription(
+        OPTION_HTTPDAEMON_RENDERINGCONCURRENCY ) ;
+  }
+
+  private static final Option OPTION_HTTPDAEMON_RENDERINGCONCURRENCY = OptionBuilder
+      .withLongOpt( OPTIONNAME_HTTPDAEMON_RENDERINGCONCURRENCY )
+      .withDescription( "Maximum number of documents of one rendition type rendered at once, "
+          + "like '4' or '4,pdf=1'" )
+      .hasArg()
+      .create()
+  ;
+
+  public static final String OPTIONNAME_HTTPDAEMON_RENDERINGQUEUE = "rendering-queue" ;
+
+  public String getHttpDaemonRenderingQueueOptionDescription() {
+    return GenericParametersConstants.createOptionDescription( OPTION_HTTPDAEMON_RENDERINGQUEUE ) ;
+  }
+
+  private static final Option OPTION_HTTPDAEMON_RENDERINGQUEUE = OptionBuilder
+      .withLongOpt( OPTIONNAME_HTTPDAEMON_RENDERINGQUEUE )
+      .withDescription( "Maximum number of requests of one rendition type waiting for rendering" )
+      .hasArg()
+      .create()
+  ;
+
 
 }
@@ -21,6 +21,8 @@ import java.util.List;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 
 import org.novelang.logger.Logger;
@@ -43,6 +45,8 @@ public class DocumentGeneratorParameters extends BatchParameters {
       LoggerFactory.getLogger( DocumentGeneratorParameters.class ) ;
 
   private final Iterable<DocumentRequest> documentRequests ;
+  private final Integer parallelism ;
+  private final Boolean failFast ;
 
   public DocumentGeneratorParameters( final File baseDirectory, final String[] parameters )
       throws ArgumentException
@@ -77,11 +81,41 @@ public class DocumentGeneratorParameters extends BatchParameters {
       LOGGER.debug( "Document requests = ", documentRequests ) ;
     }
 
+    if( line.hasOption( OPTION_PARALLELISM.getLongOpt() ) ) {
+      final String parallelismParameter = line.getOptionValue( OPTION_PARALLELISM.getLongOpt() ) ;
+      LOGGER.debug( "found: ",
+          OPTION_PARALLELISM.getLongOpt(),
+          " = '",
+          parallelismParameter,
+          "'"
+      ) ;
+      try {
+        parallelism = Integer.parseInt( parallelismParameter ) ;
+      } catch( NumberFormatException e ) {
+        throw new ArgumentException( e, helpPrinter ) ;
+      }
+      if( parallelism < 1 ) {
+        throw new ArgumentException(
+            "Parallelism must be 1 or more, was " + parallelism, helpPrinter ) ;
+      }
+    } else {
+      parallelism = null ;
+    }
+
+    if( line.hasOption( OPTION_FAIL_FAST.getLongOpt() ) ) {
+      failFast = true ;
+      LOGGER.debug( "found: ", OPTION_FAIL_FAST.getLongOpt() ) ;
+    } else {
+      failFast = null ;
+    }
+
   }
 
   @Override
   protected void enrich( final Options options ) {
     options.addOption( OPTION_OUTPUT_DIRECTORY ) ;
+    options.addOption( OPTION_PARALLELISM ) ;
+    options.addOption( OPTION_FAIL_FAST ) ;
   }
   
   /**
@@ -92,6 +126,47 @@ public class DocumentGeneratorParameters extends BatchParameters {
     return documentRequests ;
   }
 
+  /**
+   * Returns how many document requests to process concurrently.
+   * @return an integer with a value of 1 or more, or null if undefined.
+   */
+  public Integer getParallelism() {
+    return parallelism ;
+  }
+
+  /**
+   * Returns if generation should stop at the first document request which fails.
+   * @return true, or null if undefined.
+   */
+  public Boolean getFailFast() {
+    return failFast ;
+  }
+
+  public String getParallelismOptionDescription() {
+    return GenericParametersConstants.createOptionDescription( OPTION_PARALLELISM ) ;
+  }
+
+  public String getFailFastOptionDescription() {
+    return GenericParametersConstants.createOptionDescription( OPTION_FAIL_FAST ) ;
+  }
+
+  public static final String OPTIONNAME_PARALLELISM = "parallelism" ;
+
+  private static final Option OPTION_PARALLELISM = OptionBuilder
+      .withLongOpt( OPTIONNAME_PARALLELISM )
+      .withDescription( "Number of documents to generate concurrently" )
+      .hasArg()
+      .create()
+  ;
+
+  public static final String OPTIONNAME_FAIL_FAST = "fail-fast" ;
+
+  private static final Option OPTION_FAIL_FAST = OptionBuilder
+      .withLongOpt( OPTIONNAME_FAIL_FAST )
+      .withDescription( "Stop at the first document with problems" )
+      .create()
+  ;
+
 
 
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.configuration.parse;
+
+import java.io.File;
+
+import org.apache.commons.cli.Options;
+
+/**
+ * Parses command-line arguments for {@link org.novelang.batch.DocumentGeneratorWorker}.
+ * Document requests and output directory come later, with each submission.
+ *
+ * @author Laurent Caillette
+ */
+public class DocumentGeneratorWorkerParameters extends GenericParameters {
+
+  public DocumentGeneratorWorkerParameters(
+      final File baseDirectory,
+      final String[] parameters
+  ) throws ArgumentException {
+    super( baseDirectory, parameters ) ;
+    if( line.getArgs().length > 0 ) {
+      throw new ArgumentException( "No source document expected", helpPrinter ) ;
+    }
+  }
+
+  @Override
+  protected void enrich( final Options options ) { }
+
+}
@@ -17,25 +17,34 @@
 
 package org.novelang.daemon;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Map;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.StopWatch;
 import org.eclipse.jetty.server.Request;
 
 import org.novelang.common.Problem;
 import org.novelang.common.Renderable;
+import org.novelang.configuration.ConfigurationTools;
 import org.novelang.configuration.ProducerConfiguration;
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.TemporaryFileTools;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
 import org.novelang.produce.AnyRequest;
 import org.novelang.produce.DocumentProducer;
 import org.novelang.produce.DocumentRequest;
@@ -43,21 +52,29 @@ import org.novelang.produce.GenericRequest;
 import org.novelang.produce.MalformedRequestException;
 import org.novelang.produce.StreamDirector;
 import org.novelang.rendering.HtmlProblemPrinter;
+import org.novelang.rendering.PdfRenderingService;
+import org.novelang.rendering.RenditionMimeType;
+import org.novelang.rendering.buffer.ChunkPool;
+import org.novelang.rendering.buffer.CisternOutputStream;
 
 /**
  * Serves rendered content.
  *
- * By now, it re-creates a whole document when an error report is requested.
- * This is because it is not possible to change the type of a requested document without
- * an HTTP redirect. 
+ * It is not possible to change the type of a requested document without an HTTP redirect,
+ * so displaying problems (or going back to the document when there are no more problems)
+ * takes two requests. The {@link Renderable} created by the first one goes to a
+ * {@link RenderableStore} for the second one, instead of being re-created.
  * <p>
- * Solutions:
- * <ol>
- * <li> Cache the Problems in the session.
- * <li> Cache all the Parts and Books and whatever.
- * </ol>
- *
- * Solution 1 sounds better as it keeps error display away from complex caching stuff.
+ * Successfully rendered documents get an {@code ETag} computed by {@link RenditionCache}
+ * from what they were made of. A request with a matching {@code If-None-Match} header
+ * gets a {@code 304 Not Modified} without building the document again.
+ * If {@link RenditionCache} keeps content, rendered bytes are served again as long as
+ * nothing changed.
+ * <p>
+ * Building and rendering a document goes through {@link RenditionAdmission}, which limits
+ * how many of them run at once and answers {@code 503 Service Unavailable} when too many
+ * requests are waiting. Identical requests arriving meanwhile don't queue, they wait
+ * for the first one through {@link RequestCoalescer} and get the same bytes.
  *
  * @author Laurent Caillette
  */
@@ -65,13 +82,69 @@ public class DocumentHandler extends GenericHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( DocumentHandler.class );
 
+  /**
+   * Last modification time of source files is unreliable if this close to the time the
+   * document got built, because of timestamp resolution.
+   */
+  private static final long TIMESTAMP_RESOLUTION_MILLISECONDS = 1000L ;
+
+  private static final int CONTENT_BUFFER_SIZE_BYTES = 256 * 1024 ;
+
   private final DocumentProducer documentProducer ;
   private final Charset renderingCharset ;
+  private final RenditionCache renditionCache ;
+  private final PdfRenderingService pdfRenderingService ;
+  private final RenderableStore renderableStore = new RenderableStore() ;
+  private final RenditionAdmission renditionAdmission ;
+  private final RequestCoalescer requestCoalescer = new RequestCoalescer() ;
 
 
   public DocumentHandler( final ProducerConfiguration serverConfiguration ) {
+    this( serverConfiguration, 0 ) ;
+  }
+
+  /**
+   * @param renditionCacheCapacity the number of rendered documents to keep,
+   *     0 means only {@code ETag}s.
+   */
+  public DocumentHandler(
+      final ProducerConfiguration serverConfiguration,
+      final int renditionCacheCapacity
+  ) {
+    this(
+        serverConfiguration,
+        renditionCacheCapacity,
+        ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCIES,
+        ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCY,
+        ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_QUEUE
+    ) ;
+  }
+
+  /**
+   * @param renderingConcurrencies overrides {@code renderingConcurrency} for some
+   *     {@link RenditionMimeType}s.
+   * @param renderingConcurrency how many documents of the same
+   *     {@link RenditionMimeType} may render at the same time.
+   * @param renderingQueueCapacity how many requests for the same {@link RenditionMimeType}
+   *     may wait before getting a {@code 503 Service Unavailable}.
+   */
+  public DocumentHandler(
+      final ProducerConfiguration serverConfiguration,
+      final int renditionCacheCapacity,
+      final Map< RenditionMimeType, Integer > renderingConcurrencies,
+      final int renderingConcurrency,
+      final int renderingQueueCapacity
+  ) {
+    renditionAdmission = new RenditionAdmission(
+        renderingConcurrencies, renderingConcurrency, renderingQueueCapacity ) ;
     documentProducer = new DocumentProducer( serverConfiguration ) ;
     renderingCharset = serverConfiguration.getRenderingConfiguration().getDefaultCharset() ;
+    pdfRenderingService =
+        serverConfiguration.getRenderingConfiguration().getPdfRenderingService() ;
+    renditionCache = new RenditionCache(
+        serverConfiguration.getRenderingConfiguration().getResourceLoader(),
+        renditionCacheCapacity
+    ) ;
   }
 
 
@@ -112,63 +185,338 @@ public class DocumentHandler extends GenericHandler {
 
         final DocumentRequest documentRequest = ( DocumentRequest ) someRequest ;
 
-        final Renderable rendered ;
-        try {
-          rendered = documentProducer.createRenderable( documentRequest ) ;
-        } catch( IOException e ) {
-          renderProblems(
-              Lists.newArrayList( Problem.createProblem( e ) ),
-              someRequest.getOriginalTarget(),
-              outputStream
-          ) ;
-          throw e ;
+        if( ! documentRequest.getDisplayProblems()
+            && serveFromCache( documentRequest, request, response )
+        ) {
+          ( ( Request ) request ).setHandled( true ) ;
+          LOGGER.info( "Handled request ", request.getRequestURI(),
+              " from cache in ", formatDuration( stopWatch.getTime() ), "." ) ;
+          return ;
         }
 
-        if( documentRequest.getDisplayProblems() ) {
-
-          if( rendered.hasProblem() ) {
-            renderProblemsAsRequested( documentRequest, rendered, outputStream ) ;
-          } else {
-            redirectToOriginalTarget( documentRequest, response ) ;
+        final RequestCoalescer.Flight flight = documentRequest.getDisplayProblems()
+            ? null
+            : requestCoalescer.join( documentRequest )
+        ;
+        try {
+          if( flight != null && ! flight.isLeader()
+              && serveFromFlight( flight, documentRequest, response )
+          ) {
+            ( ( Request ) request ).setHandled( true ) ;
+            LOGGER.info( "Handled request ", request.getRequestURI(),
+                " from concurrent request in ", formatDuration( stopWatch.getTime() ), "." ) ;
+            return ;
           }
+          final RequestCoalescer.Flight leading =
+              flight != null && flight.isLeader() ? flight : null ;
 
-        } else if( rendered.hasProblem() ) {
-          LOGGER.warn(
-              "Document had following problems: \n  ",
-              Joiner.on( "\n  " ).join( rendered.getProblems() )  
-          ) ;
-          redirectToProblemPage( documentRequest, response ) ;
-        } else {
-
-          // Correct methods don't seem to work.
-          // response.setCharacterEncoding( renderingCharset.name() ) ;
-          // response.setContentType( documentRequest.getRenditionMimeType().getMimeName() ) ;
-          response.addHeader( "Content-type", 
-              documentRequest.getRenditionMimeType().getMimeName() ) ;
-          response.addHeader( "Charset", renderingCharset.name() ) ;
-
-          response.setStatus( HttpServletResponse.SC_OK ) ;
+          final RenditionAdmission.Ticket ticket ;
           try {
-            documentProducer.produce(
-                documentRequest,
-                rendered,
-                StreamDirector.forExistingStream( outputStream )
-            ) ;
-          } catch( Exception e ) {
+            ticket = renditionAdmission.enter( documentRequest.getRenditionMimeType() ) ;
+          } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt() ;
             throw new ServletException( e ) ;
           }
-//          response.setContentType( documentRequest.getRenditionMimeType().getMimeName() ) ;
+          if( ticket == null ) {
+            refuseBecauseSaturated( documentRequest, response ) ;
+            ( ( Request ) request ).setHandled( true ) ;
+            return ;
+          }
 
+          try {
+            final long buildStart ;
+            final Renderable rendered ;
+            final RenderableStore.Stored stored = takeStoredRenderable( documentRequest ) ;
+            if( stored == null ) {
+              buildStart = System.currentTimeMillis() ;
+              try {
+                rendered = documentProducer.createRenderable( documentRequest ) ;
+              } catch( IOException e ) {
+                renderProblems(
+                    Lists.newArrayList( Problem.createProblem( e ) ),
+                    someRequest.getOriginalTarget(),
+                    outputStream
+                ) ;
+                throw e ;
+              }
+            } else {
+              buildStart = stored.getBuildStart() ;
+              rendered = stored.getRenderable() ;
+            }
+
+            if( documentRequest.getDisplayProblems() ) {
+
+              if( rendered.hasProblem() ) {
+                renderProblemsAsRequested( documentRequest, rendered, outputStream ) ;
+              } else {
+                storeRenderable( documentRequest, rendered, buildStart ) ;
+                redirectToOriginalTarget( documentRequest, response ) ;
+              }
+
+            } else if( rendered.hasProblem() ) {
+              LOGGER.warn(
+                  "Document had following problems: \n  ",
+                  Joiner.on( "\n  " ).join( rendered.getProblems() )  
+              ) ;
+              storeRenderable( documentRequest, rendered, buildStart ) ;
+              redirectToProblemPage( documentRequest, response ) ;
+            } else {
+
+              // Correct methods don't seem to work.
+              // response.setCharacterEncoding( renderingCharset.name() ) ;
+              // response.setContentType( documentRequest.getRenditionMimeType().getMimeName() ) ;
+              response.addHeader( "Content-type", 
+                  documentRequest.getRenditionMimeType().getMimeName() ) ;
+              response.addHeader( "Charset", renderingCharset.name() ) ;
+
+              response.setStatus( HttpServletResponse.SC_OK ) ;
+              produceAndCache(
+                  documentRequest, rendered, buildStart, response, outputStream, leading ) ;
+//              response.setContentType( documentRequest.getRenditionMimeType().getMimeName() ) ;
+
+            }
+          } finally {
+            ticket.leave() ;
+          }
+        } finally {
+          if( flight != null ) {
+            if( flight.isLeader() ) {
+              flight.abandon() ;
+            }
+            flight.leave() ;
+          }
         }
 
         ( ( Request ) request ).setHandled( true ) ;
         LOGGER.info( "Handled request ", request.getRequestURI(),
             " in ", formatDuration( stopWatch.getTime() ), "." ) ;
+        LOGGER.debug( "Buffers: ", ChunkPool.SHARED ) ;
+        LOGGER.debug( "Admission: ", renditionAdmission ) ;
+        LOGGER.debug( "Coalescing: ", requestCoalescer ) ;
+        if( documentRequest.getRenditionMimeType() == RenditionMimeType.PDF ) {
+          LOGGER.debug( "PDF rendering: ", pdfRenderingService ) ;
+        }
+      }
+
+    }
+  }
+
+
+  /**
+   * @return a possibly null object, non-null if the {@link Renderable} stored before a redirect
+   *     is still up to date.
+   */
+  private RenderableStore.Stored takeStoredRenderable( final DocumentRequest documentRequest )
+      throws IOException
+  {
+    final RenderableStore.Stored stored = renderableStore.take( documentRequest ) ;
+    if( stored != null && stored.getSources().equals(
+        documentProducer.stampSources( documentRequest, stored.getRenderable() ) )
+    ) {
+      return stored ;
+    }
+    return null ;
+  }
+
+  private void storeRenderable(
+      final DocumentRequest documentRequest,
+      final Renderable rendered,
+      final long buildStart
+  ) throws IOException {
+    renderableStore.put(
+        documentRequest,
+        rendered,
+        buildStart,
+        documentProducer.stampSources( documentRequest, rendered )
+    ) ;
+  }
+
+  /**
+   * @return true if the response was fully written.
+   */
+  private boolean serveFromCache(
+      final DocumentRequest documentRequest,
+      final HttpServletRequest request,
+      final HttpServletResponse response
+  ) throws IOException {
+    final RenditionCache.Entry entry = renditionCache.get( documentRequest ) ;
+    if( entry == null ) {
+      return false ;
+    }
+    if( matchesIfNoneMatch( request, entry.getETag() ) ) {
+      response.setHeader( "ETag", entry.getETag() ) ;
+      response.setStatus( HttpServletResponse.SC_NOT_MODIFIED ) ;
+      LOGGER.debug( "Not modified: '", documentRequest.getOriginalTarget(), "'." ) ;
+      return true ;
+    }
+    if( entry.hasContent() ) {
+      final CisternOutputStream content = new CisternOutputStream(
+          TemporaryFileTools.TEMPORARY_FILE_SERVICE.createFileSupplier( "cached", ".any" ),
+          CONTENT_BUFFER_SIZE_BYTES
+      ) ;
+      try {
+        // Copying first so eviction happening meanwhile doesn't leave a half-written response.
+        if( entry.copyContent( content ) ) {
+          addContentHeaders( documentRequest, response ) ;
+          response.setHeader( "ETag", entry.getETag() ) ;
+          response.setStatus( HttpServletResponse.SC_OK ) ;
+          content.copy( response.getOutputStream() ) ;
+          return true ;
+        }
+      } finally {
+        content.close() ;
+      }
+    }
+    return false ;
+  }
+
+  /**
+   * Renders straight into the response, as there is no problem in the {@link Renderable}:
+   * first bytes come earlier. Rendered bytes only get copied for followers of the
+   * {@link RequestCoalescer.Flight}, or for the {@link RenditionCache} if it keeps content.
+   * The {@code ETag} header gets set just before first bytes, once the stylesheet got
+   * compiled, from sources stamped before rendering.
+   *
+   * @param leading a possibly null object, non-null if other requests may share rendered bytes.
+   */
+  private void produceAndCache(
+      final DocumentRequest documentRequest,
+      final Renderable rendered,
+      final long buildStart,
+      final HttpServletResponse response,
+      final ServletOutputStream outputStream,
+      final RequestCoalescer.Flight leading
+  ) throws IOException, ServletException {
+    final Map< ResourceName, ResourceStamp > stylesheetDependencies = Maps.newHashMap() ;
+    final ImmutableMap< File, ResourceStamp > sources =
+        documentProducer.stampSources( documentRequest, rendered ) ;
+    final boolean trustworthy = isTrustworthy( sources.values(), buildStart ) ;
+    final CisternOutputStream content ;
+    if( renditionCache.keepsContent() ) {
+      content = new CisternOutputStream(
+          TemporaryFileTools.TEMPORARY_FILE_SERVICE.createFileSupplier( "cached", ".any" ),
+          CONTENT_BUFFER_SIZE_BYTES
+      ) ;
+    } else {
+      content = null ;
+    }
+    final OutputStream rendition = new DeferredOutputStream() {
+      @Override
+      protected OutputStream open() {
+        final String eTag = trustworthy
+            ? RenditionCache.createETag(
+                documentRequest, sources, ImmutableMap.copyOf( stylesheetDependencies ) )
+            : null
+        ;
+        if( eTag != null ) {
+          response.setHeader( "ETag", eTag ) ;
+        }
+        final OutputStream shared = leading == null
+            ? outputStream
+            : leading.depart( outputStream, eTag )
+        ;
+        return content == null ? shared : new TeeOutputStream( shared, content ) ;
       }
+    } ;
+    try {
+      documentProducer.produce(
+          documentRequest,
+          rendered,
+          StreamDirector.forExistingStream( rendition, false ),
+          stylesheetDependencies
+      ) ;
+    } catch( Exception e ) {
+      if( content != null ) {
+        content.close() ;
+      }
+      throw new ServletException( e ) ;
+    }
+    if( leading != null ) {
+      leading.land() ;
+    }
+
+    if( trustworthy ) {
+      // Closes content if not keeping it.
+      renditionCache.put(
+          documentRequest, sources, ImmutableMap.copyOf( stylesheetDependencies ), content ) ;
+    } else if( content != null ) {
+      content.close() ;
+    }
+  }
+
+  /**
+   * @return true if the response was fully written, false if the leader of the
+   *     {@link RequestCoalescer.Flight} gave up so this request must be rendered again.
+   */
+  private boolean serveFromFlight(
+      final RequestCoalescer.Flight flight,
+      final DocumentRequest documentRequest,
+      final HttpServletResponse response
+  ) throws IOException, ServletException {
+    final boolean landed ;
+    try {
+      landed = flight.await() ;
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt() ;
+      throw new ServletException( e ) ;
+    }
+    if( ! landed ) {
+      LOGGER.debug( "Concurrent request abandoned, rendering '",
+          documentRequest.getOriginalTarget(), "' again." ) ;
+      return false ;
+    }
+    addContentHeaders( documentRequest, response ) ;
+    if( flight.getETag() != null ) {
+      response.setHeader( "ETag", flight.getETag() ) ;
+    }
+    response.setStatus( HttpServletResponse.SC_OK ) ;
+    flight.copyContent( response.getOutputStream() ) ;
+    return true ;
+  }
 
+  private static boolean isTrustworthy(
+      final Iterable< ResourceStamp > stamps,
+      final long buildStart
+  ) {
+    for( final ResourceStamp stamp : stamps ) {
+      if( stamp.getLastModified() >= buildStart - TIMESTAMP_RESOLUTION_MILLISECONDS ) {
+        LOGGER.debug( "Too recent for a reliable ETag: ", stamp ) ;
+        return false ;
+      }
     }
+    return true ;
+  }
+
+  private void addContentHeaders(
+      final DocumentRequest documentRequest,
+      final HttpServletResponse response
+  ) {
+    response.addHeader( "Content-type",
+        documentRequest.getRenditionMimeType().getMimeName() ) ;
+    response.addHeader( "Charset", renderingCharset.name() ) ;
   }
 
+  /**
+   * Seconds a client should wait before asking again when too many requests are waiting.
+   */
+  private static final int RETRY_AFTER_SECONDS = 2 ;
+
+  private void refuseBecauseSaturated(
+      final DocumentRequest documentRequest,
+      final HttpServletResponse response
+  ) throws IOException {
+    final RenditionMimeType renditionMimeType = documentRequest.getRenditionMimeType() ;
+    final int queueDepth = renditionAdmission.getQueueDepth( renditionMimeType ) ;
+    response.setStatus( HttpServletResponse.SC_SERVICE_UNAVAILABLE ) ;
+    response.setHeader( "Retry-After", Integer.toString( RETRY_AFTER_SECONDS ) ) ;
+    response.addHeader( "Content-type", "text/plain" ) ;
+    response.getOutputStream().print(
+        "Too many " + renditionMimeType.getFileExtension() + " documents being rendered, " +
+        queueDepth + " request(s) already waiting. Please retry later."
+    ) ;
+    LOGGER.warn( "Refused '", documentRequest.getOriginalTarget(), "', ",
+        queueDepth, " requests waiting: ", renditionAdmission ) ;
+  }
 
   private static String formatDuration( final long milliseconds ) {
     final long seconds = milliseconds / 1000 ;
@@ -221,4 +569,42 @@ public class DocumentHandler extends GenericHandler {
 
   }
 
+
+  /**
+   * Opens the {@code OutputStream} to write into when the first byte comes, so what goes
+   * with the response (like headers) can still change until then.
+   */
+  private abstract static class DeferredOutputStream extends OutputStream {
+
+    private OutputStream delegate = null ;
+
+    protected abstract OutputStream open() throws IOException ;
+
+    private OutputStream getDelegate() throws IOException {
+      if( delegate == null ) {
+        delegate = open() ;
+      }
+      return delegate ;
+    }
+
+    @Override
+    public void write( final int someByte ) throws IOException {
+      getDelegate().write( someByte ) ;
+    }
+
+    @Override
+    public void write( final byte[] bytes, final int offset, final int length )
+        throws IOException
+    {
+      getDelegate().write( bytes, offset, length ) ;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if( delegate != null ) {
+        delegate.flush() ;
+      }
+    }
+  }
+
 }
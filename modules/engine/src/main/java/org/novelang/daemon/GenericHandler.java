@@ -79,5 +79,34 @@ public abstract class GenericHandler extends AbstractHandler {
       HttpServletResponse response
   ) throws IOException, ServletException ;
 
+  /**
+   * Tells if the {@code If-None-Match} header of given request matches given {@code ETag}.
+   * The header may be {@code *} or a comma-separated list, and weak tags ({@code W/"..."})
+   * match their strong counterpart since they only guard against a full download.
+   *
+   * @return false if there is no {@code If-None-Match} header.
+   */
+  protected static boolean matchesIfNoneMatch(
+      final HttpServletRequest request,
+      final String eTag
+  ) {
+    final String ifNoneMatch = request.getHeader( "If-None-Match" ) ;
+    if( ifNoneMatch == null ) {
+      return false ;
+    }
+    final String strongETag = removeWeakPrefix( eTag.trim() ) ;
+    for( final String tag : ifNoneMatch.split( "," ) ) {
+      final String trimmed = tag.trim() ;
+      if( trimmed.equals( "*" ) || removeWeakPrefix( trimmed ).equals( strongETag ) ) {
+        return true ;
+      }
+    }
+    return false ;
+  }
+
+  private static String removeWeakPrefix( final String eTag ) {
+    return eTag.startsWith( "W/" ) ? eTag.substring( 2 ) : eTag ;
+  }
+
 
 }
@@ -73,7 +73,13 @@ public class HttpDaemon {
     handlers.addHandler( new FontDiscoveryHandler( daemonConfiguration.getProducerConfiguration() ) ) ;
     handlers.addHandler( new DirectoryScanHandler(
         daemonConfiguration.getProducerConfiguration().getContentConfiguration() ) ) ;
-    handlers.addHandler( new DocumentHandler( daemonConfiguration.getProducerConfiguration() ) ) ;
+    handlers.addHandler( new DocumentHandler(
+        daemonConfiguration.getProducerConfiguration(),
+        daemonConfiguration.getRenditionCacheCapacity(),
+        daemonConfiguration.getRenderingConcurrencies(),
+        daemonConfiguration.getRenderingConcurrency(),
+        daemonConfiguration.getRenderingQueueCapacity()
+    ) ) ;
     handlers.addHandler( new ResourceHandler( daemonConfiguration.getProducerConfiguration() ) ) ;
     handlers.addHandler( new UnhandledRequestHandler() ) ; // Must be last.
     server = new Server( daemonConfiguration.getPort() ) ;
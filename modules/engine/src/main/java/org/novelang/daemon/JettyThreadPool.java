@@ -16,8 +16,10 @@
  */
 package org.novelang.daemon;
 
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.eclipse.jetty.util.thread.ExecutorThreadPool;
@@ -26,19 +28,61 @@ import org.eclipse.jetty.util.thread.ExecutorThreadPool;
 /**
  * A Jetty {@link org.eclipse.jetty.util.thread.ThreadPool} with custom naming
  * for threads.
+ * <p>
+ * Thread count is bounded, so a burst of requests can't create threads without limit.
+ * Requests beyond {@link #DEFAULT_MAXIMUM_THREADS} wait in a bounded queue; past that Jetty
+ * gets a rejection and closes the connection. Rendering itself is throttled more finely
+ * by {@link RenditionAdmission}, so most of these threads just wait or serve static resources.
  *
  * @author Laurent Caillette
  */
 /*package*/ class JettyThreadPool extends ExecutorThreadPool {
 
+  public static final int DEFAULT_MAXIMUM_THREADS = 64 ;
+  public static final int DEFAULT_QUEUE_CAPACITY = 256 ;
+
+  private static final long KEEP_ALIVE_SECONDS = 60L ;
+
   public JettyThreadPool() {
-    this( new ThreadFactoryBuilder()
-        .setDaemon( false )
-        .setNameFormat( "Jetty-%02d" )
-        .build()
+    this( DEFAULT_MAXIMUM_THREADS, DEFAULT_QUEUE_CAPACITY ) ;
+  }
+
+  public JettyThreadPool( final int maximumThreads, final int queueCapacity ) {
+    this(
+        maximumThreads,
+        queueCapacity,
+        new ThreadFactoryBuilder()
+            .setDaemon( false )
+            .setNameFormat( "Jetty-%02d" )
+            .build()
     ) ;
   }
-  public JettyThreadPool( final ThreadFactory threadFactory ) {
-   super( Executors.newCachedThreadPool( threadFactory ) ) ;
+
+  public JettyThreadPool(
+      final int maximumThreads,
+      final int queueCapacity,
+      final ThreadFactory threadFactory
+  ) {
+    super( createExecutor( maximumThreads, queueCapacity, threadFactory ) ) ;
+  }
+
+  private static ThreadPoolExecutor createExecutor(
+      final int maximumThreads,
+      final int queueCapacity,
+      final ThreadFactory threadFactory
+  ) {
+    // With a bounded queue, a ThreadPoolExecutor only goes beyond its core size when the queue
+    // is full. Using maximumThreads as core size and letting core threads time out gives
+    // the cached pool's behavior up to the bound.
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        maximumThreads,
+        maximumThreads,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue< Runnable >( queueCapacity ),
+        threadFactory
+    ) ;
+    executor.allowCoreThreadTimeOut( true ) ;
+    return executor ;
   }
 }
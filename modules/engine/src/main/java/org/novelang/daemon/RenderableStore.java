@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.novelang.common.Renderable;
+import org.novelang.designator.Tag;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.loader.ResourceStamp;
+import org.novelang.produce.DocumentRequest;
+
+/**
+ * Keeps a {@link Renderable} for the request that follows an HTTP redirect issued by
+ * {@link DocumentHandler}, between a document and its problem page.
+ * <p>
+ * The {@link Renderable} only depends on document source name and tags, so both requests
+ * share the same one. A stored {@link Renderable} is given once, only if it is younger than
+ * {@link #timeToLiveMilliseconds} and if its sources didn't change (as told by the
+ * {@link ResourceStamp}s given when storing it).
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class RenderableStore {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( RenderableStore.class ) ;
+
+  public static final long DEFAULT_TIME_TO_LIVE_MILLISECONDS = 10000L ;
+
+  /**
+   * Redirects come fast, there is no need to keep more than a few.
+   */
+  public static final int DEFAULT_CAPACITY = 4 ;
+
+  private final long timeToLiveMilliseconds ;
+
+  /**
+   * Guarded by itself.
+   */
+  private final LinkedHashMap< Key, Stored > storeds ;
+
+  public RenderableStore() {
+    this( DEFAULT_TIME_TO_LIVE_MILLISECONDS, DEFAULT_CAPACITY ) ;
+  }
+
+  public RenderableStore( final long timeToLiveMilliseconds, final int capacity ) {
+    checkArgument( timeToLiveMilliseconds >= 0L ) ;
+    checkArgument( capacity > 0 ) ;
+    this.timeToLiveMilliseconds = timeToLiveMilliseconds ;
+    storeds = new LinkedHashMap< Key, Stored >() {
+      @Override
+      protected boolean removeEldestEntry( final Map.Entry< Key, Stored > eldest ) {
+        return size() > capacity ;
+      }
+    } ;
+  }
+
+  /**
+   * @param buildStart the time (as given by {@link System#currentTimeMillis()}) when the
+   *     creation of the {@link Renderable} started.
+   * @param sources stamps taken after the creation of the {@link Renderable}.
+   */
+  public void put(
+      final DocumentRequest documentRequest,
+      final Renderable renderable,
+      final long buildStart,
+      final ImmutableMap< File, ResourceStamp > sources
+  ) {
+    final Stored stored = new Stored( renderable, buildStart, sources ) ;
+    synchronized( storeds ) {
+      removeExpired( System.currentTimeMillis() ) ;
+      storeds.put( new Key( documentRequest ), stored ) ;
+    }
+  }
+
+  /**
+   * Removes the {@link Stored} for given request, if any.
+   * Caller must check {@link Stored#getSources()} against current {@link ResourceStamp}s.
+   *
+   * @return a possibly null object.
+   */
+  public Stored take( final DocumentRequest documentRequest ) {
+    final Stored stored ;
+    synchronized( storeds ) {
+      removeExpired( System.currentTimeMillis() ) ;
+      stored = storeds.remove( new Key( documentRequest ) ) ;
+    }
+    if( stored != null ) {
+      LOGGER.debug( "Found stored renderable for '", documentRequest.getOriginalTarget(), "'." ) ;
+    }
+    return stored ;
+  }
+
+  /**
+   * Entries are ordered by insertion, so the eldest come first.
+   */
+  private void removeExpired( final long now ) {
+    final Iterator< Stored > eldestFirst = storeds.values().iterator() ;
+    while( eldestFirst.hasNext() ) {
+      if( eldestFirst.next().storeTime + timeToLiveMilliseconds < now ) {
+        eldestFirst.remove() ;
+      } else {
+        break ;
+      }
+    }
+  }
+
+  public int size() {
+    synchronized( storeds ) {
+      return storeds.size() ;
+    }
+  }
+
+
+// ======
+// Stored
+// ======
+
+  public static final class Stored {
+
+    private final Renderable renderable ;
+    private final long buildStart ;
+    private final ImmutableMap< File, ResourceStamp > sources ;
+    private final long storeTime = System.currentTimeMillis() ;
+
+    private Stored(
+        final Renderable renderable,
+        final long buildStart,
+        final ImmutableMap< File, ResourceStamp > sources
+    ) {
+      this.renderable = checkNotNull( renderable ) ;
+      this.buildStart = buildStart ;
+      this.sources = checkNotNull( sources ) ;
+    }
+
+    public Renderable getRenderable() {
+      return renderable ;
+    }
+
+    public long getBuildStart() {
+      return buildStart ;
+    }
+
+    public ImmutableMap< File, ResourceStamp > getSources() {
+      return sources ;
+    }
+  }
+
+
+// ===
+// Key
+// ===
+
+  /**
+   * What {@link org.novelang.produce.DocumentProducer#createRenderable(DocumentRequest)}
+   * depends on.
+   */
+  private static final class Key {
+
+    private final String documentSourceName ;
+    private final ImmutableSet< Tag > tags ;
+
+    private Key( final DocumentRequest documentRequest ) {
+      this.documentSourceName = checkNotNull( documentRequest.getDocumentSourceName() ) ;
+      this.tags = documentRequest.getTags() == null
+          ? ImmutableSet.< Tag >of()
+          : documentRequest.getTags()
+      ;
+    }
+
+    @Override
+    public boolean equals( final Object other ) {
+      if( this == other ) {
+        return true ;
+      }
+      if( ! ( other instanceof Key ) ) {
+        return false ;
+      }
+      final Key that = ( Key ) other ;
+      return documentSourceName.equals( that.documentSourceName ) && tags.equals( that.tags ) ;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * documentSourceName.hashCode() + tags.hashCode() ;
+    }
+  }
+
+}
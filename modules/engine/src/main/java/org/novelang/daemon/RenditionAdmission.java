@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import org.novelang.rendering.RenditionMimeType;
+
+/**
+ * Limits how many documents of each {@link RenditionMimeType} render at the same time,
+ * and how many requests may wait for their turn. Rendering (XSLT, then FOP for PDF) is
+ * CPU and heap hungry, so letting every request in at once just makes all of them slower,
+ * or exhausts the heap. Past the queue capacity, a request is refused at once, so the
+ * caller can answer {@code 503 Service Unavailable} instead of piling up more work.
+ * <p>
+ * Each {@link RenditionMimeType} has its own lane, so a burst of PDF requests doesn't
+ * keep HTML pages waiting.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+/*package*/ class RenditionAdmission {
+
+  private final ImmutableMap< RenditionMimeType, Lane > lanes ;
+
+  /**
+   * @param concurrency how many documents of the same {@link RenditionMimeType} may render
+   *     at the same time, 1 or more.
+   * @param queueCapacity how many requests for the same {@link RenditionMimeType} may wait,
+   *     0 or more.
+   */
+  public RenditionAdmission( final int concurrency, final int queueCapacity ) {
+    this( ImmutableMap.< RenditionMimeType, Integer >of(), concurrency, queueCapacity ) ;
+  }
+
+  /**
+   * @param concurrencies overrides {@code defaultConcurrency} for some
+   *     {@link RenditionMimeType}s.
+   */
+  public RenditionAdmission(
+      final Map< RenditionMimeType, Integer > concurrencies,
+      final int defaultConcurrency,
+      final int queueCapacity
+  ) {
+    Preconditions.checkArgument( defaultConcurrency > 0 ) ;
+    Preconditions.checkArgument( queueCapacity >= 0 ) ;
+    final ImmutableMap.Builder< RenditionMimeType, Lane > builder = ImmutableMap.builder() ;
+    for( final RenditionMimeType renditionMimeType : RenditionMimeType.values() ) {
+      final Integer concurrency = concurrencies.get( renditionMimeType ) ;
+      builder.put( renditionMimeType, new Lane(
+          concurrency == null ? defaultConcurrency : concurrency, queueCapacity ) ) ;
+    }
+    lanes = builder.build() ;
+  }
+
+  /**
+   * Waits until rendering some document of given {@link RenditionMimeType} is allowed.
+   *
+   * @return a non-null object if admitted, which must be {@link Ticket#leave() left} after
+   *     rendering; null if too many requests were already waiting.
+   */
+  public Ticket enter( final RenditionMimeType renditionMimeType ) throws InterruptedException {
+    return lanes.get( renditionMimeType ).enter() ;
+  }
+
+  /**
+   * @return the number of requests currently waiting for given {@link RenditionMimeType}.
+   */
+  public int getQueueDepth( final RenditionMimeType renditionMimeType ) {
+    return lanes.get( renditionMimeType ).waiting.get() ;
+  }
+
+  public long getAdmittedCount( final RenditionMimeType renditionMimeType ) {
+    return lanes.get( renditionMimeType ).admitted.get() ;
+  }
+
+  public long getRejectedCount( final RenditionMimeType renditionMimeType ) {
+    return lanes.get( renditionMimeType ).rejected.get() ;
+  }
+
+  /**
+   * @return cumulated time spent waiting by admitted requests, in nanoseconds.
+   */
+  public long getWaitNanoseconds( final RenditionMimeType renditionMimeType ) {
+    return lanes.get( renditionMimeType ).waitNanoseconds.get() ;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder( getClass().getSimpleName() ).append( "{" ) ;
+    boolean first = true ;
+    for( final Map.Entry< RenditionMimeType, Lane > entry : lanes.entrySet() ) {
+      final Lane lane = entry.getValue() ;
+      if( lane.admitted.get() + lane.rejected.get() == 0 ) {
+        continue ;
+      }
+      if( ! first ) {
+        builder.append( ";" ) ;
+      }
+      first = false ;
+      builder
+          .append( entry.getKey().getFileExtension() )
+          .append( "={waiting=" ).append( lane.waiting.get() )
+          .append( ";admitted=" ).append( lane.admitted.get() )
+          .append( ";rejected=" ).append( lane.rejected.get() )
+          .append( ";waitMilliseconds=" ).append( lane.waitNanoseconds.get() / 1000000L )
+          .append( "}" )
+      ;
+    }
+    return builder.append( "}" ).toString() ;
+  }
+
+
+// ====
+// Lane
+// ====
+
+  private static class Lane {
+    private final Semaphore permits ;
+    private final int queueCapacity ;
+    private final AtomicInteger waiting = new AtomicInteger() ;
+    private final AtomicLong admitted = new AtomicLong() ;
+    private final AtomicLong rejected = new AtomicLong() ;
+    private final AtomicLong waitNanoseconds = new AtomicLong() ;
+
+    public Lane( final int concurrency, final int queueCapacity ) {
+      Preconditions.checkArgument( concurrency > 0 ) ;
+      this.permits = new Semaphore( concurrency, true ) ;
+      this.queueCapacity = queueCapacity ;
+    }
+
+    public Ticket enter() throws InterruptedException {
+      if( ! permits.tryAcquire() ) {
+        if( waiting.incrementAndGet() > queueCapacity ) {
+          waiting.decrementAndGet() ;
+          rejected.incrementAndGet() ;
+          return null ;
+        }
+        final long start = System.nanoTime() ;
+        try {
+          permits.acquire() ;
+        } finally {
+          waiting.decrementAndGet() ;
+        }
+        waitNanoseconds.addAndGet( System.nanoTime() - start ) ;
+      }
+      admitted.incrementAndGet() ;
+      return new Ticket( permits ) ;
+    }
+  }
+
+  /**
+   * Proof of admission, to give back once rendering is done.
+   */
+  public static final class Ticket {
+
+    private final Semaphore permits ;
+    private boolean left = false ;
+
+    private Ticket( final Semaphore permits ) {
+      this.permits = permits ;
+    }
+
+    /**
+     * Lets next waiting request in. Calling this method more than once has no effect.
+     */
+    public void leave() {
+      if( ! left ) {
+        left = true ;
+        permits.release() ;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.novelang.designator.Tag;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.loader.ResourceLoader;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
+import org.novelang.produce.DocumentRequest;
+import org.novelang.rendering.buffer.CisternOutputStream;
+
+/**
+ * Remembers what documents served by {@link DocumentHandler} were made of, so it can tell
+ * when a browser already has the current version (using an {@code ETag}), and optionally
+ * keeps rendered bytes of most recent documents.
+ * <p>
+ * An {@link Entry} is valid as long as the {@link ResourceStamp} of every source file and
+ * every stylesheet resource doesn't change. The {@code ETag} is a digest of the request and
+ * of those {@link ResourceStamp}s.
+ * <p>
+ * Rendered bytes live in {@link CisternOutputStream}s, so they spill into temporary files
+ * past a given size. Only the {@link #contentCapacity} most recent {@link Entry}s keep them.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class RenditionCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( RenditionCache.class ) ;
+
+  /**
+   * Maximum number of {@link Entry}s, a fingerprint is cheap.
+   */
+  private static final int FINGERPRINT_CAPACITY = 256 ;
+
+  private final int contentCapacity ;
+  private final ResourceLoader resourceLoader ;
+
+  /**
+   * Guarded by itself.
+   */
+  private final LinkedHashMap< DocumentRequest, Entry > entries ;
+
+  private final AtomicLong hitCount = new AtomicLong() ;
+  private final AtomicLong missCount = new AtomicLong() ;
+
+  /**
+   * Constructor.
+   *
+   * @param resourceLoader the one which located stylesheets, for locating them again.
+   * @param contentCapacity maximum number of rendered documents to keep, 0 means none.
+   */
+  public RenditionCache( final ResourceLoader resourceLoader, final int contentCapacity ) {
+    checkArgument( contentCapacity >= 0, "Capacity must be 0 or more, was %s", contentCapacity ) ;
+    this.resourceLoader = checkNotNull( resourceLoader ) ;
+    this.contentCapacity = contentCapacity ;
+    entries = new LinkedHashMap< DocumentRequest, Entry >( 16, 0.75f, true ) {
+      @Override
+      protected boolean removeEldestEntry( final Map.Entry< DocumentRequest, Entry > eldest ) {
+        if( size() > FINGERPRINT_CAPACITY ) {
+          eldest.getValue().releaseContent() ;
+          return true ;
+        }
+        return false ;
+      }
+    } ;
+  }
+
+  public boolean keepsContent() {
+    return contentCapacity > 0 ;
+  }
+
+  /**
+   * @return a possibly null object, null if there was no {@link Entry} or if it is stale.
+   */
+  public Entry get( final DocumentRequest documentRequest ) {
+    final Entry entry ;
+    synchronized( entries ) {
+      entry = entries.get( documentRequest ) ;
+    }
+    if( entry != null ) {
+      if( entry.isCurrent( resourceLoader ) ) {
+        hitCount.incrementAndGet() ;
+        return entry ;
+      }
+      LOGGER.debug( "Stale rendition of '", documentRequest.getOriginalTarget(), "'." ) ;
+      synchronized( entries ) {
+        if( entries.get( documentRequest ) == entry ) {
+          entries.remove( documentRequest ) ;
+        }
+      }
+      entry.releaseContent() ;
+    }
+    missCount.incrementAndGet() ;
+    return null ;
+  }
+
+  /**
+   * @param content a possibly null object, ownership goes to the new {@link Entry} that
+   *     closes it when evicted. Ignored (and closed) if {@link #keepsContent()} is false.
+   * @return the newly-created {@link Entry}.
+   */
+  public Entry put(
+      final DocumentRequest documentRequest,
+      final ImmutableMap< File, ResourceStamp > sources,
+      final ImmutableMap< ResourceName, ResourceStamp > stylesheetResources,
+      final CisternOutputStream content
+  ) throws IOException {
+    final CisternOutputStream keptContent ;
+    if( content != null && ! keepsContent() ) {
+      content.close() ;
+      keptContent = null ;
+    } else {
+      keptContent = content ;
+    }
+    final Entry entry = new Entry(
+        createETag( documentRequest, sources, stylesheetResources ),
+        sources,
+        stylesheetResources,
+        keptContent
+    ) ;
+    final Entry previous ;
+    synchronized( entries ) {
+      previous = entries.put( documentRequest, entry ) ;
+      if( keptContent != null ) {
+        releaseOldestContent() ;
+      }
+    }
+    if( previous != null ) {
+      previous.releaseContent() ;
+    }
+    return entry ;
+  }
+
+  /**
+   * Iterates from eldest to newest, releasing content past {@link #contentCapacity}.
+   */
+  private void releaseOldestContent() {
+    int contentCount = 0 ;
+    for( final Entry entry : entries.values() ) {
+      if( entry.hasContent() ) {
+        contentCount ++ ;
+      }
+    }
+    final Iterator< Entry > eldestFirst = entries.values().iterator() ;
+    while( contentCount > contentCapacity && eldestFirst.hasNext() ) {
+      final Entry entry = eldestFirst.next() ;
+      if( entry.hasContent() ) {
+        entry.releaseContent() ;
+        contentCount -- ;
+      }
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount.get() ;
+  }
+
+  public long getMissCount() {
+    return missCount.get() ;
+  }
+
+  @Override
+  public String toString() {
+    final int size ;
+    synchronized( entries ) {
+      size = entries.size() ;
+    }
+    return getClass().getSimpleName() + "{size=" + size + ";hits=" + getHitCount() +
+        ";misses=" + getMissCount() + "}" ;
+  }
+
+
+// =====
+// Entry
+// =====
+
+  public static final class Entry {
+
+    private final String eTag ;
+    private final ImmutableMap< File, ResourceStamp > sources ;
+    private final ImmutableMap< ResourceName, ResourceStamp > stylesheetResources ;
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private CisternOutputStream content ;
+
+    private Entry(
+        final String eTag,
+        final ImmutableMap< File, ResourceStamp > sources,
+        final ImmutableMap< ResourceName, ResourceStamp > stylesheetResources,
+        final CisternOutputStream content
+    ) {
+      this.eTag = checkNotNull( eTag ) ;
+      this.sources = checkNotNull( sources ) ;
+      this.stylesheetResources = checkNotNull( stylesheetResources ) ;
+      this.content = content ;
+    }
+
+    /**
+     * @return a non-null object, including surrounding double quotes as required by HTTP.
+     */
+    public String getETag() {
+      return eTag ;
+    }
+
+    public synchronized boolean hasContent() {
+      return content != null ;
+    }
+
+    /**
+     * @return true if there was some content to copy, false if it was released meanwhile.
+     */
+    public synchronized boolean copyContent( final OutputStream outputStream )
+        throws IOException
+    {
+      if( content == null ) {
+        return false ;
+      }
+      content.copy( outputStream ) ;
+      return true ;
+    }
+
+    private synchronized void releaseContent() {
+      if( content != null ) {
+        try {
+          content.close() ;
+        } catch( IOException e ) {
+          LOGGER.warn( e, "Could not release content" ) ;
+        }
+        content = null ;
+      }
+    }
+
+    private boolean isCurrent( final ResourceLoader resourceLoader ) {
+      for( final Map.Entry< File, ResourceStamp > source : sources.entrySet() ) {
+        if( ! ResourceStamp.create( source.getKey() ).equals( source.getValue() ) ) {
+          return false ;
+        }
+      }
+      for( final Map.Entry< ResourceName, ResourceStamp > resource :
+          stylesheetResources.entrySet()
+      ) {
+        if( ! ResourceStamp.create( resourceLoader, resource.getKey() )
+            .equals( resource.getValue() )
+        ) {
+          return false ;
+        }
+      }
+      return true ;
+    }
+  }
+
+
+// ====
+// ETag
+// ====
+
+  /*package*/ static String createETag(
+      final DocumentRequest documentRequest,
+      final ImmutableMap< File, ResourceStamp > sources,
+      final ImmutableMap< ResourceName, ResourceStamp > stylesheetResources
+  ) {
+    final StringBuilder builder = new StringBuilder() ;
+    builder.append( documentRequest.getDocumentSourceName() ).append( '\n' ) ;
+    builder.append( documentRequest.getRenditionMimeType() ).append( '\n' ) ;
+    builder.append( documentRequest.getPageIdentifier() ).append( '\n' ) ;
+    builder.append( documentRequest.getAlternateStylesheet() ).append( '\n' ) ;
+    final SortedSet< String > tagNames = Sets.newTreeSet() ;
+    for( final Tag tag : documentRequest.getTags() ) {
+      tagNames.add( Tag.EXTRACT_TAG_NAME.apply( tag ) ) ;
+    }
+    builder.append( tagNames ).append( '\n' ) ;
+    for( final ResourceStamp stamp : sources.values() ) {
+      builder.append( stamp ).append( '\n' ) ;
+    }
+    for( final ResourceStamp stamp : stylesheetResources.values() ) {
+      builder.append( stamp ).append( '\n' ) ;
+    }
+    return "\"" + digest( builder.toString() ) + "\"" ;
+  }
+
+  private static String digest( final String text ) {
+    final byte[] digest ;
+    try {
+      digest = MessageDigest.getInstance( "MD5" ).digest( text.getBytes( "UTF-8" ) ) ;
+    } catch( NoSuchAlgorithmException e ) {
+      throw new RuntimeException( e ) ;
+    } catch( UnsupportedEncodingException e ) {
+      throw new RuntimeException( e ) ;
+    }
+    final StringBuilder hexadecimal = new StringBuilder( digest.length * 2 ) ;
+    for( final byte b : digest ) {
+      hexadecimal.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ) ;
+      hexadecimal.append( Character.forDigit( b & 0xF, 16 ) ) ;
+    }
+    return hexadecimal.toString() ;
+  }
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import org.novelang.common.metadata.PageIdentifier;
+import org.novelang.designator.Tag;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.TemporaryFileTools;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.produce.DocumentRequest;
+import org.novelang.rendering.RenditionMimeType;
+import org.novelang.rendering.buffer.CisternOutputStream;
+
+/**
+ * Lets identical {@link DocumentRequest}s arriving at the same time share one rendition.
+ * The first request to {@link #join(DocumentRequest) join} becomes the leader of a
+ * {@link Flight} and renders the document straight into its own response. The others wait
+ * for the leader to {@link Flight#depart(OutputStream, String) depart}, and read what it
+ * writes, or render on their own if the leader {@link Flight#abandon() abandoned} before.
+ * <p>
+ * Rendered bytes only get kept for followers that boarded before the leader departed.
+ * A leader departing alone doesn't keep anything, and no request can join it any longer.
+ * <p>
+ * Requests are the same if they ask for the same document source, rendition, tags,
+ * page and alternate stylesheet, whatever the order of tags in the URL.
+ * <p>
+ * Every participant, leader included, must {@link Flight#leave() leave} once done.
+ * Last one to leave releases kept bytes.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+/*package*/ class RequestCoalescer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( RequestCoalescer.class ) ;
+
+  private static final int CONTENT_BUFFER_SIZE_BYTES = 256 * 1024 ;
+
+  /**
+   * How many bytes a follower copies at once, out of any lock.
+   */
+  private static final int COPY_BUFFER_SIZE_BYTES = 64 * 1024 ;
+
+  /**
+   * Guarded by itself.
+   */
+  private final Map< Key, Shared > flights = Maps.newHashMap() ;
+
+  private final AtomicLong coalescedCount = new AtomicLong() ;
+
+  /**
+   * @return a non-null object, which {@link Flight#isLeader() is the leader} if there was no
+   *     identical request in flight.
+   */
+  public Flight join( final DocumentRequest documentRequest ) {
+    final Key key = new Key( documentRequest ) ;
+    synchronized( flights ) {
+      final Shared existing = flights.get( key ) ;
+      if( existing != null ) {
+        existing.board() ;
+        coalescedCount.incrementAndGet() ;
+        LOGGER.debug( "Joining request in flight for '",
+            documentRequest.getOriginalTarget(), "'." ) ;
+        return new Flight( existing, false ) ;
+      }
+      final Shared created = new Shared( key ) ;
+      flights.put( key, created ) ;
+      return new Flight( created, true ) ;
+    }
+  }
+
+  /**
+   * @return the number of requests which didn't lead their {@link Flight}.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get() ;
+  }
+
+  /**
+   * @return the number of {@link Flight}s still accepting participants.
+   */
+  public int getInFlightCount() {
+    synchronized( flights ) {
+      return flights.size() ;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "inFlight=" + getInFlightCount() +
+        ";coalesced=" + getCoalescedCount() +
+        "}"
+    ;
+  }
+
+  private void removeFlight( final Shared shared ) {
+    synchronized( flights ) {
+      if( flights.get( shared.key ) == shared ) {
+        flights.remove( shared.key ) ;
+      }
+    }
+  }
+
+
+// ======
+// Flight
+// ======
+
+  /**
+   * One participant's view on a rendition shared by identical requests.
+   */
+  public final class Flight {
+
+    private final Shared shared ;
+    private final boolean leader ;
+    private boolean left = false ;
+
+    private Flight( final Shared shared, final boolean leader ) {
+      this.shared = shared ;
+      this.leader = leader ;
+    }
+
+    public boolean isLeader() {
+      return leader ;
+    }
+
+    /**
+     * Tells the leader is about to write its first byte. Only the leader may call this
+     * method, at most once.
+     *
+     * @param target a non-null object, where the leader renders.
+     * @param eTag a possibly null object, given to followers.
+     * @return a non-null object, {@code target} itself if there is no follower, or
+     *     an {@code OutputStream} also feeding followers.
+     */
+    public OutputStream depart( final OutputStream target, final String eTag ) {
+      checkState( leader, "Not the leader" ) ;
+      checkNotNull( target ) ;
+      synchronized( flights ) {
+        if( shared.depart( eTag ) ) {
+          return new TeeOutputStream( target, shared ) ;
+        } else {
+          // Nobody could get the bytes already written.
+          removeFlight( shared ) ;
+          return target ;
+        }
+      }
+    }
+
+    /**
+     * Tells followers that everything was written. Only the leader may call this method.
+     */
+    public void land() {
+      checkState( leader, "Not the leader" ) ;
+      removeFlight( shared ) ;
+      shared.land() ;
+    }
+
+    /**
+     * Lets followers render on their own, or fail if they already started copying.
+     * Has no effect if already landed. Only the leader may call this method.
+     */
+    public void abandon() {
+      checkState( leader, "Not the leader" ) ;
+      removeFlight( shared ) ;
+      shared.abandon() ;
+    }
+
+    /**
+     * Waits for the leader to depart, land or abandon.
+     *
+     * @return true if there is content to copy, false if the leader abandoned.
+     */
+    public boolean await() throws InterruptedException {
+      return shared.await() ;
+    }
+
+    /**
+     * @return a possibly null object, null if abandoned or if rendered bytes have no
+     *     reliable {@code ETag}.
+     */
+    public String getETag() {
+      return shared.getETag() ;
+    }
+
+    /**
+     * Copies what the leader writes until it lands, through a cursor of this participant's
+     * own, so a slow client doesn't hold others.
+     *
+     * @throws IOException if the leader abandoned meanwhile.
+     */
+    public void copyContent( final OutputStream outputStream ) throws IOException {
+      checkState( ! leader, "Not a follower" ) ;
+      final byte[] buffer = new byte[ COPY_BUFFER_SIZE_BYTES ] ;
+      long position = 0L ;
+      int read ;
+      while( ( read = shared.read( position, buffer ) ) >= 0 ) {
+        outputStream.write( buffer, 0, read ) ;
+        position += read ;
+      }
+    }
+
+    /**
+     * Tells this participant is done. Calling this method more than once has no effect.
+     */
+    public void leave() throws IOException {
+      if( ! left ) {
+        left = true ;
+        shared.leave() ;
+      }
+    }
+  }
+
+  private enum State { BOARDING, DEPARTED, LANDED, ABANDONED }
+
+  private static final class Shared {
+
+    private final Key key ;
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private int passengers = 1 ;
+    private State state = State.BOARDING ;
+    private String eTag = null ;
+
+    /**
+     * Non-null once departed with followers. Guarded by {@code this}.
+     */
+    private CisternOutputStream content = null ;
+
+    private Shared( final Key key ) {
+      this.key = key ;
+    }
+
+    /**
+     * Called with the lock on {@link RequestCoalescer#flights}, so a {@code Shared} can't
+     * get new passengers after it got removed from there.
+     */
+    private synchronized void board() {
+      passengers ++ ;
+    }
+
+    /**
+     * Called with the lock on {@link RequestCoalescer#flights}, so no passenger boards
+     * meanwhile.
+     *
+     * @return true if there are followers to feed.
+     */
+    private synchronized boolean depart( final String eTag ) {
+      checkState( state == State.BOARDING, "Already departed" ) ;
+      this.eTag = eTag ;
+      state = State.DEPARTED ;
+      if( passengers > 1 ) {
+        content = new CisternOutputStream(
+            TemporaryFileTools.TEMPORARY_FILE_SERVICE.createFileSupplier( "coalesced", ".any" ),
+            CONTENT_BUFFER_SIZE_BYTES
+        ) ;
+      }
+      notifyAll() ;
+      return content != null ;
+    }
+
+    private synchronized void write( final byte[] bytes, final int offset, final int length )
+        throws IOException
+    {
+      if( content != null ) {
+        content.write( bytes, offset, length ) ;
+        notifyAll() ;
+      }
+    }
+
+    private synchronized void land() {
+      checkState( state == State.BOARDING || state == State.DEPARTED,
+          "Already landed or abandoned" ) ;
+      state = State.LANDED ;
+      notifyAll() ;
+    }
+
+    private synchronized void abandon() {
+      if( state != State.LANDED ) {
+        state = State.ABANDONED ;
+        notifyAll() ;
+      }
+    }
+
+    private synchronized boolean await() throws InterruptedException {
+      while( state == State.BOARDING ) {
+        wait() ;
+      }
+      return state != State.ABANDONED ;
+    }
+
+    private synchronized String getETag() {
+      return eTag ;
+    }
+
+    /**
+     * Waits for bytes past given position.
+     *
+     * @return the number of bytes read, or -1 once landed and everything was read.
+     * @throws IOException if the leader abandoned.
+     */
+    private synchronized int read( final long position, final byte[] buffer )
+        throws IOException
+    {
+      while( true ) {
+        if( state == State.ABANDONED ) {
+          throw new IOException( "Concurrent rendition failed" ) ;
+        }
+        final int read = content == null ? -1 : content.read( position, buffer, 0, buffer.length ) ;
+        if( read >= 0 || state == State.LANDED ) {
+          return read ;
+        }
+        try {
+          wait() ;
+        } catch( InterruptedException e ) {
+          Thread.currentThread().interrupt() ;
+          throw new IOException( "Interrupted while waiting for concurrent rendition" ) ;
+        }
+      }
+    }
+
+    private void leave() throws IOException {
+      final CisternOutputStream released ;
+      synchronized( this ) {
+        passengers -- ;
+        if( passengers > 0 || content == null ) {
+          return ;
+        }
+        released = content ;
+        content = null ;
+      }
+      released.close() ;
+    }
+  }
+
+  /**
+   * Writes into the leader's {@code OutputStream}, then into what followers read from.
+   */
+  private static final class TeeOutputStream extends OutputStream {
+
+    private final OutputStream target ;
+    private final Shared shared ;
+
+    private TeeOutputStream( final OutputStream target, final Shared shared ) {
+      this.target = target ;
+      this.shared = shared ;
+    }
+
+    @Override
+    public void write( final int someByte ) throws IOException {
+      write( new byte[] { ( byte ) someByte }, 0, 1 ) ;
+    }
+
+    @Override
+    public void write( final byte[] bytes, final int offset, final int length )
+        throws IOException
+    {
+      target.write( bytes, offset, length ) ;
+      shared.write( bytes, offset, length ) ;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      target.flush() ;
+    }
+  }
+
+
+// ===
+// Key
+// ===
+
+  /**
+   * What a rendered document depends on, ignoring how the request was written.
+   */
+  private static final class Key {
+
+    private final String documentSourceName ;
+    private final RenditionMimeType renditionMimeType ;
+    private final ImmutableSet< Tag > tags ;
+    private final PageIdentifier pageIdentifier ;
+    private final ResourceName alternateStylesheet ;
+
+    private Key( final DocumentRequest documentRequest ) {
+      this.documentSourceName = checkNotNull( documentRequest.getDocumentSourceName() ) ;
+      this.renditionMimeType = documentRequest.getRenditionMimeType() ;
+      this.tags = documentRequest.getTags() == null
+          ? ImmutableSet.< Tag >of()
+          : documentRequest.getTags()
+      ;
+      this.pageIdentifier = documentRequest.getPageIdentifier() ;
+      this.alternateStylesheet = documentRequest.getAlternateStylesheet() ;
+    }
+
+    @Override
+    public boolean equals( final Object other ) {
+      if( this == other ) {
+        return true ;
+      }
+      if( ! ( other instanceof Key ) ) {
+        return false ;
+      }
+      final Key that = ( Key ) other ;
+      return documentSourceName.equals( that.documentSourceName )
+          && renditionMimeType == that.renditionMimeType
+          && tags.equals( that.tags )
+          && Objects.equal( pageIdentifier, that.pageIdentifier )
+          && Objects.equal( alternateStylesheet, that.alternateStylesheet )
+      ;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(
+          documentSourceName, renditionMimeType, tags, pageIdentifier, alternateStylesheet ) ;
+    }
+  }
+
+}
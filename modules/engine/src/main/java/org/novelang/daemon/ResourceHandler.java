@@ -17,15 +17,23 @@
 
 package org.novelang.daemon;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
 import org.apache.commons.io.IOUtils;
 import org.eclipse.jetty.server.Request;
 
@@ -36,6 +44,7 @@ import org.novelang.outfit.loader.CompositeResourceLoader;
 import org.novelang.outfit.loader.ResourceLoader;
 import org.novelang.outfit.loader.ResourceName;
 import org.novelang.outfit.loader.ResourceNotFoundException;
+import org.novelang.outfit.loader.ResourceStamp;
 import org.novelang.outfit.loader.UrlResourceLoader;
 import org.novelang.produce.GenericRequest;
 import org.novelang.produce.MalformedRequestException;
@@ -43,6 +52,19 @@ import org.novelang.produce.ResourceRequest;
 
 /**
  * Holds resources which don't require rendering.
+ * <p>
+ * Resources that are plain files (like images in the content directory) get streamed
+ * with an {@code ETag} and a {@code Last-Modified} derived from file size and modification time,
+ * so the browser gets a {@code 304 Not Modified} if it already has them.
+ * Byte ranges are supported.
+ * <p>
+ * Other resources (like default stylesheets and fonts in the jar) don't change while
+ * the daemon runs. They are kept in memory, compressed when it's worth, and may be kept by
+ * the browser for {@value #BUNDLED_RESOURCE_MAX_AGE_SECONDS} seconds. The gzipped variant has
+ * its own {@code ETag}.
+ * <p>
+ * The {@code URL} of a {@link ResourceName} is resolved for each request, so a file
+ * added into a style directory overrides a bundled resource without restarting the daemon.
  *
  * @author Laurent Caillette
  */
@@ -50,8 +72,19 @@ public class ResourceHandler extends GenericHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( ResourceHandler.class ) ;
 
+  /*package*/ static final int BUNDLED_RESOURCE_MAX_AGE_SECONDS = 24 * 60 * 60 ;
+
+  private static final ImmutableSet< String > COMPRESSIBLE_EXTENSIONS =
+      ImmutableSet.of( "css", "js", "svg", "html", "htm", "txt", "xml", "ttf" ) ;
+
   private final ResourceLoader resourceLoader ;
 
+  /**
+   * Keys are the external form of {@code URL}s.
+   */
+  private final ConcurrentMap< String, BundledResource > bundledResources =
+      new MapMaker().makeMap() ;
+
   public ResourceHandler( final ProducerConfiguration serverConfiguration ) {
     this(
         new CompositeResourceLoader(
@@ -102,42 +135,42 @@ public class ResourceHandler extends GenericHandler {
 
     if( null != documentRequest ) {
 
-      try {
-        final String resourceName = removeLeadingSolidus(
-            documentRequest.getDocumentSourceName() + "." +
-            documentRequest.getResourceExtension()
-        ) ;
-        final InputStream inputStream = resourceLoader.getInputStream(
-            new ResourceName( resourceName ) ) ;
-
-        try {
-          IOUtils.copy( inputStream, response.getOutputStream() ) ; // TODO close stream.
-        } finally {
-          inputStream.close() ;
-        }
-
-        response.setStatus( HttpServletResponse.SC_OK ) ;
-
-        final String contentType =
-            ResourceMimeTypes.getMimeType( documentRequest.getResourceExtension() ) ;
-        if( null != contentType ) {
-          response.setContentType( contentType ) ;
-        }
+      final String extension = documentRequest.getResourceExtension() ;
+      final ResourceName resourceName = new ResourceName( removeLeadingSolidus(
+          documentRequest.getDocumentSourceName() + "." + extension ) ) ;
 
-        ( ( Request ) request ).setHandled( true ) ;
-        LOGGER.debug(
-            "Handled request '",
-            request.getRequestURI(),
-            "' with content-type '",
-            contentType,
-            "'."
-        ) ;
-        
+      final URL url = resourceLoader.maybeLocate( resourceName ) ;
+      final File file = url == null ? null : ResourceStamp.asFile( url ) ;
+      final InputStream inputStream ;
+      try {
+        inputStream = url == null ? resourceLoader.getInputStream( resourceName ) : null ;
       } catch( ResourceNotFoundException e ) {
         LOGGER.trace( "Could not serve ", request.getRequestURI() ) ;
         // Then do nothing, we just don't handle that request.
+        return ;
+      }
+
+      final String contentType = ResourceMimeTypes.getMimeType( extension ) ;
+      if( null != contentType ) {
+        response.setContentType( contentType ) ;
+      }
+
+      if( file != null ) {
+        serveFile( file, request, response ) ;
+      } else if( url != null ) {
+        serveBundled( getBundledResource( url, extension ), request, response ) ;
+      } else {
+        serveStream( inputStream, response ) ;
       }
 
+      ( ( Request ) request ).setHandled( true ) ;
+      LOGGER.debug(
+          "Handled request '",
+          request.getRequestURI(),
+          "' with content-type '",
+          contentType,
+          "'."
+      ) ;
     }
   }
 
@@ -148,4 +181,267 @@ public class ResourceHandler extends GenericHandler {
       return s ;
     }
   }
+
+
+// ==========
+// Plain file
+// ==========
+
+  private static void serveFile(
+      final File file,
+      final HttpServletRequest request,
+      final HttpServletResponse response
+  ) throws IOException {
+    final long length = file.length() ;
+    final long lastModified = file.lastModified() ;
+    final String eTag =
+        "\"" + Long.toHexString( length ) + "-" + Long.toHexString( lastModified ) + "\"" ;
+
+    response.setHeader( "ETag", eTag ) ;
+    response.setDateHeader( "Last-Modified", lastModified ) ;
+    response.setHeader( "Cache-Control", "no-cache" ) ;
+    response.setHeader( "Accept-Ranges", "bytes" ) ;
+
+    if( isNotModified( request, eTag, lastModified ) ) {
+      response.setStatus( HttpServletResponse.SC_NOT_MODIFIED ) ;
+      return ;
+    }
+
+    final long[] range ;
+    final String ifRange = request.getHeader( "If-Range" ) ;
+    if( ifRange == null || ifRange.equals( eTag ) ) {
+      range = parseRange( request.getHeader( "Range" ), length ) ;
+    } else {
+      range = null ;
+    }
+
+    final long start ;
+    final long count ;
+    if( range == null ) {
+      start = 0L ;
+      count = length ;
+      response.setStatus( HttpServletResponse.SC_OK ) ;
+    } else if( range == UNSATISFIABLE_RANGE ) {
+      response.setHeader( "Content-Range", "bytes */" + length ) ;
+      response.setStatus( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE ) ;
+      return ;
+    } else {
+      start = range[ 0 ] ;
+      count = range[ 1 ] - range[ 0 ] + 1 ;
+      response.setHeader(
+          "Content-Range", "bytes " + range[ 0 ] + "-" + range[ 1 ] + "/" + length ) ;
+      response.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT ) ;
+    }
+    setContentLength( response, count ) ;
+
+    final FileInputStream inputStream = new FileInputStream( file ) ;
+    try {
+      // The servlet container only gives an OutputStream so there is no zero-copy here.
+      inputStream.getChannel().position( start ) ;
+      copy( inputStream, response.getOutputStream(), count ) ;
+    } finally {
+      inputStream.close() ;
+    }
+  }
+
+  private static final int COPY_BUFFER_SIZE = 8 * 1024 ;
+
+  private static void copy(
+      final InputStream inputStream,
+      final OutputStream outputStream,
+      final long count
+  ) throws IOException {
+    final byte[] buffer = new byte[ ( int ) Math.min( ( long ) COPY_BUFFER_SIZE, count ) ] ;
+    long remaining = count ;
+    while( remaining > 0L ) {
+      final int read = inputStream.read(
+          buffer, 0, ( int ) Math.min( ( long ) buffer.length, remaining ) ) ;
+      if( read < 0 ) {
+        break ; // File got shorter.
+      }
+      outputStream.write( buffer, 0, read ) ;
+      remaining -= ( long ) read ;
+    }
+  }
+
+  private static boolean isNotModified(
+      final HttpServletRequest request,
+      final String eTag,
+      final long lastModified
+  ) {
+    if( request.getHeader( "If-None-Match" ) != null ) {
+      return matchesIfNoneMatch( request, eTag ) ;
+    }
+    final long ifModifiedSince = request.getDateHeader( "If-Modified-Since" ) ;
+    // HTTP dates have a resolution of one second.
+    return ifModifiedSince >= 0L && lastModified / 1000L <= ifModifiedSince / 1000L ;
+  }
+
+  private static final long[] UNSATISFIABLE_RANGE = new long[ 0 ] ;
+
+  /**
+   * Parses a {@code Range} header with a single range. Multiple ranges are legal but browsers
+   * don't send them for images, so they just cause the whole content to be sent.
+   *
+   * @param header a possibly null object.
+   * @return null for sending the whole content, {@link #UNSATISFIABLE_RANGE},
+   *     or an array containing first and last byte positions, inclusive.
+   */
+  private static long[] parseRange( final String header, final long length ) {
+    if( header == null || ! header.startsWith( "bytes=" ) || header.indexOf( ',' ) >= 0 ) {
+      return null ;
+    }
+    final String range = header.substring( "bytes=".length() ).trim() ;
+    final int hyphen = range.indexOf( '-' ) ;
+    if( hyphen < 0 ) {
+      return null ;
+    }
+    final long first ;
+    final long last ;
+    try {
+      if( hyphen == 0 ) {
+        final long suffixLength = Long.parseLong( range.substring( 1 ) ) ;
+        if( suffixLength == 0L ) {
+          return UNSATISFIABLE_RANGE ;
+        }
+        first = Math.max( 0L, length - suffixLength ) ;
+        last = length - 1L ;
+      } else {
+        first = Long.parseLong( range.substring( 0, hyphen ) ) ;
+        last = hyphen == range.length() - 1 ?
+            length - 1L : Math.min( length - 1L, Long.parseLong( range.substring( hyphen + 1 ) ) ) ;
+      }
+    } catch( NumberFormatException e ) {
+      return null ;
+    }
+    if( first >= length || last < first ) {
+      return UNSATISFIABLE_RANGE ;
+    }
+    return new long[] { first, last } ;
+  }
+
+  private static void setContentLength( final HttpServletResponse response, final long length ) {
+    if( length <= Integer.MAX_VALUE ) {
+      response.setContentLength( ( int ) length ) ;
+    } else {
+      response.setHeader( "Content-Length", Long.toString( length ) ) ;
+    }
+  }
+
+
+// ================
+// Bundled resource
+// ================
+
+  private BundledResource getBundledResource( final URL url, final String extension )
+      throws IOException
+  {
+    final String key = url.toExternalForm() ;
+    final BundledResource cached = bundledResources.get( key ) ;
+    if( cached != null ) {
+      return cached ;
+    }
+    final InputStream inputStream = url.openStream() ;
+    final byte[] bytes ;
+    try {
+      bytes = IOUtils.toByteArray( inputStream ) ;
+    } finally {
+      inputStream.close() ;
+    }
+    final BundledResource bundledResource =
+        new BundledResource( bytes, COMPRESSIBLE_EXTENSIONS.contains( extension ) ) ;
+    // Concurrent requests may read the same resource twice, this is harmless.
+    bundledResources.put( key, bundledResource ) ;
+    LOGGER.debug( "Cached ", key, " (", bytes.length, " bytes)." ) ;
+    return bundledResource ;
+  }
+
+  private static void serveBundled(
+      final BundledResource bundledResource,
+      final HttpServletRequest request,
+      final HttpServletResponse response
+  ) throws IOException {
+    final boolean sendGzipped ;
+    if( bundledResource.gzipped == null ) {
+      sendGzipped = false ;
+    } else {
+      response.setHeader( "Vary", "Accept-Encoding" ) ;
+      final String acceptEncoding = request.getHeader( "Accept-Encoding" ) ;
+      sendGzipped = acceptEncoding != null && acceptEncoding.contains( "gzip" ) ;
+    }
+    final String eTag = sendGzipped ? bundledResource.gzippedETag : bundledResource.eTag ;
+    response.setHeader( "ETag", eTag ) ;
+    response.setHeader( "Cache-Control", "max-age=" + BUNDLED_RESOURCE_MAX_AGE_SECONDS ) ;
+    if( matchesIfNoneMatch( request, eTag ) ) {
+      response.setStatus( HttpServletResponse.SC_NOT_MODIFIED ) ;
+      return ;
+    }
+    final byte[] content ;
+    if( sendGzipped ) {
+      response.setHeader( "Content-Encoding", "gzip" ) ;
+      content = bundledResource.gzipped ;
+    } else {
+      content = bundledResource.bytes ;
+    }
+    response.setStatus( HttpServletResponse.SC_OK ) ;
+    response.setContentLength( content.length ) ;
+    response.getOutputStream().write( content ) ;
+  }
+
+  private static final class BundledResource {
+    private final byte[] bytes ;
+
+    /**
+     * Null if not worth compressing.
+     */
+    private final byte[] gzipped ;
+
+    private final String eTag ;
+
+    /**
+     * Null if {@link #gzipped} is null.
+     */
+    private final String gzippedETag ;
+
+    public BundledResource( final byte[] bytes, final boolean compressible ) throws IOException {
+      this.bytes = bytes ;
+      final byte[] compressed = compressible ? gzip( bytes ) : null ;
+      this.gzipped = compressed != null && compressed.length < bytes.length ? compressed : null ;
+      final CRC32 crc32 = new CRC32() ;
+      crc32.update( bytes ) ;
+      final String hash = Long.toHexString( crc32.getValue() ) + "-" +
+          Integer.toHexString( bytes.length ) ;
+      this.eTag = "\"" + hash + "\"" ;
+      this.gzippedETag = gzipped == null ? null : "\"" + hash + "-gzip\"" ;
+    }
+
+    private static byte[] gzip( final byte[] bytes ) throws IOException {
+      final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream() ;
+      final GZIPOutputStream gzipOutputStream = new GZIPOutputStream( byteArrayOutputStream ) ;
+      gzipOutputStream.write( bytes ) ;
+      gzipOutputStream.close() ;
+      return byteArrayOutputStream.toByteArray() ;
+    }
+  }
+
+
+// ======
+// Stream
+// ======
+
+  /**
+   * For resources the {@link ResourceLoader} can't locate as a {@code URL}.
+   */
+  private static void serveStream(
+      final InputStream inputStream,
+      final HttpServletResponse response
+  ) throws IOException {
+    try {
+      response.setStatus( HttpServletResponse.SC_OK ) ;
+      IOUtils.copy( inputStream, response.getOutputStream() ) ;
+    } finally {
+      inputStream.close() ;
+    }
+  }
+
 }
@@ -16,20 +16,15 @@
  */
 package org.novelang.novella;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import javax.imageio.ImageIO;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLResolver;
-import javax.xml.stream.XMLStreamConstants;
+import java.util.List;
+import java.util.Set;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import org.apache.commons.lang.ClassUtils;
 import org.apache.commons.lang.StringUtils;
 
@@ -60,11 +55,21 @@ public class ImageFixer {
   private final File baseDirectory;
   private final File referrerDirectory ;
   private final ProblemCollector problemCollector ;
+  private final ImageMetadataCache imageMetadataCache ;
+
+  public ImageFixer(
+      final File baseDirectory,
+      final File referrerDirectory,
+      final ProblemCollector problemCollector
+  ) {
+    this( baseDirectory, referrerDirectory, problemCollector, ImageMetadataCache.DISABLED ) ;
+  }
 
   public ImageFixer(
       final File baseDirectory, 
       final File referrerDirectory, 
-      final ProblemCollector problemCollector 
+      final ProblemCollector problemCollector,
+      final ImageMetadataCache imageMetadataCache
   ) {
     Preconditions.checkNotNull( baseDirectory ) ;
     Preconditions.checkArgument( baseDirectory.exists(), "Does not exist: '%s'", baseDirectory ) ;
@@ -82,6 +87,7 @@ public class ImageFixer {
     this.baseDirectory = baseDirectory;
     this.referrerDirectory = referrerDirectory ;
     this.problemCollector = problemCollector ;
+    this.imageMetadataCache = Preconditions.checkNotNull( imageMetadataCache ) ;
     LOGGER.debug(
         "Created ",
         ClassUtils.getShortClassName( getClass() ),
@@ -93,6 +99,37 @@ public class ImageFixer {
     ) ;
   }
 
+  /**
+   * Returns the files referenced by images of a tree where {@link #relocateResources} already
+   * happened, in order of appearance, so callers can tell when image metadata get stale.
+   *
+   * @param tree a possibly null object.
+   * @return a non-null object containing no duplicates.
+   */
+  public static List< File > findImageFiles( final File baseDirectory, final SyntacticTree tree ) {
+    final Set< File > files = Sets.newLinkedHashSet() ;
+    if( tree != null ) {
+      findImageFiles( baseDirectory, tree, files ) ;
+    }
+    return ImmutableList.copyOf( files ) ;
+  }
+
+  private static void findImageFiles(
+      final File baseDirectory,
+      final SyntacticTree tree,
+      final Set< File > files
+  ) {
+    if( tree.isOneOf( NodeKind.RESOURCE_LOCATION ) ) {
+      if( tree.getChildCount() > 0 ) {
+        files.add( new File( baseDirectory, tree.getChildAt( 0 ).getText() ) ) ;
+      }
+    } else {
+      for( final SyntacticTree child : tree.getChildren() ) {
+        findImageFiles( baseDirectory, child, files ) ;
+      }
+    }
+  }
+
   public SyntacticTree relocateResources( final SyntacticTree tree ) {
     return relocateAllResources( Treepath.create( tree ) ).getTreeAtEnd() ;
   }
@@ -174,69 +211,26 @@ public class ImageFixer {
     return newTreepath ;
   }
 
-  private static Treepath< SyntacticTree > addRasterImageMetadata(
+  private Treepath< SyntacticTree > addRasterImageMetadata(
       final Treepath< SyntacticTree > treepathToImage,
       final File imageFile
   ) throws IOException {
-    LOGGER.debug( "Extracting raster image metadata from '", imageFile.getAbsolutePath(), "'..." ) ;
-    Treepath< SyntacticTree > newTreepath = treepathToImage ;
-
-    final BufferedImage bufferedImage = ImageIO.read( imageFile ) ;
-
-    newTreepath = addImageMetadata(
-        newTreepath,
-        NodeKind._IMAGE_WIDTH,
-        bufferedImage.getWidth() + "px"
-    ) ;
-
-    newTreepath = addImageMetadata(
-        newTreepath,
-        NodeKind._IMAGE_HEIGHT,
-        bufferedImage.getHeight() + "px"
-    ) ;
-    return newTreepath ;
+    final ImageMetadataCache.ImageMetadata metadata =
+        imageMetadataCache.getRasterImageMetadata( imageFile ) ;
+    return addImageMetadata( treepathToImage, metadata.getWidth(), metadata.getHeight() ) ;
   }
 
   /**
    * Decorates the referenced {@link NodeKind#VECTOR_IMAGE} with {@link NodeKind#_IMAGE_WIDTH }
    * and {@link NodeKind#_IMAGE_HEIGHT}.
-   * TODO: Seems that loading XML document triggers a connection to Internet (w3c.org).
    */
-  private static Treepath< SyntacticTree > addVectorImageMetadata(
+  private Treepath< SyntacticTree > addVectorImageMetadata(
       final Treepath< SyntacticTree > treepathToImage,
       final File imageFile
   ) throws IOException, XMLStreamException {
-
-    LOGGER.debug( "Extracting vector image metadata from '",
-        imageFile.getAbsolutePath(),
-        "'..."
-    ) ;
-    String width = null ;
-    String height = null ;
-
-    final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance() ;
-    final InputStream inputStream = new FileInputStream( imageFile ) ;
-    try {
-
-      xmlInputFactory.setProperty( "javax.xml.stream.resolver", ENTITY_RESOLVER );
-      final XMLStreamReader reader = xmlInputFactory.createXMLStreamReader( inputStream ) ;
-      for( int event = reader.next() ;
-          event != XMLStreamConstants.END_DOCUMENT ;
-          event = reader.next()
-      ) {
-        if( event == XMLStreamConstants.START_ELEMENT
-            && "svg".equals( reader.getName().getLocalPart() )
-        ) {
-          width = reader.getAttributeValue( "", "width" ) ;
-          height = reader.getAttributeValue( "", "height" ) ;
-          break ;
-        }
-      }
-    } finally {
-      inputStream.close() ;
-    }
-
-    return addImageMetadata( treepathToImage, width, height );
+    final ImageMetadataCache.ImageMetadata metadata =
+        imageMetadataCache.getVectorImageMetadata( imageFile ) ;
+    return addImageMetadata( treepathToImage, metadata.getWidth(), metadata.getHeight() ) ;
   }
 
   /**
@@ -327,22 +321,4 @@ public class ImageFixer {
     return resourceNameRelativeToBase ;
   }
 
-
-  /**
-   * Always returns an empty {@code InputStream} with the effect of disabling any entity inclusion.
-   */
-  private static final XMLResolver ENTITY_RESOLVER = new XMLResolver() {
-    @Override
-    public InputStream resolveEntity(
-        final String publicId,
-        final String systemId,
-        final String baseURI,
-        final String namespace
-    )
-    {
-      return new ByteArrayInputStream( new byte[] { } ) ;
-    }
-
-  } ;
-
 }
@@ -0,0 +1,495 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.novella;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.loader.ResourceStamp;
+
+/**
+ * Reads the dimensions of images as {@link ImageFixer} needs them, and keeps them as long as
+ * the {@link ResourceStamp} (path, last modification time and size) of the image file doesn't
+ * change.
+ * <p>
+ * Raster images only get their header read, without decoding pixels. For vector images,
+ * parsing stops at the root element.
+ * <p>
+ * When created with a file, the {@code ImageMetadataCache} loads previous entries from it
+ * and {@link #save()} writes them back, so they survive a restart.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class ImageMetadataCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( ImageMetadataCache.class ) ;
+
+  /**
+   * Always reads image files.
+   */
+  public static final ImageMetadataCache DISABLED = new ImageMetadataCache( null, false ) ;
+
+  private static final String FORMAT_HEADER = "# Novelang image metadata 1" ;
+
+  /**
+   * Null if nothing gets persisted.
+   */
+  private final File file ;
+
+  private final boolean enabled ;
+
+  /**
+   * Keys are absolute paths. Guarded by {@link #entries}.
+   */
+  private final Map< String, Entry > entries = Maps.newHashMap() ;
+
+  /**
+   * Guarded by {@link #entries}.
+   */
+  private boolean changed = false ;
+
+  private final AtomicLong hitCount = new AtomicLong() ;
+  private final AtomicLong missCount = new AtomicLong() ;
+
+  /**
+   * Creates an {@code ImageMetadataCache} living in memory only.
+   */
+  public ImageMetadataCache() {
+    this( null, true ) ;
+  }
+
+  /**
+   * Creates an {@code ImageMetadataCache} with the entries in given file, if it exists.
+   *
+   * @param file a non-null object.
+   */
+  public ImageMetadataCache( final File file ) {
+    this( checkNotNull( file ), true ) ;
+  }
+
+  private ImageMetadataCache( final File file, final boolean enabled ) {
+    this.file = file ;
+    this.enabled = enabled ;
+    if( file != null && file.exists() ) {
+      try {
+        load( file ) ;
+        LOGGER.info( "Loaded ", entries.size(), " image metadata from '",
+            file.getAbsolutePath(), "'." ) ;
+      } catch( Exception e ) {
+        entries.clear() ;
+        LOGGER.warn( e, "Could not load image metadata from '", file.getAbsolutePath(), "'." ) ;
+      }
+    }
+  }
+
+  /**
+   * @param imageFile a non-null object representing an existing file.
+   * @return a non-null object with non-null width and height, in pixels.
+   * @throws IOException if image format is not supported.
+   */
+  public ImageMetadata getRasterImageMetadata( final File imageFile ) throws IOException {
+    final ResourceStamp stamp = ResourceStamp.create( imageFile ) ;
+    final ImageMetadata cached = get( stamp, Kind.RASTER ) ;
+    if( cached == null ) {
+      return put( stamp, Kind.RASTER, readRasterImageMetadata( imageFile ) ) ;
+    } else {
+      return cached ;
+    }
+  }
+
+  /**
+   * @param imageFile a non-null object representing an existing file.
+   * @return a non-null object with possibly null width and height, with their unit.
+   */
+  public ImageMetadata getVectorImageMetadata( final File imageFile )
+      throws IOException, XMLStreamException
+  {
+    final ResourceStamp stamp = ResourceStamp.create( imageFile ) ;
+    final ImageMetadata cached = get( stamp, Kind.VECTOR ) ;
+    if( cached == null ) {
+      return put( stamp, Kind.VECTOR, readVectorImageMetadata( imageFile ) ) ;
+    } else {
+      return cached ;
+    }
+  }
+
+  private ImageMetadata get( final ResourceStamp stamp, final Kind kind ) {
+    if( enabled ) {
+      final Entry entry ;
+      synchronized( entries ) {
+        entry = entries.get( stamp.getLocation() ) ;
+      }
+      if( entry != null && entry.kind == kind && entry.matches( stamp ) ) {
+        hitCount.incrementAndGet() ;
+        return entry.metadata ;
+      }
+    }
+    missCount.incrementAndGet() ;
+    return null ;
+  }
+
+  private ImageMetadata put(
+      final ResourceStamp stamp,
+      final Kind kind,
+      final ImageMetadata metadata
+  ) {
+    if( enabled ) {
+      synchronized( entries ) {
+        entries.put( stamp.getLocation(), new Entry(
+            stamp.getLocation(), stamp.getLastModified(), stamp.getLength(), kind, metadata ) ) ;
+        changed = true ;
+      }
+    }
+    return metadata ;
+  }
+
+  /**
+   * Writes entries into the file given at construction, if there is one and something
+   * changed since last time. Entries for image files that changed or disappeared get dropped,
+   * so the file doesn't keep growing. Failures only get logged as the cache can be rebuilt
+   * anyways. Synchronized so concurrent calls don't write the same temporary file.
+   */
+  public synchronized void save() {
+    if( file == null ) {
+      return ;
+    }
+    final List< Entry > savedEntries ;
+    synchronized( entries ) {
+      if( ! changed ) {
+        return ;
+      }
+      savedEntries = Lists.newArrayList( entries.values() ) ;
+      changed = false ;
+    }
+
+    // Not holding the lock while reading file stamps.
+    final List< Entry > staleEntries = Lists.newArrayList() ;
+    final StringBuilder content = new StringBuilder( FORMAT_HEADER ).append( '\n' ) ;
+    for( final Entry entry : savedEntries ) {
+      if( entry.matches( ResourceStamp.create( new File( entry.location ) ) ) ) {
+        entry.appendTo( content ) ;
+      } else {
+        staleEntries.add( entry ) ;
+      }
+    }
+    if( ! staleEntries.isEmpty() ) {
+      synchronized( entries ) {
+        for( final Entry staleEntry : staleEntries ) {
+          // Keeps an entry put meanwhile.
+          if( entries.get( staleEntry.location ) == staleEntry ) {
+            entries.remove( staleEntry.location ) ;
+          }
+        }
+      }
+      LOGGER.debug( "Dropped ", staleEntries.size(), " stale image metadata." ) ;
+    }
+    final File temporaryFile = new File( file.getPath() + ".tmp" ) ;
+    try {
+      final Writer writer =
+          new OutputStreamWriter( new FileOutputStream( temporaryFile ), Charsets.UTF_8 ) ;
+      try {
+        writer.write( content.toString() ) ;
+      } finally {
+        writer.close() ;
+      }
+      if( ! temporaryFile.renameTo( file ) ) {
+        // Windows doesn't rename onto an existing file.
+        if( ! file.delete() || ! temporaryFile.renameTo( file ) ) {
+          throw new IOException( "Could not rename '" + temporaryFile.getAbsolutePath() + "'" ) ;
+        }
+      }
+      LOGGER.debug( "Saved image metadata into '", file.getAbsolutePath(), "'." ) ;
+    } catch( IOException e ) {
+      LOGGER.warn( e, "Could not save image metadata into '", file.getAbsolutePath(), "'." ) ;
+    }
+  }
+
+  private void load( final File file ) throws IOException {
+    final BufferedReader reader = new BufferedReader(
+        new InputStreamReader( new FileInputStream( file ), Charsets.UTF_8 ) ) ;
+    try {
+      if( ! FORMAT_HEADER.equals( reader.readLine() ) ) {
+        throw new IOException( "Unsupported format" ) ;
+      }
+      String line ;
+      while( ( line = reader.readLine() ) != null ) {
+        if( line.length() > 0 ) {
+          final Entry entry = Entry.parse( line ) ;
+          entries.put( entry.location, entry ) ;
+        }
+      }
+    } finally {
+      reader.close() ;
+    }
+  }
+
+
+// =======
+// Reading
+// =======
+
+  private static ImageMetadata readRasterImageMetadata( final File imageFile )
+      throws IOException
+  {
+    LOGGER.debug( "Extracting raster image metadata from '", imageFile.getAbsolutePath(), "'..." ) ;
+    final ImageInputStream imageInputStream = ImageIO.createImageInputStream( imageFile ) ;
+    if( imageInputStream == null ) {
+      throw new IOException( "Could not open '" + imageFile.getAbsolutePath() + "'" ) ;
+    }
+    try {
+      final Iterator< ImageReader > imageReaders = ImageIO.getImageReaders( imageInputStream ) ;
+      if( ! imageReaders.hasNext() ) {
+        throw new IOException( "Unsupported format for '" + imageFile.getAbsolutePath() + "'" ) ;
+      }
+      final ImageReader imageReader = imageReaders.next() ;
+      try {
+        // Only reads the header, ignoring metadata like comments or color profiles.
+        imageReader.setInput( imageInputStream, true, true ) ;
+        return new ImageMetadata(
+            imageReader.getWidth( 0 ) + "px",
+            imageReader.getHeight( 0 ) + "px"
+        ) ;
+      } finally {
+        imageReader.dispose() ;
+      }
+    } finally {
+      imageInputStream.close() ;
+    }
+  }
+
+  private static final XMLInputFactory XML_INPUT_FACTORY ;
+  static {
+    XML_INPUT_FACTORY = XMLInputFactory.newInstance() ;
+    XML_INPUT_FACTORY.setProperty( XMLInputFactory.RESOLVER, new XMLResolver() {
+      /**
+       * Always returns an empty {@code InputStream} with the effect of disabling any
+       * entity inclusion.
+       */
+      @Override
+      public InputStream resolveEntity(
+          final String publicId,
+          final String systemId,
+          final String baseURI,
+          final String namespace
+      ) {
+        return new ByteArrayInputStream( new byte[] { } ) ;
+      }
+    } ) ;
+  }
+
+  /**
+   * Reads {@code width} and {@code height} attributes of the root element, if it is an
+   * {@code svg} element.
+   */
+  private static ImageMetadata readVectorImageMetadata( final File imageFile )
+      throws IOException, XMLStreamException
+  {
+    LOGGER.debug( "Extracting vector image metadata from '", imageFile.getAbsolutePath(), "'..." ) ;
+    final InputStream inputStream = new FileInputStream( imageFile ) ;
+    try {
+      final XMLStreamReader reader ;
+      synchronized( XML_INPUT_FACTORY ) {
+        reader = XML_INPUT_FACTORY.createXMLStreamReader( inputStream ) ;
+      }
+      try {
+        for( int event = reader.next() ;
+            event != XMLStreamConstants.END_DOCUMENT ;
+            event = reader.next()
+        ) {
+          if( event == XMLStreamConstants.START_ELEMENT ) {
+            if( "svg".equals( reader.getName().getLocalPart() ) ) {
+              return new ImageMetadata(
+                  reader.getAttributeValue( "", "width" ),
+                  reader.getAttributeValue( "", "height" )
+              ) ;
+            }
+            break ;
+          }
+        }
+        return new ImageMetadata( null, null ) ;
+      } finally {
+        reader.close() ;
+      }
+    } finally {
+      inputStream.close() ;
+    }
+  }
+
+
+// ==========
+// Statistics
+// ==========
+
+  public long getHitCount() {
+    return hitCount.get() ;
+  }
+
+  public long getMissCount() {
+    return missCount.get() ;
+  }
+
+  public int size() {
+    synchronized( entries ) {
+      return entries.size() ;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        ( file == null ? "" : "file=" + file.getAbsolutePath() + ";" ) +
+        "size=" + size() +
+        ";hits=" + getHitCount() +
+        ";misses=" + getMissCount() +
+        "}"
+    ;
+  }
+
+
+// =======================
+// ImageMetadata and Entry
+// =======================
+
+  /**
+   * Dimensions of an image, including their unit.
+   */
+  public static final class ImageMetadata {
+    private final String width ;
+    private final String height ;
+
+    public ImageMetadata( final String width, final String height ) {
+      this.width = width ;
+      this.height = height ;
+    }
+
+    /**
+     * @return a possibly null object.
+     */
+    public String getWidth() {
+      return width ;
+    }
+
+    /**
+     * @return a possibly null object.
+     */
+    public String getHeight() {
+      return height ;
+    }
+  }
+
+  private enum Kind { RASTER, VECTOR }
+
+  private static final class Entry {
+    private final String location ;
+    private final long lastModified ;
+    private final long length ;
+    private final Kind kind ;
+    private final ImageMetadata metadata ;
+
+    private Entry(
+        final String location,
+        final long lastModified,
+        final long length,
+        final Kind kind,
+        final ImageMetadata metadata
+    ) {
+      this.location = checkNotNull( location ) ;
+      this.lastModified = lastModified ;
+      this.length = length ;
+      this.kind = checkNotNull( kind ) ;
+      this.metadata = checkNotNull( metadata ) ;
+    }
+
+    private boolean matches( final ResourceStamp stamp ) {
+      return lastModified == stamp.getLastModified()
+          && length == stamp.getLength()
+          && location.equals( stamp.getLocation() )
+      ;
+    }
+
+    /**
+     * Appends a line with tab-separated values, the path coming last because it's the only
+     * one that may contain anything.
+     */
+    private void appendTo( final StringBuilder builder ) {
+      builder
+          .append( kind.name() ).append( '\t' )
+          .append( lastModified ).append( '\t' )
+          .append( length ).append( '\t' )
+          .append( nullToEmpty( metadata.getWidth() ) ).append( '\t' )
+          .append( nullToEmpty( metadata.getHeight() ) ).append( '\t' )
+          .append( location ).append( '\n' )
+      ;
+    }
+
+    private static Entry parse( final String line ) throws IOException {
+      final String[] values = line.split( "\t", 6 ) ;
+      if( values.length != 6 ) {
+        throw new IOException( "Malformed line: '" + line + "'" ) ;
+      }
+      try {
+        return new Entry(
+            values[ 5 ],
+            Long.parseLong( values[ 1 ] ),
+            Long.parseLong( values[ 2 ] ),
+            Kind.valueOf( values[ 0 ] ),
+            new ImageMetadata( emptyToNull( values[ 3 ] ), emptyToNull( values[ 4 ] ) )
+        ) ;
+      } catch( IllegalArgumentException e ) {
+        throw new IOException( "Malformed line: '" + line + "'", e ) ;
+      }
+    }
+
+    private static String nullToEmpty( final String string ) {
+      return string == null ? "" : string ;
+    }
+
+    private static String emptyToNull( final String string ) {
+      return string.length() == 0 ? null : string ;
+    }
+  }
+
+}
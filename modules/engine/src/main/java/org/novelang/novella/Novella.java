@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
@@ -36,11 +37,13 @@ import org.novelang.common.tree.Treepath;
 import org.novelang.designator.Tag;
 import org.novelang.outfit.DefaultCharset;
 import org.novelang.parser.GenericParser;
+import org.novelang.parser.antlr.ChunkedPartParser;
 import org.novelang.parser.antlr.DelegatingPartParser;
 import org.novelang.treemangling.DesignatorInterpreter;
 import org.novelang.treemangling.EmbeddedListMangler;
 import org.novelang.treemangling.LevelMangler;
 import org.novelang.treemangling.ListMangler;
+import org.novelang.treemangling.ManglingPipeline;
 import org.novelang.treemangling.SeparatorsMangler;
 import org.novelang.treemangling.TagFilter;
 import org.novelang.treemangling.TagMangler;
@@ -57,9 +60,15 @@ public class Novella extends AbstractSourceReader {
   private final SyntacticTree tree ;
   private final File partFileDirectory ;
 
+  /**
+   * Null means parsing on the calling thread only.
+   */
+  private final Executor parsingExecutor ;
+
   private Novella( final Novella other, final SyntacticTree newTree ) {
     super( other ) ;
     this.partFileDirectory = other.partFileDirectory ;
+    this.parsingExecutor = null ;
     this.tree = newTree ;
   }
 
@@ -67,6 +76,7 @@ public class Novella extends AbstractSourceReader {
    * Only for tests.
    */
   /*package*/ Novella( final String content ) {
+    parsingExecutor = null ;
     tree = createTree( content ) ;
     partFileDirectory = null ;
   }
@@ -82,6 +92,19 @@ public class Novella extends AbstractSourceReader {
       final File file,
       final Charset sourceCharset,
       final Charset suggestedRenderingCharset
+  ) throws IOException {
+    this( file, sourceCharset, suggestedRenderingCharset, null ) ;
+  }
+
+  /**
+   * @param parsingExecutor a possibly null object, if not null a big file gets parsed
+   *     as several chunks running on it (see {@link ChunkedPartParser}).
+   */
+  public Novella(
+      final File file,
+      final Charset sourceCharset,
+      final Charset suggestedRenderingCharset,
+      final Executor parsingExecutor
   ) throws IOException {
     super(
         file.getCanonicalPath(),
@@ -95,15 +118,54 @@ public class Novella extends AbstractSourceReader {
         "Novella file cannot be a directory: %s", canonicalFile
     ) ;
     this.partFileDirectory = canonicalFile.getParentFile() ;
+    this.parsingExecutor = parsingExecutor ;
     tree = createTree( readContent( canonicalFile ) ) ;
   }
 
+  /**
+   * Reuses the result of a previous parsing, as kept by {@link NovellaCache}.
+   *
+   * @param canonicalFile a non-null object, already canonicalized.
+   * @param tree a possibly null object, as returned by {@link #getDocumentTree()}.
+   * @param problems a non-null object, as returned by {@link #getProblems()}.
+   */
+  /*package*/ Novella(
+      final File canonicalFile,
+      final Charset sourceCharset,
+      final Charset suggestedRenderingCharset,
+      final SyntacticTree tree,
+      final Iterable< Problem > problems
+  ) {
+    super(
+        canonicalFile.getPath(),
+        sourceCharset,
+        suggestedRenderingCharset,
+        "novella[" + canonicalFile.getName() + "]"
+    ) ;
+    this.partFileDirectory = canonicalFile.getParentFile() ;
+    this.parsingExecutor = null ;
+    this.tree = tree ;
+    collect( problems ) ;
+  }
+
   @Override
   protected GenericParser createParser( final String content ) {
-    return new DelegatingPartParser( content, this ) ;
-
+    return parsingExecutor == null ?
+        new DelegatingPartParser( content, this ) :
+        new ChunkedPartParser( content, this, parsingExecutor )
+    ;
   }
 
+  /**
+   * Mandatory whitespace insertion doesn't interfere with embedded lists, so it can join
+   * the stages running after them.
+   */
+  private static final ManglingPipeline SEPARATORS_AND_LEVELS = new ManglingPipeline(
+      SeparatorsMangler.MANDATORY_WHITESPACE_INSERTION,
+      SeparatorsMangler.SEPARATOR_REMOVAL,
+      LevelMangler.STAGE
+  ) ;
+
   private SyntacticTree createTree( final String content ) {
     final SyntacticTree rawTree = parse( content ) ;
     if( null == rawTree || hasProblem() ) {
@@ -111,10 +173,8 @@ public class Novella extends AbstractSourceReader {
     } else {
       Treepath< SyntacticTree > rehierarchized = Treepath.create( rawTree ) ;
       rehierarchized = UrlMangler.fixNamedUrls( rehierarchized ) ;
-      rehierarchized = SeparatorsMangler.insertMandatoryWhitespaceNearApostrophe( rehierarchized ) ;
       rehierarchized = EmbeddedListMangler.rehierarchizeEmbeddedLists( rehierarchized ) ;
-      rehierarchized = SeparatorsMangler.removeSeparators( rehierarchized ) ;      
-      rehierarchized = LevelMangler.rehierarchizeLevels( rehierarchized ) ;
+      rehierarchized = SEPARATORS_AND_LEVELS.mangle( rehierarchized ) ;
       rehierarchized = TagMangler.enhance( rehierarchized ) ;
 
       return rehierarchized.getTreeAtEnd() ;
@@ -148,6 +208,17 @@ public class Novella extends AbstractSourceReader {
    * This is just for not messing the constructor up with some marginal argument.
    */
   public Novella relocateResourcePaths( final File contentRoot ) {
+    return relocateResourcePaths( contentRoot, ImageMetadataCache.DISABLED ) ;
+  }
+
+  /**
+   * Same as {@link #relocateResourcePaths(File)}, reusing image dimensions
+   * from given {@link ImageMetadataCache}.
+   */
+  public Novella relocateResourcePaths(
+      final File contentRoot,
+      final ImageMetadataCache imageMetadataCache
+  ) {
     
     if( null == getDocumentTree() || null == partFileDirectory ) {
       LOGGER.warn( "Resource paths not relocated. This may be normal when running tests" ) ;
@@ -169,7 +240,8 @@ public class Novella extends AbstractSourceReader {
       fixedTree = new ImageFixer(
           contentRoot, 
           partFileDirectory, 
-          problemCollector 
+          problemCollector,
+          imageMetadataCache
       ).relocateResources( getDocumentTree() ) ;
     }
     Novella.this.collect( relocationProblems ); ;
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.novella;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableList;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.novelang.common.Problem;
+import org.novelang.common.SyntacticTree;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.loader.ResourceStamp;
+
+/**
+ * Keeps the trees of parsed {@link Novella}s (after the manglers ran on them), so a Novella
+ * file that didn't change since last time doesn't get read, parsed and mangled again.
+ * <p>
+ * Entries are keyed by canonical path and source charset, and are valid as long as the
+ * {@link ResourceStamp} (last modification time and size) of the file doesn't change.
+ * Sharing trees is safe because {@link org.novelang.common.SimpleTree}s are immutable.
+ * <p>
+ * The bound is expressed as the total size of source files, which is cheap to get and
+ * roughly proportional to the memory taken by their trees.
+ * Least recently used trees go away first.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class NovellaCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( NovellaCache.class ) ;
+
+  /**
+   * Always parses again.
+   */
+  public static final NovellaCache DISABLED = new NovellaCache( 0L ) ;
+
+  private final long maximumWeight ;
+
+  private final ImageMetadataCache imageMetadataCache ;
+
+  /**
+   * Guarded by {@link #entries}.
+   */
+  private long currentWeight = 0L ;
+
+  private final LinkedHashMap< Key, Entry > entries =
+      new LinkedHashMap< Key, Entry >( 16, 0.75f, true ) ;
+
+  private final AtomicLong hitCount = new AtomicLong() ;
+  private final AtomicLong missCount = new AtomicLong() ;
+  private final AtomicLong evictionCount = new AtomicLong() ;
+
+  /**
+   * Constructor.
+   *
+   * @param maximumWeight maximum cumulated size, in bytes, of the source files of the
+   *     Novellas to keep. 0 disables caching.
+   */
+  public NovellaCache( final long maximumWeight ) {
+    this(
+        maximumWeight,
+        maximumWeight == 0L ? ImageMetadataCache.DISABLED : new ImageMetadataCache()
+    ) ;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param maximumWeight maximum cumulated size, in bytes, of the source files of the
+   *     Novellas to keep. 0 disables caching of trees.
+   * @param imageMetadataCache a non-null object for images the Novellas refer to.
+   */
+  public NovellaCache( final long maximumWeight, final ImageMetadataCache imageMetadataCache ) {
+    checkArgument( maximumWeight >= 0L, "Maximum weight must be 0 or more, was %s", maximumWeight ) ;
+    this.maximumWeight = maximumWeight ;
+    this.imageMetadataCache = checkNotNull( imageMetadataCache ) ;
+  }
+
+  /**
+   * Image dimensions don't belong to cached trees because they get added when
+   * relocating resources, which happens after.
+   *
+   * @return a non-null object, to pass to {@link Novella#relocateResourcePaths(File,
+   *     ImageMetadataCache)}.
+   */
+  public ImageMetadataCache getImageMetadataCache() {
+    return imageMetadataCache ;
+  }
+
+  /**
+   * Returns a {@link Novella} as {@link Novella#Novella(File, Charset, Charset)} would do,
+   * reusing a previously-parsed tree when possible.
+   *
+   * @return a non-null object.
+   */
+  public Novella load(
+      final File file,
+      final Charset sourceCharset,
+      final Charset renderingCharset
+  ) throws IOException {
+    return load( file, sourceCharset, renderingCharset, null ) ;
+  }
+
+  /**
+   * Same as {@link #load(File, Charset, Charset)}, parsing a big Novella on given
+   * {@link Executor} if it needs to be parsed.
+   *
+   * @param parsingExecutor a possibly null object.
+   * @return a non-null object.
+   */
+  public Novella load(
+      final File file,
+      final Charset sourceCharset,
+      final Charset renderingCharset,
+      final Executor parsingExecutor
+  ) throws IOException {
+
+    if( maximumWeight == 0L ) {
+      return new Novella( file, sourceCharset, renderingCharset, parsingExecutor ) ;
+    }
+
+    final File canonicalFile = file.getCanonicalFile() ;
+
+    // Taking the stamp before reading, so a change happening during the read gets noticed.
+    final ResourceStamp stamp = ResourceStamp.create( canonicalFile ) ;
+    final Key key = new Key( canonicalFile.getPath(), sourceCharset ) ;
+
+    final Entry cached ;
+    synchronized( entries ) {
+      cached = entries.get( key ) ;
+    }
+    if( cached != null && cached.stamp.equals( stamp ) ) {
+      hitCount.incrementAndGet() ;
+      LOGGER.debug( "Reusing parsed tree of '", canonicalFile.getPath(), "'." ) ;
+      return new Novella(
+          canonicalFile,
+          sourceCharset,
+          renderingCharset,
+          cached.tree,
+          cached.problems
+      ) ;
+    }
+
+    missCount.incrementAndGet() ;
+    final Novella novella =
+        new Novella( canonicalFile, sourceCharset, renderingCharset, parsingExecutor ) ;
+    put( key, new Entry( stamp, novella.getDocumentTree(), novella.getProblems() ) ) ;
+    return novella ;
+  }
+
+  private void put( final Key key, final Entry entry ) {
+    final long weight = entry.stamp.getLength() ;
+    synchronized( entries ) {
+      final Entry previous = entries.remove( key ) ;
+      if( previous != null ) {
+        currentWeight -= previous.stamp.getLength() ;
+      }
+      if( weight > maximumWeight ) {
+        LOGGER.debug( "Not caching ", key.path, " (too big)." ) ;
+        return ;
+      }
+      entries.put( key, entry ) ;
+      currentWeight += weight ;
+      final Iterator< Entry > leastRecentlyUsed = entries.values().iterator() ;
+      while( currentWeight > maximumWeight && leastRecentlyUsed.hasNext() ) {
+        final Entry evicted = leastRecentlyUsed.next() ;
+        leastRecentlyUsed.remove() ;
+        currentWeight -= evicted.stamp.getLength() ;
+        evictionCount.incrementAndGet() ;
+      }
+    }
+  }
+
+  public void clear() {
+    synchronized( entries ) {
+      entries.clear() ;
+      currentWeight = 0L ;
+    }
+  }
+
+
+// ==========
+// Statistics
+// ==========
+
+  public long getHitCount() {
+    return hitCount.get() ;
+  }
+
+  public long getMissCount() {
+    return missCount.get() ;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.get() ;
+  }
+
+  public int size() {
+    synchronized( entries ) {
+      return entries.size() ;
+    }
+  }
+
+  /**
+   * @return cumulated size, in bytes, of the source files of the Novellas currently kept.
+   */
+  public long getWeight() {
+    synchronized( entries ) {
+      return currentWeight ;
+    }
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "size=" + size() +
+        ";weight=" + getWeight() + "/" + maximumWeight +
+        ";hits=" + getHitCount() +
+        ";misses=" + getMissCount() +
+        ";evictions=" + getEvictionCount() +
+        ";images=" + imageMetadataCache +
+        "}"
+    ;
+  }
+
+
+// =============
+// Key and Entry
+// =============
+
+  private static final class Key {
+    private final String path ;
+    private final Charset sourceCharset ;
+
+    private Key( final String path, final Charset sourceCharset ) {
+      this.path = checkNotNull( path ) ;
+      this.sourceCharset = checkNotNull( sourceCharset ) ;
+    }
+
+    @Override
+    public boolean equals( final Object other ) {
+      if( this == other ) {
+        return true ;
+      }
+      if( ! ( other instanceof Key ) ) {
+        return false ;
+      }
+      final Key that = ( Key ) other ;
+      return path.equals( that.path ) && sourceCharset.equals( that.sourceCharset ) ;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * path.hashCode() + sourceCharset.hashCode() ;
+    }
+  }
+
+  private static final class Entry {
+    private final ResourceStamp stamp ;
+    private final SyntacticTree tree ;
+    private final ImmutableList< Problem > problems ;
+
+    private Entry(
+        final ResourceStamp stamp,
+        final SyntacticTree tree,
+        final Iterable< Problem > problems
+    ) {
+      this.stamp = checkNotNull( stamp ) ;
+      this.tree = tree ;
+      this.problems = ImmutableList.copyOf( problems ) ;
+    }
+  }
+}
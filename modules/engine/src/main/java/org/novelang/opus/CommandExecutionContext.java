@@ -30,8 +30,10 @@ import com.google.common.collect.Maps;
 import org.novelang.common.Problem;
 import org.novelang.common.StylesheetMap;
 import org.novelang.common.SyntacticTree;
+import org.novelang.novella.NovellaCache;
 import org.novelang.outfit.DefaultCharset;
 import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
 import org.novelang.rendering.RenditionMimeType;
 
 /**
@@ -47,6 +49,7 @@ public final class CommandExecutionContext {
   private final File baseDirectory ;
   private final File bookDirectory ;
   private final ExecutorService executorService ;
+  private final NovellaCache novellaCache ;
   private final Charset sourceCharset ;
   private final Charset renderingCharset ;
   private final Map< RenditionMimeType, ResourceName > mappedStylesheets ;
@@ -58,8 +61,15 @@ public final class CommandExecutionContext {
 
   private final SyntacticTree bookTree ;
   private final Iterable< Problem > problems ;
+
+  /**
+   * Every file read by {@link org.novelang.opus.function.Command}s evaluated so far,
+   * used by {@link OpusCache} to tell if a snapshot is still valid.
+   */
+  private final ImmutableMap< File, ResourceStamp > inputs ;
   
   private static final Iterable< Problem > NO_PROBLEM = ImmutableList.of() ;
+  private static final ImmutableMap< File, ResourceStamp > NO_INPUT = ImmutableMap.of() ;
   
 
   private CommandExecutionContext( 
@@ -67,11 +77,13 @@ public final class CommandExecutionContext {
       final SyntacticTree alternateBookTree,
       final ExecutorService executorService,
       final Iterable< Problem > moreProblems,
-      final Map< RenditionMimeType, ResourceName > moreStylesheetMappings
+      final Map< RenditionMimeType, ResourceName > moreStylesheetMappings,
+      final ImmutableMap< File, ResourceStamp > inputs
   ) {
     this.baseDirectory = other.baseDirectory ;
     this.bookDirectory = other.bookDirectory ;
     this.executorService = Preconditions.checkNotNull( executorService ) ;
+    this.novellaCache = other.novellaCache ;
     this.sourceCharset = other.sourceCharset ;
     this.renderingCharset = other.renderingCharset ;
 
@@ -95,6 +107,7 @@ public final class CommandExecutionContext {
       this.problems = ImmutableList.copyOf( 
           Iterables.concat( other.getProblems(), moreProblems ) ) ;
     }
+    this.inputs = Preconditions.checkNotNull( inputs ) ;
   }
 
 
@@ -110,16 +123,28 @@ public final class CommandExecutionContext {
       final File baseDirectory,
       final File bookDirectory,
       final ExecutorService executorService
+  ) {
+    this( baseDirectory, bookDirectory, executorService, NovellaCache.DISABLED ) ;
+  }
+
+
+  public CommandExecutionContext(
+      final File baseDirectory,
+      final File bookDirectory,
+      final ExecutorService executorService,
+      final NovellaCache novellaCache
   ) {
     this.baseDirectory = Preconditions.checkNotNull( baseDirectory ) ;
     this.bookDirectory = Preconditions.checkNotNull( bookDirectory ) ;
     this.executorService = Preconditions.checkNotNull( executorService ) ;
+    this.novellaCache = Preconditions.checkNotNull( novellaCache ) ;
     this.sourceCharset = DefaultCharset.SOURCE ;
     this.renderingCharset = DefaultCharset.RENDERING ;
     this.mappedStylesheets = Maps.newHashMap() ;
     this.stylesheetMap = StylesheetMap.EMPTY_MAP ;
     this.bookTree = null ;
     this.problems = NO_PROBLEM ;
+    this.inputs = NO_INPUT ;
   }
 
 
@@ -136,6 +161,13 @@ public final class CommandExecutionContext {
     return executorService ;
   }
 
+  /**
+   * @return a non-null object, {@link NovellaCache#DISABLED} if no caching should happen.
+   */
+  public NovellaCache getNovellaCache() {
+    return novellaCache ;
+  }
+
   public Charset getSourceCharset() {
     return sourceCharset ;
   }
@@ -156,6 +188,58 @@ public final class CommandExecutionContext {
   }
 
 
+  /**
+   * @return a non-null object, in the order of first reading.
+   */
+  public ImmutableMap< File, ResourceStamp > getInputs() {
+    return inputs ;
+  }
+
+
+  /**
+   * Records files read by a {@link org.novelang.opus.function.Command}, taking their
+   * {@link ResourceStamp} now.
+   * Files already recorded keep their first {@link ResourceStamp}.
+   */
+  public CommandExecutionContext addInputs( final Iterable< File > files ) {
+    final Map< File, ResourceStamp > newInputs = Maps.newLinkedHashMap( inputs ) ;
+    for( final File file : files ) {
+      if( ! newInputs.containsKey( file ) ) {
+        newInputs.put( file, ResourceStamp.create( file ) ) ;
+      }
+    }
+    return new CommandExecutionContext(
+        this,
+        getDocumentTree(),
+        executorService,
+        problems,
+        mappedStylesheets,
+        ImmutableMap.copyOf( newInputs )
+    ) ;
+  }
+
+
+  /**
+   * Used when reusing a snapshot from a previous build, so further evaluation happens
+   * with current {@link ExecutorService}.
+   */
+  /*package*/ CommandExecutionContext withExecutorService(
+      final ExecutorService executorService
+  ) {
+    if( executorService == this.executorService ) {
+      return this ;
+    }
+    return new CommandExecutionContext(
+        this,
+        getDocumentTree(),
+        executorService,
+        problems,
+        mappedStylesheets,
+        inputs
+    ) ;
+  }
+
+
   public CommandExecutionContext addMappings(
       final Map< RenditionMimeType, ResourceName > moreStylesheetMappings
   ) throws DuplicateStylesheetMappingException {
@@ -176,7 +260,8 @@ public final class CommandExecutionContext {
         this.getDocumentTree(),
         executorService,
         this.getProblems(),
-        moreStylesheetMappings
+        moreStylesheetMappings,
+        inputs
     ) ;
   }
 
@@ -192,7 +277,8 @@ public final class CommandExecutionContext {
         bookTree,
         executorService,
         getProblems(),
-        mappedStylesheets
+        mappedStylesheets,
+        inputs
     ) ;
   }
 
@@ -203,7 +289,8 @@ public final class CommandExecutionContext {
         getDocumentTree(),
         executorService,
         problems,
-        mappedStylesheets
+        mappedStylesheets,
+        inputs
     ) ;
   }
 
@@ -214,7 +301,8 @@ public final class CommandExecutionContext {
         getDocumentTree(),
         executorService,
         ImmutableList.of( problem ),
-        mappedStylesheets
+        mappedStylesheets,
+        inputs
     ) ;
   }
 
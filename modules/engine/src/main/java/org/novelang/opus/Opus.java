@@ -25,6 +25,7 @@ import java.util.concurrent.ExecutorService;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
 
@@ -37,6 +38,10 @@ import org.novelang.common.SyntacticTree;
 import org.novelang.common.tree.Statistics;
 import org.novelang.common.tree.Treepath;
 import org.novelang.designator.Tag;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.novella.NovellaCache;
+import org.novelang.outfit.loader.ResourceStamp;
 import org.novelang.opus.function.Command;
 import org.novelang.opus.function.CommandFactory;
 import org.novelang.opus.function.CommandParameterException;
@@ -58,13 +63,37 @@ import org.novelang.treemangling.designator.IdentifierCollisions;
  */
 public class Opus extends AbstractSourceReader {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger( Opus.class ) ;
+
   private final org.novelang.opus.CommandExecutionContext environment ;
+  private final OpusCache.Build build ;
+
+
+  public Opus(
+      final File baseDirectory,
+      final File bookFile,
+      final ExecutorService executorService,
+      final Charset suggestedSourceCharset,
+      final Charset suggestedRenderingCharset,
+      final Set< Tag > restrictingTags
+  ) throws IOException {
+    this(
+        baseDirectory,
+        bookFile,
+        executorService,
+        NovellaCache.DISABLED,
+        suggestedSourceCharset,
+        suggestedRenderingCharset,
+        restrictingTags
+    ) ;
+  }
 
 
   public Opus(
       final File baseDirectory,
       final File bookFile,
       final ExecutorService executorService,
+      final NovellaCache novellaCache,
       final Charset suggestedSourceCharset,
       final Charset suggestedRenderingCharset,
       final Set< Tag > restrictingTags
@@ -73,6 +102,7 @@ public class Opus extends AbstractSourceReader {
         baseDirectory,
         bookFile.getParentFile(),
         executorService,
+        novellaCache,
         FileUtils.readFileToString( bookFile ),  // TODO take care of encoding, Unicode et al.
         suggestedSourceCharset,
         suggestedRenderingCharset,
@@ -89,6 +119,61 @@ public class Opus extends AbstractSourceReader {
       final Charset suggestedSourceCharset,
       final Charset defaultRenderingCharset,
       final Set< Tag > tagRestrictions
+  ) {
+    this(
+        baseDirectory,
+        bookDirectory,
+        executorService,
+        NovellaCache.DISABLED,
+        content,
+        suggestedSourceCharset,
+        defaultRenderingCharset,
+        tagRestrictions
+    ) ;
+  }
+
+
+  /**
+   * @param novellaCache a non-null object, used when inserting Novellas.
+   */
+  public Opus(
+      final File baseDirectory,
+      final File bookDirectory,
+      final ExecutorService executorService,
+      final NovellaCache novellaCache,
+      final String content,
+      final Charset suggestedSourceCharset,
+      final Charset defaultRenderingCharset,
+      final Set< Tag > tagRestrictions
+  ) {
+    this(
+        baseDirectory,
+        bookDirectory,
+        executorService,
+        novellaCache,
+        content,
+        suggestedSourceCharset,
+        defaultRenderingCharset,
+        tagRestrictions,
+        null
+    ) ;
+  }
+
+
+  /**
+   * @param previousBuild a possibly null object, as returned by {@link #getBuild()} for
+   *     the same Opus file and the same {@code tagRestrictions}.
+   */
+  /*package*/ Opus(
+      final File baseDirectory,
+      final File bookDirectory,
+      final ExecutorService executorService,
+      final NovellaCache novellaCache,
+      final String content,
+      final Charset suggestedSourceCharset,
+      final Charset defaultRenderingCharset,
+      final Set< Tag > tagRestrictions,
+      final OpusCache.Build previousBuild
   ) {
     super( suggestedSourceCharset, defaultRenderingCharset ) ;
 
@@ -105,51 +190,104 @@ public class Opus extends AbstractSourceReader {
     ) ;
 
     CommandExecutionContext currentEnvironment =
-        new CommandExecutionContext( baseDirectory, bookDirectory, executorService ) ;
-
+        new CommandExecutionContext( baseDirectory, bookDirectory, executorService, novellaCache ) ;
+    OpusCache.Build currentBuild = null ;
 
     final SyntacticTree tree = parse( content ) ;
     if( tree != null ) {
       final SyntacticTree rawTree = SeparatorsMangler.removeSeparators( tree ) ;
 
-      final Iterable< Command > commands = createCommands( new CommandFactory(), rawTree ) ;
-      currentEnvironment = callCommands(
-          currentEnvironment.update( new SimpleTree( NodeKind.OPUS ) ),
-          commands
-      ) ;
-      Treepath< SyntacticTree > rehierarchized =
-          Treepath.create( currentEnvironment.getDocumentTree() ) ;
-
-      Statistics.logStatistics( rehierarchized.getTreeAtStart() ) ;
+      final List< String > commandSignatures = Lists.newArrayList() ;
+      final List< Command > commands =
+          createCommands( new CommandFactory(), rawTree, commandSignatures ) ;
 
-      // TODO: output colliding explicit identifiers into resulting tree.
-      final IdentifierCollisions collisions = DesignatorTools.findCollisions( rehierarchized ) ;
-      rehierarchized = DesignatorTools.removeCollidingImplicitIdentifiers(
-          collisions, rehierarchized ) ;
-      rehierarchized = DesignatorTools.tagCollidingExplicitIdentifiers(
-          collisions, rehierarchized ) ;
+      // Problems in the Opus itself don't go into CommandExecutionContext so we can't reuse.
+      final OpusCache.Build reusableBuild = hasProblem() ? null : previousBuild ;
+      final int reusableCount = reusableBuild == null ?
+          0 : reusableBuild.countReusableSnapshots( commandSignatures ) ;
 
-      final Set< Tag > tagset = TagMangler.findExplicitTags( rehierarchized.getTreeAtEnd() ) ;
-      rehierarchized = ListMangler.rehierarchizeLists( rehierarchized ) ;
-      rehierarchized = LevelMangler.rehierarchizeLevels( rehierarchized ) ;
-      rehierarchized = TagFilter.filter( rehierarchized, tagRestrictions ) ;
-      rehierarchized = TagMangler.promote( rehierarchized, tagset ) ;
-
-      currentEnvironment = currentEnvironment.update( rehierarchized.getTreeAtStart() ) ;
+      final List< CommandExecutionContext > snapshots = Lists.newArrayList() ;
+      if( reusableCount > 0 ) {
+        snapshots.addAll( reusableBuild.getSnapshots().subList( 0, reusableCount ) ) ;
+        currentEnvironment = snapshots.get( reusableCount - 1 )
+            .withExecutorService( executorService ) ;
+      } else {
+        currentEnvironment = currentEnvironment.update( new SimpleTree( NodeKind.OPUS ) ) ;
+      }
+      currentEnvironment = callCommands(
+          currentEnvironment,
+          commands.subList( reusableCount, commands.size() ),
+          snapshots
+      ) ;
+      LOGGER.debug( "Reused ", reusableCount, " command evaluation(s) out of ",
+          commandSignatures.size() ) ;
 
-      if( hasProblem() ) {
-        currentEnvironment =
-            currentEnvironment.update( rehierarchized.getTreeAtStart() ) ;
+      if( reusableBuild != null
+          && reusableBuild.canReuseFinalEnvironment( reusableCount )
+      ) {
+        currentEnvironment = reusableBuild.getFinalEnvironment()
+            .withExecutorService( executorService ) ;
       } else {
-        currentEnvironment =
-            currentEnvironment.update( addMetadata( rehierarchized.getTreeAtEnd(), tagset ) ) ;
+        currentEnvironment = rehierarchize( currentEnvironment, tagRestrictions ) ;
+      }
+
+      if( ! hasProblem() ) {
+        currentBuild = new OpusCache.Build(
+            commandSignatures,
+            snapshots,
+            currentEnvironment,
+            reusableCount
+        ) ;
       }
 
     }
     this.environment = currentEnvironment ;
+    this.build = currentBuild ;
     collect( environment.getProblems() ) ;
   }
 
+  private CommandExecutionContext rehierarchize(
+      CommandExecutionContext currentEnvironment,
+      final Set< Tag > tagRestrictions
+  ) {
+    Treepath< SyntacticTree > rehierarchized =
+        Treepath.create( currentEnvironment.getDocumentTree() ) ;
+
+    Statistics.logStatistics( rehierarchized.getTreeAtStart() ) ;
+
+    // TODO: output colliding explicit identifiers into resulting tree.
+    final IdentifierCollisions collisions = DesignatorTools.findCollisions( rehierarchized ) ;
+    rehierarchized = DesignatorTools.removeCollidingImplicitIdentifiers(
+        collisions, rehierarchized ) ;
+    rehierarchized = DesignatorTools.tagCollidingExplicitIdentifiers(
+        collisions, rehierarchized ) ;
+
+    final Set< Tag > tagset = TagMangler.findExplicitTags( rehierarchized.getTreeAtEnd() ) ;
+    rehierarchized = ListMangler.rehierarchizeLists( rehierarchized ) ;
+    rehierarchized = LevelMangler.rehierarchizeLevels( rehierarchized ) ;
+    rehierarchized = TagFilter.filter( rehierarchized, tagRestrictions ) ;
+    rehierarchized = TagMangler.promote( rehierarchized, tagset ) ;
+
+    currentEnvironment = currentEnvironment.update( rehierarchized.getTreeAtStart() ) ;
+
+    if( hasProblem() ) {
+      currentEnvironment =
+          currentEnvironment.update( rehierarchized.getTreeAtStart() ) ;
+    } else {
+      currentEnvironment =
+          currentEnvironment.update( addMetadata( rehierarchized.getTreeAtEnd(), tagset ) ) ;
+    }
+    return currentEnvironment ;
+  }
+
+  /**
+   * @return a possibly null object, if the Opus couldn't be processed in a way that makes
+   *     incremental rebuild possible.
+   */
+  /*package*/ OpusCache.Build getBuild() {
+    return build ;
+  }
+
   @Override
   protected GenericParser createParser( final String content ) {
     return new DelegatingBookParser( content, this ) ;
@@ -165,15 +303,28 @@ public class Opus extends AbstractSourceReader {
     return environment.getCustomStylesheets() ;
   }
 
-  private Iterable< Command > createCommands(
+  /**
+   * @return a non-null object, as recorded by {@link CommandExecutionContext#addInputs(Iterable)}.
+   */
+  public ImmutableMap< File, ResourceStamp > getInputs() {
+    return environment.getInputs() ;
+  }
+
+  /**
+   * @param commandSignatures receives a {@code String} per created {@link Command}, telling
+   *     apart {@link Command}s that would evaluate differently given the same input.
+   */
+  private List< Command > createCommands(
       final CommandFactory commandFactory,
-      final SyntacticTree rawTree
+      final SyntacticTree rawTree,
+      final List< String > commandSignatures
   ) {
     final List< Command > commands = Lists.newArrayList() ;
     for( final SyntacticTree syntacticTree : rawTree.getChildren() ) {
       try {
         final Command command = commandFactory.createFunctionCall( syntacticTree ) ;
         commands.add( command ) ;
+        commandSignatures.add( syntacticTree.toStringTree() ) ;
       } catch( CommandParameterException e ) {
         collect( Problem.createProblem( e ) ) ;
       }
@@ -181,12 +332,18 @@ public class Opus extends AbstractSourceReader {
     return ImmutableList.copyOf( commands ) ;
   }
 
+  /**
+   * @param snapshots receives the {@link CommandExecutionContext} resulting from each
+   *     {@link Command} evaluation.
+   */
   private static CommandExecutionContext callCommands(
       CommandExecutionContext context,
-      final Iterable< Command > commands
+      final Iterable< Command > commands,
+      final List< CommandExecutionContext > snapshots
   ) {
     for( final Command command : commands ) {
       context = command.evaluate( context ) ;
+      snapshots.add( context ) ;
     }
     return context ;
   }
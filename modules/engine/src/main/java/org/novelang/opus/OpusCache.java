@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.opus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.novelang.common.SyntacticTree;
+import org.novelang.designator.Tag;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.novella.ImageFixer;
+import org.novelang.novella.NovellaCache;
+import org.novelang.outfit.loader.ResourceStamp;
+
+/**
+ * Keeps what happened during the last build of an {@link Opus}, so building it again
+ * re-evaluates only {@link org.novelang.opus.function.Command}s with changed input.
+ * <p>
+ * Because each {@link org.novelang.opus.function.Command} adds to the tree built by the
+ * previous ones, {@link CommandExecutionContext} snapshots are reusable up to the first
+ * {@link org.novelang.opus.function.Command} that changed (in the Opus file itself, or through
+ * one of the files recorded by {@link CommandExecutionContext#addInputs(Iterable)}).
+ * Remaining ones get evaluated again, with {@link NovellaCache} saving the parsing of
+ * Novellas that didn't change.
+ * When nothing changed (including images, which contribute their dimensions), the
+ * whole result is reused, skipping designator resolution and tree manglers.
+ * <p>
+ * Entries are keyed by Opus file and tag restrictions. Least recently used go away first.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class OpusCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( OpusCache.class ) ;
+
+  public static final int DEFAULT_CAPACITY = 16 ;
+
+  /**
+   * Always builds from scratch.
+   */
+  public static final OpusCache DISABLED = new OpusCache( 0 ) ;
+
+  private final int capacity ;
+  private final Map< Key, Build > builds ;
+
+  private final AtomicLong reusedCommandCount = new AtomicLong() ;
+  private final AtomicLong evaluatedCommandCount = new AtomicLong() ;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity maximum number of builds to keep, 0 disables incremental build.
+   */
+  public OpusCache( final int capacity ) {
+    checkArgument( capacity >= 0, "Capacity must be 0 or more, was %s", capacity ) ;
+    this.capacity = capacity ;
+    builds = new LinkedHashMap< Key, Build >( 16, 0.75f, true ) {
+      @Override
+      protected boolean removeEldestEntry( final Map.Entry< Key, Build > eldest ) {
+        return size() > capacity ;
+      }
+    } ;
+  }
+
+  /**
+   * Returns an {@link Opus} as
+   * {@link Opus#Opus(File, File, ExecutorService, NovellaCache, Charset, Charset, Set)}
+   * would do, reusing the previous build when possible.
+   *
+   * @return a non-null object.
+   */
+  public Opus load(
+      final File baseDirectory,
+      final File bookFile,
+      final ExecutorService executorService,
+      final NovellaCache novellaCache,
+      final Charset sourceCharset,
+      final Charset renderingCharset,
+      final Set< Tag > tagRestrictions
+  ) throws IOException {
+
+    if( capacity == 0 ) {
+      return new Opus(
+          baseDirectory,
+          bookFile,
+          executorService,
+          novellaCache,
+          sourceCharset,
+          renderingCharset,
+          tagRestrictions
+      ) ;
+    }
+
+    final File canonicalBookFile = bookFile.getCanonicalFile() ;
+    final Key key = new Key(
+        baseDirectory.getCanonicalPath(),
+        canonicalBookFile.getPath(),
+        sourceCharset,
+        renderingCharset,
+        tagRestrictions
+    ) ;
+    final Build previousBuild ;
+    synchronized( builds ) {
+      previousBuild = builds.get( key ) ;
+    }
+
+    final Opus opus = new Opus(
+        baseDirectory,
+        canonicalBookFile.getParentFile(),
+        executorService,
+        novellaCache,
+        FileUtils.readFileToString( canonicalBookFile ),  // TODO take care of encoding, Unicode et al.
+        sourceCharset,
+        renderingCharset,
+        tagRestrictions,
+        previousBuild
+    ) ;
+
+    final Build build = opus.getBuild() ;
+    synchronized( builds ) {
+      if( build == null ) {
+        builds.remove( key ) ;
+      } else {
+        builds.put( key, build ) ;
+      }
+    }
+    if( build != null ) {
+      reusedCommandCount.addAndGet( build.reusedCount ) ;
+      evaluatedCommandCount.addAndGet( build.getSnapshots().size() - build.reusedCount ) ;
+      LOGGER.debug( "Built '", canonicalBookFile.getPath(), "' reusing ", build.reusedCount,
+          " command evaluation(s) out of ", build.getSnapshots().size(), "." ) ;
+    }
+    return opus ;
+  }
+
+  public void clear() {
+    synchronized( builds ) {
+      builds.clear() ;
+    }
+  }
+
+  public int size() {
+    synchronized( builds ) {
+      return builds.size() ;
+    }
+  }
+
+  public long getReusedCommandCount() {
+    return reusedCommandCount.get() ;
+  }
+
+  public long getEvaluatedCommandCount() {
+    return evaluatedCommandCount.get() ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{size=" + size() +
+        ";reused=" + getReusedCommandCount() +
+        ";evaluated=" + getEvaluatedCommandCount() + "}" ;
+  }
+
+
+// =====
+// Build
+// =====
+
+  /**
+   * What an {@link Opus} keeps from its construction for the next one.
+   */
+  /*package*/ static final class Build {
+
+    private final ImmutableList< String > commandSignatures ;
+    private final ImmutableList< CommandExecutionContext > snapshots ;
+    private final CommandExecutionContext finalEnvironment ;
+    private final ImmutableMap< File, ResourceStamp > imageInputs ;
+    private final int reusedCount ;
+
+    /**
+     * @param commandSignatures one per {@link org.novelang.opus.function.Command}.
+     * @param snapshots the {@link CommandExecutionContext} after evaluating each
+     *     {@link org.novelang.opus.function.Command}.
+     * @param finalEnvironment the {@link CommandExecutionContext} after tree mangling.
+     * @param reusedCount how many {@link #snapshots} came from a previous {@code Build}.
+     */
+    public Build(
+        final List< String > commandSignatures,
+        final List< CommandExecutionContext > snapshots,
+        final CommandExecutionContext finalEnvironment,
+        final int reusedCount
+    ) {
+      checkArgument( commandSignatures.size() == snapshots.size() ) ;
+      this.commandSignatures = ImmutableList.copyOf( commandSignatures ) ;
+      this.snapshots = ImmutableList.copyOf( snapshots ) ;
+      this.finalEnvironment = checkNotNull( finalEnvironment ) ;
+      this.imageInputs = stampImages(
+          finalEnvironment.getBaseDirectory(), finalEnvironment.getDocumentTree() ) ;
+      this.reusedCount = reusedCount ;
+    }
+
+    public ImmutableList< CommandExecutionContext > getSnapshots() {
+      return snapshots ;
+    }
+
+    public CommandExecutionContext getFinalEnvironment() {
+      return finalEnvironment ;
+    }
+
+    /**
+     * Returns how many snapshots, from the first one, are still valid for given
+     * {@link org.novelang.opus.function.Command}s.
+     */
+    public int countReusableSnapshots( final List< String > newCommandSignatures ) {
+      final int maximum = Math.min( commandSignatures.size(), newCommandSignatures.size() ) ;
+      Map< File, ResourceStamp > previousInputs = ImmutableMap.of() ;
+      for( int i = 0 ; i < maximum ; i ++ ) {
+        if( ! commandSignatures.get( i ).equals( newCommandSignatures.get( i ) ) ) {
+          return i ;
+        }
+        final Map< File, ResourceStamp > inputs = snapshots.get( i ).getInputs() ;
+        for( final Map.Entry< File, ResourceStamp > input : inputs.entrySet() ) {
+          if( ! previousInputs.containsKey( input.getKey() )
+              && ! isCurrent( input.getKey(), input.getValue() )
+          ) {
+            return i ;
+          }
+        }
+        previousInputs = inputs ;
+      }
+      return maximum ;
+    }
+
+    /**
+     * @param reusableCount as returned by {@link #countReusableSnapshots(List)}.
+     */
+    public boolean canReuseFinalEnvironment( final int reusableCount ) {
+      if( reusableCount != snapshots.size() ) {
+        return false ;
+      }
+      for( final Map.Entry< File, ResourceStamp > input : imageInputs.entrySet() ) {
+        if( ! isCurrent( input.getKey(), input.getValue() ) ) {
+          return false ;
+        }
+      }
+      return true ;
+    }
+
+    private static boolean isCurrent( final File file, final ResourceStamp stamp ) {
+      final boolean current = ResourceStamp.create( file ).equals( stamp ) ;
+      if( ! current ) {
+        LOGGER.debug( "Changed: ", stamp ) ;
+      }
+      return current ;
+    }
+
+    /**
+     * Images are read by {@link ImageFixer} to get their dimensions.
+     */
+    private static ImmutableMap< File, ResourceStamp > stampImages(
+        final File baseDirectory,
+        final SyntacticTree tree
+    ) {
+      final ImmutableMap.Builder< File, ResourceStamp > stamps = ImmutableMap.builder() ;
+      for( final File file : ImageFixer.findImageFiles( baseDirectory, tree ) ) {
+        stamps.put( file, ResourceStamp.create( file ) ) ;
+      }
+      return stamps.build() ;
+    }
+  }
+
+
+// ===
+// Key
+// ===
+
+  private static final class Key {
+
+    private final String baseDirectory ;
+    private final String bookFile ;
+    private final Charset sourceCharset ;
+    private final Charset renderingCharset ;
+    /**
+     * Possibly null.
+     */
+    private final ImmutableSet< Tag > tagRestrictions ;
+
+    private Key(
+        final String baseDirectory,
+        final String bookFile,
+        final Charset sourceCharset,
+        final Charset renderingCharset,
+        final Set< Tag > tagRestrictions
+    ) {
+      this.baseDirectory = checkNotNull( baseDirectory ) ;
+      this.bookFile = checkNotNull( bookFile ) ;
+      this.sourceCharset = checkNotNull( sourceCharset ) ;
+      this.renderingCharset = checkNotNull( renderingCharset ) ;
+      this.tagRestrictions =
+          tagRestrictions == null ? null : ImmutableSet.copyOf( tagRestrictions ) ;
+    }
+
+    @Override
+    public boolean equals( final Object other ) {
+      if( this == other ) {
+        return true ;
+      }
+      if( ! ( other instanceof Key ) ) {
+        return false ;
+      }
+      final Key that = ( Key ) other ;
+      return baseDirectory.equals( that.baseDirectory )
+          && bookFile.equals( that.bookFile )
+          && sourceCharset.equals( that.sourceCharset )
+          && renderingCharset.equals( that.renderingCharset )
+          && Objects.equal( tagRestrictions, that.tagRestrictions )
+      ;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = baseDirectory.hashCode() ;
+      result = 31 * result + bookFile.hashCode() ;
+      result = 31 * result + sourceCharset.hashCode() ;
+      result = 31 * result + renderingCharset.hashCode() ;
+      result = 31 * result + Objects.hashCode( tagRestrictions ) ;
+      return result ;
+    }
+  }
+
+}
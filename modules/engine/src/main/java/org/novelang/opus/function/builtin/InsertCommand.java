@@ -44,6 +44,7 @@ import org.novelang.common.Renderable;
 import org.novelang.common.SimpleTree;
 import org.novelang.common.StructureKind;
 import org.novelang.common.SyntacticTree;
+import org.novelang.common.tree.TransientTree;
 import org.novelang.common.tree.TreeTools;
 import org.novelang.common.tree.Treepath;
 import org.novelang.common.tree.TreepathTools;
@@ -124,10 +125,35 @@ public class InsertCommand extends AbstractCommand {
       }
     }
 
+    // Recording inputs before reading them, so a change happening meanwhile gets noticed.
+    final CommandExecutionContext environmentWithInputs =
+        environment.addInputs( listInputs( insertedFile, recurse ) ) ;
+
+    if( insertedFile.isDirectory() ) {
+      return evaluateMultiple( environmentWithInputs, insertedFile, recurse ) ;
+    } else {
+      return evaluateSingle( environmentWithInputs, insertedFile ) ;
+    }
+  }
+
+  /**
+   * Returns the files that {@link #evaluate(CommandExecutionContext)} depends on.
+   * Directories are included because adding or removing a file changes their last
+   * modification time.
+   */
+  private static Iterable< File > listInputs( final File insertedFile, final boolean recurse ) {
     if( insertedFile.isDirectory() ) {
-      return evaluateMultiple( environment, insertedFile, recurse ) ;
+      final List< File > inputs = Lists.newArrayList() ;
+      if( recurse ) {
+        inputs.addAll( FileTools.scanDirectories( insertedFile ) ) ;
+      } else {
+        inputs.add( insertedFile ) ;
+      }
+      inputs.addAll( FileTools.scanFiles(
+          insertedFile, StructureKind.NOVELLA.getFileExtensions(), recurse ) ) ;
+      return inputs ;
     } else {
-      return evaluateSingle( environment, insertedFile ) ;
+      return ImmutableList.of( insertedFile ) ;
     }
   }
 
@@ -139,17 +165,21 @@ public class InsertCommand extends AbstractCommand {
 
     final Novella rawNovella;
     try {
-      rawNovella = new Novella(
+      // A big Novella gets parsed as chunks on the executor, using more than one core.
+      rawNovella = environment.getNovellaCache().load(
           insertedFile,
           environment.getSourceCharset(),
-          environment.getRenderingCharset()
+          environment.getRenderingCharset(),
+          environment.getExecutorService()
       ) ;
     } catch( IOException e ) {
       return environment.addProblems( Lists.newArrayList( Problem.createProblem( e ) ) ) ;
     }
 
-    final Renderable partWithRelocation =
-        rawNovella.relocateResourcePaths( environment.getBaseDirectory() ) ;
+    final Renderable partWithRelocation = rawNovella.relocateResourcePaths(
+        environment.getBaseDirectory(),
+        environment.getNovellaCache().getImageMetadataCache()
+    ) ;
 
     final SyntacticTree partTree = partWithRelocation.getDocumentTree() ;
     final SyntacticTree styleTree = createStyleTree( styleName ) ;
@@ -248,7 +278,8 @@ public class InsertCommand extends AbstractCommand {
 
     final List< Problem > problems = Lists.newArrayList() ;
     final SyntacticTree styleTree = createStyleTree( styleName ) ;
-    Treepath< SyntacticTree > book = Treepath.create( environment.getDocumentTree() ) ;
+    // Appending to a transient tree avoids rebuilding the whole book for every inserted tree.
+    final TransientTree< SyntacticTree > book = TransientTree.of( environment.getDocumentTree() ) ;
     final boolean hasIdentifiers = fragmentIdentifiers.iterator().hasNext() ;
     final Multimap< FragmentIdentifier, Novella> identifiedFragments ;
     if( hasIdentifiers ) {
@@ -259,14 +290,20 @@ public class InsertCommand extends AbstractCommand {
     
 
     try {
-      book = findLastLevel( book, levelAbove ) ;
+      final TransientTree< SyntacticTree > level = findLastLevel( book, levelAbove ) ;
       final Iterable< File > partFiles = scanPartFiles( insertedFile, recurse ) ;
       final Map< File, Future<Novella> > futureParts = Maps.newHashMap() ;
 
 
       for( final File partFile : partFiles ) {
         final PartCreator partCreator = new PartCreator(
-            partFile, environment.getSourceCharset(), environment.getRenderingCharset() ) ;
+            environment.getNovellaCache(),
+            partFile,
+            environment.getSourceCharset(),
+            environment.getRenderingCharset(),
+            // Chunks nobody picks get parsed by the thread waiting for them, no deadlock.
+            environment.getExecutorService()
+        ) ;
         futureParts.put( partFile, environment.getExecutorService().submit( partCreator ) ) ;
       }
 
@@ -282,7 +319,10 @@ public class InsertCommand extends AbstractCommand {
           problems.add( Problem.createProblem( e ) ) ;
         }
         if( null != novella && null != novella.getDocumentTree() ) {
-          final Novella relocatedNovella = novella.relocateResourcePaths( environment.getBaseDirectory() ) ;
+          final Novella relocatedNovella = novella.relocateResourcePaths(
+              environment.getBaseDirectory(),
+              environment.getNovellaCache().getImageMetadataCache()
+          ) ;
           Iterables.addAll( problems, relocatedNovella.getProblems() ) ;
 
           final SyntacticTree partTree = relocatedNovella.getDocumentTree() ;
@@ -313,23 +353,15 @@ public class InsertCommand extends AbstractCommand {
           }
 
 
+          // Adding children to the last level doesn't change which one is the last level.
           if( levelHead == LevelHead.CREATE_LEVEL ) {
-            book = createChapterFromPartFilename(
-                book,
-                partFile,
-                partChildren,
-                styleTree
-            ) ;
-            book = findLastLevel( book, levelAbove ) ;
+            level.addChildLast( createChapter( partFile, partChildren, styleTree ) ) ;
           } else {
             for( SyntacticTree partChild : partChildren ) {
               if( styleTree != null ) {
                 partChild = TreeTools.addFirst( partChild, styleTree ) ;
               }
-              final Treepath< SyntacticTree > updatedBook =
-                  TreepathTools.addChildLast( book, partChild ) ;
-              book = Treepath.create( updatedBook.getTreeAtStart() ) ;
-              book = findLastLevel( book, levelAbove ) ;
+              level.addChildLast( partChild ) ;
             }
           }
 
@@ -344,7 +376,7 @@ public class InsertCommand extends AbstractCommand {
       problems.add( Problem.createProblem( e ) ) ;
     }
 
-    return environment.update( book.getTreeAtStart() ).addProblems( problems ) ;
+    return environment.update( book.freeze() ).addProblems( problems ) ;
   }
 
 
@@ -369,11 +401,42 @@ public class InsertCommand extends AbstractCommand {
   }
 
 
+  private static TransientTree< SyntacticTree > findLastLevel(
+      final TransientTree< SyntacticTree > document,
+      final int depth
+  ) throws CommandParameterException {
+    if( depth == 0 ) {
+      return document ;
+    }
+    final int lastChildIndex = document.getChildCount() - 1 ;
+    if( lastChildIndex < 0 ) {
+      throw new CommandParameterException( "Found no child tree while seeking level " + depth ) ;
+    }
+    if( document.getChildNodeAt( lastChildIndex ).isOneOf( NodeKind._LEVEL ) ) {
+      return findLastLevel( document.editChildAt( lastChildIndex ), depth - 1 ) ;
+    } else {
+      throw new CommandParameterException( "Found no LEVEL as child tree" ) ;
+    }
+  }
+
+
   private static Treepath< SyntacticTree > createChapterFromPartFilename(
       Treepath< SyntacticTree > book,
       final File partFile,
       final Iterable< ? extends SyntacticTree > partTrees,
       final SyntacticTree styleTree
+  ) {
+    final SyntacticTree chapterTree = createChapter( partFile, partTrees, styleTree ) ;
+    final Treepath< SyntacticTree > updatedBook = TreepathTools.addChildLast( book, chapterTree ) ;
+    final SyntacticTree start = updatedBook.getTreeAtStart() ;
+    book = Treepath.create( start ) ;
+    return book ;
+  }
+
+  private static SyntacticTree createChapter(
+      final File partFile,
+      final Iterable< ? extends SyntacticTree > partTrees,
+      final SyntacticTree styleTree
   ) {
     final SyntacticTree word = new SimpleTree(
         WORD_,
@@ -381,18 +444,13 @@ public class InsertCommand extends AbstractCommand {
     ) ;
     final SyntacticTree title = new SimpleTree( NodeKind.LEVEL_TITLE, word ) ;
 
-    SyntacticTree chapterTree = TreeTools.addFirst(
-        new SimpleTree( NodeKind._LEVEL, partTrees ),
-        title
-    ) ;
-
+    final List< SyntacticTree > chapterChildren = Lists.newArrayList() ;
     if( styleTree != null ) {
-      chapterTree = TreeTools.addFirst( chapterTree, styleTree ) ;
+      chapterChildren.add( styleTree ) ;
     }
-    final Treepath< SyntacticTree > updatedBook = TreepathTools.addChildLast( book, chapterTree ) ;
-    final SyntacticTree start = updatedBook.getTreeAtStart() ;
-    book = Treepath.create( start ) ;
-    return book ;
+    chapterChildren.add( title ) ;
+    Iterables.addAll( chapterChildren, partTrees ) ;
+    return new SimpleTree( NodeKind._LEVEL, chapterChildren ) ;
   }
 
   private Iterable< File > scanPartFiles( final File directory, final boolean recurse )
@@ -20,8 +20,10 @@ package org.novelang.opus.function.builtin.insert;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import org.novelang.novella.Novella;
+import org.novelang.novella.NovellaCache;
 
 /**
  * 
@@ -29,22 +31,32 @@ import org.novelang.novella.Novella;
 */
 public class PartCreator implements Callable<Novella> {
 
+  private final NovellaCache novellaCache ;
   private final File partFile ;
   private final Charset sourceCharset ;
   private final Charset renderingCharset ;
+  private final Executor parsingExecutor ;
 
+  /**
+   * @param parsingExecutor a possibly null object, for parsing a big part as chunks.
+   *     It may be the one running this {@code PartCreator}.
+   */
   public PartCreator(
+      final NovellaCache novellaCache,
       final File partFile,
       final Charset sourceCharset,
-      final Charset renderingCharset
+      final Charset renderingCharset,
+      final Executor parsingExecutor
   ) {
+    this.novellaCache = novellaCache ;
     this.partFile = partFile;
     this.sourceCharset = sourceCharset;
     this.renderingCharset = renderingCharset;
+    this.parsingExecutor = parsingExecutor ;
   }
 
   @Override
   public Novella call() throws Exception {
-    return new Novella( partFile, sourceCharset, renderingCharset ) ;
+    return novellaCache.load( partFile, sourceCharset, renderingCharset, parsingExecutor ) ;
   }
 }
@@ -21,33 +21,43 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 
 import org.novelang.common.FileTools;
 import org.novelang.common.Problem;
 import org.novelang.common.Renderable;
 import org.novelang.common.StructureKind;
+import org.novelang.common.SyntacticTree;
 import org.novelang.common.metadata.Page;
 import org.novelang.common.metadata.PageIdentifier;
 import org.novelang.configuration.ProducerConfiguration;
 import org.novelang.configuration.RenderingConfiguration;
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
-import org.novelang.novella.Novella;
+import org.novelang.novella.ImageFixer;
+import org.novelang.novella.NovellaCache;
 import org.novelang.opus.Opus;
+import org.novelang.opus.OpusCache;
 import org.novelang.outfit.ArrayTools;
 import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
 import org.novelang.rendering.FragmentWriter;
 import org.novelang.rendering.GenericRenderer;
 import org.novelang.rendering.HtmlWriter;
 import org.novelang.rendering.NovellaWriter;
 import org.novelang.rendering.PdfWriter;
 import org.novelang.rendering.PlainTextWriter;
+import org.novelang.rendering.RecordedTree;
 import org.novelang.rendering.RenditionMimeType;
 import org.novelang.rendering.XmlWriter;
 import org.novelang.rendering.XslWriter;
+import org.novelang.rendering.multipage.PagesExtractor;
 
 /**
  * Produces a document into passed-in {@link DocumentRequest}s.
@@ -62,6 +72,8 @@ public class DocumentProducer {
   private final RenderingConfiguration renderingConfiguration ;
   private final Charset defaultSourceCharset ;
   private final ExecutorService executorService ;
+  private final NovellaCache novellaCache ;
+  private final OpusCache opusCache ;
 
 
   public DocumentProducer( final ProducerConfiguration configuration ) {
@@ -72,6 +84,11 @@ public class DocumentProducer {
     this.defaultSourceCharset = Preconditions.checkNotNull(
         configuration.getContentConfiguration().getSourceCharset() ) ;
     this.executorService = configuration.getExecutorService() ;
+    this.novellaCache = Preconditions.checkNotNull(
+        configuration.getContentConfiguration().getNovellaCache() ) ;
+    // Incremental build is pointless if unchanged Novellas get parsed again.
+    this.opusCache = novellaCache == NovellaCache.DISABLED ?
+        OpusCache.DISABLED : new OpusCache( OpusCache.DEFAULT_CAPACITY ) ;
   }
 
   public Iterable< Problem > produce(
@@ -79,95 +96,176 @@ public class DocumentProducer {
       final Renderable rendered,
       final StreamDirector streamDirector
   ) throws Exception {
+    return produce(
+        request,
+        rendered,
+        streamDirector,
+        Maps.< ResourceName, ResourceStamp >newHashMap()
+    ) ;
+  }
+
+  /**
+   * @param stylesheetDependencies receives the resources that stylesheet compilation depends
+   *     on, as given by {@link XslWriter#getStylesheetDependencies()}, before rendering
+   *     writes anything into the {@link StreamDirector}.
+   */
+  public Iterable< Problem > produce(
+      final DocumentRequest request,
+      final Renderable rendered,
+      final StreamDirector streamDirector,
+      final Map< ResourceName, ResourceStamp > stylesheetDependencies
+  ) throws Exception {
 
     final RenditionMimeType mimeType = request.getRenditionMimeType() ;
 
-    // Java-flavored curryfication, wow!
-    class Serve {
-      public void with( final GenericRenderer renderer ) throws Exception {
-        serve( streamDirector, renderer, request.getPageIdentifier(), rendered ) ;
-      }
-    }
-    final Serve serve = new Serve() ;
     LOGGER.debug( "Attempting to produce ", request );
 
-
     final ResourceName stylesheet = ArrayTools.firstNotNull(
         request.getAlternateStylesheet(),
         rendered.getCustomStylesheetMap().get( mimeType )
     ) ;
 
     final Charset charset = rendered.getRenderingCharset() ;
-    final FragmentWriter fragmentWriter ;
-    boolean renderLocation = false ;
+    final FragmentWriter fragmentWriter = createFragmentWriter( mimeType, stylesheet, charset ) ;
+    final GenericRenderer renderer =
+        new GenericRenderer( fragmentWriter, isLocationRendered( mimeType ) ) ;
+
+    // Set when the stylesheet defines pages, then every page replays it.
+    final AtomicReference< RecordedTree > recordedTree = new AtomicReference< RecordedTree >() ;
+    final PagesExtractor pagesExtractor ;
+    if( fragmentWriter instanceof XslWriter && ( ( XslWriter ) fragmentWriter ).isMultipage() ) {
+      pagesExtractor = new PagesExtractor() {
+        @Override
+        public ImmutableMap< PageIdentifier, String > extractPages(
+            final SyntacticTree documentTree
+        ) throws Exception {
+          if( documentTree == null ) {
+            return renderer.extractPages( null ) ;
+          }
+          final RecordedTree recorded = renderer.record( documentTree ) ;
+          LOGGER.debug( "Recorded ", recorded, " for rendering pages." ) ;
+          recordedTree.set( recorded ) ;
+          return ( ( XslWriter ) fragmentWriter ).extractPages( recorded ) ;
+        }
+      } ;
+    } else {
+      pagesExtractor = renderer ;
+    }
+
+    final StreamDirector.StreamFeeder streamFeeder ;
+    if( streamDirector.feedsPagesConcurrently() ) {
+      // A FragmentWriter is stateful, so each page gets its own. Compiled stylesheets are
+      // shared through the StylesheetCache, so this is cheap.
+      streamFeeder = new StreamDirector.StreamFeeder() {
+        @Override
+        public void feed(
+            final Renderable someRenderable,
+            final OutputStream outputStream,
+            final Page page
+        ) throws Exception {
+          render(
+              new GenericRenderer(
+                  createFragmentWriter( mimeType, stylesheet, charset ),
+                  isLocationRendered( mimeType )
+              ),
+              recordedTree.get(),
+              someRenderable,
+              outputStream,
+              page
+          ) ;
+        }
+      } ;
+    } else {
+      streamFeeder = new StreamDirector.StreamFeeder() {
+        @Override
+        public void feed(
+            final Renderable someRenderable,
+            final OutputStream outputStream,
+            final Page page
+        ) throws Exception {
+          render( renderer, recordedTree.get(), someRenderable, outputStream, page ) ;
+        }
+      } ;
+    }
 
+    // Stylesheet is already compiled, so a caller may add headers from dependencies
+    // before first bytes go out.
+    if( fragmentWriter instanceof XslWriter ) {
+      stylesheetDependencies.putAll( ( ( XslWriter ) fragmentWriter ).getStylesheetDependencies() ) ;
+    }
+
+    streamDirector.feedStreams(
+        rendered, pagesExtractor, request.getPageIdentifier(), streamFeeder ) ;
+
+    LOGGER.debug( "Done with '", request.getOriginalTarget(), "'." ) ;
+
+    return rendered.getProblems() ;
+    
+  }
+
+  /**
+   * @param recordedTree a possibly null object, null if the document is not multipage.
+   */
+  private void render(
+      final GenericRenderer renderer,
+      final RecordedTree recordedTree,
+      final Renderable rendered,
+      final OutputStream outputStream,
+      final Page page
+  ) throws Exception {
+    if( recordedTree == null ) {
+      renderer.render( rendered, outputStream, page, basedir ) ;
+    } else {
+      renderer.render( rendered, recordedTree, outputStream, page, basedir ) ;
+    }
+  }
+
+  private FragmentWriter createFragmentWriter(
+      final RenditionMimeType mimeType,
+      final ResourceName stylesheet,
+      final Charset charset
+  ) throws Exception {
     switch( mimeType ) {
 
       case PDF :
-        fragmentWriter = new PdfWriter( renderingConfiguration, stylesheet ) ;
-        break ;
+        return new PdfWriter( renderingConfiguration, stylesheet ) ;
 
       case TXT :
-        fragmentWriter = new PlainTextWriter( charset ) ;
-        break ;
+        return new PlainTextWriter( charset ) ;
 
       case XML :
-        fragmentWriter = new XmlWriter() ;
-        renderLocation = true ;
-        break ;
+        return new XmlWriter() ;
 
       case HTML :
-        fragmentWriter = new HtmlWriter( renderingConfiguration, stylesheet, charset ) ;
-        renderLocation = true ;
-        break ;
+        return new HtmlWriter( renderingConfiguration, stylesheet, charset ) ;
 
       case NOVELLA:
-        fragmentWriter = new NovellaWriter( renderingConfiguration, stylesheet, charset ) ;
-        break ;
+        return new NovellaWriter( renderingConfiguration, stylesheet, charset ) ;
 
       case FO :
         final ResourceName foStylesheet =
             stylesheet == null ? PdfWriter.DEFAULT_FO_STYLESHEET : stylesheet ;
-        fragmentWriter = new XslWriter( renderingConfiguration, foStylesheet ) ;
-        break ;
+        return new XslWriter( renderingConfiguration, foStylesheet ) ;
 
       default :
         throw new IllegalArgumentException( "Unsupported: " + mimeType ) ;
     }
-
-    serve.with( new GenericRenderer( fragmentWriter, renderLocation ) ) ;
-
-    LOGGER.debug( "Done with '", request.getOriginalTarget(), "'." ) ;
-
-    return rendered.getProblems() ;
-    
   }
 
-  private void serve(
-      final StreamDirector streamDirector,
-      final GenericRenderer renderer,
-      final PageIdentifier pageIdentifier,
-      final Renderable renderable
-  ) throws Exception {
-    streamDirector.feedStreams(
-        renderable,
-        renderer,
-        pageIdentifier,
-        new StreamDirector.StreamFeeder() {
-          @Override
-          public void feed(
-              final Renderable someRenderable,
-              final OutputStream outputStream,
-              final Page page
-          ) throws Exception {
-            renderer.render( someRenderable, outputStream, page, basedir ) ;
-          }
-        }
-
-    ) ;
+  private static boolean isLocationRendered( final RenditionMimeType mimeType ) {
+    return mimeType == RenditionMimeType.XML || mimeType == RenditionMimeType.HTML ;
   }
 
   public Renderable createRenderable( final DocumentRequest documentRequest ) throws IOException {
+    try {
+      return loadRenderable( documentRequest ) ;
+    } finally {
+      // Does nothing if no image was read.
+      novellaCache.getImageMetadataCache().save() ;
+    }
+  }
+
+  private Renderable loadRenderable( final DocumentRequest documentRequest ) throws IOException {
 
     final Charset suggestedRenderingCharset = renderingConfiguration.getDefaultCharset() ;
     LOGGER.debug( "About to create renderable with document source name '",
@@ -185,10 +283,11 @@ public class DocumentProducer {
       LOGGER.info( "Attempting to load file '", bookFile, "' with charset ",
           suggestedRenderingCharset.name() ) ;
       
-      return new Opus(
+      return opusCache.load(
           basedir,
           bookFile,
           executorService,
+          novellaCache,
           defaultSourceCharset,
           suggestedRenderingCharset,
           documentRequest.getTags()
@@ -199,14 +298,68 @@ public class DocumentProducer {
           documentRequest.getDocumentSourceName(),
           StructureKind.NOVELLA.getFileExtensions()
       ) ;
-      return new Novella(
-          partFile, 
-          defaultSourceCharset, 
+      return novellaCache.load(
+          partFile,
+          defaultSourceCharset,
           suggestedRenderingCharset
-      ).relocateResourcePaths( basedir ).makeStandalone( documentRequest.getTags() ) ;
+      ).relocateResourcePaths(
+          basedir,
+          novellaCache.getImageMetadataCache()
+      ).makeStandalone( documentRequest.getTags() ) ;
     }
 
   }
 
 
+  /**
+   * Returns the {@link ResourceStamp} of every file that given {@link Renderable} was created
+   * from: the Opus or Novella file, inserted Novellas with scanned directories, and images.
+   *
+   * @return a non-null object.
+   */
+  public ImmutableMap< File, ResourceStamp > stampSources(
+      final DocumentRequest documentRequest,
+      final Renderable renderable
+  ) throws IOException {
+    final Map< File, ResourceStamp > stamps = Maps.newLinkedHashMap() ;
+    final String documentSourceName = documentRequest.getDocumentSourceName() ;
+    File sourceFile ;
+    try {
+      sourceFile = FileTools.load(
+          basedir, documentSourceName, StructureKind.OPUS.getFileExtensions() ) ;
+    } catch( FileNotFoundException e ) {
+      // An Opus file appearing would take precedence.
+      for( final String extension : StructureKind.OPUS.getFileExtensions() ) {
+        final File missingFile = new File( basedir, documentSourceName + "." + extension ) ;
+        stamps.put( missingFile, ResourceStamp.create( missingFile ) ) ;
+      }
+      try {
+        sourceFile = FileTools.load(
+            basedir, documentSourceName, StructureKind.NOVELLA.getFileExtensions() ) ;
+      } catch( FileNotFoundException e1 ) {
+        sourceFile = null ;
+      }
+    }
+    if( sourceFile != null ) {
+      stamps.put( sourceFile, ResourceStamp.create( sourceFile ) ) ;
+    }
+    if( renderable instanceof Opus ) {
+      for( final Map.Entry< File, ResourceStamp > input :
+          ( ( Opus ) renderable ).getInputs().entrySet()
+      ) {
+        if( ! stamps.containsKey( input.getKey() ) ) {
+          stamps.put( input.getKey(), input.getValue() ) ;
+        }
+      }
+    }
+    for( final File imageFile :
+        ImageFixer.findImageFiles( basedir, renderable.getDocumentTree() )
+    ) {
+      if( ! stamps.containsKey( imageFile ) ) {
+        stamps.put( imageFile, ResourceStamp.create( imageFile ) ) ;
+      }
+    }
+    return ImmutableMap.copyOf( stamps ) ;
+  }
+
 }
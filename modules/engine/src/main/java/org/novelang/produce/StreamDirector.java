@@ -20,8 +20,15 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -56,6 +63,49 @@ public abstract class StreamDirector {
    */
   private static final int BUFFER_SIZE_BYTES = 1024 * 1024 ;
 
+  /**
+   * If false, rendering goes straight into the {@code OutputStream} for the page.
+   */
+  private final boolean buffered ;
+
+  /**
+   * If non-null, pages of a multipage document get rendered concurrently.
+   */
+  private final ExecutorService pageExecutorService ;
+
+  protected StreamDirector() {
+    this( true ) ;
+  }
+
+  /**
+   * @param buffered if true, each page is rendered into a {@link CisternOutputStream} first, so
+   *     nothing gets written if rendering fails; if false, the first bytes go out earlier, and
+   *     there is no copy.
+   */
+  protected StreamDirector( final boolean buffered ) {
+    this( buffered, null ) ;
+  }
+
+  /**
+   * @param pageExecutorService a possibly null object, if non-null and if
+   *     {@link #supportsMultipage()} returns true, pages get rendered concurrently.
+   */
+  protected StreamDirector(
+      final boolean buffered,
+      final ExecutorService pageExecutorService
+  ) {
+    this.buffered = buffered ;
+    this.pageExecutorService = pageExecutorService ;
+  }
+
+  /**
+   * Tells if {@link StreamFeeder#feed(Renderable, OutputStream, Page)} may be called
+   * concurrently, so it must not share a {@link org.novelang.rendering.FragmentWriter}.
+   */
+  public boolean feedsPagesConcurrently() {
+    return pageExecutorService != null && supportsMultipage() ;
+  }
+
   public void feedStreams(
       final Renderable renderable,
       final PagesExtractor pageIdentifierExtractor,
@@ -74,11 +124,21 @@ public abstract class StreamDirector {
       } else {
         LOGGER.info( "Using pageMap: ", pageMap ) ;
         if( pageIdentifier == null ) {
-          feedDefaultPage( renderable, streamFeeder ) ;
-          if( supportsMultipage() ) {
-            LOGGER.debug( "Feeding additional page(s)... " ) ;
+          if( feedsPagesConcurrently() ) {
+            final List< Page > pages = Lists.newArrayList() ;
+            pages.add( null ) ;
             for( final PageIdentifier someIdentifier : pageMap.keySet() ) {
-              feedPage( renderable, streamFeeder, Page.get( pageMap, someIdentifier ) );
+              pages.add( Page.get( pageMap, someIdentifier ) ) ;
+            }
+            LOGGER.debug( "Feeding ", pages.size(), " page(s) concurrently..." ) ;
+            feedPagesConcurrently( renderable, streamFeeder, pages ) ;
+          } else {
+            feedDefaultPage( renderable, streamFeeder ) ;
+            if( supportsMultipage() ) {
+              LOGGER.debug( "Feeding additional page(s)... " ) ;
+              for( final PageIdentifier someIdentifier : pageMap.keySet() ) {
+                feedPage( renderable, streamFeeder, Page.get( pageMap, someIdentifier ) );
+              }
             }
           }
         } else {
@@ -97,6 +157,47 @@ public abstract class StreamDirector {
   }
 
 
+  /**
+   * Waits for all pages, even if one fails, so no file is left half-written when returning.
+   * Failures are logged in page order, and the first one gets rethrown.
+   *
+   * @param pages may contain null for the default page.
+   */
+  private void feedPagesConcurrently(
+      final Renderable renderable,
+      final StreamFeeder streamFeeder,
+      final List< Page > pages
+  ) throws Exception {
+    final List< Future< Void > > futures = Lists.newArrayListWithCapacity( pages.size() ) ;
+    for( final Page page : pages ) {
+      futures.add( pageExecutorService.submit( new Callable< Void >() {
+        @Override
+        public Void call() throws Exception {
+          feedPage( renderable, streamFeeder, page ) ;
+          return null ;
+        }
+      } ) ) ;
+    }
+    Throwable firstFailure = null ;
+    for( int i = 0 ; i < futures.size() ; i ++ ) {
+      try {
+        futures.get( i ).get() ;
+      } catch( ExecutionException e ) {
+        final Page page = pages.get( i ) ;
+        LOGGER.error( e.getCause(), "Could not render ",
+            page == null ? "default page" : "page " + page.getPageIdentifier() ) ;
+        if( firstFailure == null ) {
+          firstFailure = e.getCause() ;
+        }
+      }
+    }
+    if( firstFailure instanceof Exception ) {
+      throw ( Exception ) firstFailure ;
+    } else if( firstFailure instanceof Error ) {
+      throw ( Error ) firstFailure ;
+    }
+  }
+
   private void feedPage(
       final Renderable renderable,
       final StreamFeeder streamFeeder,
@@ -104,21 +205,23 @@ public abstract class StreamDirector {
  ) throws Exception {
     final OutputStream rawOutputStream =
         getOutputStream( page == null ? null : page.getPageIdentifier() ) ;
-    final CisternOutputStream deferredOutputStream = new CisternOutputStream(
-        TemporaryFileTools.TEMPORARY_FILE_SERVICE.createFileSupplier( "page", ".any" ),
-        BUFFER_SIZE_BYTES
-    ) ;
     try {
-      streamFeeder.feed( renderable, deferredOutputStream, page ) ;
-      deferredOutputStream.copy( rawOutputStream ) ;
-    } finally {
-      try {
-        finishWith( deferredOutputStream ) ;
-      } finally {
-        if( deferredOutputStream.isOpen() ) {
+      if( buffered ) {
+        final CisternOutputStream deferredOutputStream = new CisternOutputStream(
+            TemporaryFileTools.TEMPORARY_FILE_SERVICE.createFileSupplier( "page", ".any" ),
+            BUFFER_SIZE_BYTES
+        ) ;
+        try {
+          streamFeeder.feed( renderable, deferredOutputStream, page ) ;
+          deferredOutputStream.copy( rawOutputStream ) ;
+        } finally {
           deferredOutputStream.close() ;
         }
+      } else {
+        streamFeeder.feed( renderable, rawOutputStream, page ) ;
       }
+    } finally {
+      finishWith( rawOutputStream ) ;
     }
   }
 
@@ -139,8 +242,21 @@ public abstract class StreamDirector {
 
 
   public static StreamDirector forExistingStream( final OutputStream outputStream ) {
+    return forExistingStream( outputStream, true ) ;
+  }
 
-    return new StreamDirector() {
+  /**
+   * @param buffered false for streaming, which makes sense if the caller already checked
+   *     there was no {@link org.novelang.common.Problem} in the
+   *     {@link org.novelang.common.Renderable}, or if given {@code OutputStream} is a buffer
+   *     itself.
+   */
+  public static StreamDirector forExistingStream(
+      final OutputStream outputStream,
+      final boolean buffered
+  ) {
+
+    return new StreamDirector( buffered ) {
       @Override
       protected OutputStream getOutputStream( final PageIdentifier pageIdentifier ) {
         return outputStream ;
@@ -159,12 +275,41 @@ public abstract class StreamDirector {
   public static StreamDirector forDirectory(
       final DocumentRequest documentRequest, 
       final File directory
+  ) {
+    return forDirectory( documentRequest, directory, null ) ;
+  }
+
+  /**
+   * @param pageExecutorService a possibly null object, if non-null, pages of a multipage
+   *     document get rendered concurrently with it. It must not be busy with tasks waiting
+   *     for the rendering to complete.
+   */
+  public static StreamDirector forDirectory(
+      final DocumentRequest documentRequest,
+      final File directory,
+      final ExecutorService pageExecutorService
+  ) {
+    return forDirectory( documentRequest, directory, pageExecutorService, null ) ;
+  }
+
+  /**
+   * @param outputFiles a possibly null object, if non-null it receives every file written,
+   *     possibly from threads of {@code pageExecutorService}, so it must be thread-safe.
+   */
+  public static StreamDirector forDirectory(
+      final DocumentRequest documentRequest,
+      final File directory,
+      final ExecutorService pageExecutorService,
+      final Collection< File > outputFiles
   ) {
     checkArgument( directory.isDirectory(), "Not a directory: '" + directory + "'" ) ;
 
-    return new StreamDirector() {
+    return new StreamDirector( true, pageExecutorService ) {
+      /**
+       * Synchronized because creating parent directories concurrently may fail.
+       */
       @Override
-      protected OutputStream getOutputStream( final PageIdentifier pageIdentifier )
+      protected synchronized OutputStream getOutputStream( final PageIdentifier pageIdentifier )
           throws IOException
       {
 
@@ -175,6 +320,9 @@ public abstract class StreamDirector {
         ;
         final File outputFile =  new File( directory, relativeFileName ) ;
         FileUtils.forceMkdir( outputFile.getParentFile() );
+        if( outputFiles != null ) {
+          outputFiles.add( outputFile ) ;
+        }
 
         LOGGER.info( "Generating document file '", outputFile.getAbsolutePath(), "'..." ) ;
         return new FileOutputStream( outputFile ) ;
@@ -26,6 +26,8 @@ import java.util.Set;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.output.NullOutputStream;
+import org.xml.sax.ContentHandler;
 import static org.novelang.parser.NodeKind.*;
 
 import org.novelang.common.Location;
@@ -35,6 +37,7 @@ import org.novelang.common.Renderable;
 import org.novelang.common.SyntacticTree;
 import org.novelang.common.TagBehavior;
 import org.novelang.common.metadata.MetadataHelper;
+import org.novelang.common.metadata.NoSuchPageIdentifierException;
 import org.novelang.common.metadata.Page;
 import org.novelang.common.metadata.PageIdentifier;
 import org.novelang.parser.NodeKind;
@@ -95,11 +98,83 @@ public class GenericRenderer implements Renderer {
       ) ;
       final SyntacticTree root = MetadataHelper
           .createMetadataDecoration( rendered.getDocumentTree(), page ) ;
-      renderTreeInternal( root, null, null ) ;
+      renderTreeInternal( root, new Nodepath(), null ) ;
       fragmentWriter.finishWriting() ;
     }
   }
 
+  /**
+   * Same as {@link #render(Renderable, OutputStream, Page, File)} but replaying events from
+   * a {@link RecordedTree} instead of walking the tree, so each page of a multipage document
+   * only costs its own XSL transformation.
+   *
+   * @param recordedTree a non-null object, as returned by {@link #record(SyntacticTree)}
+   *     for {@link Renderable#getDocumentTree()}.
+   */
+  public void render(
+      final Renderable rendered,
+      final RecordedTree recordedTree,
+      final OutputStream outputStream,
+      final Page page,
+      final File contentDirectory
+  ) throws Exception {
+    if( rendered.hasProblem() ) {
+      renderProblems( rendered.getProblems(), outputStream ) ;
+    } else {
+      final XmlWriter xmlWriter = getXmlWriter() ;
+      xmlWriter.startWriting(
+          outputStream,
+          MetadataHelper.createMetadata( rendered.getRenderingCharset(), page, contentDirectory )
+      ) ;
+      final ContentHandler contentHandler = xmlWriter.getContentHandler() ;
+      recordedTree.playHeadOn( contentHandler ) ;
+      if( page != null ) {
+        renderTreeInternal( recordedTree.createPageDecoration( page ), new Nodepath(), null ) ;
+      }
+      recordedTree.playTailOn( contentHandler ) ;
+      xmlWriter.finishWriting() ;
+    }
+  }
+
+  /**
+   * Renders given tree once into SAX events, which
+   * {@link #render(Renderable, RecordedTree, OutputStream, Page, File)} replays for any
+   * {@link Page}. Requires the {@link FragmentWriter} to be an {@link XmlWriter}.
+   *
+   * @param documentTree a non-null object.
+   * @return a non-null object.
+   */
+  public RecordedTree record( final SyntacticTree documentTree ) throws Exception {
+    final XmlWriter xmlWriter = getXmlWriter() ;
+    final RecordedTree.Recorder recorder = new RecordedTree.Recorder(
+        MetadataHelper.hasMetaChild( documentTree ) ? _PAGE : _META ) ;
+    new GenericRenderer( xmlWriter.redirectTo( recorder ), renderLocation, whitespace )
+        .renderTree( documentTree, new NullOutputStream(), null, PLACEHOLDER_PAGE, null ) ;
+    return recorder.getRecordedTree( xmlWriter.getNamespaceUri() ) ;
+  }
+
+  /**
+   * Gives the shape of page metadata when recording, the {@link RecordedTree.Recorder}
+   * skips them.
+   */
+  private static final Page PLACEHOLDER_PAGE ;
+  static {
+    final PageIdentifier placeholder = new PageIdentifier( "placeholder" ) ;
+    try {
+      PLACEHOLDER_PAGE = Page.get( ImmutableMap.of( placeholder, "" ), placeholder ) ;
+    } catch( NoSuchPageIdentifierException e ) {
+      throw new RuntimeException( "Can't happen", e ) ;
+    }
+  }
+
+  private XmlWriter getXmlWriter() {
+    Preconditions.checkState(
+        fragmentWriter instanceof XmlWriter,
+        "Can't record with %s", fragmentWriter.getClass().getName()
+    ) ;
+    return ( XmlWriter ) fragmentWriter ;
+  }
+
   @Override
   public ImmutableMap< PageIdentifier, String > extractPages(
       final SyntacticTree documentTree
@@ -133,7 +208,8 @@ public class GenericRenderer implements Renderer {
         outputStream,
         MetadataHelper.createMetadata( renderingCharset, page, contentDirectoryForResources )
     ) ;
-    renderTreeInternal( MetadataHelper.createMetadataDecoration( tree, page ), null, null ) ;
+    renderTreeInternal(
+        MetadataHelper.createMetadataDecoration( tree, page ), new Nodepath(), null ) ;
     fragmentWriter.finishWriting() ;
   }
 
@@ -263,8 +339,13 @@ public class GenericRenderer implements Renderer {
     fragmentWriter.end( newPath ) ;
   }
 
-  private Nodepath createNodepath( final Nodepath kinship, final NodeKind kind ) {
-    return null == kinship ? new Nodepath( kind ) : new Nodepath( kinship, kind );
+  /**
+   * Reuses {@link Nodepath}s as most nodes have siblings of the same {@link NodeKind}.
+   *
+   * @param kinship a non-null object, with a null {@link Nodepath#getCurrent()} for the root.
+   */
+  private static Nodepath createNodepath( final Nodepath kinship, final NodeKind kind ) {
+    return kinship.child( kind ) ;
   }
 
   private void processByDefault( 
@@ -301,17 +382,21 @@ public class GenericRenderer implements Renderer {
   private void maybeWriteLocation( final SyntacticTree tree, final Nodepath path )
       throws Exception
   {
-    final Location location = tree.getLocation() ;
+    if( ! renderLocation ) {
+      return ;
+    }
     final NodeKind nodeKind = path.getCurrent();
-    if( renderLocation &&
-        location != null && 
-        ( LOCATION_ENABLED_TAG_BEHAVIORS.contains( nodeKind.getTagBehavior() ) ||
-            NodeKind.PARAGRAPH_REGULAR == tree.getNodeKind() ||
-            NodeKind.LINES_OF_LITERAL == tree.getNodeKind() ||
-            NodeKind.CELL_ROWS_WITH_VERTICAL_LINE == tree.getNodeKind()
-        )
-    ) {
-      final Nodepath locationNodepath = new Nodepath( path, NodeKind._LOCATION ) ;
+    if( ! ( LOCATION_ENABLED_TAG_BEHAVIORS.contains( nodeKind.getTagBehavior() ) ||
+        NodeKind.PARAGRAPH_REGULAR == tree.getNodeKind() ||
+        NodeKind.LINES_OF_LITERAL == tree.getNodeKind() ||
+        NodeKind.CELL_ROWS_WITH_VERTICAL_LINE == tree.getNodeKind()
+    ) ) {
+      return ;
+    }
+    // SimpleTree creates a new Location each time.
+    final Location location = tree.getLocation() ;
+    if( location != null ) {
+      final Nodepath locationNodepath = path.child( NodeKind._LOCATION ) ;
 
       fragmentWriter.start( locationNodepath, false ) ;
 
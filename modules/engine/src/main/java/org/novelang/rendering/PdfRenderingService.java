@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.fonts.FontCache;
+import org.apache.fop.fonts.FontManager;
+import org.fest.reflect.core.Reflection;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import org.novelang.configuration.FopFontStatus;
+import org.novelang.configuration.FopTools;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.xml.DelegatingContentHandler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps what PDF rendering can share across requests: the {@code FopFactory} with its
+ * {@code FontManager}, a font cache persisted on disk, and the last {@link FopFontStatus}
+ * as long as font directories don't change.
+ * <p>
+ * A {@code Fop} (and its {@code FOUserAgent}) can only render one document, so there is a
+ * new one for each rendition, with the same settings.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class PdfRenderingService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( PdfRenderingService.class ) ;
+
+  public static final float TARGET_RESOLUTION_DPI = 300 ;
+
+  private final FopFactory fopFactory ;
+
+  /**
+   * Null if FOP uses its default cache location.
+   */
+  private final File fontCacheFile ;
+
+  private final AtomicLong renditionCount = new AtomicLong() ;
+  private final AtomicLong setupNanoseconds = new AtomicLong() ;
+  private final AtomicLong layoutNanoseconds = new AtomicLong() ;
+
+  private final Object fontStatusLock = new Object() ;
+  private List< String > fontDirectoriesFingerprint = null ;
+  private FopFontStatus fontStatus = null ;
+
+  public PdfRenderingService( final FopFactory fopFactory ) {
+    this( fopFactory, null ) ;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param fopFactory a non-null object.
+   * @param fontCacheFile a possibly null object, meaning FOP's default location, if non-null
+   *     the font cache is loaded from there (if it exists) and saved there.
+   */
+  public PdfRenderingService( final FopFactory fopFactory, final File fontCacheFile ) {
+    this.fopFactory = checkNotNull( fopFactory ) ;
+    this.fontCacheFile = fontCacheFile ;
+    if( fontCacheFile != null ) {
+      installFontCache( fopFactory.getFontManager(), fontCacheFile ) ;
+    }
+  }
+
+  public FopFactory getFopFactory() {
+    return fopFactory ;
+  }
+
+  /**
+   * Creates a new {@code Fop} writing PDF into given {@code OutputStream}.
+   *
+   * @return the {@code ContentHandler} to feed with XSL-FO.
+   */
+  public ContentHandler createContentHandler( final OutputStream outputStream )
+      throws FOPException
+  {
+    final long start = System.nanoTime() ;
+    final FOUserAgent foUserAgent = fopFactory.newFOUserAgent() ;
+    foUserAgent.setTargetResolution( TARGET_RESOLUTION_DPI ) ;
+    final Fop fop = fopFactory.newFop( MimeConstants.MIME_PDF, foUserAgent, outputStream ) ;
+    final ContentHandler fopHandler = fop.getDefaultHandler() ;
+    setupNanoseconds.addAndGet( System.nanoTime() - start ) ;
+    renditionCount.incrementAndGet() ;
+    return new LayoutTimer( fopHandler ) ;
+  }
+
+  /**
+   * Returns the status of fonts in given directories, reusing the one from last call if
+   * no font file was added, removed or modified, since resolving fonts is expensive.
+   */
+  public FopFontStatus getFontStatus( final Iterable< File > fontDirectories )
+      throws FOPException
+  {
+    final List< String > fingerprint = fingerprint( fontDirectories ) ;
+    synchronized( fontStatusLock ) {
+      if( fontStatus == null || ! fingerprint.equals( fontDirectoriesFingerprint ) ) {
+        final long start = System.nanoTime() ;
+        fontStatus = FopTools.createGlobalFontStatus( fopFactory, fontDirectories ) ;
+        fontDirectoriesFingerprint = fingerprint ;
+        setupNanoseconds.addAndGet( System.nanoTime() - start ) ;
+        LOGGER.debug( "Resolved fonts in ", fontDirectories ) ;
+        saveFontCache() ;
+      }
+      return fontStatus ;
+    }
+  }
+
+  /**
+   * Saves the font cache, if there is a file for it and it changed. Failures only get logged
+   * as it's not worth failing a rendition.
+   */
+  public void saveFontCache() {
+    if( fontCacheFile != null ) {
+      final FontCache fontCache = fopFactory.getFontManager().getFontCache() ;
+      if( fontCache != null && fontCache.hasChanged() ) {
+        try {
+          fontCache.saveTo( fontCacheFile ) ;
+          LOGGER.debug( "Saved font cache into '", fontCacheFile.getAbsolutePath(), "'." ) ;
+        } catch( FOPException e ) {
+          LOGGER.warn( e, "Could not save font cache into '",
+              fontCacheFile.getAbsolutePath(), "'." ) ;
+        }
+      }
+    }
+  }
+
+  private static void installFontCache( final FontManager fontManager, final File file ) {
+    fontManager.setCacheFile( file ) ;
+    if( file.exists() ) {
+      final FontCache fontCache = FontCache.loadFrom( file ) ;
+      if( fontCache == null ) {
+        LOGGER.warn( "Could not load font cache from '", file.getAbsolutePath(), "'." ) ;
+      } else {
+        // FontManager loads from default location only.
+        Reflection.field( "fontCache" ).ofType( FontCache.class ).in( fontManager )
+            .set( fontCache ) ;
+        LOGGER.info( "Loaded font cache from '", file.getAbsolutePath(), "'." ) ;
+      }
+    }
+  }
+
+  private static List< String > fingerprint( final Iterable< File > directories ) {
+    final ImmutableList.Builder< String > builder = ImmutableList.builder() ;
+    for( final File directory : directories ) {
+      fingerprint( directory, builder ) ;
+    }
+    return builder.build() ;
+  }
+
+  private static void fingerprint(
+      final File file,
+      final ImmutableList.Builder< String > builder
+  ) {
+    builder.add( file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length() ) ;
+    final File[] children = file.listFiles() ;
+    if( children != null ) {
+      for( final File child : children ) {
+        fingerprint( child, builder ) ;
+      }
+    }
+  }
+
+
+// =======
+// Metrics
+// =======
+
+  public long getRenditionCount() {
+    return renditionCount.get() ;
+  }
+
+  /**
+   * @return cumulated time spent creating {@code Fop}s and resolving fonts, in nanoseconds.
+   */
+  public long getSetupNanoseconds() {
+    return setupNanoseconds.get() ;
+  }
+
+  /**
+   * @return cumulated time between the start and the end of XSL-FO documents, in nanoseconds.
+   *     This includes the time spent by the stylesheet that emits XSL-FO.
+   */
+  public long getLayoutNanoseconds() {
+    return layoutNanoseconds.get() ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "renditions=" + getRenditionCount() +
+        ";setupMilliseconds=" + getSetupNanoseconds() / 1000000L +
+        ";layoutMilliseconds=" + getLayoutNanoseconds() / 1000000L +
+        "}"
+    ;
+  }
+
+  private class LayoutTimer extends DelegatingContentHandler {
+
+    private final ContentHandler delegate ;
+    private long start = 0L ;
+
+    public LayoutTimer( final ContentHandler delegate ) {
+      this.delegate = delegate ;
+    }
+
+    @Override
+    protected ContentHandler getDelegate() {
+      return delegate ;
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+      start = System.nanoTime() ;
+      super.startDocument() ;
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+      try {
+        super.endDocument() ;
+      } finally {
+        layoutNanoseconds.addAndGet( System.nanoTime() - start ) ;
+      }
+    }
+  }
+
+}
@@ -23,10 +23,6 @@ import java.nio.charset.Charset;
 import javax.xml.transform.TransformerConfigurationException;
 
 import org.apache.fop.apps.FOPException;
-import org.apache.fop.apps.FOUserAgent;
-import org.apache.fop.apps.Fop;
-import org.apache.fop.apps.FopFactory;
-import org.apache.fop.apps.MimeConstants;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
@@ -41,7 +37,7 @@ import org.novelang.outfit.xml.TransformerCompositeException;
 public class PdfWriter extends XslWriter {
 
   public static final ResourceName DEFAULT_FO_STYLESHEET = new ResourceName( "pdf.xsl" ) ;
-  protected final FopFactory fopFactory ;
+  protected final PdfRenderingService pdfRenderingService ;
 
   public PdfWriter(
       final RenderingConfiguration configuration,
@@ -55,14 +51,14 @@ public class PdfWriter extends XslWriter {
         configuration,
         null == stylesheet ? DEFAULT_FO_STYLESHEET : stylesheet
     ) ;
-    fopFactory = configuration.getFopFactory() ;
+    pdfRenderingService = configuration.getPdfRenderingService() ;
   }
 
   public PdfWriter( final RenderingConfiguration configuration, final ResourceName stylesheet )
       throws IOException, TransformerConfigurationException, SAXException, TransformerCompositeException
   {
     super( configuration, null == stylesheet ? DEFAULT_FO_STYLESHEET : stylesheet ) ;
-    fopFactory = configuration.getFopFactory() ;
+    pdfRenderingService = configuration.getPdfRenderingService() ;
   }
 
 // ==========
@@ -77,18 +73,7 @@ public class PdfWriter extends XslWriter {
   )
       throws FOPException
   {
-    final FOUserAgent foUserAgent = fopFactory.newFOUserAgent() ;
-    foUserAgent.setTargetResolution( 300 ) ; // dpi
-
-    final Fop fop ;
-    try {
-      fop = fopFactory.newFop( MimeConstants.MIME_PDF, foUserAgent, outputStream ) ;
-    } catch( FOPException e ) {
-      throw new RuntimeException( e );
-    }
-
-    return fop.getDefaultHandler() ;
-
+    return pdfRenderingService.createContentHandler( outputStream ) ;
   }
 
 
@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import org.novelang.common.SimpleTree;
+import org.novelang.common.SyntacticTree;
+import org.novelang.common.metadata.MetadataHelper;
+import org.novelang.common.metadata.Page;
+import org.novelang.parser.NodeKind;
+import org.novelang.parser.NodeKindTools;
+
+/**
+ * SAX events of a document tree, as {@link GenericRenderer#record(SyntacticTree) recorded}
+ * once by a {@link GenericRenderer} with an {@link XmlWriter}, for rendering each page of a
+ * multipage document without walking the tree again.
+ * <p>
+ * Page-specific metadata (added by
+ * {@link MetadataHelper#createMetadataDecoration(SyntacticTree, Page)}) are not part of the
+ * recording, which holds what comes before them as a head and what comes after as a tail.
+ * <p>
+ * Events are kept in flat arrays, with all characters in one single buffer.
+ * Instances are immutable and can be replayed concurrently.
+ *
+ * @author Laurent Caillette
+ */
+public final class RecordedTree {
+
+  private final String namespaceUri ;
+  private final boolean metaCreatedForPage ;
+  private final int eventCount ;
+  private final int tailStart ;
+  private final byte[] types ;
+  private final ElementName[] elementNames ;
+  private final int[] offsets ;
+  private final int[] lengths ;
+  private final char[] characters ;
+
+  private RecordedTree( final Recorder recorder, final String namespaceUri ) {
+    this.namespaceUri = namespaceUri ;
+    this.metaCreatedForPage = recorder.cutNodeKind == NodeKind._META ;
+    this.eventCount = recorder.eventCount ;
+    this.tailStart = recorder.cutStart ;
+    this.types = Arrays.copyOf( recorder.types, eventCount ) ;
+    this.elementNames = Arrays.copyOf( recorder.elementNames, eventCount ) ;
+    this.offsets = Arrays.copyOf( recorder.offsets, eventCount ) ;
+    this.lengths = Arrays.copyOf( recorder.lengths, eventCount ) ;
+    this.characters = Arrays.copyOf( recorder.characters, recorder.characterCount ) ;
+  }
+
+  /**
+   * @return a non-null object, the namespace of recorded elements.
+   */
+  public String getNamespaceUri() {
+    return namespaceUri ;
+  }
+
+  public int getEventCount() {
+    return eventCount ;
+  }
+
+  /**
+   * Plays the whole document, with no page metadata.
+   * Doesn't call {@code startDocument} nor {@code endDocument}.
+   */
+  public void playOn( final ContentHandler target ) throws SAXException {
+    play( target, 0, eventCount ) ;
+  }
+
+  /**
+   * Plays what comes before page metadata.
+   */
+  /*package*/ void playHeadOn( final ContentHandler target ) throws SAXException {
+    play( target, 0, tailStart ) ;
+  }
+
+  /**
+   * Plays what comes after page metadata.
+   */
+  /*package*/ void playTailOn( final ContentHandler target ) throws SAXException {
+    play( target, tailStart, eventCount ) ;
+  }
+
+  /**
+   * Returns what to render between {@link #playHeadOn(ContentHandler) head} and
+   * {@link #playTailOn(ContentHandler) tail}, so the result is the same as rendering the
+   * tree decorated by {@link MetadataHelper#createMetadataDecoration(SyntacticTree, Page)}.
+   *
+   * @param page a non-null object.
+   * @return a non-null object.
+   */
+  /*package*/ SyntacticTree createPageDecoration( final Page page ) {
+    final SyntacticTree pageTree = MetadataHelper.createPageTree( page ) ;
+    return metaCreatedForPage ? new SimpleTree( NodeKind._META, pageTree ) : pageTree ;
+  }
+
+  private void play( final ContentHandler target, final int start, final int end )
+      throws SAXException
+  {
+    final LexicalHandler lexicalHandler =
+        target instanceof LexicalHandler ? ( LexicalHandler ) target : null ;
+    for( int i = start ; i < end ; i ++ ) {
+      final ElementName elementName = elementNames[ i ] ;
+      switch( types[ i ] ) {
+        case START_ELEMENT :
+          target.startElement(
+              elementName.uri,
+              elementName.localName,
+              elementName.qualifiedName,
+              elementName.attributes
+          ) ;
+          break ;
+        case END_ELEMENT :
+          target.endElement( elementName.uri, elementName.localName, elementName.qualifiedName ) ;
+          break ;
+        case CHARACTERS :
+          target.characters( characters, offsets[ i ], lengths[ i ] ) ;
+          break ;
+        case START_CDATA :
+          if( lexicalHandler != null ) {
+            lexicalHandler.startCDATA() ;
+          }
+          break ;
+        case END_CDATA :
+          if( lexicalHandler != null ) {
+            lexicalHandler.endCDATA() ;
+          }
+          break ;
+        default :
+          throw new IllegalStateException( "Unsupported event type: " + types[ i ] ) ;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + eventCount + " events;" +
+        characters.length + " chars}" ;
+  }
+
+
+// ======
+// Events
+// ======
+
+  private static final byte START_ELEMENT = 0 ;
+  private static final byte END_ELEMENT = 1 ;
+  private static final byte CHARACTERS = 2 ;
+  private static final byte START_CDATA = 3 ;
+  private static final byte END_CDATA = 4 ;
+
+  /**
+   * Shared by every event for the same element, so an event costs no allocation.
+   */
+  private static final class ElementName {
+    private final String uri ;
+    private final String localName ;
+    private final String qualifiedName ;
+    private final Attributes attributes ;
+
+    private ElementName(
+        final String uri,
+        final String localName,
+        final String qualifiedName,
+        final Attributes attributes
+    ) {
+      this.uri = uri ;
+      this.localName = localName ;
+      this.qualifiedName = qualifiedName ;
+      this.attributes = attributes ;
+    }
+  }
+
+  private static final Attributes EMPTY_ATTRIBUTES = new AttributesImpl() ;
+
+
+// ========
+// Recorder
+// ========
+
+  /**
+   * Records what an {@link XmlWriter} emits, skipping the first element of given
+   * {@link NodeKind}, which holds page metadata.
+   * Supports only the events that {@link XmlWriter} emits.
+   */
+  /*package*/ static final class Recorder implements ContentHandler, LexicalHandler {
+
+    private final NodeKind cutNodeKind ;
+    private final String cutLocalName ;
+    private final Map< String, ElementName > elementNamesWithoutAttributes = Maps.newHashMap() ;
+
+    private int eventCount = 0 ;
+    private byte[] types = new byte[ 1024 ] ;
+    private ElementName[] elementNames = new ElementName[ 1024 ] ;
+    private int[] offsets = new int[ 1024 ] ;
+    private int[] lengths = new int[ 1024 ] ;
+    private int characterCount = 0 ;
+    private char[] characters = new char[ 8192 ] ;
+
+    private int depth = 0 ;
+    private int cutStart = -1 ;
+    private int cutDepth = -1 ;
+
+    /**
+     * @param cutNodeKind {@link NodeKind#_PAGE} if page metadata go into an existing
+     *     {@link NodeKind#_META}, {@link NodeKind#_META} if they need their own.
+     */
+    /*package*/ Recorder( final NodeKind cutNodeKind ) {
+      this.cutNodeKind = checkNotNull( cutNodeKind ) ;
+      this.cutLocalName = NodeKindTools.xmlElementName( cutNodeKind ) ;
+    }
+
+    /*package*/ RecordedTree getRecordedTree( final String namespaceUri ) {
+      checkState( cutStart >= 0, "Found no %s element", cutLocalName ) ;
+      checkState( depth == 0, "Unbalanced elements" ) ;
+      return new RecordedTree( this, namespaceUri ) ;
+    }
+
+    private boolean isCutting() {
+      return cutDepth >= 0 ;
+    }
+
+    private void add( final byte type, final ElementName elementName ) {
+      add( type, elementName, 0, 0 ) ;
+    }
+
+    private void add(
+        final byte type,
+        final ElementName elementName,
+        final int offset,
+        final int length
+    ) {
+      if( eventCount == types.length ) {
+        final int capacity = eventCount * 2 ;
+        types = Arrays.copyOf( types, capacity ) ;
+        elementNames = Arrays.copyOf( elementNames, capacity ) ;
+        offsets = Arrays.copyOf( offsets, capacity ) ;
+        lengths = Arrays.copyOf( lengths, capacity ) ;
+      }
+      types[ eventCount ] = type ;
+      elementNames[ eventCount ] = elementName ;
+      offsets[ eventCount ] = offset ;
+      lengths[ eventCount ] = length ;
+      eventCount ++ ;
+    }
+
+    private ElementName elementName(
+        final String uri,
+        final String localName,
+        final String qualifiedName,
+        final Attributes attributes
+    ) {
+      if( attributes != null && attributes.getLength() > 0 ) {
+        return new ElementName( uri, localName, qualifiedName, new AttributesImpl( attributes ) ) ;
+      }
+      ElementName elementName = elementNamesWithoutAttributes.get( qualifiedName ) ;
+      if( elementName == null ) {
+        elementName = new ElementName( uri, localName, qualifiedName, EMPTY_ATTRIBUTES ) ;
+        elementNamesWithoutAttributes.put( qualifiedName, elementName ) ;
+      }
+      return elementName ;
+    }
+
+    @Override
+    public void startElement(
+        final String uri,
+        final String localName,
+        final String qName,
+        final Attributes attributes
+    ) {
+      depth ++ ;
+      if( ! isCutting() ) {
+        if( cutStart < 0 && cutLocalName.equals( localName ) ) {
+          cutStart = eventCount ;
+          cutDepth = depth ;
+        } else {
+          add( START_ELEMENT, elementName( uri, localName, qName, attributes ) ) ;
+        }
+      }
+    }
+
+    @Override
+    public void endElement( final String uri, final String localName, final String qName ) {
+      if( isCutting() ) {
+        if( depth == cutDepth ) {
+          cutDepth = -1 ;
+        }
+      } else {
+        add( END_ELEMENT, elementName( uri, localName, qName, null ) ) ;
+      }
+      depth -- ;
+    }
+
+    @Override
+    public void characters( final char[] chars, final int start, final int length ) {
+      if( ! isCutting() ) {
+        if( characterCount + length > characters.length ) {
+          characters = Arrays.copyOf(
+              characters, Math.max( characterCount + length, characters.length * 2 ) ) ;
+        }
+        System.arraycopy( chars, start, characters, characterCount, length ) ;
+        add( CHARACTERS, null, characterCount, length ) ;
+        characterCount += length ;
+      }
+    }
+
+    @Override
+    public void startCDATA() {
+      if( ! isCutting() ) {
+        add( START_CDATA, null ) ;
+      }
+    }
+
+    @Override
+    public void endCDATA() {
+      if( ! isCutting() ) {
+        add( END_CDATA, null ) ;
+      }
+    }
+
+    @Override
+    public void setDocumentLocator( final Locator locator ) { }
+
+    @Override
+    public void startDocument() { }
+
+    @Override
+    public void endDocument() { }
+
+    @Override
+    public void startPrefixMapping( final String prefix, final String uri ) {
+      throw new UnsupportedOperationException( "startPrefixMapping" ) ;
+    }
+
+    @Override
+    public void endPrefixMapping( final String prefix ) {
+      throw new UnsupportedOperationException( "endPrefixMapping" ) ;
+    }
+
+    @Override
+    public void ignorableWhitespace( final char[] chars, final int start, final int length ) {
+      characters( chars, start, length ) ;
+    }
+
+    @Override
+    public void processingInstruction( final String target, final String data ) {
+      throw new UnsupportedOperationException( "processingInstruction" ) ;
+    }
+
+    @Override
+    public void skippedEntity( final String name ) {
+      throw new UnsupportedOperationException( "skippedEntity" ) ;
+    }
+
+    @Override
+    public void startDTD( final String name, final String publicId, final String systemId ) { }
+
+    @Override
+    public void endDTD() { }
+
+    @Override
+    public void startEntity( final String name ) { }
+
+    @Override
+    public void endEntity( final String name ) { }
+
+    @Override
+    public void comment( final char[] chars, final int start, final int length ) { }
+  }
+
+}
@@ -148,12 +148,22 @@ public class RenderingEscape {
       final String text, 
       final CharsetEncodingCapability capability 
   ) {
-    final StringBuffer buffer = new StringBuffer() ;
-    for( final char c : text.toCharArray() ) {
-      final String escaped = escapeHtmlIfNeeded( c, capability ) ;
-      buffer.append( escaped ) ;
+    // Most words need no escape, so the buffer only gets created when needed.
+    StringBuilder buffer = null ;
+    for( int i = 0 ; i < text.length() ; i ++ ) {
+      final char c = text.charAt( i ) ;
+      if( ! HTML_MANDATORY_ESCAPES.containsKey( c ) && capability.canEncode( c ) ) {
+        if( buffer != null ) {
+          buffer.append( c ) ;
+        }
+      } else {
+        if( buffer == null ) {
+          buffer = new StringBuilder( text.length() + 16 ).append( text, 0, i ) ;
+        }
+        buffer.append( escapeHtmlIfNeeded( c, capability ) ) ;
+      }
     }
-    return buffer.toString() ;
+    return buffer == null ? text : buffer.toString() ;
   }
 
 
@@ -161,17 +171,6 @@ public class RenderingEscape {
 // Source escape  
 // =============  
 
-  private static String escapeToSourceIfNeeded( 
-      final char unescaped, 
-      final CharsetEncodingCapability capability 
-  ) {
-    if( capability.canEncode( unescaped ) ) {
-      return "" + unescaped ;
-    } else {
-      return unconditionalEscapeToSource( unescaped );
-    }
-  }
-
   public static String unconditionalEscapeToSource( final char unescaped ) {
     final String preferredEscape = PREFERRED_ESCAPES.get( unescaped ) ;
     if( null ==  preferredEscape ) {
@@ -208,12 +207,21 @@ public class RenderingEscape {
       final String text, 
       final CharsetEncodingCapability capability 
   ) {
-    final StringBuffer buffer = new StringBuffer() ;
-    for( final char c : text.toCharArray() ) {
-      final String escaped = escapeToSourceIfNeeded( c, capability ) ;
-      buffer.append( escaped ) ;
+    StringBuilder buffer = null ;
+    for( int i = 0 ; i < text.length() ; i ++ ) {
+      final char c = text.charAt( i ) ;
+      if( capability.canEncode( c ) ) {
+        if( buffer != null ) {
+          buffer.append( c ) ;
+        }
+      } else {
+        if( buffer == null ) {
+          buffer = new StringBuilder( text.length() + 16 ).append( text, 0, i ) ;
+        }
+        buffer.append( unconditionalEscapeToSource( c ) ) ;
+      }
     }
-    return buffer.toString() ;
+    return buffer == null ? text : buffer.toString() ;
   }
   
   
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.URIResolver;
+
+import com.google.common.collect.ImmutableMap;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.SAXException;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.loader.ResourceLoader;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
+import org.novelang.outfit.xml.EntityEscapeSelector;
+import org.novelang.outfit.xml.SaxRecorder;
+import org.novelang.outfit.xml.TransformerCompositeException;
+import org.novelang.outfit.xml.TransformerErrorListener;
+import org.novelang.outfit.xml.XslTransformerFactory;
+
+/**
+ * Keeps compiled stylesheets, so creating an {@link XslWriter} doesn't imply parsing and
+ * compiling the same stylesheet again.
+ * <p>
+ * An {@link Entry} is keyed by the {@link ResourceName} of the stylesheet, the
+ * {@link ResourceLoader} that loaded it, and the {@link EntityEscapeSelector} applied to its
+ * entities (because escaped entities end up in compiled templates).
+ * An {@link Entry} remembers the {@link ResourceStamp} of every resource read during the
+ * compilation (imported stylesheets and DTDs included) and it is discarded as soon as one
+ * of them is located elsewhere or changed on the disk. So a custom stylesheet appearing or
+ * changing in a style directory takes effect immediately.
+ * <p>
+ * Compilation failures are not cached, so the {@link XslWriter} always reports them.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class StylesheetCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( StylesheetCache.class ) ;
+
+  public static final int DEFAULT_CAPACITY = 32 ;
+
+  /**
+   * The instance that {@link XslWriter}s use by default.
+   */
+  public static final StylesheetCache SHARED = new StylesheetCache( DEFAULT_CAPACITY ) ;
+
+  private final Map< Key, Entry > entries ;
+
+  private final AtomicLong hitCount = new AtomicLong() ;
+  private final AtomicLong missCount = new AtomicLong() ;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity maximum number of compiled stylesheets to keep, least recently used go
+   *     away first.
+   */
+  public StylesheetCache( final int capacity ) {
+    checkArgument( capacity > 0, "Capacity must be strictly positive, was %s", capacity ) ;
+    entries = new LinkedHashMap< Key, Entry >( capacity, 0.75f, true ) {
+      @Override
+      protected boolean removeEldestEntry( final Map.Entry< Key, Entry > eldest ) {
+        return size() > capacity ;
+      }
+    } ;
+  }
+
+  /**
+   * Returns an {@link Entry} for the given stylesheet if there is one and if none of the
+   * resources it was compiled from changed.
+   *
+   * @return a possibly null object.
+   */
+  public Entry get(
+      final ResourceLoader resourceLoader,
+      final ResourceName stylesheet,
+      final EntityEscapeSelector entityEscapeSelector
+  ) {
+    final Key key = new Key( resourceLoader, stylesheet, entityEscapeSelector ) ;
+    final Entry entry ;
+    synchronized( entries ) {
+      entry = entries.get( key ) ;
+    }
+    if( entry != null ) {
+      if( entry.isCurrent( resourceLoader ) ) {
+        hitCount.incrementAndGet() ;
+        return entry ;
+      } else {
+        LOGGER.info( "Stylesheet ", stylesheet, " or one of its dependencies changed." ) ;
+        synchronized( entries ) {
+          if( entries.get( key ) == entry ) {
+            entries.remove( key ) ;
+          }
+        }
+      }
+    }
+    missCount.incrementAndGet() ;
+    return null ;
+  }
+
+  /**
+   * @param templates a non-null object.
+   * @param multipageStylesheet a possibly null object.
+   * @param dependencies a non-null object, containing the stylesheet itself.
+   * @return the newly-created {@link Entry}.
+   */
+  public Entry put(
+      final ResourceLoader resourceLoader,
+      final ResourceName stylesheet,
+      final EntityEscapeSelector entityEscapeSelector,
+      final Templates templates,
+      final SaxRecorder.Player multipageStylesheet,
+      final ImmutableMap< ResourceName, ResourceStamp > dependencies
+  ) {
+    final Key key = new Key( resourceLoader, stylesheet, entityEscapeSelector ) ;
+    final Entry entry = new Entry( templates, multipageStylesheet, dependencies ) ;
+    synchronized( entries ) {
+      entries.put( key, entry ) ;
+    }
+    LOGGER.debug( "Cached compiled stylesheet ", stylesheet, " depending on ",
+        dependencies.keySet() ) ;
+    return entry ;
+  }
+
+  public void clear() {
+    synchronized( entries ) {
+      entries.clear() ;
+    }
+  }
+
+  public int size() {
+    synchronized( entries ) {
+      return entries.size() ;
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount.get() ;
+  }
+
+  public long getMissCount() {
+    return missCount.get() ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{size=" + size() + ";hits=" + getHitCount() +
+        ";misses=" + getMissCount() + "}" ;
+  }
+
+
+// =====
+// Entry
+// =====
+
+  /**
+   * Thread-safe result of a stylesheet compilation.
+   */
+  public static final class Entry {
+
+    private final Templates templates ;
+    private final SaxRecorder.Player multipageStylesheet ;
+    private final ImmutableMap< ResourceName, ResourceStamp > dependencies ;
+
+    /**
+     * Compiled on first use, from {@link #multipageStylesheet}.
+     */
+    private volatile Templates multipageTemplates = null ;
+
+    private Entry(
+        final Templates templates,
+        final SaxRecorder.Player multipageStylesheet,
+        final ImmutableMap< ResourceName, ResourceStamp > dependencies
+    ) {
+      this.templates = checkNotNull( templates ) ;
+      this.multipageStylesheet = multipageStylesheet ;
+      this.dependencies = checkNotNull( dependencies ) ;
+    }
+
+    /**
+     * @return a non-null object.
+     */
+    public Templates getTemplates() {
+      return templates ;
+    }
+
+    /**
+     * @return a possibly null object, as captured by
+     *     {@link org.novelang.rendering.multipage.XslMultipageStylesheetCapture}.
+     */
+    public SaxRecorder.Player getMultipageStylesheet() {
+      return multipageStylesheet ;
+    }
+
+    /**
+     * Compiles the {@link #getMultipageStylesheet() multipage stylesheet} on first call and
+     * keeps the result, so extracting pages doesn't parse it again.
+     * Resolvers only depend on what the {@link Entry} is keyed with, so the first ones are as
+     * good as any other.
+     *
+     * @return a possibly null object, null if there is no multipage stylesheet.
+     */
+    public Templates getMultipageTemplates(
+        final EntityResolver entityResolver,
+        final URIResolver uriResolver
+    ) throws
+        TransformerConfigurationException,
+        SAXException,
+        IOException,
+        TransformerCompositeException
+    {
+      if( multipageStylesheet == null ) {
+        return null ;
+      }
+      Templates compiled = multipageTemplates ;
+      if( compiled == null ) {
+        synchronized( this ) {
+          compiled = multipageTemplates ;
+          if( compiled == null ) {
+            compiled = new XslTransformerFactory.FromPlayer(
+                multipageStylesheet,
+                entityResolver,
+                uriResolver,
+                new TransformerErrorListener()
+            ).newTemplates() ;
+            multipageTemplates = compiled ;
+          }
+        }
+      }
+      return compiled ;
+    }
+
+    /**
+     * @return a non-null object, containing the stylesheet itself.
+     */
+    public ImmutableMap< ResourceName, ResourceStamp > getDependencies() {
+      return dependencies ;
+    }
+
+    private boolean isCurrent( final ResourceLoader resourceLoader ) {
+      for( final Map.Entry< ResourceName, ResourceStamp > dependency : dependencies.entrySet() ) {
+        final ResourceStamp current = ResourceStamp.create( resourceLoader, dependency.getKey() ) ;
+        if( ! current.equals( dependency.getValue() ) ) {
+          LOGGER.debug( "Changed: ", dependency.getValue(), " -> ", current ) ;
+          return false ;
+        }
+      }
+      return true ;
+    }
+  }
+
+
+// ===
+// Key
+// ===
+
+  /**
+   * {@link ResourceLoader} and {@link EntityEscapeSelector} have no value semantic so we
+   * rely on object identity for them.
+   */
+  private static final class Key {
+
+    private final ResourceLoader resourceLoader ;
+    private final ResourceName stylesheet ;
+    private final EntityEscapeSelector entityEscapeSelector ;
+
+    private Key(
+        final ResourceLoader resourceLoader,
+        final ResourceName stylesheet,
+        final EntityEscapeSelector entityEscapeSelector
+    ) {
+      this.resourceLoader = checkNotNull( resourceLoader ) ;
+      this.stylesheet = checkNotNull( stylesheet ) ;
+      this.entityEscapeSelector = checkNotNull( entityEscapeSelector ) ;
+    }
+
+    @Override
+    public boolean equals( final Object other ) {
+      if( this == other ) {
+        return true ;
+      }
+      if( ! ( other instanceof Key ) ) {
+        return false ;
+      }
+      final Key that = ( Key ) other ;
+      return resourceLoader == that.resourceLoader
+          && entityEscapeSelector == that.entityEscapeSelector
+          && stylesheet.equals( that.stylesheet )
+      ;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode( resourceLoader ) ;
+      result = 31 * result + stylesheet.hashCode() ;
+      result = 31 * result + System.identityHashCode( entityEscapeSelector ) ;
+      return result ;
+    }
+  }
+
+}
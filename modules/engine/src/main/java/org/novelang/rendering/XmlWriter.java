@@ -25,6 +25,7 @@ import org.dom4j.io.OutputFormat;
 import org.dom4j.io.XMLWriter;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 import org.xml.sax.ext.LexicalHandler;
 import org.xml.sax.helpers.AttributesImpl;
 
@@ -32,6 +33,7 @@ import org.novelang.common.Nodepath;
 import org.novelang.common.metadata.DocumentMetadata;
 import org.novelang.outfit.DefaultCharset;
 import org.novelang.outfit.xml.XmlNamespaces;
+import org.novelang.parser.NodeKind;
 import org.novelang.parser.NodeKindTools;
 
 /**
@@ -45,6 +47,17 @@ public class XmlWriter implements FragmentWriter {
   private final Charset charset ;
   private final RenditionMimeType mimeType ;
 
+  /**
+   * Qualified element names indexed by {@link NodeKind#ordinal()}.
+   */
+  private final String[] qualifiedNames ;
+
+  /**
+   * Reused for every {@link ContentHandler#characters(char[], int, int)} call,
+   * which must not keep it.
+   */
+  private char[] characterBuffer = new char[ 64 ] ;
+
   public XmlWriter( final RenditionMimeType mimeType ) {
     this(
         XmlNamespaces.TREE_NAMESPACE_URI,
@@ -63,6 +76,12 @@ public class XmlWriter implements FragmentWriter {
     this.nameQualifier = Preconditions.checkNotNull( nameQualifier ) ;
     this.charset = Preconditions.checkNotNull( charset ) ;
     this.mimeType = mimeType;
+    final NodeKind[] nodeKinds = NodeKind.values() ;
+    qualifiedNames = new String[ nodeKinds.length ] ;
+    for( final NodeKind nodeKind : nodeKinds ) {
+      qualifiedNames[ nodeKind.ordinal() ] =
+          nameQualifier + ":" + NodeKindTools.xmlElementName( nodeKind ) ;
+    }
   }
 
   public XmlWriter() {
@@ -89,7 +108,12 @@ public class XmlWriter implements FragmentWriter {
 
   @Override
   public void start( final Nodepath kinship, final boolean wholeDocument ) throws Exception {
-    start( NodeKindTools.tokenNameAsXmlElementName( kinship.getCurrent().name() ), wholeDocument ) ;
+    final NodeKind nodeKind = kinship.getCurrent() ;
+    start(
+        NodeKindTools.xmlElementName( nodeKind ),
+        qualifiedNames[ nodeKind.ordinal() ],
+        wholeDocument
+    ) ;
   }
   
   public void start( final String elementName ) throws Exception {
@@ -97,6 +121,14 @@ public class XmlWriter implements FragmentWriter {
   }
   
   public void start( final String elementName, final boolean wholeDocument ) throws Exception {
+    start( elementName, nameQualifier + ":" + elementName, wholeDocument ) ;
+  }
+
+  private void start(
+      final String elementName,
+      final String qualifiedName,
+      final boolean wholeDocument
+  ) throws Exception {
     final Attributes attributes ;
     if( wholeDocument ) { // Declare the namespace.
       final AttributesImpl mutableAttributes = new AttributesImpl() ;
@@ -111,18 +143,19 @@ public class XmlWriter implements FragmentWriter {
     } else {
       attributes = EMPTY_ATTRIBUTES ;
     }
-    contentHandler.startElement(
-        namespaceUri,
-        elementName,
-        nameQualifier + ":" + elementName,
-        attributes
-    ) ;
+    contentHandler.startElement( namespaceUri, elementName, qualifiedName, attributes ) ;
   }
 
   @Override
   public void end( final Nodepath kinship ) throws Exception {
-    end( NodeKindTools.tokenNameAsXmlElementName( kinship.getCurrent().name() ) ) ;
+    final NodeKind nodeKind = kinship.getCurrent() ;
+    contentHandler.endElement(
+        namespaceUri,
+        NodeKindTools.xmlElementName( nodeKind ),
+        qualifiedNames[ nodeKind.ordinal() ]
+    ) ;
   }
+
   public void end( final String elementName ) throws Exception {
     contentHandler.endElement( namespaceUri, elementName, nameQualifier + ":" + elementName ) ;
   }
@@ -133,21 +166,60 @@ public class XmlWriter implements FragmentWriter {
 
   @Override
   public void write( final Nodepath kinship, final String word ) throws Exception {
-    contentHandler.characters( word.toCharArray(), 0, word.length() ) ;
+    characters( word ) ;
   }
 
   @Override
   public void writeLiteral( final Nodepath kinship, final String word ) throws Exception {
     ( ( LexicalHandler ) contentHandler ).startCDATA() ;
-    contentHandler.characters( word.toCharArray(), 0, word.length() ) ;
+    characters( word ) ;
     ( ( LexicalHandler ) contentHandler ).endCDATA() ;
   }
 
+  private void characters( final String text ) throws SAXException {
+    final int length = text.length() ;
+    if( length > characterBuffer.length ) {
+      characterBuffer = new char[ Math.max( length, characterBuffer.length * 2 ) ] ;
+    }
+    text.getChars( 0, length, characterBuffer, 0 ) ;
+    contentHandler.characters( characterBuffer, 0, length ) ;
+  }
+
   @Override
   public RenditionMimeType getMimeType() {
     return mimeType ;
   }
 
+  public String getNamespaceUri() {
+    return namespaceUri ;
+  }
+
+  /**
+   * Returns the {@code ContentHandler} that {@link #startWriting(OutputStream, DocumentMetadata)}
+   * created, for sending events that don't come from a {@link GenericRenderer}.
+   */
+  /*package*/ ContentHandler getContentHandler() {
+    return contentHandler ;
+  }
+
+  /**
+   * Returns a new {@link XmlWriter} with the same namespace, sending events to given
+   * {@code ContentHandler}, which should also implement {@link LexicalHandler}.
+   */
+  public XmlWriter redirectTo( final ContentHandler target ) {
+    Preconditions.checkNotNull( target ) ;
+    return new XmlWriter( namespaceUri, nameQualifier, charset, mimeType ) {
+      @Override
+      protected ContentHandler createContentHandler(
+          final OutputStream outputStream,
+          final DocumentMetadata documentMetadata,
+          final Charset charset
+      ) {
+        return target ;
+      }
+    } ;
+  }
+
   protected ContentHandler createContentHandler(
       final OutputStream outputStream,
       final DocumentMetadata documentMetadata,
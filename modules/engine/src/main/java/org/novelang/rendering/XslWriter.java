@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.URIResolver;
@@ -42,8 +43,10 @@ import org.novelang.configuration.RenditionKinematic;
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
 import org.novelang.outfit.DefaultCharset;
+import org.novelang.outfit.loader.RecordingResourceLoader;
 import org.novelang.outfit.loader.ResourceLoader;
 import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
 import org.novelang.outfit.xml.EntityEscapeSelector;
 import org.novelang.outfit.xml.LocalEntityResolver;
 import org.novelang.outfit.xml.LocalUriResolver;
@@ -77,6 +80,8 @@ public class XslWriter extends XmlWriter implements PagesExtractor {
   protected final EntityEscapeSelector entityEscapeSelector ;
   private static final ResourceName IDENTITY_XSL_FILE_NAME = new ResourceName( "identity.xsl" ) ;
 
+  private static final StylesheetCache STYLESHEET_CACHE = StylesheetCache.SHARED ;
+
   private final RenditionKinematic renditionKinematic;
 
   /**
@@ -85,7 +90,9 @@ public class XslWriter extends XmlWriter implements PagesExtractor {
    */
   private final TransformerErrorListener transformerErrorListener = new TransformerErrorListener() ;
 
-  private TransformerHandler transformerHandler;
+  private final TransformerHandler transformerHandler;
+
+  private final StylesheetCache.Entry stylesheet ;
 
   public XslWriter( final RenderingConfiguration configuration, final ResourceName xslFileName )
       throws IOException, TransformerConfigurationException, SAXException, TransformerCompositeException
@@ -183,29 +190,84 @@ public class XslWriter extends XmlWriter implements PagesExtractor {
     }
     this.xslFileName = safeXslFileName ;
     entityResolver = new LocalEntityResolver( resourceLoader, entityEscapeSelector ) ;
+    uriResolver = createUriResolver( resourceLoader, entityResolver ) ;
 
-    uriResolver = new LocalUriResolver( resourceLoader, entityResolver ) {
-      @Override
-      protected ContentHandler decorate( final ContentHandler original ) {
-        return xslTransformerFactoryDecoratorInstaller.decorate( original ) ;
-      }
-    } ;
+    final StylesheetCache.Entry cachedStylesheet =
+        STYLESHEET_CACHE.get( resourceLoader, safeXslFileName, entityEscapeSelector ) ;
+    if( cachedStylesheet == null ) {
+      stylesheet = compile( safeXslFileName ) ;
+    } else {
+      LOGGER.debug( "Reusing compiled stylesheet ", safeXslFileName ) ;
+      stylesheet = cachedStylesheet ;
+      lastParsedStylesheet = cachedStylesheet.getMultipageStylesheet() ;
+    }
 
-    // Triggers XSL parsing.  
-    transformerHandler = new XslTransformerFactory.FromResource(
-        resourceLoader,
-        xslFileName,
-        entityResolver,
+    transformerHandler = XslTransformerFactory.newTransformerHandler(
+        stylesheet.getTemplates(),
         uriResolver,
-        xslTransformerFactoryDecoratorInstaller,
         transformerErrorListener
-    ).newTransformerHandler() ;
+    ) ;
 
     LOGGER.debug( "Created ", getClass().getName(), " with stylesheet ", safeXslFileName ) ;
     logLastParsedStylesheet() ;
   }
 
 
+  /**
+   * Triggers XSL parsing and compilation, with resolvers recording every resource read
+   * so {@link StylesheetCache} knows when compiled stylesheet gets stale.
+   */
+  private StylesheetCache.Entry compile( final ResourceName stylesheet )
+      throws IOException, TransformerConfigurationException, SAXException, TransformerCompositeException
+  {
+    final RecordingResourceLoader recordingResourceLoader =
+        new RecordingResourceLoader( resourceLoader ) ;
+    final EntityResolver recordingEntityResolver =
+        new LocalEntityResolver( recordingResourceLoader, entityEscapeSelector ) ;
+
+    final Templates templates = new XslTransformerFactory.FromResource(
+        recordingResourceLoader,
+        stylesheet,
+        recordingEntityResolver,
+        createUriResolver( recordingResourceLoader, recordingEntityResolver ),
+        xslTransformerFactoryDecoratorInstaller,
+        transformerErrorListener
+    ).newTemplates() ;
+
+    return STYLESHEET_CACHE.put(
+        resourceLoader,
+        stylesheet,
+        entityEscapeSelector,
+        templates,
+        getLastParsedStylesheet(),
+        recordingResourceLoader.getRecordedStamps()
+    ) ;
+  }
+
+  /**
+   * Returns every resource read when compiling the stylesheet (imported stylesheets and
+   * DTDs included), as located by the {@link ResourceLoader} of the
+   * {@link RenderingConfiguration}.
+   *
+   * @return a non-null object.
+   */
+  public ImmutableMap< ResourceName, ResourceStamp > getStylesheetDependencies() {
+    return stylesheet.getDependencies() ;
+  }
+
+  private URIResolver createUriResolver(
+      final ResourceLoader resourceLoader,
+      final EntityResolver entityResolver
+  ) {
+    return new LocalUriResolver( resourceLoader, entityResolver ) {
+      @Override
+      protected ContentHandler decorate( final ContentHandler original ) {
+        return xslTransformerFactoryDecoratorInstaller.decorate( original ) ;
+      }
+    } ;
+  }
+
+
   @Override
   protected ContentHandler createContentHandler(
       final OutputStream outputStream,
@@ -316,11 +378,36 @@ public class XslWriter extends XmlWriter implements PagesExtractor {
       final SyntacticTree documentTree
   ) throws Exception
   {
+    return createPageIdentifierExtractor().extractPages( documentTree ) ;
+  }
+
+  /**
+   * Same as {@link #extractPages(SyntacticTree)} but replaying
+   * {@link GenericRenderer#record(SyntacticTree) recorded} events.
+   */
+  public ImmutableMap< PageIdentifier, String > extractPages(
+      final RecordedTree recordedTree
+  ) throws Exception
+  {
+    return createPageIdentifierExtractor().extractPages( recordedTree ) ;
+  }
+
+  /**
+   * Tells if the stylesheet defines pages, otherwise {@link #extractPages(SyntacticTree)}
+   * always returns an empty map.
+   */
+  public boolean isMultipage() {
+    return stylesheet.getMultipageStylesheet() != null ;
+  }
+
+  /**
+   * Page extraction reuses the multipage stylesheet compiled for the {@link StylesheetCache}.
+   */
+  private XslPageIdentifierExtractor createPageIdentifierExtractor() throws Exception {
     return new XslPageIdentifierExtractor(
-        entityResolver,
         uriResolver,
-        getLastParsedStylesheet()
-    ).extractPages( documentTree ) ;
+        stylesheet.getMultipageTemplates( entityResolver, uriResolver )
+    ) ;
   }
 
   private SaxRecorder.Player lastParsedStylesheet = null ;
@@ -337,6 +424,9 @@ public class XslWriter extends XmlWriter implements PagesExtractor {
   }
 
   private void logLastParsedStylesheet() {
+    if( ! LOGGER.isDebugEnabled() ) {
+      return ;
+    }
     final String xml ;
     if( lastParsedStylesheet == null ) {
       xml = null ;
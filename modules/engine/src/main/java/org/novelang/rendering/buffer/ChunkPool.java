@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hands out fixed-size {@code ByteBuffer}s, and keeps a bounded number of released ones for
+ * reuse, so buffering rendered content doesn't churn big arrays through the young generation.
+ * <p>
+ * When there is no idle chunk, a new one gets allocated. When more than
+ * {@link #maximumIdleCount} chunks are idle, released ones are left to the garbage collector.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public class ChunkPool {
+
+  public static final int DEFAULT_CHUNK_SIZE_BYTES = 64 * 1024 ;
+  public static final int DEFAULT_MAXIMUM_IDLE_COUNT = 64 ;
+
+  /**
+   * Setting this system property to {@code true} makes {@link #SHARED} hand out direct chunks.
+   */
+  public static final String DIRECT_SYSTEMPROPERTYNAME = "org.novelang.buffer.direct" ;
+
+  /**
+   * Pool for {@link CisternOutputStream}s created without an explicit one.
+   * Its chunks are direct if system property {@value #DIRECT_SYSTEMPROPERTYNAME} says so.
+   */
+  public static final ChunkPool SHARED = new ChunkPool(
+      DEFAULT_CHUNK_SIZE_BYTES,
+      DEFAULT_MAXIMUM_IDLE_COUNT,
+      Boolean.getBoolean( DIRECT_SYSTEMPROPERTYNAME )
+  ) ;
+
+  private final int chunkSize ;
+  private final int maximumIdleCount ;
+  private final boolean direct ;
+
+  private final ConcurrentLinkedQueue< ByteBuffer > idleChunks =
+      new ConcurrentLinkedQueue< ByteBuffer >() ;
+
+  /**
+   * Maintained apart because {@link ConcurrentLinkedQueue#size()} is not a constant-time
+   * operation.
+   */
+  private final AtomicInteger idleCount = new AtomicInteger() ;
+  private final AtomicInteger leasedCount = new AtomicInteger() ;
+  private final AtomicLong allocationCount = new AtomicLong() ;
+  private final AtomicLong reuseCount = new AtomicLong() ;
+
+  /**
+   * Constructor.
+   *
+   * @param chunkSize size of each chunk, in bytes.
+   * @param maximumIdleCount maximum number of released chunks to keep for reuse.
+   * @param direct true for chunks outside of the Java heap, which are slower to allocate but
+   *     cost no copy when written into a {@code FileChannel}.
+   */
+  public ChunkPool( final int chunkSize, final int maximumIdleCount, final boolean direct ) {
+    checkArgument( chunkSize > 0, "Chunk size must be greater than 0, was %s", chunkSize ) ;
+    checkArgument( maximumIdleCount >= 0,
+        "Maximum idle count must be 0 or more, was %s", maximumIdleCount ) ;
+    this.chunkSize = chunkSize ;
+    this.maximumIdleCount = maximumIdleCount ;
+    this.direct = direct ;
+  }
+
+  /**
+   * @return a cleared {@code ByteBuffer} with a capacity of {@link #getChunkSize()}.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer chunk = idleChunks.poll() ;
+    if( chunk == null ) {
+      allocationCount.incrementAndGet() ;
+      chunk = direct ? ByteBuffer.allocateDirect( chunkSize ) : ByteBuffer.allocate( chunkSize ) ;
+    } else {
+      idleCount.decrementAndGet() ;
+      reuseCount.incrementAndGet() ;
+      chunk.clear() ;
+    }
+    leasedCount.incrementAndGet() ;
+    return chunk ;
+  }
+
+  /**
+   * @param chunk a non-null object obtained from {@link #acquire()}, which the caller must
+   *     not use any longer.
+   */
+  public void release( final ByteBuffer chunk ) {
+    checkNotNull( chunk ) ;
+    checkArgument( chunk.capacity() == chunkSize && chunk.isDirect() == direct,
+        "Not from this pool" ) ;
+    leasedCount.decrementAndGet() ;
+    if( idleCount.incrementAndGet() <= maximumIdleCount ) {
+      idleChunks.offer( chunk ) ;
+    } else {
+      idleCount.decrementAndGet() ;
+    }
+  }
+
+  public int getChunkSize() {
+    return chunkSize ;
+  }
+
+  public boolean isDirect() {
+    return direct ;
+  }
+
+
+// =======
+// Metrics
+// =======
+
+  /**
+   * @return the number of chunks currently in use.
+   */
+  public int getLeasedCount() {
+    return leasedCount.get() ;
+  }
+
+  /**
+   * @return the number of chunks waiting for reuse.
+   */
+  public int getIdleCount() {
+    return idleCount.get() ;
+  }
+
+  public int getMaximumIdleCount() {
+    return maximumIdleCount ;
+  }
+
+  /**
+   * @return the number of chunks allocated since creation.
+   */
+  public long getAllocationCount() {
+    return allocationCount.get() ;
+  }
+
+  /**
+   * @return the number of times {@link #acquire()} returned an idle chunk.
+   */
+  public long getReuseCount() {
+    return reuseCount.get() ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "chunkSize=" + chunkSize +
+        ";direct=" + direct +
+        ";leased=" + getLeasedCount() +
+        ";idle=" + getIdleCount() + "/" + maximumIdleCount +
+        ";allocations=" + getAllocationCount() +
+        ";reuses=" + getReuseCount() +
+        "}"
+    ;
+  }
+}
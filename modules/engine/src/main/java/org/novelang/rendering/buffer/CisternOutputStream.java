@@ -17,13 +17,18 @@
 package org.novelang.rendering.buffer;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
 
 import com.google.common.base.Preconditions;
-import org.apache.commons.io.IOUtils;
+import com.google.common.collect.Lists;
 
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
@@ -33,6 +38,17 @@ import org.novelang.outfit.TemporaryFileService;
  * An {@code OutputStream } that keeps all bytes in memory, or in a temporary files if going a
  * given amount.
  * <p>
+ * Memory comes as chunks from a {@link ChunkPool}, acquired as needed, so a small page
+ * only costs one chunk, and chunks go back to the pool on {@link #close()}.
+ * Past the given amount, chunks are written into a temporary file (and released), and
+ * {@link #copy(OutputStream)} uses {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+ * which lets the operating system do the copy when it can.
+ * With {@link SpillMode#MEMORY_MAPPED}, the temporary file is written through a memory
+ * mapping instead of a write call per chunk. System properties
+ * {@value #SPILLMODE_SYSTEMPROPERTYNAME} and {@value ChunkPool#DIRECT_SYSTEMPROPERTYNAME}
+ * choose how streams created with {@link #CisternOutputStream(TemporaryFileService.FileSupplier, int)}
+ * spill and buffer.
+ * <p>
  * This class is not thread-safe.
  *
  * @author Laurent Caillette
@@ -41,25 +57,108 @@ public class CisternOutputStream extends OutputStream {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( CisternOutputStream.class ) ;
 
-  private byte[] bytes ;
-  private int byteCount ;
+  /**
+   * Size of each region of the temporary file mapped at once with
+   * {@link SpillMode#MEMORY_MAPPED}.
+   */
+  private static final int MAPPED_REGION_SIZE_BYTES = 1024 * 1024 ;
+
+  /**
+   * System property holding the name of the {@link SpillMode} for streams created
+   * without an explicit one.
+   */
+  public static final String SPILLMODE_SYSTEMPROPERTYNAME = "org.novelang.buffer.spillmode" ;
+
+  public enum SpillMode {
+    /**
+     * Write chunks to the temporary file through a {@code FileChannel}.
+     */
+    FILE_CHANNEL,
+
+    /**
+     * Write bytes into a memory-mapped region of the temporary file. This saves system calls
+     * for big documents but, as Java offers no way to unmap, the file may not be deletable
+     * (on Windows) until the mapping gets garbage-collected.
+     */
+    MEMORY_MAPPED ;
+
+    /**
+     * @return the {@link SpillMode} named by system property
+     *     {@value CisternOutputStream#SPILLMODE_SYSTEMPROPERTYNAME}, {@link #FILE_CHANNEL}
+     *     if there is none.
+     */
+    public static SpillMode getDefault() {
+      final String name = System.getProperty( SPILLMODE_SYSTEMPROPERTYNAME ) ;
+      if( name != null ) {
+        for( final SpillMode spillMode : values() ) {
+          if( spillMode.name().equalsIgnoreCase( name.trim() ) ) {
+            return spillMode ;
+          }
+        }
+        LOGGER.warn( "Unsupported value for system property ", SPILLMODE_SYSTEMPROPERTYNAME,
+            ": '", name, "', using ", FILE_CHANNEL, "." ) ;
+      }
+      return FILE_CHANNEL ;
+    }
+  }
+
+  private static final SpillMode DEFAULT_SPILL_MODE = SpillMode.getDefault() ;
+
   private final TemporaryFileService.FileSupplier fileSupplier ;
+  private final int maximumHeapMemorySizeInBytes ;
+  private final ChunkPool chunkPool ;
+  private final SpillMode spillMode ;
+
+  /**
+   * Chunks holding written bytes, only the last one may not be full.
+   * Once spilled, there is at most one chunk, used as a write buffer.
+   */
+  private final List< ByteBuffer > chunks = Lists.newArrayList() ;
+
+  private long byteCount = 0L ;
+  private boolean open = true ;
+
   private File file = null ;
-  private FileOutputStream fileOutputStream = null;
+  private RandomAccessFile randomAccessFile = null ;
+  private FileChannel fileChannel = null ;
 
   /**
-   * Constructor.
+   * Current region with {@link SpillMode#MEMORY_MAPPED}.
+   */
+  private MappedByteBuffer mappedRegion = null ;
+  private long mappedRegionStart = 0L ;
+
+  /**
+   * Constructor using {@link ChunkPool#SHARED} and {@link SpillMode#getDefault()}.
    *
    * @param fileSupplier a non-null object.
-   * @param maximumHeapMemorySizeInBytes maximum amount of bytes to keep in heap memory.
+   * @param maximumHeapMemorySizeInBytes maximum amount of bytes to keep in memory.
    */
   public CisternOutputStream(
       final TemporaryFileService.FileSupplier fileSupplier,
       final int maximumHeapMemorySizeInBytes
+  ) {
+    this( fileSupplier, maximumHeapMemorySizeInBytes, ChunkPool.SHARED, DEFAULT_SPILL_MODE ) ;
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param fileSupplier a non-null object.
+   * @param maximumHeapMemorySizeInBytes maximum amount of bytes to keep in memory.
+   * @param chunkPool a non-null object.
+   * @param spillMode a non-null object.
+   */
+  public CisternOutputStream(
+      final TemporaryFileService.FileSupplier fileSupplier,
+      final int maximumHeapMemorySizeInBytes,
+      final ChunkPool chunkPool,
+      final SpillMode spillMode
   ) {
     this.fileSupplier = Preconditions.checkNotNull( fileSupplier ) ;
-    bytes = new byte[ maximumHeapMemorySizeInBytes ] ;
-    byteCount = 0 ;
+    this.maximumHeapMemorySizeInBytes = maximumHeapMemorySizeInBytes ;
+    this.chunkPool = Preconditions.checkNotNull( chunkPool ) ;
+    this.spillMode = Preconditions.checkNotNull( spillMode ) ;
   }
 
 
@@ -72,41 +171,175 @@ public class CisternOutputStream extends OutputStream {
   public void copy( final OutputStream target ) throws IOException {
     checkState() ;
     if( file == null ) {
-      target.write( bytes, 0, byteCount ) ;
+      WritableByteChannel targetChannel = null ;
+      for( final ByteBuffer chunk : chunks ) {
+        if( chunk.hasArray() ) {
+          target.write( chunk.array(), chunk.arrayOffset(), chunk.position() ) ;
+        } else {
+          if( targetChannel == null ) {
+            targetChannel = Channels.newChannel( target ) ;
+          }
+          writeFully( ( ByteBuffer ) chunk.duplicate().flip(), targetChannel ) ;
+        }
+      }
+    } else {
+      flushToFile() ;
+      // Not closing the channel as it would close the target.
+      final WritableByteChannel targetChannel = Channels.newChannel( target ) ;
+      long position = 0L ;
+      while( position < byteCount ) {
+        position += fileChannel.transferTo( position, byteCount - position, targetChannel ) ;
+      }
+    }
+  }
+
+  /**
+   * Reads bytes written so far, from given position, so a reader can follow a writer with
+   * its own cursor. Callers must ensure writing and reading don't happen at the same time.
+   *
+   * @param position where to start reading, from the first byte ever written.
+   * @return the number of bytes read, -1 if there is nothing after {@code position}.
+   * @throws IllegalStateException if already released.
+   */
+  public int read(
+      final long position,
+      final byte[] bytes,
+      final int offset,
+      final int length
+  ) throws IOException {
+    checkState() ;
+    final long size = size() ;
+    if( position >= size ) {
+      return -1 ;
+    }
+    final int readable = ( int ) Math.min( ( long ) length, size - position ) ;
+    if( file == null ) {
+      long chunkStart = 0L ;
+      int read = 0 ;
+      for( final ByteBuffer chunk : chunks ) {
+        final long chunkEnd = chunkStart + chunk.position() ;
+        if( position + read < chunkEnd ) {
+          final ByteBuffer slice = chunk.duplicate() ;
+          slice.flip() ;
+          slice.position( ( int ) ( position + read - chunkStart ) ) ;
+          final int sliceLength = Math.min( slice.remaining(), readable - read ) ;
+          slice.get( bytes, offset + read, sliceLength ) ;
+          read += sliceLength ;
+          if( read == readable ) {
+            break ;
+          }
+        }
+        chunkStart = chunkEnd ;
+      }
     } else {
-      fileOutputStream.flush() ;
-      final FileInputStream fileInputStream = new FileInputStream( file ) ;
-      try {
-        // No need to buffer, says the documentation.
-        IOUtils.copy( fileInputStream, target ) ;
-      } finally {
-        fileInputStream.close() ;
+      flushToFile() ;
+      final ByteBuffer target = ByteBuffer.wrap( bytes, offset, readable ) ;
+      while( target.hasRemaining() ) {
+        if( fileChannel.read( target, position + target.position() - offset ) < 0 ) {
+          throw new IOException( "Unexpected end of '" + file.getAbsolutePath() + "'" ) ;
+        }
       }
     }
+    return readable ;
+  }
+
+  /**
+   * @return the number of bytes written so far.
+   */
+  public long size() {
+    checkState() ;
+    if( file != null && ! chunks.isEmpty() ) {
+      return byteCount + chunks.get( 0 ).position() ;
+    }
+    return byteCount ;
   }
 
   private void checkState() {
-    if( bytes == null && file == null ) {
+    if( ! open ) {
       throw new IllegalStateException( "Already released" ) ;
     }
   }
 
   /**
-   * Returns true if adding given byte count overflows the heap memory buffer.
+   * Returns true if adding given byte count overflows the memory buffer.
    */
   private boolean overflows( final int additionalByteCount ) {
-    return byteCount + additionalByteCount > bytes.length ;
+    return byteCount + additionalByteCount > maximumHeapMemorySizeInBytes ;
+  }
+
+  /**
+   * @return a chunk with some room left, acquiring it from the {@link ChunkPool} if needed.
+   */
+  private ByteBuffer writableChunk() {
+    if( ! chunks.isEmpty() ) {
+      final ByteBuffer last = chunks.get( chunks.size() - 1 ) ;
+      if( last.hasRemaining() ) {
+        return last ;
+      }
+    }
+    final ByteBuffer chunk = chunkPool.acquire() ;
+    chunks.add( chunk ) ;
+    return chunk ;
   }
 
   @SuppressWarnings( { "IOResourceOpenedButNotSafelyClosed" } )
   private void switchToFile() throws IOException {
     Preconditions.checkState( file == null ) ;
-    Preconditions.checkState( fileOutputStream == null ) ;
     file = fileSupplier.get() ;
-    fileOutputStream = new FileOutputStream( file ) ;
-    fileOutputStream.write( bytes, 0, byteCount ) ;
-    LOGGER.debug( "Wrote ", byteCount, " bytes into '", file.getAbsolutePath(), "'." ) ;
-    bytes = null ;
+    randomAccessFile = new RandomAccessFile( file, "rw" ) ;
+    fileChannel = randomAccessFile.getChannel() ;
+    final long memoryByteCount = byteCount ;
+    byteCount = 0L ;
+    for( final ByteBuffer chunk : chunks ) {
+      chunk.flip() ;
+      writeToFile( chunk ) ;
+      chunkPool.release( chunk ) ;
+    }
+    chunks.clear() ;
+    LOGGER.debug( "Wrote ", memoryByteCount, " bytes into '", file.getAbsolutePath(), "'." ) ;
+  }
+
+  /**
+   * Writes the chunk used as a write buffer, once spilled.
+   */
+  private void flushToFile() throws IOException {
+    if( ! chunks.isEmpty() ) {
+      final ByteBuffer chunk = chunks.get( 0 ) ;
+      chunk.flip() ;
+      writeToFile( chunk ) ;
+      chunk.clear() ;
+    }
+  }
+
+  private void writeToFile( final ByteBuffer source ) throws IOException {
+    final int length = source.remaining() ;
+    if( spillMode == SpillMode.MEMORY_MAPPED ) {
+      while( source.hasRemaining() ) {
+        if( mappedRegion == null || ! mappedRegion.hasRemaining() ) {
+          mappedRegionStart =
+              mappedRegion == null ? 0L : mappedRegionStart + mappedRegion.capacity() ;
+          mappedRegion = fileChannel.map(
+              FileChannel.MapMode.READ_WRITE, mappedRegionStart, MAPPED_REGION_SIZE_BYTES ) ;
+        }
+        final int writable = Math.min( source.remaining(), mappedRegion.remaining() ) ;
+        final ByteBuffer slice = source.duplicate() ;
+        slice.limit( slice.position() + writable ) ;
+        mappedRegion.put( slice ) ;
+        source.position( source.position() + writable ) ;
+      }
+    } else {
+      fileChannel.position( byteCount ) ;
+      writeFully( source, fileChannel ) ;
+    }
+    byteCount += length ;
+  }
+
+  private static void writeFully( final ByteBuffer source, final WritableByteChannel target )
+      throws IOException
+  {
+    while( source.hasRemaining() ) {
+      target.write( source ) ;
+    }
   }
 
 
@@ -117,43 +350,60 @@ public class CisternOutputStream extends OutputStream {
   @Override
   public void write( final int someByte ) throws IOException {
     checkState() ;
+    if( file == null && overflows( 1 ) ) {
+      switchToFile() ;
+    }
+    final ByteBuffer chunk = writableChunk() ;
+    chunk.put( ( byte ) someByte ) ;
     if( file == null ) {
-      if( overflows( 1 ) ) {
-        switchToFile() ;
-      } else {
-        bytes[ byteCount ++ ] = ( byte ) someByte ;
-        return ;
-      }
+      byteCount ++ ;
+    } else if( ! chunk.hasRemaining() ) {
+      flushToFile() ;
     }
-    fileOutputStream.write( someByte ) ;
   }
 
   @Override
   public void write( final byte[] bytes, final int offset, final int length ) throws IOException {
     checkState() ;
+    if( file == null && overflows( length ) ) {
+      switchToFile() ;
+    }
     if( file == null ) {
-      if( overflows( length ) ) {
-        switchToFile() ;
-      } else {
-        for( int i = 0 ; i < length ; i ++ ) {
-         this.bytes[ byteCount ++ ] = bytes[ offset + i ] ;
+      int written = 0 ;
+      while( written < length ) {
+        final ByteBuffer chunk = writableChunk() ;
+        final int chunkLength = Math.min( length - written, chunk.remaining() ) ;
+        chunk.put( bytes, offset + written, chunkLength ) ;
+        written += chunkLength ;
+      }
+      byteCount += length ;
+    } else if( length >= chunkPool.getChunkSize() ) {
+      flushToFile() ;
+      writeToFile( ByteBuffer.wrap( bytes, offset, length ) ) ;
+    } else {
+      int written = 0 ;
+      while( written < length ) {
+        final ByteBuffer chunk = writableChunk() ;
+        final int chunkLength = Math.min( length - written, chunk.remaining() ) ;
+        chunk.put( bytes, offset + written, chunkLength ) ;
+        written += chunkLength ;
+        if( ! chunk.hasRemaining() ) {
+          flushToFile() ;
         }
-        return ;
       }
     }
-    fileOutputStream.write( bytes, offset, length ) ;
   }
 
   @Override
   public void flush() throws IOException {
     checkState() ;
-    if( fileOutputStream != null ) {
-      fileOutputStream.flush() ;
+    if( file != null ) {
+      flushToFile() ;
     }
   }
 
   public boolean isOpen() {
-    return bytes != null || file != null ;
+    return open ;
   }
 
   /**
@@ -164,14 +414,34 @@ public class CisternOutputStream extends OutputStream {
   @Override
   public void close() throws IOException {
     checkState() ;
-    bytes = null ;
-    byteCount = -1 ;
-    if( fileOutputStream != null ) {
-      fileOutputStream.close() ;
-      fileOutputStream = null ;
+    open = false ;
+    final long fileByteCount = byteCount ;
+    byteCount = -1L ;
+    for( final ByteBuffer chunk : chunks ) {
+      chunkPool.release( chunk ) ;
+    }
+    chunks.clear() ;
+    mappedRegion = null ;
+    if( randomAccessFile != null ) {
+      if( spillMode == SpillMode.MEMORY_MAPPED ) {
+        // Mapping goes by whole regions, so the file is longer than what was written.
+        // This matters if it outlives its deletion below.
+        try {
+          fileChannel.truncate( fileByteCount ) ;
+        } catch( IOException e ) {
+          // Some platforms refuse to truncate a file which is still mapped.
+          LOGGER.debug( "Could not truncate '", file.getAbsolutePath(), "': ", e.getMessage() ) ;
+        }
+      }
+      randomAccessFile.close() ;
+      randomAccessFile = null ;
+      fileChannel = null ;
     }
     if( file != null ) {
-      file.delete() ;
+      if( ! file.delete() ) {
+        LOGGER.debug( "Could not delete '", file.getAbsolutePath(), "' (yet)." ) ;
+        file.deleteOnExit() ;
+      }
       file = null ;
     }
   }
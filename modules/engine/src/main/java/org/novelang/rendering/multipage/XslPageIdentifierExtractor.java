@@ -16,8 +16,7 @@
  */
 package org.novelang.rendering.multipage;
 
-import java.io.OutputStream;
-import java.nio.charset.Charset;
+import javax.xml.transform.Templates;
 import javax.xml.transform.URIResolver;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.sax.TransformerHandler;
@@ -26,15 +25,17 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.commons.io.output.NullOutputStream;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.EntityResolver;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import org.novelang.common.SyntacticTree;
-import org.novelang.common.metadata.DocumentMetadata;
 import org.novelang.common.metadata.PageIdentifier;
 import org.novelang.outfit.xml.SaxRecorder;
 import org.novelang.outfit.xml.TransformerErrorListener;
+import org.novelang.outfit.xml.XmlNamespaces;
 import org.novelang.outfit.xml.XslTransformerFactory;
 import org.novelang.rendering.GenericRenderer;
+import org.novelang.rendering.RecordedTree;
 import org.novelang.rendering.RenditionMimeType;
 import org.novelang.rendering.XmlWriter;
 
@@ -51,6 +52,11 @@ public class XslPageIdentifierExtractor implements PagesExtractor {
   private final EntityResolver entityResolver ;
   private final URIResolver uriResolver ;
 
+  /**
+   * Null if {@link #stylesheetPlayer} needs compilation.
+   */
+  private final Templates templates ;
+
   public XslPageIdentifierExtractor(
       final EntityResolver entityResolver,
       final URIResolver uriResolver,
@@ -59,6 +65,22 @@ public class XslPageIdentifierExtractor implements PagesExtractor {
     this.entityResolver = checkNotNull( entityResolver ) ;
     this.uriResolver = checkNotNull( uriResolver ) ;
     this.stylesheetPlayer = stylesheetPlayer ;
+    this.templates = null ;
+  }
+
+  /**
+   * @param templates a possibly null object, as returned by
+   *     {@link org.novelang.rendering.StylesheetCache.Entry#getMultipageTemplates(
+   *     EntityResolver, URIResolver)}.
+   */
+  public XslPageIdentifierExtractor(
+      final URIResolver uriResolver,
+      final Templates templates
+  ) {
+    this.entityResolver = null ;
+    this.uriResolver = checkNotNull( uriResolver ) ;
+    this.stylesheetPlayer = null ;
+    this.templates = templates ;
   }
 
 
@@ -68,42 +90,82 @@ public class XslPageIdentifierExtractor implements PagesExtractor {
   )
       throws Exception
   {
+    return extractPages( new DocumentFeeder() {
+      @Override
+      public void feed( final ContentHandler contentHandler ) throws Exception {
+        final XmlWriter xmlWriter = new XmlWriter( RenditionMimeType.XML )
+            .redirectTo( contentHandler ) ;
+        new GenericRenderer( xmlWriter )
+            .renderTree( documentTree, new NullOutputStream(), null, null, null  ) ;
+      }
+    } ) ;
+  }
 
-    if( stylesheetPlayer == null ) {
-      return PagesExtractor.EMPTY_MAP ;
-    }
+  /**
+   * Same as {@link #extractPages(SyntacticTree)} but replaying SAX events instead of walking
+   * the tree again.
+   *
+   * @param recordedTree a non-null object, with elements in
+   *     {@link XmlNamespaces#TREE_NAMESPACE_URI}.
+   */
+  public ImmutableMap<PageIdentifier, String > extractPages(
+      final RecordedTree recordedTree
+  )
+      throws Exception
+  {
+    checkArgument(
+        XmlNamespaces.TREE_NAMESPACE_URI.equals( recordedTree.getNamespaceUri() ),
+        "Unsupported namespace: %s", recordedTree.getNamespaceUri()
+    ) ;
+    return extractPages( new DocumentFeeder() {
+      @Override
+      public void feed( final ContentHandler contentHandler ) throws Exception {
+        contentHandler.startDocument() ;
+        recordedTree.playOn( contentHandler ) ;
+        contentHandler.endDocument() ;
+      }
+    } ) ;
+  }
+
+  private interface DocumentFeeder {
+    void feed( ContentHandler contentHandler ) throws Exception ;
+  }
 
+  private ImmutableMap<PageIdentifier, String > extractPages(
+      final DocumentFeeder documentFeeder
+  )
+      throws Exception
+  {
     final TransformerErrorListener transformerErrorListener = new TransformerErrorListener() ;
-    
-    final XslTransformerFactory xslTransformerFactory = new XslTransformerFactory.FromPlayer(
-        stylesheetPlayer,
-        entityResolver,
+
+    final Templates multipageTemplates ;
+    if( templates == null ) {
+      if( stylesheetPlayer == null ) {
+        return PagesExtractor.EMPTY_MAP ;
+      }
+      multipageTemplates = new XslTransformerFactory.FromPlayer(
+          stylesheetPlayer,
+          entityResolver,
+          uriResolver,
+          transformerErrorListener
+      ).newTemplates() ;
+    } else {
+      multipageTemplates = templates ;
+    }
+
+    transformerErrorListener.flush() ;
+
+    final TransformerHandler transformerHandler = XslTransformerFactory.newTransformerHandler(
+        multipageTemplates,
         uriResolver,
         transformerErrorListener
     ) ;
-    
-    transformerErrorListener.flush() ;
-
-    final TransformerHandler transformerHandler = xslTransformerFactory.newTransformerHandler() ;
     transformerHandler.getTransformer().setErrorListener( transformerErrorListener ) ;
 
     final XmlMultipageReader multipageReader = new XmlMultipageReader() ;
     transformerHandler.setResult( new SAXResult( multipageReader ) );
 
-    final XmlWriter xmlWriter = new XmlWriter( RenditionMimeType.XML ) {
-      @Override
-      protected ContentHandler createContentHandler(
-          final OutputStream outputStream,
-          final DocumentMetadata documentMetadata,
-          final Charset charset
-      ) throws Exception {
-        return transformerHandler ;
-      }
-    } ;
-
-    final GenericRenderer renderer = new GenericRenderer( xmlWriter ) ;
-
-    renderer.renderTree( documentTree, new NullOutputStream(), null, null, null  ) ;
+    documentFeeder.feed( transformerHandler ) ;
 
     transformerErrorListener.flush() ;
 
@@ -16,12 +16,15 @@
  */
 package org.novelang.treemangling;
 
+import java.util.List;
+
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import static org.novelang.parser.NodeKind.*;
 
 import org.novelang.common.SimpleTree;
 import org.novelang.common.SyntacticTree;
-import org.novelang.common.tree.TreeTools;
+import org.novelang.common.tree.TransientTree;
 import org.novelang.common.tree.Treepath;
 import org.novelang.common.tree.TreepathTools;
 import org.novelang.parser.NodeKind;
@@ -40,125 +43,164 @@ public class LevelMangler {
   public static Treepath< SyntacticTree > rehierarchizeLevels(
       final Treepath< SyntacticTree > treepathToRehierarchize
   ) {
-    Treepath< SyntacticTree > currentTreepath ;
-    boolean first = true ;
-    {
-      if( treepathToRehierarchize.getTreeAtEnd().getChildCount() > 0 ) {
-        currentTreepath = Treepath.create( treepathToRehierarchize, 0 ) ;
-      } else {
-        return treepathToRehierarchize ;
-      }
+    final SyntacticTree parent = treepathToRehierarchize.getTreeAtEnd() ;
+    if( parent.getChildCount() == 0 ) {
+      return treepathToRehierarchize ;
+    }
+    final List< SyntacticTree > children =
+        Lists.< SyntacticTree >newArrayList( parent.getChildren() ) ;
+    rehierarchizeLevels( children ) ;
+    return TreepathTools.replaceTreepathEnd(
+        treepathToRehierarchize, parent.adopt( children ) ) ;
+  }
+
+  /**
+   * Does the same as {@link #rehierarchizeLevels(Treepath)} on the tree a
+   * {@link ManglingPipeline} starts from.
+   */
+  public static final ManglingPipeline.Stage STAGE = new ManglingPipeline.Stage() {
+    @Override
+    public boolean entersInto( final SyntacticTree tree, final int depth ) {
+      return depth == 0 ;
     }
 
-    while( true ) {
-      // We scan children of treepathToRehierarchize.
-      // If there is one LEVEL_INTRODUCER_ then we do special stuff on it.
-      if( currentTreepath.getTreeAtEnd().isOneOf( LEVEL_INTRODUCER_ ) ) {
+    @Override
+    public boolean mangleChildren(
+        final SyntacticTree parent,
+        final List< SyntacticTree > children,
+        final int depth
+    ) {
+      return rehierarchizeLevels( children ) ;
+    }
+  } ;
+
+  /**
+   * Replaces the sequence of siblings in place.
+   *
+   * @return true if there was some {@link NodeKind#LEVEL_INTRODUCER_}.
+   */
+  private static boolean rehierarchizeLevels( final List< SyntacticTree > children ) {
+    // We scan children.
+    // If there is one LEVEL_INTRODUCER_ then we do special stuff on it.
+    final List< SyntacticTree > rehierarchized =
+        Lists.newArrayListWithCapacity( children.size() ) ;
+    final Siblings siblings = new Siblings( children ) ;
+    boolean first = true ;
+    while( siblings.hasNext() ) {
+      if( siblings.peek().isOneOf( LEVEL_INTRODUCER_ ) ) {
         final int roof ;
         if( first ) {
           first = false ;
-          roof = getLevelIntroducerDepth( currentTreepath.getTreeAtEnd() ) ;
+          roof = getLevelIntroducerDepth( siblings.peek() ) ;
         } else {
           roof = 0 ;
         }
-        currentTreepath = rehierarchizeThisLevel( currentTreepath, roof ) ;
-      }
-      if( TreepathTools.hasNextSibling( currentTreepath ) ) {
-        currentTreepath = TreepathTools.getNextSibling( currentTreepath ) ;
+        rehierarchized.add( rehierarchizeThisLevel( siblings, roof ) ) ;
       } else {
-        return currentTreepath.getPrevious() ;
+        rehierarchized.add( siblings.next() ) ;
       }
     }
-
-
+    if( first ) {
+      return false ;
+    } else {
+      children.clear() ;
+      children.addAll( rehierarchized ) ;
+      return true ;
+    }
   }
 
   /**
-   * Given a {@code Treepath} to a {@link NodeKind#LEVEL_INTRODUCER_}, returns
-   * another {@code Treepath} to a a {@link NodeKind#_LEVEL} node where
-   * the Level Introducer and all following nodes are collapsed into.
+   * Given {@link Siblings} on a {@link NodeKind#LEVEL_INTRODUCER_}, returns
+   * a {@link NodeKind#_LEVEL} node where the Level Introducer and all following nodes are
+   * collapsed into.
    * <p>
    * Here is how it works.
    * The {@code levelIntroducer} "eats" following siblings that should be children of the
    * level it represents. They get collapsed in the {@link NodeKind#_LEVEL} node.
-   * Because {@code Treepath} is an immutable structure, it's important to have only one
-   * instance at a time to perform changes on.
-   * Because the {@code Treepath} doesn't allow to keep references on trees, we use index
-   * when needed.
+   * Siblings are read only once, and the {@link NodeKind#_LEVEL} node only gets built
+   * when complete.
    *
-   * @param levelIntroducer a non-null {@code Treepath} with a minimum depth of 2.
+   * @param siblings a non-null object with a {@link NodeKind#LEVEL_INTRODUCER_} as next
+   *     sibling, moved past the last collapsed sibling on return.
    * @param roof the minimum depth, use 0 to ignore.
    * @return a non-null object.
    */
-  private static Treepath< SyntacticTree > rehierarchizeThisLevel(
-      Treepath< SyntacticTree > levelIntroducer,
+  private static SyntacticTree rehierarchizeThisLevel(
+      final Siblings siblings,
       final int roof
   ) {
-    final int depth = getLevelIntroducerDepth( levelIntroducer.getTreeAtEnd() ) ;
-    final int introducerIndex = levelIntroducer.getIndexInPrevious() ;
-    final SyntacticTree levelIntroducerTree = levelIntroducer.getTreeAtEnd() ;
-    SyntacticTree levelTree = new SimpleTree( _LEVEL, levelIntroducerTree.getLocation() ) ;
-
-    while( true ) {
-
-      if( TreepathTools.hasNextSibling( levelIntroducer ) ) {
-        // Jump to sibling  at the start of the loop because on first iteration,
-        // levelIntroducerTreepath refers to the introducer itself.
-        final Treepath< SyntacticTree > next = TreepathTools.getNextSibling( levelIntroducer ) ;
-        final SyntacticTree nextTree = next.getTreeAtEnd() ;
-
-        if( LEVEL_INTRODUCER_ == NodeKindTools.ofRoot( nextTree ) ) {
-
-          final int newDepth = getLevelIntroducerDepth( nextTree ) ;
-          if( newDepth < roof ) {
-            throw new IllegalArgumentException(
-                "Incorrect depth [" + newDepth + "] " +
-                "for level declaration " + nextTree.getLocation()
-            ) ;
-          }
-
-          if( newDepth > depth ) {    // An introducer of bigger depth is processed then added.
-            // We get a treepath to new sublevel, with collapsed subcontent.
-            final Treepath< SyntacticTree > plainLevel = rehierarchizeThisLevel( next, 0 ) ;
-            // Jump backward to our introducer, deleting the sublevel to avoid duplicates.
-            levelIntroducer = TreepathTools.getSiblingAt( plainLevel, introducerIndex ) ;
-            levelIntroducer = TreepathTools.removeNextSibling( levelIntroducer ) ;
-            // Anyway the sublevel wasn't lost!
-            levelTree = TreeTools.addLast( levelTree, plainLevel.getTreeAtEnd() ) ;
-            
-          } else  {                   // Same depth or less means we're done with this one.
-            return substitute( levelIntroducer, levelTree ) ;
-          }
+    final SyntacticTree levelIntroducerTree = siblings.next() ;
+    final int depth = getLevelIntroducerDepth( levelIntroducerTree ) ;
+    final TransientTree< SyntacticTree > levelTree = TransientTree.childless(
+        ( SyntacticTree ) new SimpleTree( _LEVEL, levelIntroducerTree.getLocation() ) ) ;
+    substitute( levelIntroducerTree, levelTree ) ;
+
+    while( siblings.hasNext() ) {
+      final SyntacticTree nextTree = siblings.peek() ;
+
+      if( LEVEL_INTRODUCER_ == NodeKindTools.ofRoot( nextTree ) ) {
+
+        final int newDepth = getLevelIntroducerDepth( nextTree ) ;
+        if( newDepth < roof ) {
+          throw new IllegalArgumentException(
+              "Incorrect depth [" + newDepth + "] " +
+              "for level declaration " + nextTree.getLocation()
+          ) ;
+        }
 
-        } else {
-          // Just eat the next sibling, moving it to current level.
-          levelIntroducer = TreepathTools.removeNextSibling( levelIntroducer ) ;
-          levelTree = TreeTools.addLast( levelTree, nextTree ) ;
+        if( newDepth > depth ) {    // An introducer of bigger depth is processed then added.
+          levelTree.addChildLast( rehierarchizeThisLevel( siblings, 0 ) ) ;
+        } else  {                   // Same depth or less means we're done with this one.
+          break ;
         }
 
       } else {
-        return substitute( levelIntroducer, levelTree ) ;
+        // Just eat the next sibling, moving it to current level.
+        levelTree.addChildLast( siblings.next() ) ;
       }
     }
+    return levelTree.freeze() ;
   }
 
   /**
-   * Replace the {@link NodeKind#LEVEL_INTRODUCER_} at the end of the treepath by a
-   * {@link NodeKind#_LEVEL}, while retaining all of introducer's children except
-   * {@link NodeKind#LEVEL_INTRODUCER_INDENT_}.
+   * Adds all of introducer's children except {@link NodeKind#LEVEL_INTRODUCER_INDENT_}
+   * to the {@link NodeKind#_LEVEL} replacing it, in reverse order (as successive insertions
+   * at first position used to do).
    */
-  private static Treepath< SyntacticTree > substitute(
-      final Treepath< SyntacticTree > levelIntroducer,
-      SyntacticTree levelTree
+  private static void substitute(
+      final SyntacticTree levelIntroducer,
+      final TransientTree< SyntacticTree > levelTree
   ) {
-    for( final SyntacticTree child : levelIntroducer.getTreeAtEnd().getChildren() ) {
+    for( int i = levelIntroducer.getChildCount() - 1 ; i >= 0 ; i -- ) {
+      final SyntacticTree child = levelIntroducer.getChildAt( i ) ;
       if( ! child.isOneOf( LEVEL_INTRODUCER_INDENT_ ) ) {
-        levelTree = TreeTools.addFirst( levelTree, child ) ;
+        levelTree.addChildLast( child ) ;
       }
     }
-    final Treepath< SyntacticTree > treepathWithoutIntroducer = 
-        TreepathTools.replaceTreepathEnd( levelIntroducer, levelTree ) ;
-    return treepathWithoutIntroducer ;
+  }
+
+  /**
+   * Reads children of a {@link SyntacticTree} in sequence.
+   */
+  private static class Siblings {
+    private final List< SyntacticTree > children ;
+    private int index = 0 ;
+
+    public Siblings( final List< SyntacticTree > children ) {
+      this.children = children ;
+    }
+
+    public boolean hasNext() {
+      return index < children.size() ;
+    }
+
+    public SyntacticTree peek() {
+      return children.get( index ) ;
+    }
+
+    public SyntacticTree next() {
+      return children.get( index ++ ) ;
+    }
   }
 
 
@@ -16,11 +16,15 @@
  */
 package org.novelang.treemangling;
 
+import static org.novelang.parser.NodeKind.LEVEL_INTRODUCER_;
+import static org.novelang.parser.NodeKind.PARAGRAPHS_INSIDE_ANGLED_BRACKET_PAIRS;
+import static org.novelang.parser.NodeKind._LEVEL;
 import static org.novelang.parser.NodeKind._LIST_WITH_DOUBLE_HYPHEN_AND_NUMBER_SIGN;
 import static org.novelang.parser.NodeKind._LIST_WITH_TRIPLE_HYPHEN;
 
 import org.novelang.common.SimpleTree;
 import org.novelang.common.SyntacticTree;
+import org.novelang.common.tree.TransientTree;
 import org.novelang.common.tree.Treepath;
 import org.novelang.common.tree.TreepathTools;
 import org.novelang.parser.NodeKind;
@@ -45,65 +49,59 @@ public class ListMangler {
       final Treepath< SyntacticTree > parent
   ) {
     if( parent.getTreeAtEnd().getChildCount() > 0 ) {
-      Treepath< SyntacticTree > child = Treepath.create( parent, 0 ) ;
-      NodeKind insideList = null ;
-      while( true ) {
-        final NodeKind nodeKind = getKind( child ) ;
-        if( nodeKind != null ) {
-          switch( nodeKind ) { // TODO: factorize.
-            case PARAGRAPH_AS_LIST_ITEM_WITH_TRIPLE_HYPHEN_:
-              if( insideList == _LIST_WITH_TRIPLE_HYPHEN ) {
-                child = TreepathTools.becomeLastChildOfPreviousSibling( child ).getPrevious() ;
-                break ;
-              } else {
-                final SyntacticTree list =
-                    new SimpleTree( _LIST_WITH_TRIPLE_HYPHEN, child.getTreeAtEnd() ) ;
-                child = TreepathTools.replaceTreepathEnd( child, list ) ;
-                insideList = _LIST_WITH_TRIPLE_HYPHEN ;
-              }
-              break ;
-            case PARAGRAPH_AS_LIST_ITEM_WITH_DOUBLE_HYPHEN_AND_NUMBER_SIGN:
-              if( insideList == _LIST_WITH_DOUBLE_HYPHEN_AND_NUMBER_SIGN ) {
-                child = TreepathTools.becomeLastChildOfPreviousSibling( child ).getPrevious() ;
-                break ;
-              } else {
-                final SyntacticTree list =
-                    new SimpleTree( _LIST_WITH_DOUBLE_HYPHEN_AND_NUMBER_SIGN, child.getTreeAtEnd() ) ;
-                child = TreepathTools.replaceTreepathEnd( child, list ) ;
-                insideList = _LIST_WITH_DOUBLE_HYPHEN_AND_NUMBER_SIGN ;
-              }
-              break ;
-            case _LEVEL :
-            case LEVEL_INTRODUCER_:
-            case PARAGRAPHS_INSIDE_ANGLED_BRACKET_PAIRS :
-              child = rehierarchizeLists( child ) ;
-            default :
-              insideList = null ;
-              break ;
-          }
-        }
-        if( TreepathTools.hasNextSibling( child ) ) {
-          child = TreepathTools.getNextSibling( child ) ;
-        } else {
-          break ;
-        }
-      }
-      return child.getPrevious() ;
+      return TreepathTools.replaceTreepathEnd(
+          parent, rehierarchizeLists( parent.getTreeAtEnd() ) ) ;
     } else {
       return parent ;
     }
   }
 
-
-
-
-  private static NodeKind getKind( final Treepath< SyntacticTree > treepath ) {
-
-    final SyntacticTree tree = treepath.getTreeAtEnd() ;
-    final NodeKind nodeKind = tree.getNodeKind() ;
-    return nodeKind ;
+  /**
+   * Rebuilds children of given tree in one pass, so a long list costs no more than a short one
+   * for each of its items.
+   */
+  private static SyntacticTree rehierarchizeLists( final SyntacticTree parent ) {
+    final TransientTree< SyntacticTree > rehierarchized = TransientTree.childless( parent ) ;
+    NodeKind insideList = null ;
+    TransientTree< SyntacticTree > list = null ;
+    for( final SyntacticTree child : parent.getChildren() ) {
+      final NodeKind listKind = getListKind( child.getNodeKind() ) ;
+      if( listKind == null ) {
+        insideList = null ;
+        if( child.isOneOf( _LEVEL, LEVEL_INTRODUCER_, PARAGRAPHS_INSIDE_ANGLED_BRACKET_PAIRS )
+            && child.getChildCount() > 0
+        ) {
+          rehierarchized.addChildLast( rehierarchizeLists( child ) ) ;
+        } else {
+          rehierarchized.addChildLast( child ) ;
+        }
+      } else {
+        if( insideList != listKind ) {
+          list = TransientTree.childless( ( SyntacticTree ) new SimpleTree( listKind ) ) ;
+          rehierarchized.addChildLast( list ) ;
+          insideList = listKind ;
+        }
+        list.addChildLast( child ) ;
+      }
+    }
+    return rehierarchized.freeze() ;
   }
 
-
+  /**
+   * @return the kind of the list wrapping given list item, or null if not a list item.
+   */
+  private static NodeKind getListKind( final NodeKind nodeKind ) {
+    if( nodeKind == null ) {
+      return null ;
+    }
+    switch( nodeKind ) {
+      case PARAGRAPH_AS_LIST_ITEM_WITH_TRIPLE_HYPHEN_ :
+        return _LIST_WITH_TRIPLE_HYPHEN ;
+      case PARAGRAPH_AS_LIST_ITEM_WITH_DOUBLE_HYPHEN_AND_NUMBER_SIGN :
+        return _LIST_WITH_DOUBLE_HYPHEN_AND_NUMBER_SIGN ;
+      default :
+        return null ;
+    }
+  }
 
 }
\ No newline at end of file
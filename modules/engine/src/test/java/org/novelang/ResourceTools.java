@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -49,12 +50,15 @@ import org.novelang.configuration.RenderingConfiguration;
 import org.novelang.configuration.RenditionKinematic;
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
+import org.novelang.novella.NovellaCache;
 import org.novelang.outfit.DefaultCharset;
 import org.novelang.outfit.loader.ClasspathResourceLoader;
 import org.novelang.outfit.loader.CompositeResourceLoader;
 import org.novelang.outfit.loader.ResourceLoader;
 import org.novelang.outfit.loader.ResourceName;
 import org.novelang.outfit.loader.UrlResourceLoader;
+import org.novelang.rendering.PdfRenderingService;
+import org.novelang.rendering.RenditionMimeType;
 
 /**
  * Utility class for dealing with test-dedicated resources.
@@ -237,6 +241,11 @@ public final class ResourceTools {
               return FopFactory.newInstance() ;
             }
 
+            @Override
+            public PdfRenderingService getPdfRenderingService() {
+              return new PdfRenderingService( getFopFactory() ) ;
+            }
+
             @Override
             public FopFontStatus getCurrentFopFontStatus() {
               final Iterable<EmbedFontInfo> fontInfo = ImmutableList.of() ;
@@ -269,6 +278,10 @@ public final class ResourceTools {
             public Charset getSourceCharset() {
               return DefaultCharset.SOURCE ;
             }
+            @Override
+            public NovellaCache getNovellaCache() {
+              return NovellaCache.DISABLED ;
+            }
           } ;
         }
 
@@ -360,6 +373,26 @@ public final class ResourceTools {
       public boolean getServeRemotes() {
         return true ;
       }
+
+      @Override
+      public int getRenditionCacheCapacity() {
+        return 0 ;
+      }
+
+      @Override
+      public int getRenderingConcurrency() {
+        return ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCY ;
+      }
+
+      @Override
+      public Map< RenditionMimeType, Integer > getRenderingConcurrencies() {
+        return ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCIES ;
+      }
+
+      @Override
+      public int getRenderingQueueCapacity() {
+        return ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_QUEUE ;
+      }
     } ;
 
   }
@@ -390,6 +423,26 @@ public final class ResourceTools {
       public boolean getServeRemotes() {
         return true ;
       }
+
+      @Override
+      public int getRenditionCacheCapacity() {
+        return 0 ;
+      }
+
+      @Override
+      public int getRenderingConcurrency() {
+        return ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCY ;
+      }
+
+      @Override
+      public Map< RenditionMimeType, Integer > getRenderingConcurrencies() {
+        return ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_CONCURRENCIES ;
+      }
+
+      @Override
+      public int getRenderingQueueCapacity() {
+        return ConfigurationTools.DEFAULT_HTTP_DAEMON_RENDERING_QUEUE ;
+      }
     } ;
 
   }
@@ -68,6 +68,94 @@ public class BatchTest {
     assertThat( renderedDocument.exists() ).isTrue() ;
   }
 
+  @Test
+  public void keepUpToDateDocumentAndRenderChangedOneAgain() throws Exception {
+    final Resource resource = ResourcesForTests.Served.GOOD_PART;
+    final File sourceFile = resourceInstaller.copy( resource ) ;
+    final String renderedDocumentName = resource.getBaseName() + "." + MIME_FILE_EXTENSION ;
+    final DocumentGeneratorParameters generatorParameters = DocumentGenerator.createParameters(
+        new String[]{ "/" + renderedDocumentName }, resourceInstaller.getTargetDirectory() ) ;
+    new DocumentGenerator().main( generatorParameters ) ;
+    final File renderedDocument = new File(
+        new File(
+            resourceInstaller.getTargetDirectory(),
+            ConfigurationTools.DEFAULT_OUTPUT_DIRECTORY_NAME
+        ),
+        renderedDocumentName
+    ) ;
+
+    FileUtils.writeStringToFile( renderedDocument, KEPT_CONTENT ) ;
+    new DocumentGenerator().main( generatorParameters ) ;
+    assertThat( FileUtils.readFileToString( renderedDocument ) ).isEqualTo( KEPT_CONTENT ) ;
+
+    FileUtils.writeStringToFile(
+        sourceFile,
+        FileUtils.readFileToString( sourceFile, "UTF-8" ) + "\n\nAdded paragraph.\n",
+        "UTF-8"
+    ) ;
+    new DocumentGenerator().main( generatorParameters ) ;
+    assertThat( FileUtils.readFileToString( renderedDocument ) ).isNotEqualTo( KEPT_CONTENT ) ;
+  }
+
+  @Test
+  public void generateConcurrentlyAndReportProblemsInRequestOrder() throws Exception {
+    final File goodFile = resourceInstaller.copy( ResourcesForTests.Served.GOOD_PART ) ;
+    final File brokenFile = resourceInstaller.copy( ResourcesForTests.Served.BROKEN_NOVELLA ) ;
+    final File otherGoodFile = copyAs( goodFile, "good2" ) ;
+    final File otherBrokenFile = copyAs( brokenFile, "broken2" ) ;
+
+    final GenerationFailedException exception = generateAndFail(
+        "--parallelism", "2",
+        requestFor( otherBrokenFile ),
+        requestFor( goodFile ),
+        requestFor( brokenFile ),
+        requestFor( otherGoodFile )
+    ) ;
+
+    assertThat( renderedFileFor( goodFile ).exists() ).isTrue() ;
+    assertThat( renderedFileFor( otherGoodFile ).exists() ).isTrue() ;
+    final String message = exception.getMessage() ;
+    assertThat( message ).contains( otherBrokenFile.getName() ) ;
+    assertThat( message.indexOf( brokenFile.getName() ) )
+        .isGreaterThan( message.indexOf( otherBrokenFile.getName() ) ) ;
+    assertThat( getProblemsFile().exists() ).isTrue() ;
+  }
+
+  @Test
+  public void failFastSkipsRemainingRequests() throws Exception {
+    final File brokenFile = resourceInstaller.copy( ResourcesForTests.Served.BROKEN_NOVELLA ) ;
+    final File otherBrokenFile = copyAs( brokenFile, "broken2" ) ;
+    final File goodFile = resourceInstaller.copy( ResourcesForTests.Served.GOOD_PART ) ;
+
+    final GenerationFailedException exception = generateAndFail(
+        "--fail-fast",
+        requestFor( brokenFile ),
+        requestFor( otherBrokenFile ),
+        requestFor( goodFile )
+    ) ;
+
+    assertThat( exception.getMessage() ).contains( brokenFile.getName() ) ;
+    assertThat( exception.getMessage() ).excludes( otherBrokenFile.getName() ) ;
+    assertThat( renderedFileFor( goodFile ).exists() ).isFalse() ;
+    assertThat( getProblemsFile().exists() ).isTrue() ;
+  }
+
+  @Test
+  public void failFastWithParallelismWritesProblems() throws Exception {
+    final File brokenFile = resourceInstaller.copy( ResourcesForTests.Served.BROKEN_NOVELLA ) ;
+    final File goodFile = resourceInstaller.copy( ResourcesForTests.Served.GOOD_PART ) ;
+
+    final GenerationFailedException exception = generateAndFail(
+        "--parallelism", "2",
+        "--fail-fast",
+        requestFor( brokenFile ),
+        requestFor( goodFile )
+    ) ;
+
+    assertThat( exception.getMessage() ).contains( brokenFile.getName() ) ;
+    assertThat( getProblemsFile().exists() ).isTrue() ;
+  }
+
   @Test
   public void generateMultipageDocumentOk() throws Exception {
     runMultipageRendering( ResourcesForTests.Multipage.MULTIPAGE_XSL ) ;
@@ -100,7 +188,50 @@ public class BatchTest {
 
   private static final String MIME_FILE_EXTENSION = RenditionMimeType.NOVELLA.getFileExtension() ;
 
+  /**
+   * Replaces a rendered document to tell if it was rendered again.
+   */
+  private static final String KEPT_CONTENT = "Not rendered again" ;
+
+
 
+  private File copyAs( final File file, final String baseName ) throws IOException {
+    final File copy = new File( file.getParentFile(), baseName + "." + MIME_FILE_EXTENSION ) ;
+    FileUtils.copyFile( file, copy ) ;
+    return copy ;
+  }
+
+  private static String requestFor( final File sourceFile ) {
+    return "/" + sourceFile.getName() ;
+  }
+
+  private File renderedFileFor( final File sourceFile ) {
+    return new File( getOutputDirectory(), sourceFile.getName() ) ;
+  }
+
+  private File getOutputDirectory() {
+    return new File(
+        resourceInstaller.getTargetDirectory(),
+        ConfigurationTools.DEFAULT_OUTPUT_DIRECTORY_NAME
+    ) ;
+  }
+
+  private File getProblemsFile() {
+    return new File( getOutputDirectory(), AbstractDocumentGenerator.PROBLEMS_FILENAME ) ;
+  }
+
+  private GenerationFailedException generateAndFail( final String... arguments )
+      throws Exception
+  {
+    final DocumentGeneratorParameters generatorParameters = DocumentGenerator.createParameters(
+        arguments, resourceInstaller.getTargetDirectory() ) ;
+    try {
+      new DocumentGenerator().main( generatorParameters ) ;
+    } catch( GenerationFailedException e ) {
+      return e ;
+    }
+    throw new AssertionError( "Should have failed" ) ;
+  }
 
   private void runMultipageRendering(
       final Resource stylesheetResource,
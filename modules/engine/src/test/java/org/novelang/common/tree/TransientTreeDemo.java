@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.common.tree;
+
+import org.junit.Test;
+
+import org.novelang.common.SimpleTree;
+import org.novelang.common.SyntacticTree;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.parser.NodeKind;
+
+/**
+ * Compares the time for appending paragraphs into the last level of a book, like
+ * {@link org.novelang.opus.function.builtin.InsertCommand} does, with
+ * {@link TreepathTools#addChildLast(Treepath, Tree)} and with {@link TransientTree}.
+ * Time per paragraph should stay flat with {@link TransientTree} when paragraph count grows.
+ *
+ * @author Laurent Caillette
+ */
+public class TransientTreeDemo {
+
+  @Test
+  public void appendParagraphs() {
+    for( int paragraphCount = 1000 ; paragraphCount <= MAXIMUM_PARAGRAPH_COUNT ;
+         paragraphCount *= 2
+    ) {
+      final long copyOnChange = appendWithTreepathTools( paragraphCount ) ;
+      final long transientTree = appendWithTransientTree( paragraphCount ) ;
+      LOGGER.info(
+          "Appended ", paragraphCount, " paragraphs: ",
+          "TreepathTools ", copyOnChange / paragraphCount, " ns/paragraph, ",
+          "TransientTree ", transientTree / paragraphCount, " ns/paragraph."
+      ) ;
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( TransientTreeDemo.class ) ;
+
+  private static final int MAXIMUM_PARAGRAPH_COUNT = 16000 ;
+
+  private static final SyntacticTree PARAGRAPH = new SimpleTree(
+      NodeKind.PARAGRAPH_REGULAR, new SimpleTree( NodeKind.WORD_, new SimpleTree( "w" ) ) ) ;
+
+  private static SyntacticTree createBook() {
+    return new SimpleTree(
+        NodeKind.OPUS,
+        new SimpleTree( NodeKind._LEVEL, new SimpleTree( NodeKind._LEVEL ) )
+    ) ;
+  }
+
+  private static long appendWithTreepathTools( final int paragraphCount ) {
+    final long start = System.nanoTime() ;
+    Treepath< SyntacticTree > level = Treepath.create( createBook(), 0, 0 ) ;
+    for( int i = 0 ; i < paragraphCount ; i ++ ) {
+      level = TreepathTools.addChildLast( level, PARAGRAPH ).getPrevious() ;
+    }
+    level.getTreeAtStart() ;
+    return System.nanoTime() - start ;
+  }
+
+  private static long appendWithTransientTree( final int paragraphCount ) {
+    final long start = System.nanoTime() ;
+    final TransientTree< SyntacticTree > book = TransientTree.of( createBook() ) ;
+    final TransientTree< SyntacticTree > level = book.editChildAt( 0 ).editChildAt( 0 ) ;
+    for( int i = 0 ; i < paragraphCount ; i ++ ) {
+      level.addChildLast( PARAGRAPH ) ;
+    }
+    book.freeze() ;
+    return System.nanoTime() - start ;
+  }
+
+}
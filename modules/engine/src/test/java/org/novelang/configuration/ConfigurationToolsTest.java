@@ -256,7 +256,8 @@ public class ConfigurationToolsTest {
   @Test
   public void createContentConfiguration() throws ArgumentException {
     final ContentConfiguration contentConfiguration =
-        ConfigurationTools.createContentConfiguration( createDaemonParameters() ) ;
+        ConfigurationTools.createContentConfiguration(
+            createDaemonParameters(), RenditionKinematic.DAEMON ) ;
     Assert.assertEquals( scratchDirectory, contentConfiguration.getContentRoot() ) ; 
   }
 
@@ -266,7 +267,8 @@ public class ConfigurationToolsTest {
         ConfigurationTools.createContentConfiguration( createDaemonParameters(
             OPTIONPREFIX + OPTIONNAME_CONTENT_ROOT,
             someEmptyContentDirectory.getName()             
-        ) 
+        ),
+        RenditionKinematic.DAEMON
     ) ;
     Assert.assertEquals( someEmptyContentDirectory, contentConfiguration.getContentRoot() ) ; 
   }
@@ -280,7 +282,7 @@ public class ConfigurationToolsTest {
         MAC_ROMAN.name()
     ) ;
     final ContentConfiguration contentConfiguration = ConfigurationTools
-        .createContentConfiguration( parameters ) ;
+        .createContentConfiguration( parameters, RenditionKinematic.DAEMON ) ;
     Assert.assertNotNull( contentConfiguration.getSourceCharset() ) ;
     Assert.assertEquals( MAC_ROMAN, contentConfiguration.getSourceCharset() ) ;
   }
@@ -19,6 +19,7 @@ package org.novelang.configuration.parse;
 import java.io.File;
 import java.util.Iterator;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.ClassUtils;
 import org.fest.assertions.Assertions;
@@ -32,6 +33,7 @@ import org.novelang.logger.LoggerFactory;
 import org.novelang.produce.DocumentRequest;
 import org.novelang.produce.GenericRequest;
 import org.novelang.produce.MalformedRequestException;
+import org.novelang.rendering.RenditionMimeType;
 import org.novelang.testing.junit.MethodSupport;
 
 /**
@@ -180,6 +182,36 @@ public class ParametersTest {
     ) ;
   }
 
+  @Test
+  public void renderingConcurrencyPerRenditionType() throws ArgumentException {
+    final String[] arguments = { "--rendering-concurrency", "4,pdf=1" } ;
+    final DaemonParameters parameters = new DaemonParameters( scratchDirectory, arguments ) ;
+    Assertions.assertThat( parameters.getRenderingConcurrency() ).isEqualTo( 4 ) ;
+    Assertions.assertThat( parameters.getRenderingConcurrencies() )
+        .isEqualTo( ImmutableMap.of( RenditionMimeType.PDF, 1 ) ) ;
+  }
+
+  @Test( expected = ArgumentException.class )
+  public void badRenditionTypeForRenderingConcurrency() throws ArgumentException {
+    final String[] arguments = { "--rendering-concurrency", "doc=1" } ;
+    new DaemonParameters( scratchDirectory, arguments ) ;
+  }
+
+  @Test
+  public void parallelismAndFailFast() throws ArgumentException {
+    final String[] arguments = { "--parallelism", "3", "--fail-fast", OUTPUT_FILE_NAME } ;
+    final DocumentGeneratorParameters batchParameters =
+        new DocumentGeneratorParameters( scratchDirectory, arguments ) ;
+    Assertions.assertThat( batchParameters.getParallelism() ).isEqualTo( 3 ) ;
+    Assertions.assertThat( batchParameters.getFailFast() ).isEqualTo( Boolean.TRUE ) ;
+  }
+
+  @Test( expected = ArgumentException.class )
+  public void badParallelism() throws ArgumentException {
+    final String[] arguments = { "--parallelism", "0", OUTPUT_FILE_NAME } ;
+    new DocumentGeneratorParameters( scratchDirectory, arguments ) ;
+  }
+
   @Test
   public void batchParametersWantDocumentRequests() {
     final String[] arguments = NO_PARAMETERS;
@@ -191,6 +223,19 @@ public class ParametersTest {
     }
   }
 
+  @Test( expected = ArgumentException.class )
+  public void workerParametersRejectDocumentRequests() throws ArgumentException {
+    final String[] arguments = { OUTPUT_FILE_NAME } ;
+    new DocumentGeneratorWorkerParameters( scratchDirectory, arguments ) ;
+  }
+
+  @Test
+  public void workerParametersWithoutDocumentRequest() throws ArgumentException {
+    final DocumentGeneratorWorkerParameters parameters =
+        new DocumentGeneratorWorkerParameters( scratchDirectory, NO_PARAMETERS ) ;
+    assertNull( parameters.getContentRoot() ) ;
+  }
+
   @Test
   public void temporaryDirectory() throws ArgumentException {
     final String[] arguments = { DASHED_TEMPORARY_DIR, "my-temporary-directory" } ;
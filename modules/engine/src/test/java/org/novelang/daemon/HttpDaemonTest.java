@@ -20,10 +20,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import static com.google.common.base.Charsets.ISO_8859_1;
@@ -187,6 +189,112 @@ public class HttpDaemonTest {
       HttpDaemonFixture.checkDirectoryListing( responseSnapshot, resource ) ;
   }
 
+  @Test
+  public void fileResourceWithConditionalGetAndRange() throws Exception {
+    final String content = "<svg xmlns='http://www.w3.org/2000/svg'/>" ;
+    FileUtils.writeStringToFile(
+        new File( support.resourceInstaller.getTargetDirectory(), "image.svg" ), content ) ;
+    support.setup() ;
+    final DefaultHttpClient httpClient = new DefaultHttpClient() ;
+
+    final HttpResponse fullResponse = httpClient.execute( support.createHttpGet( "/image.svg" ) ) ;
+    assertThat( EntityUtils.toString( fullResponse.getEntity() ) ).isEqualTo( content ) ;
+    assertThat( fullResponse.getStatusLine().getStatusCode() ).isEqualTo( 200 ) ;
+    final String eTag = fullResponse.getFirstHeader( "ETag" ).getValue() ;
+
+    final HttpGet conditionalGet = support.createHttpGet( "/image.svg" ) ;
+    conditionalGet.setHeader( "If-None-Match", eTag ) ;
+    final HttpResponse notModifiedResponse = httpClient.execute( conditionalGet ) ;
+    if( notModifiedResponse.getEntity() != null ) {
+      notModifiedResponse.getEntity().consumeContent() ;
+    }
+    assertThat( notModifiedResponse.getStatusLine().getStatusCode() ).isEqualTo( 304 ) ;
+
+    final HttpGet rangeGet = support.createHttpGet( "/image.svg" ) ;
+    rangeGet.setHeader( "Range", "bytes=1-3" ) ;
+    final HttpResponse partialResponse = httpClient.execute( rangeGet ) ;
+    assertThat( EntityUtils.toString( partialResponse.getEntity() ) ).isEqualTo( "svg" ) ;
+    assertThat( partialResponse.getStatusLine().getStatusCode() ).isEqualTo( 206 ) ;
+  }
+
+  @Test
+  public void gzippedBundledResourceHasItsOwnETag() throws Exception {
+    support.setup() ;
+    final DefaultHttpClient httpClient = new DefaultHttpClient() ;
+
+    final HttpGet gzipGet = support.createHttpGet( "/display.css" ) ;
+    gzipGet.setHeader( "Accept-Encoding", "gzip" ) ;
+    final HttpResponse gzipResponse = httpClient.execute( gzipGet ) ;
+    gzipResponse.getEntity().consumeContent() ;
+    assertThat( gzipResponse.getFirstHeader( "Content-Encoding" ).getValue() )
+        .isEqualTo( "gzip" ) ;
+    final String gzipETag = gzipResponse.getFirstHeader( "ETag" ).getValue() ;
+
+    final HttpGet identityGet = support.createHttpGet( "/display.css" ) ;
+    identityGet.setHeader( "If-None-Match", gzipETag ) ;
+    final HttpResponse identityResponse = httpClient.execute( identityGet ) ;
+    identityResponse.getEntity().consumeContent() ;
+    assertThat( identityResponse.getStatusLine().getStatusCode() ).isEqualTo( 200 ) ;
+    assertNull( identityResponse.getFirstHeader( "Content-Encoding" ) ) ;
+    assertThat( identityResponse.getFirstHeader( "ETag" ).getValue() ).isNotEqualTo( gzipETag ) ;
+  }
+
+  @Test
+  public void streamedDocumentHasETag() throws Exception {
+    final Resource resource = ResourcesForTests.Served.GOOD_PART ;
+    final File sourceFile = support.resourceInstaller.copy( resource ) ;
+    // Sources modified during the build second are not trustworthy.
+    assertTrue( sourceFile.setLastModified( System.currentTimeMillis() - 10000L ) ) ;
+    support.setup() ;
+    final DefaultHttpClient httpClient = new DefaultHttpClient() ;
+    final String requestAsString = "/" + resource.getBaseName() + HttpDaemonFixture.HTML ;
+
+    final HttpResponse fullResponse = httpClient.execute(
+        support.createHttpGet( requestAsString ) ) ;
+    EntityUtils.toString( fullResponse.getEntity() ) ;
+    assertThat( fullResponse.getStatusLine().getStatusCode() ).isEqualTo( 200 ) ;
+    final Header eTagHeader = fullResponse.getFirstHeader( "ETag" ) ;
+    assertNotNull( eTagHeader ) ;
+
+    final HttpGet conditionalGet = support.createHttpGet( requestAsString ) ;
+    conditionalGet.setHeader( "If-None-Match", eTagHeader.getValue() ) ;
+    final HttpResponse notModifiedResponse = httpClient.execute( conditionalGet ) ;
+    if( notModifiedResponse.getEntity() != null ) {
+      notModifiedResponse.getEntity().consumeContent() ;
+    }
+    assertThat( notModifiedResponse.getStatusLine().getStatusCode() ).isEqualTo( 304 ) ;
+  }
+
+  @Test
+  public void ifNoneMatchWithListOfETags() throws Exception {
+    final Resource resource = ResourcesForTests.Served.GOOD_PART ;
+    final File sourceFile = support.resourceInstaller.copy( resource ) ;
+    // Sources modified during the build second are not trustworthy.
+    assertTrue( sourceFile.setLastModified( System.currentTimeMillis() - 10000L ) ) ;
+    support.setup() ;
+    final DefaultHttpClient httpClient = new DefaultHttpClient() ;
+    final String requestAsString = "/" + resource.getBaseName() + HttpDaemonFixture.HTML ;
+
+    final HttpResponse fullResponse = httpClient.execute(
+        support.createHttpGet( requestAsString ) ) ;
+    EntityUtils.toString( fullResponse.getEntity() ) ;
+    final String eTag = fullResponse.getFirstHeader( "ETag" ).getValue() ;
+
+    final HttpGet conditionalGet = support.createHttpGet( requestAsString ) ;
+    conditionalGet.setHeader( "If-None-Match", "\"whatever\", W/" + eTag ) ;
+    final HttpResponse notModifiedResponse = httpClient.execute( conditionalGet ) ;
+    if( notModifiedResponse.getEntity() != null ) {
+      notModifiedResponse.getEntity().consumeContent() ;
+    }
+    assertThat( notModifiedResponse.getStatusLine().getStatusCode() ).isEqualTo( 304 ) ;
+
+    final HttpGet otherConditionalGet = support.createHttpGet( requestAsString ) ;
+    otherConditionalGet.setHeader( "If-None-Match", "\"whatever\", \"nothing\"" ) ;
+    final HttpResponse otherResponse = httpClient.execute( otherConditionalGet ) ;
+    EntityUtils.toString( otherResponse.getEntity() ) ;
+    assertThat( otherResponse.getStatusLine().getStatusCode() ).isEqualTo( 200 ) ;
+  }
+
   @Test
   public void listDirectoryContentNoTrailingSolidus() throws Exception {
     final Resource resource = ResourcesForTests.Served.GOOD_PART;
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.io.File;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.common.Renderable;
+import org.novelang.novella.Novella;
+import org.novelang.outfit.DefaultCharset;
+import org.novelang.outfit.loader.ResourceStamp;
+import org.novelang.produce.DocumentRequest;
+import org.novelang.produce.GenericRequest;
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link RenderableStore}.
+ *
+ * @author Laurent Caillette
+ */
+public class RenderableStoreTest {
+
+  @Test
+  public void takeOnceFromProblemPage() throws Exception {
+    final RenderableStore store = new RenderableStore() ;
+    final Renderable renderable = createRenderable() ;
+
+    store.put( parse( "/book.html" ), renderable, 0L, NO_SOURCE ) ;
+
+    final RenderableStore.Stored stored = store.take( parse( "/book.html/error.html" ) ) ;
+    assertThat( stored.getRenderable() ).isSameAs( renderable ) ;
+    assertThat( store.take( parse( "/book.html/error.html" ) ) ).isNull() ;
+  }
+
+  @Test
+  public void tagsMatter() throws Exception {
+    final RenderableStore store = new RenderableStore() ;
+
+    store.put( parse( "/book.html?tags=t1" ), createRenderable(), 0L, NO_SOURCE ) ;
+
+    assertThat( store.take( parse( "/book.html" ) ) ).isNull() ;
+    assertThat( store.take( parse( "/book.pdf?tags=t1" ) ) ).isNotNull() ;
+  }
+
+  @Test
+  public void expire() throws Exception {
+    final RenderableStore store = new RenderableStore( 0L, 1 ) ;
+
+    store.put( parse( "/book.html" ), createRenderable(), 0L, NO_SOURCE ) ;
+    Thread.sleep( 10L ) ;
+
+    assertThat( store.take( parse( "/book.html" ) ) ).isNull() ;
+    assertThat( store.size() ).isEqualTo( 0 ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final ImmutableMap< File, ResourceStamp > NO_SOURCE = ImmutableMap.of() ;
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+  private static DocumentRequest parse( final String requestAsString ) throws Exception {
+    return ( DocumentRequest ) GenericRequest.parse( requestAsString ) ;
+  }
+
+  private Renderable createRenderable() throws Exception {
+    final File file = new File( methodSupport.getDirectory(), "book.nlp" ) ;
+    FileUtils.writeStringToFile( file, "Some text.", DefaultCharset.SOURCE.name() ) ;
+    return new Novella( file, DefaultCharset.SOURCE, DefaultCharset.RENDERING ) ;
+  }
+
+}
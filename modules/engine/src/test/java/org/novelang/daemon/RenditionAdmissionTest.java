@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.rendering.RenditionMimeType;
+
+/**
+ * Tests for {@link RenditionAdmission}.
+ *
+ * @author Laurent Caillette
+ */
+public class RenditionAdmissionTest {
+
+  @Test
+  public void refuseWhenQueueIsFull() throws Exception {
+    final RenditionAdmission admission = new RenditionAdmission( 1, 1 ) ;
+    final RenditionAdmission.Ticket first = admission.enter( RenditionMimeType.PDF ) ;
+    assertThat( first ).isNotNull() ;
+
+    final AtomicReference< RenditionAdmission.Ticket > second =
+        new AtomicReference< RenditionAdmission.Ticket >() ;
+    final CountDownLatch secondAdmitted = new CountDownLatch( 1 ) ;
+    final Thread waiter = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          second.set( admission.enter( RenditionMimeType.PDF ) ) ;
+          secondAdmitted.countDown() ;
+        } catch( InterruptedException ignore ) { }
+      }
+    } ) ;
+    waiter.start() ;
+    while( admission.getQueueDepth( RenditionMimeType.PDF ) == 0 ) {
+      Thread.sleep( 1L ) ;
+    }
+
+    assertThat( admission.enter( RenditionMimeType.PDF ) ).isNull() ;
+    assertThat( admission.getRejectedCount( RenditionMimeType.PDF ) ).isEqualTo( 1L ) ;
+
+    first.leave() ;
+    first.leave() ; // No effect.
+    assertThat( secondAdmitted.await( TIMEOUT_SECONDS, TimeUnit.SECONDS ) ).isTrue() ;
+    assertThat( second.get() ).isNotNull() ;
+    assertThat( admission.getQueueDepth( RenditionMimeType.PDF ) ).isEqualTo( 0 ) ;
+    assertThat( admission.getAdmittedCount( RenditionMimeType.PDF ) ).isEqualTo( 2L ) ;
+    second.get().leave() ;
+  }
+
+  @Test
+  public void renditionTypesDontWaitForEachOther() throws Exception {
+    final RenditionAdmission admission = new RenditionAdmission(
+        ImmutableMap.of( RenditionMimeType.PDF, 1 ), 2, 0 ) ;
+    assertThat( admission.enter( RenditionMimeType.PDF ) ).isNotNull() ;
+    assertThat( admission.enter( RenditionMimeType.PDF ) ).isNull() ;
+    assertThat( admission.enter( RenditionMimeType.HTML ) ).isNotNull() ;
+    assertThat( admission.enter( RenditionMimeType.HTML ) ).isNotNull() ;
+    assertThat( admission.enter( RenditionMimeType.HTML ) ).isNull() ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final long TIMEOUT_SECONDS = 10L ;
+
+}
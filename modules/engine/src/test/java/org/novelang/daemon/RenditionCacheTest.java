@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.outfit.DefaultCharset;
+import org.novelang.outfit.TemporaryFileTools;
+import org.novelang.outfit.loader.ClasspathResourceLoader;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
+import org.novelang.produce.DocumentRequest;
+import org.novelang.produce.GenericRequest;
+import org.novelang.rendering.buffer.CisternOutputStream;
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link RenditionCache}.
+ *
+ * @author Laurent Caillette
+ */
+public class RenditionCacheTest {
+
+  @Test
+  public void sameETagWhileNothingChanges() throws Exception {
+    final File file = writeFile( "Some text." ) ;
+    final RenditionCache cache = new RenditionCache( new ClasspathResourceLoader(), 0 ) ;
+
+    final RenditionCache.Entry put = cache.put( REQUEST, stamp( file ), NO_STYLESHEET, null ) ;
+    final RenditionCache.Entry got = cache.get( REQUEST ) ;
+
+    assertThat( got ).isSameAs( put ) ;
+    assertThat( got.getETag() ).startsWith( "\"" ).endsWith( "\"" ) ;
+    assertThat( got.hasContent() ).isFalse() ;
+    assertThat( cache.getHitCount() ).isEqualTo( 1L ) ;
+  }
+
+  @Test
+  public void staleAfterChange() throws Exception {
+    final File file = writeFile( "Some text." ) ;
+    final RenditionCache cache = new RenditionCache( new ClasspathResourceLoader(), 0 ) ;
+    final String eTag = cache.put( REQUEST, stamp( file ), NO_STYLESHEET, null ).getETag() ;
+
+    writeFile( "Some longer text." ) ;
+
+    assertThat( cache.get( REQUEST ) ).isNull() ;
+    assertThat( cache.put( REQUEST, stamp( file ), NO_STYLESHEET, null ).getETag() )
+        .isNotEqualTo( eTag ) ;
+  }
+
+  @Test
+  public void keepContent() throws Exception {
+    final File file = writeFile( "Some text." ) ;
+    final RenditionCache cache = new RenditionCache( new ClasspathResourceLoader(), 1 ) ;
+
+    cache.put( REQUEST, stamp( file ), NO_STYLESHEET, createContent( "Rendered" ) ) ;
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream() ;
+
+    assertThat( cache.get( REQUEST ).copyContent( outputStream ) ).isTrue() ;
+    assertThat( outputStream.toString( "UTF-8" ) ).isEqualTo( "Rendered" ) ;
+  }
+
+  @Test
+  public void releaseOldestContent() throws Exception {
+    final File file = writeFile( "Some text." ) ;
+    final RenditionCache cache = new RenditionCache( new ClasspathResourceLoader(), 1 ) ;
+
+    final RenditionCache.Entry first =
+        cache.put( REQUEST, stamp( file ), NO_STYLESHEET, createContent( "First" ) ) ;
+    final RenditionCache.Entry second =
+        cache.put( OTHER_REQUEST, stamp( file ), NO_STYLESHEET, createContent( "Second" ) ) ;
+
+    assertThat( first.hasContent() ).isFalse() ;
+    assertThat( second.hasContent() ).isTrue() ;
+    assertThat( cache.get( REQUEST ) ).isSameAs( first ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final DocumentRequest REQUEST = parse( "/book.html" ) ;
+  private static final DocumentRequest OTHER_REQUEST = parse( "/book.pdf" ) ;
+  private static final ImmutableMap< ResourceName, ResourceStamp > NO_STYLESHEET =
+      ImmutableMap.of() ;
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+  private static DocumentRequest parse( final String requestAsString ) {
+    try {
+      return ( DocumentRequest ) GenericRequest.parse( requestAsString ) ;
+    } catch( Exception e ) {
+      throw new RuntimeException( e ) ;
+    }
+  }
+
+  /**
+   * Callers should change the length of the content when rewriting the file, because the
+   * last modification timestamp may have a resolution of one second.
+   */
+  private File writeFile( final String content ) throws IOException {
+    final File file = new File( methodSupport.getDirectory(), "book.nlp" ) ;
+    FileUtils.writeStringToFile( file, content, DefaultCharset.SOURCE.name() ) ;
+    return file ;
+  }
+
+  private static ImmutableMap< File, ResourceStamp > stamp( final File file ) {
+    return ImmutableMap.of( file, ResourceStamp.create( file ) ) ;
+  }
+
+  private static CisternOutputStream createContent( final String text ) throws IOException {
+    final CisternOutputStream content = new CisternOutputStream(
+        TemporaryFileTools.TEMPORARY_FILE_SERVICE.createFileSupplier( "test", ".any" ),
+        1024
+    ) ;
+    content.write( text.getBytes( "UTF-8" ) ) ;
+    return content ;
+  }
+
+}
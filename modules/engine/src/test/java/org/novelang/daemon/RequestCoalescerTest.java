@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.produce.DocumentRequest;
+import org.novelang.produce.GenericRequest;
+
+/**
+ * Tests for {@link RequestCoalescer}.
+ *
+ * @author Laurent Caillette
+ */
+public class RequestCoalescerTest {
+
+  @Test
+  public void followerGetsLeaderContent() throws Exception {
+    final RequestCoalescer coalescer = new RequestCoalescer() ;
+    final RequestCoalescer.Flight leader = coalescer.join( parse( "/book.pdf?tags=a;b" ) ) ;
+    final RequestCoalescer.Flight follower = coalescer.join( parse( "/book.pdf?tags=b;a" ) ) ;
+    assertThat( leader.isLeader() ).isTrue() ;
+    assertThat( follower.isLeader() ).isFalse() ;
+    assertThat( coalescer.getCoalescedCount() ).isEqualTo( 1L ) ;
+
+    final ByteArrayOutputStream leaderResponse = new ByteArrayOutputStream() ;
+    final OutputStream outputStream = leader.depart( leaderResponse, "\"tag\"" ) ;
+    assertThat( outputStream ).isNotSameAs( leaderResponse ) ;
+    outputStream.write( "Rendered".getBytes( "UTF-8" ) ) ;
+    leader.land() ;
+    assertThat( coalescer.getInFlightCount() ).isEqualTo( 0 ) ;
+    assertThat( coalescer.join( parse( "/book.pdf" ) ).isLeader() ).isTrue() ;
+    leader.leave() ;
+
+    assertThat( follower.await() ).isTrue() ;
+    assertThat( follower.getETag() ).isEqualTo( "\"tag\"" ) ;
+    final ByteArrayOutputStream copy = new ByteArrayOutputStream() ;
+    follower.copyContent( copy ) ;
+    assertThat( copy.toString( "UTF-8" ) ).isEqualTo( "Rendered" ) ;
+    assertThat( leaderResponse.toString( "UTF-8" ) ).isEqualTo( "Rendered" ) ;
+    follower.leave() ;
+    follower.leave() ; // No effect.
+  }
+
+  @Test
+  public void followerCopiesWhileLeaderWrites() throws Exception {
+    final RequestCoalescer coalescer = new RequestCoalescer() ;
+    final RequestCoalescer.Flight leader = coalescer.join( parse( "/book.html" ) ) ;
+    final RequestCoalescer.Flight follower = coalescer.join( parse( "/book.html" ) ) ;
+    final ByteArrayOutputStream copy = new ByteArrayOutputStream() ;
+    final Thread followerThread = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if( follower.await() ) {
+            follower.copyContent( copy ) ;
+          }
+          follower.leave() ;
+        } catch( Exception e ) {
+          throw new RuntimeException( e ) ;
+        }
+      }
+    } ) ;
+    followerThread.start() ;
+
+    final OutputStream outputStream = leader.depart( new ByteArrayOutputStream(), null ) ;
+    outputStream.write( "First".getBytes( "UTF-8" ) ) ;
+    outputStream.write( ' ' ) ;
+    outputStream.write( "second".getBytes( "UTF-8" ) ) ;
+    leader.land() ;
+    leader.leave() ;
+    followerThread.join( 10000L ) ;
+    assertThat( copy.toString( "UTF-8" ) ).isEqualTo( "First second" ) ;
+  }
+
+  @Test
+  public void leaderDepartingAloneKeepsNothing() throws Exception {
+    final RequestCoalescer coalescer = new RequestCoalescer() ;
+    final RequestCoalescer.Flight leader = coalescer.join( parse( "/book.pdf" ) ) ;
+    final ByteArrayOutputStream leaderResponse = new ByteArrayOutputStream() ;
+    assertThat( leader.depart( leaderResponse, null ) ).isSameAs( leaderResponse ) ;
+    assertThat( coalescer.getInFlightCount() ).isEqualTo( 0 ) ;
+    assertThat( coalescer.join( parse( "/book.pdf" ) ).isLeader() ).isTrue() ;
+    leader.land() ;
+    leader.leave() ;
+  }
+
+  @Test
+  public void differentRequestsDontCoalesce() throws Exception {
+    final RequestCoalescer coalescer = new RequestCoalescer() ;
+    assertThat( coalescer.join( parse( "/book.pdf" ) ).isLeader() ).isTrue() ;
+    assertThat( coalescer.join( parse( "/book.html" ) ).isLeader() ).isTrue() ;
+    assertThat( coalescer.join( parse( "/book.pdf?tags=a" ) ).isLeader() ).isTrue() ;
+    assertThat( coalescer.getInFlightCount() ).isEqualTo( 3 ) ;
+  }
+
+  @Test
+  public void followerRendersAgainIfLeaderAbandons() throws Exception {
+    final RequestCoalescer coalescer = new RequestCoalescer() ;
+    final RequestCoalescer.Flight leader = coalescer.join( parse( "/book.pdf" ) ) ;
+    final RequestCoalescer.Flight follower = coalescer.join( parse( "/book.pdf" ) ) ;
+    leader.abandon() ;
+    leader.leave() ;
+    assertThat( follower.await() ).isFalse() ;
+    follower.leave() ;
+  }
+
+  @Test( expected = IOException.class )
+  public void followerFailsIfLeaderAbandonsAfterDeparture() throws Exception {
+    final RequestCoalescer coalescer = new RequestCoalescer() ;
+    final RequestCoalescer.Flight leader = coalescer.join( parse( "/book.pdf" ) ) ;
+    final RequestCoalescer.Flight follower = coalescer.join( parse( "/book.pdf" ) ) ;
+    leader.depart( new ByteArrayOutputStream(), null ).write( 1 ) ;
+    assertThat( follower.await() ).isTrue() ;
+    leader.abandon() ;
+    leader.leave() ;
+    try {
+      follower.copyContent( new ByteArrayOutputStream() ) ;
+    } finally {
+      follower.leave() ;
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static DocumentRequest parse( final String requestAsString ) {
+    try {
+      return ( DocumentRequest ) GenericRequest.parse( requestAsString ) ;
+    } catch( Exception e ) {
+      throw new RuntimeException( e ) ;
+    }
+  }
+
+}
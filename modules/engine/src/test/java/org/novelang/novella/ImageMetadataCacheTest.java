@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.novella;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link ImageMetadataCache}.
+ *
+ * @author Laurent Caillette
+ */
+public class ImageMetadataCacheTest {
+
+  @Test
+  public void readRasterImageHeaderAndReloadFromFile() throws Exception {
+    final File imageFile = new File( methodSupport.getDirectory(), "image.png" ) ;
+    ImageIO.write( new BufferedImage( 3, 2, BufferedImage.TYPE_INT_RGB ), "png", imageFile ) ;
+    final File cacheFile = new File( methodSupport.getDirectory(), "images.cache" ) ;
+
+    final ImageMetadataCache cache = new ImageMetadataCache( cacheFile ) ;
+    final ImageMetadataCache.ImageMetadata metadata = cache.getRasterImageMetadata( imageFile ) ;
+    assertThat( metadata.getWidth() ).isEqualTo( "3px" ) ;
+    assertThat( metadata.getHeight() ).isEqualTo( "2px" ) ;
+    assertThat( cache.getMissCount() ).isEqualTo( 1L ) ;
+    cache.save() ;
+
+    final ImageMetadataCache reloaded = new ImageMetadataCache( cacheFile ) ;
+    assertThat( reloaded.getRasterImageMetadata( imageFile ).getWidth() ).isEqualTo( "3px" ) ;
+    assertThat( reloaded.getHitCount() ).isEqualTo( 1L ) ;
+    assertThat( reloaded.getMissCount() ).isEqualTo( 0L ) ;
+  }
+
+  @Test
+  public void saveDropsStaleEntries() throws Exception {
+    final File keptImageFile = new File( methodSupport.getDirectory(), "kept.png" ) ;
+    ImageIO.write( new BufferedImage( 3, 2, BufferedImage.TYPE_INT_RGB ), "png", keptImageFile ) ;
+    final File deletedImageFile = new File( methodSupport.getDirectory(), "deleted.png" ) ;
+    ImageIO.write(
+        new BufferedImage( 3, 2, BufferedImage.TYPE_INT_RGB ), "png", deletedImageFile ) ;
+    final File cacheFile = new File( methodSupport.getDirectory(), "images.cache" ) ;
+
+    final ImageMetadataCache cache = new ImageMetadataCache( cacheFile ) ;
+    cache.getRasterImageMetadata( keptImageFile ) ;
+    cache.getRasterImageMetadata( deletedImageFile ) ;
+    assertThat( deletedImageFile.delete() ).isTrue() ;
+    cache.save() ;
+    assertThat( cache.size() ).isEqualTo( 1 ) ;
+
+    final ImageMetadataCache reloaded = new ImageMetadataCache( cacheFile ) ;
+    assertThat( reloaded.size() ).isEqualTo( 1 ) ;
+    reloaded.getRasterImageMetadata( keptImageFile ) ;
+    assertThat( reloaded.getHitCount() ).isEqualTo( 1L ) ;
+  }
+
+  @Test
+  public void readVectorImageRootElement() throws Exception {
+    final File imageFile = new File( methodSupport.getDirectory(), "image.svg" ) ;
+    FileUtils.writeStringToFile(
+        imageFile,
+        "<svg xmlns='http://www.w3.org/2000/svg' width='10cm' height='5cm'>" +
+        "<rect width='1' height='1'/>" +
+        "</svg>"
+    ) ;
+    final ImageMetadataCache cache = new ImageMetadataCache() ;
+    final ImageMetadataCache.ImageMetadata metadata = cache.getVectorImageMetadata( imageFile ) ;
+    assertThat( metadata.getWidth() ).isEqualTo( "10cm" ) ;
+    assertThat( metadata.getHeight() ).isEqualTo( "5cm" ) ;
+
+    assertThat( cache.getVectorImageMetadata( imageFile ) ).isSameAs( metadata ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+}
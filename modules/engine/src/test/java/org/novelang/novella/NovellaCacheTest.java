@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.novella;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.outfit.DefaultCharset;
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link NovellaCache}.
+ *
+ * @author Laurent Caillette
+ */
+public class NovellaCacheTest {
+
+  @Test
+  public void hit() throws Exception {
+    final File file = writeNovella( "one.nlp", "Some text." ) ;
+    final NovellaCache cache = new NovellaCache( 1000L ) ;
+
+    final Novella first = load( cache, file ) ;
+    final Novella second = load( cache, file ) ;
+
+    assertThat( first.hasProblem() ).isFalse() ;
+    assertThat( second.getDocumentTree() ).isSameAs( first.getDocumentTree() ) ;
+    assertThat( cache.getMissCount() ).isEqualTo( 1L ) ;
+    assertThat( cache.getHitCount() ).isEqualTo( 1L ) ;
+  }
+
+  @Test
+  public void staleAfterChange() throws Exception {
+    final File file = writeNovella( "one.nlp", "Some text." ) ;
+    final NovellaCache cache = new NovellaCache( 1000L ) ;
+    final Novella first = load( cache, file ) ;
+
+    writeNovella( "one.nlp", "Some longer text." ) ;
+    final Novella second = load( cache, file ) ;
+
+    assertThat( second.getDocumentTree() ).isNotSameAs( first.getDocumentTree() ) ;
+    assertThat( cache.getMissCount() ).isEqualTo( 2L ) ;
+    assertThat( cache.size() ).isEqualTo( 1 ) ;
+  }
+
+  @Test
+  public void leastRecentlyUsedGoesAway() throws Exception {
+    final File file1 = writeNovella( "one.nlp", "Some text." ) ;
+    final File file2 = writeNovella( "two.nlp", "Some text." ) ;
+    final NovellaCache cache = new NovellaCache( file1.length() + file2.length() - 1 ) ;
+
+    load( cache, file1 ) ;
+    load( cache, file2 ) ;
+
+    assertThat( cache.size() ).isEqualTo( 1 ) ;
+    assertThat( cache.getWeight() ).isEqualTo( file2.length() ) ;
+    assertThat( cache.getEvictionCount() ).isEqualTo( 1L ) ;
+  }
+
+  @Test
+  public void disabled() throws Exception {
+    final File file = writeNovella( "one.nlp", "Some text." ) ;
+
+    final Novella first = load( NovellaCache.DISABLED, file ) ;
+    final Novella second = load( NovellaCache.DISABLED, file ) ;
+
+    assertThat( second.getDocumentTree() ).isNotSameAs( first.getDocumentTree() ) ;
+    assertThat( NovellaCache.DISABLED.size() ).isEqualTo( 0 ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+  /**
+   * Callers should change the length of the content when rewriting a file, because the
+   * last modification timestamp may have a resolution of one second.
+   */
+  private File writeNovella( final String name, final String content ) throws IOException {
+    final File file = new File( methodSupport.getDirectory(), name ) ;
+    FileUtils.writeStringToFile( file, content, DefaultCharset.SOURCE.name() ) ;
+    return file ;
+  }
+
+  private static Novella load( final NovellaCache cache, final File file ) throws IOException {
+    return cache.load( file, DefaultCharset.SOURCE, DefaultCharset.RENDERING ) ;
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.opus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.configuration.ConfigurationTools;
+import org.novelang.designator.Tag;
+import org.novelang.novella.NovellaCache;
+import org.novelang.outfit.DefaultCharset;
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link OpusCache}.
+ *
+ * @author Laurent Caillette
+ */
+public class OpusCacheTest {
+
+  @Test
+  public void reuseEverything() throws Exception {
+    final File opusFile = writeFixture() ;
+    final OpusCache cache = new OpusCache( 1 ) ;
+
+    final Opus first = load( cache, opusFile ) ;
+    final Opus second = load( cache, opusFile ) ;
+
+    assertThat( first.hasProblem() ).isFalse() ;
+    assertThat( second.getDocumentTree() ).isSameAs( first.getDocumentTree() ) ;
+    assertThat( cache.getEvaluatedCommandCount() ).isEqualTo( 2L ) ;
+    assertThat( cache.getReusedCommandCount() ).isEqualTo( 2L ) ;
+  }
+
+  @Test
+  public void reuseUntilFirstChange() throws Exception {
+    final File opusFile = writeFixture() ;
+    final OpusCache cache = new OpusCache( 1 ) ;
+    final Opus first = load( cache, opusFile ) ;
+
+    writeFile( "two.nlp", "Changed text." ) ;
+    final Opus second = load( cache, opusFile ) ;
+
+    assertThat( second.getDocumentTree() ).isNotSameAs( first.getDocumentTree() ) ;
+    assertThat( second.getDocumentTree().toStringTree() ).contains( "Changed" ) ;
+    assertThat( cache.getReusedCommandCount() ).isEqualTo( 1L ) ;
+    assertThat( cache.getEvaluatedCommandCount() ).isEqualTo( 3L ) ;
+  }
+
+  @Test
+  public void changeInOpusFile() throws Exception {
+    final File opusFile = writeFixture() ;
+    final OpusCache cache = new OpusCache( 1 ) ;
+    load( cache, opusFile ) ;
+
+    writeFile( "book.opus", "insert file:two.nlp" + BLANK_LINE + "insert file:one.nlp" ) ;
+    load( cache, opusFile ) ;
+
+    assertThat( cache.getReusedCommandCount() ).isEqualTo( 0L ) ;
+    assertThat( cache.getEvaluatedCommandCount() ).isEqualTo( 4L ) ;
+  }
+
+  @Test
+  public void disabled() throws Exception {
+    final File opusFile = writeFixture() ;
+
+    final Opus first = load( OpusCache.DISABLED, opusFile ) ;
+    final Opus second = load( OpusCache.DISABLED, opusFile ) ;
+
+    assertThat( second.getDocumentTree() ).isNotSameAs( first.getDocumentTree() ) ;
+    assertThat( OpusCache.DISABLED.size() ).isEqualTo( 0 ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final String BLANK_LINE = "\n\n" ;
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+  private final ExecutorService executorService =
+      Executors.newSingleThreadExecutor( ConfigurationTools.getExecutorThreadFactory() ) ;
+
+  @After
+  public void tearDown() {
+    executorService.shutdown() ;
+  }
+
+  private File writeFixture() throws IOException {
+    writeFile( "one.nlp", "Some text." ) ;
+    writeFile( "two.nlp", "Other text." ) ;
+    return writeFile( "book.opus", "insert file:one.nlp" + BLANK_LINE + "insert file:two.nlp" ) ;
+  }
+
+  /**
+   * Callers should change the length of the content when rewriting a file, because the
+   * last modification timestamp may have a resolution of one second.
+   */
+  private File writeFile( final String name, final String content ) throws IOException {
+    final File file = new File( methodSupport.getDirectory(), name ) ;
+    FileUtils.writeStringToFile( file, content, DefaultCharset.SOURCE.name() ) ;
+    return file ;
+  }
+
+  private Opus load( final OpusCache cache, final File opusFile ) throws IOException {
+    return cache.load(
+        opusFile.getParentFile(),
+        opusFile,
+        executorService,
+        new NovellaCache( 1000L ),
+        DefaultCharset.SOURCE,
+        DefaultCharset.RENDERING,
+        ImmutableSet.< Tag >of()
+    ) ;
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.produce;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.common.Renderable;
+import org.novelang.common.SyntacticTree;
+import org.novelang.common.metadata.Page;
+import org.novelang.common.metadata.PageIdentifier;
+import org.novelang.configuration.ConfigurationTools;
+import org.novelang.novella.Novella;
+import org.novelang.outfit.DefaultCharset;
+import org.novelang.rendering.multipage.PagesExtractor;
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link StreamDirector}.
+ *
+ * @author Laurent Caillette
+ */
+public class StreamDirectorTest {
+
+  @Test
+  public void concurrentPages() throws Exception {
+    final StreamDirector streamDirector = StreamDirector.forDirectory(
+        ( DocumentRequest ) GenericRequest.parse( "/book.html" ),
+        outputDirectory(),
+        executorService
+    ) ;
+    assertThat( streamDirector.feedsPagesConcurrently() ).isTrue() ;
+
+    streamDirector.feedStreams( createRenderable(), TWO_PAGES, null, PAGE_NAME_WRITER ) ;
+
+    assertThat( read( "book.html" ) ).isEqualTo( "default" ) ;
+    assertThat( read( "book--One.html" ) ).isEqualTo( "One" ) ;
+    assertThat( read( "book--Two.html" ) ).isEqualTo( "Two" ) ;
+  }
+
+  @Test( expected = IOException.class )
+  public void failureAfterAllPages() throws Exception {
+    final StreamDirector streamDirector = StreamDirector.forDirectory(
+        ( DocumentRequest ) GenericRequest.parse( "/book.html" ),
+        outputDirectory(),
+        executorService
+    ) ;
+    final StreamDirector.StreamFeeder failingOnPageOne = new StreamDirector.StreamFeeder() {
+      @Override
+      public void feed(
+          final Renderable rendered,
+          final OutputStream outputStream,
+          final Page page
+      ) throws Exception {
+        if( page != null && "One".equals( page.getPageIdentifier().getName() ) ) {
+          throw new IOException( "Boom" ) ;
+        }
+        PAGE_NAME_WRITER.feed( rendered, outputStream, page ) ;
+      }
+    } ;
+    try {
+      streamDirector.feedStreams( createRenderable(), TWO_PAGES, null, failingOnPageOne ) ;
+    } finally {
+      assertThat( read( "book--Two.html" ) ).isEqualTo( "Two" ) ;
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+  private final ExecutorService executorService =
+      Executors.newFixedThreadPool( 2, ConfigurationTools.getExecutorThreadFactory() ) ;
+
+  @After
+  public void tearDown() {
+    executorService.shutdown() ;
+  }
+
+  private static final PagesExtractor TWO_PAGES = new PagesExtractor() {
+    @Override
+    public ImmutableMap< PageIdentifier, String > extractPages(
+        final SyntacticTree documentTree
+    ) {
+      return ImmutableMap.of(
+          new PageIdentifier( "One" ), "/path/to/one",
+          new PageIdentifier( "Two" ), "/path/to/two"
+      ) ;
+    }
+  } ;
+
+  private static final StreamDirector.StreamFeeder PAGE_NAME_WRITER =
+      new StreamDirector.StreamFeeder() {
+        @Override
+        public void feed(
+            final Renderable rendered,
+            final OutputStream outputStream,
+            final Page page
+        ) throws Exception {
+          final String name = page == null ? "default" : page.getPageIdentifier().getName() ;
+          outputStream.write( name.getBytes( "UTF-8" ) ) ;
+        }
+      }
+  ;
+
+  private File outputDirectory() throws IOException {
+    final File directory = new File( methodSupport.getDirectory(), "output" ) ;
+    FileUtils.forceMkdir( directory ) ;
+    return directory ;
+  }
+
+  private String read( final String fileName ) throws IOException {
+    return FileUtils.readFileToString( new File( outputDirectory(), fileName ), "UTF-8" ) ;
+  }
+
+  private Renderable createRenderable() throws IOException {
+    final File file = new File( methodSupport.getDirectory(), "book.nlp" ) ;
+    FileUtils.writeStringToFile( file, "Some text.", DefaultCharset.SOURCE.name() ) ;
+    return new Novella( file, DefaultCharset.SOURCE, DefaultCharset.RENDERING ) ;
+  }
+
+}
@@ -44,10 +44,12 @@ import org.novelang.configuration.RenderingConfiguration;
 import org.novelang.configuration.RenditionKinematic;
 import org.novelang.logger.Logger;
 import org.novelang.logger.LoggerFactory;
+import org.novelang.novella.NovellaCache;
 import org.novelang.outfit.DefaultCharset;
 import org.novelang.outfit.loader.ResourceLoader;
 import org.novelang.parser.NodeKind;
 import org.novelang.parser.antlr.TreeFixture;
+import org.novelang.rendering.PdfRenderingService;
 import org.novelang.testing.junit.MethodSupport;
 
 /**
@@ -131,6 +133,11 @@ public class TestDocumentProducer {
             throw new UnsupportedOperationException( "Should not be called for this test" ) ;
           }
 
+          @Override
+          public PdfRenderingService getPdfRenderingService() {
+            throw new UnsupportedOperationException( "Should not be called for this test" ) ;
+          }
+
           @Override
           public FopFontStatus getCurrentFopFontStatus() {
             throw new UnsupportedOperationException( "Should not be called for this test" ) ;
@@ -160,6 +167,11 @@ public class TestDocumentProducer {
           public Charset getSourceCharset() {
             return DefaultCharset.SOURCE ;
           }
+
+          @Override
+          public NovellaCache getNovellaCache() {
+            return NovellaCache.DISABLED ;
+          }
         } ;
       }
 
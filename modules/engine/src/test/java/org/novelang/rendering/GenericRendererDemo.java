@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+import org.novelang.common.SimpleTree;
+import org.novelang.common.SyntacticTree;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.outfit.DefaultCharset;
+import org.novelang.parser.NodeKind;
+
+/**
+ * Measures the time for rendering a plain document through {@link GenericRenderer}
+ * and {@link XmlWriter}, which is the base of every rendition using XSL.
+ * Time per word should stay flat when word count grows.
+ *
+ * @author Laurent Caillette
+ */
+public class GenericRendererDemo {
+
+  @Test
+  public void renderWords() throws Exception {
+    final GenericRenderer renderer = new GenericRenderer( new XmlWriter() ) ;
+    render( renderer, createDocument( 100 ) ) ; // Warmup.
+    for( int paragraphCount = 100 ; paragraphCount <= MAXIMUM_PARAGRAPH_COUNT ;
+         paragraphCount *= 2
+    ) {
+      final SyntacticTree document = createDocument( paragraphCount ) ;
+      final long duration = render( renderer, document ) ;
+      final int wordCount = paragraphCount * WORDS_PER_PARAGRAPH ;
+      LOGGER.info( "Rendered ", wordCount, " words: ", duration / wordCount, " ns/word." ) ;
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( GenericRendererDemo.class ) ;
+
+  private static final int MAXIMUM_PARAGRAPH_COUNT = 12800 ;
+
+  private static final int WORDS_PER_PARAGRAPH = 20 ;
+
+  private static SyntacticTree createDocument( final int paragraphCount ) {
+    final SyntacticTree[] paragraphs = new SyntacticTree[ paragraphCount ] ;
+    for( int i = 0 ; i < paragraphCount ; i ++ ) {
+      final SyntacticTree[] words = new SyntacticTree[ WORDS_PER_PARAGRAPH ] ;
+      for( int j = 0 ; j < WORDS_PER_PARAGRAPH ; j ++ ) {
+        words[ j ] = new SimpleTree( NodeKind.WORD_, new SimpleTree( "w" + j + "&" ) ) ;
+      }
+      paragraphs[ i ] = new SimpleTree( NodeKind.PARAGRAPH_REGULAR, words ) ;
+    }
+    return new SimpleTree( NodeKind.NOVELLA, paragraphs ) ;
+  }
+
+  private static long render( final GenericRenderer renderer, final SyntacticTree document )
+      throws Exception
+  {
+    final long start = System.nanoTime() ;
+    renderer.renderTree( document, new NullOutputStream(), DefaultCharset.RENDERING, null, null ) ;
+    return System.nanoTime() - start ;
+  }
+
+}
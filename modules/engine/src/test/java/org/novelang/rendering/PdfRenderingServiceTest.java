@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering;
+
+import java.io.File;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.FileUtils;
+import org.apache.fop.apps.FopFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.configuration.FopFontStatus;
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link PdfRenderingService}.
+ *
+ * @author Laurent Caillette
+ */
+public class PdfRenderingServiceTest {
+
+  @Test
+  public void reuseFontStatusUntilFontDirectoryChanges() throws Exception {
+    final File fontDirectory = new File( methodSupport.getDirectory(), "fonts" ) ;
+    FileUtils.forceMkdir( fontDirectory ) ;
+    final ImmutableList< File > fontDirectories = ImmutableList.of( fontDirectory ) ;
+    final PdfRenderingService service = new PdfRenderingService( FopFactory.newInstance() ) ;
+
+    final FopFontStatus first = service.getFontStatus( fontDirectories ) ;
+    assertThat( service.getFontStatus( fontDirectories ) ).isSameAs( first ) ;
+
+    FileUtils.writeStringToFile( new File( fontDirectory, "not-a-font.txt" ), "" ) ;
+    assertThat( service.getFontStatus( fontDirectories ) ).isNotSameAs( first ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering;
+
+import java.io.ByteArrayOutputStream;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.novelang.parser.NodeKind.*;
+import static org.novelang.parser.antlr.TreeFixture.tree;
+
+import org.novelang.common.Renderable;
+import org.novelang.common.SyntacticTree;
+import org.novelang.common.metadata.Page;
+import org.novelang.common.metadata.PageIdentifier;
+import org.novelang.outfit.DefaultCharset;
+
+/**
+ * Tests for {@link RecordedTree}, checking that replaying gives the same result as rendering
+ * the tree directly.
+ *
+ * @author Laurent Caillette
+ */
+public class RecordedTreeTest {
+
+  @Test
+  public void sameAsRenderingWithoutPage() throws Exception {
+    verify( WITHOUT_META, null ) ;
+    verify( WITH_META, null ) ;
+  }
+
+  @Test
+  public void sameAsRenderingWithPageAndNoMeta() throws Exception {
+    verify( WITHOUT_META, PAGE ) ;
+  }
+
+  @Test
+  public void sameAsRenderingWithPageAddedToExistingMeta() throws Exception {
+    verify( WITH_META, PAGE ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final SyntacticTree PARAGRAPH = tree(
+      PARAGRAPH_REGULAR,
+      tree( WORD_, "w" ),
+      tree( BLOCK_OF_LITERAL_INSIDE_GRAVE_ACCENTS, "<x>" ),
+      tree( WORD_, "&" )
+  ) ;
+
+  private static final SyntacticTree WITHOUT_META = tree( OPUS, PARAGRAPH, PARAGRAPH ) ;
+
+  private static final SyntacticTree WITH_META = tree(
+      OPUS,
+      tree( _META, tree( _WORD_COUNT, "4" ) ),
+      PARAGRAPH
+  ) ;
+
+  private static final Page PAGE ;
+  static {
+    final PageIdentifier pageIdentifier = new PageIdentifier( "Level-1" ) ;
+    try {
+      PAGE = Page.get( ImmutableMap.of( pageIdentifier, "/opus/level[1]" ), pageIdentifier ) ;
+    } catch( Exception e ) {
+      throw new RuntimeException( e ) ;
+    }
+  }
+
+  private static void verify( final SyntacticTree tree, final Page page ) throws Exception {
+    final Renderable renderable =
+        new RenderingTools.RenderableTree( tree, DefaultCharset.RENDERING ) ;
+    final GenericRenderer renderer = new GenericRenderer( new XmlWriter() ) ;
+
+    final ByteArrayOutputStream direct = new ByteArrayOutputStream() ;
+    renderer.render( renderable, direct, page, null ) ;
+
+    final RecordedTree recordedTree = renderer.record( tree ) ;
+    final ByteArrayOutputStream replayed = new ByteArrayOutputStream() ;
+    renderer.render( renderable, recordedTree, replayed, page, null ) ;
+
+    assertThat( replayed.toString( DefaultCharset.RENDERING.name() ) )
+        .isEqualTo( direct.toString( DefaultCharset.RENDERING.name() ) ) ;
+  }
+
+}
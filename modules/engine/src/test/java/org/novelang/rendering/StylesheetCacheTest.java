@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering;
+
+import java.io.File;
+import java.io.IOException;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.outfit.loader.CompositeResourceLoader;
+import org.novelang.outfit.loader.ResourceLoader;
+import org.novelang.outfit.loader.ResourceName;
+import org.novelang.outfit.loader.ResourceStamp;
+import org.novelang.outfit.xml.EntityEscapeSelector;
+import org.novelang.testing.junit.MethodSupport;
+
+/**
+ * Tests for {@link StylesheetCache}.
+ *
+ * @author Laurent Caillette
+ */
+public class StylesheetCacheTest {
+
+  @Test
+  public void hit() throws Exception {
+    final File directory = createDirectory( "style" ) ;
+    final File stylesheetFile = writeStylesheet( directory, "" ) ;
+    final ResourceLoader resourceLoader = CompositeResourceLoader.create( "", directory ) ;
+    final StylesheetCache cache = new StylesheetCache( 2 ) ;
+
+    assertThat( get( cache, resourceLoader ) ).isNull() ;
+    final StylesheetCache.Entry entry = put( cache, resourceLoader, stylesheetFile ) ;
+    assertThat( get( cache, resourceLoader ) ).isSameAs( entry ) ;
+    assertThat( cache.getHitCount() ).isEqualTo( 1L ) ;
+    assertThat( cache.getMissCount() ).isEqualTo( 1L ) ;
+  }
+
+  @Test
+  public void staleAfterChange() throws Exception {
+    final File directory = createDirectory( "style" ) ;
+    final File stylesheetFile = writeStylesheet( directory, "" ) ;
+    final ResourceLoader resourceLoader = CompositeResourceLoader.create( "", directory ) ;
+    final StylesheetCache cache = new StylesheetCache( 2 ) ;
+    put( cache, resourceLoader, stylesheetFile ) ;
+
+    writeStylesheet( directory, "<!-- Changed. -->" ) ;
+    assertThat( get( cache, resourceLoader ) ).isNull() ;
+    assertThat( cache.size() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  public void staleAfterShadowing() throws Exception {
+    final File preferredDirectory = createDirectory( "preferred" ) ;
+    final File fallbackDirectory = createDirectory( "fallback" ) ;
+    final File stylesheetFile = writeStylesheet( fallbackDirectory, "" ) ;
+    final ResourceLoader resourceLoader =
+        CompositeResourceLoader.create( "", preferredDirectory, fallbackDirectory ) ;
+    final StylesheetCache cache = new StylesheetCache( 2 ) ;
+    put( cache, resourceLoader, stylesheetFile ) ;
+
+    writeStylesheet( preferredDirectory, "" ) ;
+    assertThat( get( cache, resourceLoader ) ).isNull() ;
+  }
+
+  @Test
+  public void leastRecentlyUsedGoesAway() throws Exception {
+    final File directory = createDirectory( "style" ) ;
+    final File stylesheetFile = writeStylesheet( directory, "" ) ;
+    final StylesheetCache cache = new StylesheetCache( 1 ) ;
+    final ResourceLoader resourceLoader1 = CompositeResourceLoader.create( "", directory ) ;
+    final ResourceLoader resourceLoader2 = CompositeResourceLoader.create( "", directory ) ;
+    put( cache, resourceLoader1, stylesheetFile ) ;
+    put( cache, resourceLoader2, stylesheetFile ) ;
+
+    assertThat( cache.size() ).isEqualTo( 1 ) ;
+    assertThat( get( cache, resourceLoader1 ) ).isNull() ;
+    assertThat( get( cache, resourceLoader2 ) ).isNotNull() ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final ResourceName STYLESHEET_NAME = new ResourceName( "stylesheet.xsl" ) ;
+
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
+  private File createDirectory( final String name ) throws IOException {
+    final File directory = new File( methodSupport.getDirectory(), name ) ;
+    FileUtils.forceMkdir( directory ) ;
+    return directory ;
+  }
+
+  /**
+   * Writes a file with a different length each time the content changes, because the
+   * last modification timestamp may have a resolution of one second.
+   */
+  private static File writeStylesheet( final File directory, final String additionalContent )
+      throws IOException
+  {
+    final File file = new File( directory, STYLESHEET_NAME.getName() ) ;
+    FileUtils.writeStringToFile(
+        file,
+        "<xsl:stylesheet version='1.0' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>" +
+        additionalContent +
+        "</xsl:stylesheet>"
+    ) ;
+    return file ;
+  }
+
+  private static StylesheetCache.Entry get(
+      final StylesheetCache cache,
+      final ResourceLoader resourceLoader
+  ) {
+    return cache.get( resourceLoader, STYLESHEET_NAME, EntityEscapeSelector.NO_ENTITY_ESCAPE ) ;
+  }
+
+  private static StylesheetCache.Entry put(
+      final StylesheetCache cache,
+      final ResourceLoader resourceLoader,
+      final File stylesheetFile
+  ) throws Exception {
+    final Templates templates =
+        TransformerFactory.newInstance().newTemplates( new StreamSource( stylesheetFile ) ) ;
+    return cache.put(
+        resourceLoader,
+        STYLESHEET_NAME,
+        EntityEscapeSelector.NO_ENTITY_ESCAPE,
+        templates,
+        null,
+        ImmutableMap.of(
+            STYLESHEET_NAME,
+            ResourceStamp.create( resourceLoader, STYLESHEET_NAME )
+        )
+    ) ;
+  }
+
+}
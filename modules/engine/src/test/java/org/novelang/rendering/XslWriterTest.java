@@ -156,6 +156,11 @@ public class XslWriterTest {
       return fopFactory ;
     }
 
+    @Override
+    public PdfRenderingService getPdfRenderingService() {
+      return fopFactory == null ? null : new PdfRenderingService( fopFactory ) ;
+    }
+
     @Override
     public FopFontStatus getCurrentFopFontStatus() {
       return fopFontStatus ;
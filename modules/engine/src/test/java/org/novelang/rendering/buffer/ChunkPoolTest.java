@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.rendering.buffer;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests for {@link ChunkPool}.
+ *
+ * @author Laurent Caillette
+ */
+public class ChunkPoolTest {
+
+  @Test
+  public void reuseReleasedChunk() {
+    final ChunkPool pool = new ChunkPool( 16, 1, false ) ;
+    final ByteBuffer chunk = pool.acquire() ;
+    chunk.put( ( byte ) 1 ) ;
+    assertThat( pool.getLeasedCount() ).isEqualTo( 1 ) ;
+
+    pool.release( chunk ) ;
+    assertThat( pool.getIdleCount() ).isEqualTo( 1 ) ;
+
+    final ByteBuffer reused = pool.acquire() ;
+    assertThat( reused ).isSameAs( chunk ) ;
+    assertThat( reused.position() ).isEqualTo( 0 ) ;
+    assertThat( pool.getAllocationCount() ).isEqualTo( 1L ) ;
+    assertThat( pool.getReuseCount() ).isEqualTo( 1L ) ;
+  }
+
+  @Test
+  public void keepNoMoreThanMaximumIdleCount() {
+    final ChunkPool pool = new ChunkPool( 16, 1, false ) ;
+    final ByteBuffer chunk1 = pool.acquire() ;
+    final ByteBuffer chunk2 = pool.acquire() ;
+
+    pool.release( chunk1 ) ;
+    pool.release( chunk2 ) ;
+
+    assertThat( pool.getIdleCount() ).isEqualTo( 1 ) ;
+    assertThat( pool.getLeasedCount() ).isEqualTo( 0 ) ;
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void rejectForeignChunk() {
+    new ChunkPool( 16, 1, false ).release( ByteBuffer.allocate( 8 ) ) ;
+  }
+
+}
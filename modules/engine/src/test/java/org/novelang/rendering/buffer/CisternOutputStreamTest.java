@@ -67,6 +67,78 @@ public class CisternOutputStreamTest {
     assertThat( fileSupplier.file ).doesNotExist() ;
   }
 
+  @Test
+  public void growInMemory() throws IOException {
+    final CisternOutputStream deferringOutputStream = createDeferredOutputStream( 100000 ) ;
+    final byte[] bytes = new byte[ 30000 ] ;
+    for( int i = 0 ; i < bytes.length ; i ++ ) {
+      bytes[ i ] = ( byte ) i ;
+    }
+    deferringOutputStream.write( bytes, 0, 20000 ) ;
+    deferringOutputStream.write( bytes, 20000, 10000 ) ;
+    assertThat( fileSupplier.file ).doesNotExist() ;
+
+    final ByteArrayOutputStream capture = new ByteArrayOutputStream() ;
+    deferringOutputStream.copy( capture ) ;
+    assertThat( capture.toByteArray() ).isEqualTo( bytes ) ;
+    deferringOutputStream.close() ;
+  }
+
+  @Test
+  public void spillThroughMemoryMapping() throws IOException {
+    final ChunkPool chunkPool = new ChunkPool( 4, 1, false ) ;
+    final CisternOutputStream deferringOutputStream = new CisternOutputStream(
+        fileSupplier, 8, chunkPool, CisternOutputStream.SpillMode.MEMORY_MAPPED ) ;
+    final byte[] bytes = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 } ;
+    deferringOutputStream.write( bytes, 0, 6 ) ;
+    deferringOutputStream.write( bytes, 6, 3 ) ;
+    deferringOutputStream.write( 10 ) ;
+    assertThat( fileSupplier.file ).exists() ;
+    assertThat( deferringOutputStream.size() ).isEqualTo( 10L ) ;
+
+    final ByteArrayOutputStream capture = new ByteArrayOutputStream() ;
+    deferringOutputStream.copy( capture ) ;
+    assertThat( capture.toByteArray() ).isEqualTo( bytes ) ;
+
+    deferringOutputStream.close() ;
+    assertThat( chunkPool.getLeasedCount() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  public void readFromPosition() throws IOException {
+    final ChunkPool chunkPool = new ChunkPool( 4, 1, false ) ;
+    final CisternOutputStream deferringOutputStream = new CisternOutputStream(
+        fileSupplier, 8, chunkPool, CisternOutputStream.SpillMode.FILE_CHANNEL ) ;
+    deferringOutputStream.write( new byte[] { 1, 2, 3, 4, 5, 6 }, 0, 6 ) ;
+    final byte[] read = new byte[ 4 ] ;
+    assertThat( deferringOutputStream.read( 3L, read, 0, 4 ) ).isEqualTo( 3 ) ;
+    assertThat( read ).isEqualTo( new byte[] { 4, 5, 6, 0 } ) ;
+
+    deferringOutputStream.write( new byte[] { 7, 8, 9, 10 }, 0, 4 ) ;
+    assertThat( fileSupplier.file ).exists() ;
+    assertThat( deferringOutputStream.read( 6L, read, 0, 4 ) ).isEqualTo( 4 ) ;
+    assertThat( read ).isEqualTo( new byte[] { 7, 8, 9, 10 } ) ;
+    assertThat( deferringOutputStream.read( 10L, read, 0, 4 ) ).isEqualTo( -1 ) ;
+    deferringOutputStream.close() ;
+  }
+
+  @Test
+  public void spillModeFromSystemProperty() {
+    final String propertyName = CisternOutputStream.SPILLMODE_SYSTEMPROPERTYNAME ;
+    try {
+      System.setProperty( propertyName, "memory_mapped" ) ;
+      assertThat( CisternOutputStream.SpillMode.getDefault() )
+          .isEqualTo( CisternOutputStream.SpillMode.MEMORY_MAPPED ) ;
+      System.setProperty( propertyName, "unknown" ) ;
+      assertThat( CisternOutputStream.SpillMode.getDefault() )
+          .isEqualTo( CisternOutputStream.SpillMode.FILE_CHANNEL ) ;
+    } finally {
+      System.clearProperty( propertyName ) ;
+    }
+    assertThat( CisternOutputStream.SpillMode.getDefault() )
+        .isEqualTo( CisternOutputStream.SpillMode.FILE_CHANNEL ) ;
+  }
+
   @Test( expected = IllegalStateException.class )
   public void noAccessPastRelease() throws IOException {
     final CisternOutputStream deferringOutputStream = createDeferredOutputStream( 1 ) ;
@@ -37,6 +37,7 @@ import org.novelang.outfit.loader.ClasspathResourceLoader;
 import org.novelang.outfit.loader.ResourceLoader;
 import org.novelang.outfit.loader.ResourceName;
 import org.novelang.outfit.xml.TransformerCompositeException;
+import org.novelang.rendering.PdfRenderingService;
 import org.novelang.rendering.XslWriter;
 
 /**
@@ -100,6 +101,10 @@ public class FontDiscoveryStreamerTest {
           return null ;
         }
         @Override
+        public PdfRenderingService getPdfRenderingService() { // Yet unused.
+          return null ;
+        }
+        @Override
         public FopFontStatus getCurrentFopFontStatus() {
           return SyntheticFontMapTest.FONT_STATUS ;
         }
@@ -319,6 +319,12 @@ public class LevelManglerTest {
         checkLocation
     ) ;
 
+    TreeFixture.assertEqualsWithSeparators(
+        expectedTreepath,
+        new ManglingPipeline( LevelMangler.STAGE ).mangle( Treepath.create( flatTree ) ),
+        checkLocation
+    ) ;
+
   }
 
 
@@ -26,7 +26,8 @@ import org.novelang.common.tree.Treepath;
 import org.novelang.parser.antlr.TreeFixture;
 
 /**
- * Tests for {@link SeparatorsMangler}.
+ * Tests for {@link SeparatorsMangler#insertMandatoryWhitespaceNearApostrophe(Treepath)}
+ * and {@link SeparatorsMangler#MANDATORY_WHITESPACE_INSERTION}.
  *
  * @author Laurent Caillette
  */
@@ -141,6 +142,12 @@ public final class MandatorySpaceInsertionTest {
         expectedTree,
         rehierarchized
     ) ;
+
+    TreeFixture.assertEqualsWithSeparators(
+        expectedTree,
+        new ManglingPipeline( SeparatorsMangler.MANDATORY_WHITESPACE_INSERTION )
+            .mangle( actualTree )
+    ) ;
   }
 
 }
\ No newline at end of file
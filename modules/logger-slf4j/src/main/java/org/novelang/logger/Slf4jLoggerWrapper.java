@@ -71,6 +71,24 @@ public class Slf4jLoggerWrapper extends AbstractLogger {
     }
   }
 
+  @Override
+  protected boolean isEnabled( final Level level ) {
+    switch( level ) {
+      case ERROR :
+        return slf4jLogger.isErrorEnabled() ;
+      case WARN :
+        return slf4jLogger.isWarnEnabled() ;
+      case INFO :
+        return slf4jLogger.isInfoEnabled() ;
+      case DEBUG :
+        return slf4jLogger.isDebugEnabled() ;
+      case TRACE :
+        return slf4jLogger.isTraceEnabled() ;
+      default :
+        throw new IllegalArgumentException( "Unsupported: " + level ) ;
+    }
+  }
+
   @Override
   public String getName() {
     return slf4jLogger.getName() ;
@@ -18,6 +18,10 @@ package org.novelang.logger;
 
 /**
  * Useful things for implementing concrete {@link Logger}s.
+ * <p>
+ * Methods with several message parts first check if their {@link Level} is
+ * {@link #isEnabled(Level) enabled}, so there is no message building (and no call to
+ * {@code toString()} on message parts) when nothing will be logged.
  *
  * @author Laurent Caillette
  */
@@ -25,13 +29,53 @@ package org.novelang.logger;
 
   protected abstract void log( Level level, String message, Throwable throwable ) ;
 
+  /**
+   * Tells if something logged with given {@link Level} would go anywhere.
+   * By default, {@link Level#WARN} and {@link Level#ERROR} are always enabled.
+   */
+  protected boolean isEnabled( final Level level ) {
+    switch( level ) {
+      case TRACE :
+        return isTraceEnabled() ;
+      case DEBUG :
+        return isDebugEnabled() ;
+      case INFO :
+        return isInfoEnabled() ;
+      default :
+        return true ;
+    }
+  }
+
+  /**
+   * Builds the message and calls {@link #log(Level, String, Throwable)}.
+   * Called only if {@link #isEnabled(Level)} returned true. Subclasses may override this
+   * for building the message later, or elsewhere.
+   *
+   * @param message a possibly null object, ignored if {@code messageObjects} is null.
+   * @param messageObjects a possibly null object, null means the message is
+   *     {@code message} as it is.
+   */
+  protected void logParts(
+      final Level level,
+      final Throwable throwable,
+      final String message,
+      final Object[] messageObjects
+  ) {
+    log( level, buildMessage( message, messageObjects ), throwable ) ;
+  }
+
 
 // ==============================
 // Single-string message building
 // ==============================
   
-
-  private static String buildMessage( final String message, final Object... messageObjects ) {
+  /**
+   * Rebuilds the message given to {@link #logParts(Level, Throwable, String, Object[])}.
+   */
+  protected static String buildMessage( final String message, final Object[] messageObjects ) {
+    if( messageObjects == null ) {
+      return message ;
+    }
     final StringBuilder stringBuilder = new StringBuilder( ) ;
     if( message == null ) {
       stringBuilder.append( "<null>" ) ;
@@ -42,12 +86,6 @@ package org.novelang.logger;
     return stringBuilder.toString() ;
   }
 
-  private static String buildMessage( final Object... messageObjects ) {
-    final StringBuilder stringBuilder = new StringBuilder( ) ;
-    add( stringBuilder, messageObjects ) ;
-    return stringBuilder.toString() ;
-  }
-
   private static void add( final StringBuilder stringBuilder, final Object... messageObjects ) {
     for( final Object messageObject : messageObjects ) {
       if( messageObject == null ) {
@@ -58,6 +96,21 @@ package org.novelang.logger;
     }
   }
 
+  /**
+   * Leading message for methods taking a {@code Throwable} and message parts only.
+   */
+  private static final String NO_LEADING_MESSAGE = "" ;
+
+  private void logIfEnabled(
+      final Level level,
+      final Throwable throwable,
+      final String message,
+      final Object[] messageObjects
+  ) {
+    if( isEnabled( level ) ) {
+      logParts( level, throwable, message, messageObjects ) ;
+    }
+  }
 
 
 // ==============  
@@ -66,77 +119,77 @@ package org.novelang.logger;
   
   @Override
   public void trace( final String message ) {
-    log( Level.TRACE, message, null ) ;
+    logIfEnabled( Level.TRACE, null, message, null ) ;
   }
 
   @Override
   public void trace( final String message, final Object... messageObjects ) {
-    log( Level.TRACE, buildMessage( message, messageObjects ), null ) ;
+    logIfEnabled( Level.TRACE, null, message, messageObjects ) ;
   }
 
   @Override
   public void trace( final Throwable throwable, final Object... messageObjects ) {
-    log( Level.TRACE, buildMessage( messageObjects ), throwable ) ;
+    logIfEnabled( Level.TRACE, throwable, NO_LEADING_MESSAGE, messageObjects ) ;
   }
 
   @Override
   public void debug( final String message ) {
-    log( Level.DEBUG, message, null ) ;
+    logIfEnabled( Level.DEBUG, null, message, null ) ;
   }
 
   @Override
   public void debug( final String message, final Object... messageObjects ) {
-    log( Level.DEBUG, buildMessage( message, messageObjects ), null ) ;
+    logIfEnabled( Level.DEBUG, null, message, messageObjects ) ;
   }
 
   @Override
   public void debug( final Throwable throwable, final Object... messageObjects ) {
-    log( Level.DEBUG, buildMessage( messageObjects ), throwable ) ;
+    logIfEnabled( Level.DEBUG, throwable, NO_LEADING_MESSAGE, messageObjects ) ;
   }
 
   @Override
   public void info( final String message ) {
-    log( Level.INFO, message, null ) ;
+    logIfEnabled( Level.INFO, null, message, null ) ;
   }
 
   @Override
   public void info( final String message, final Object... messageObjects ) {
-    log( Level.INFO, buildMessage( message, messageObjects ), null ) ;
+    logIfEnabled( Level.INFO, null, message, messageObjects ) ;
   }
 
   @Override
   public void info( final Throwable throwable, final Object... messageObjects ) {
-    log( Level.INFO, buildMessage( messageObjects ), throwable ) ;
+    logIfEnabled( Level.INFO, throwable, NO_LEADING_MESSAGE, messageObjects ) ;
   }
 
   @Override
   public void warn( final String message ) {
-    log( Level.WARN, message, null ) ;
+    logIfEnabled( Level.WARN, null, message, null ) ;
   }
 
   @Override
   public void warn( final String message, final Object... messageObjects ) {
-    log( Level.WARN, buildMessage( message, messageObjects ), null ) ;
+    logIfEnabled( Level.WARN, null, message, messageObjects ) ;
   }
 
   @Override
   public void warn( final Throwable throwable, final Object... messageObjects ) {
-    log( Level.WARN, buildMessage( messageObjects ), throwable ) ;
+    logIfEnabled( Level.WARN, throwable, NO_LEADING_MESSAGE, messageObjects ) ;
   }
 
   @Override
   public void error( final String message ) {
-    log( Level.ERROR, message, null ) ;
+    logIfEnabled( Level.ERROR, null, message, null ) ;
   }
 
   @Override
   public void error( final String message, final Object... messageObjects ) {
-    log( Level.ERROR, buildMessage( message, messageObjects ), null ) ;
+    logIfEnabled( Level.ERROR, null, message, messageObjects ) ;
   }
 
   @Override
   public void error( final Throwable throwable, final Object... messageObjects ) {
-    log( Level.ERROR, buildMessage( messageObjects ), throwable ) ;
+    logIfEnabled( Level.ERROR, throwable, NO_LEADING_MESSAGE, messageObjects ) ;
   }
 
 
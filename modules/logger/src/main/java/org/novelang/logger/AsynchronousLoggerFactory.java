@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2008 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.logger;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.google.common.collect.Lists;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Wraps {@link Logger}s from another {@link LoggerFactory} so message building and
+ * logging happen in a dedicated thread, by batches. Logging threads only pay for
+ * the {@link Level} check and for queueing.
+ * <p>
+ * Message parts get converted to {@code String} later, so they should not change after being
+ * logged (this is the case of {@code String}s, numbers and {@code File}s which make most
+ * of them). The thread name that the concrete logger shows is the one of the dedicated thread.
+ * When the queue is full, logging happens in the calling thread, so nothing gets lost but
+ * order may change.
+ *
+ * @author Laurent Caillette
+ */
+/*package*/ class AsynchronousLoggerFactory extends LoggerFactory {
+
+  private static final int QUEUE_CAPACITY = 10000 ;
+
+  private static final int BATCH_SIZE = 256 ;
+
+  private final LoggerFactory concreteLoggerFactory ;
+
+  private final BlockingQueue< Entry > queue = new ArrayBlockingQueue< Entry >( QUEUE_CAPACITY ) ;
+
+  public AsynchronousLoggerFactory( final LoggerFactory delegate ) {
+    this.concreteLoggerFactory = checkNotNull( delegate ) ;
+    final Thread thread = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        drainForever() ;
+      }
+    }, "AsynchronousLogger" ) ;
+    thread.setDaemon( true ) ;
+    thread.start() ;
+    Runtime.getRuntime().addShutdownHook( new Thread( new Runnable() {
+      @Override
+      public void run() {
+        drain() ;
+      }
+    }, "AsynchronousLoggerShutdown" ) ) ;
+  }
+
+  @Override
+  protected Logger doGetLogger( final String name ) {
+    return new AsynchronousLogger( ( AbstractLogger ) concreteLoggerFactory.doGetLogger( name ) ) ;
+  }
+
+  private void drainForever() {
+    final List< Entry > batch = Lists.newArrayListWithCapacity( BATCH_SIZE ) ;
+    while( true ) {
+      try {
+        batch.add( queue.take() ) ;
+      } catch( InterruptedException e ) {
+        return ;
+      }
+      queue.drainTo( batch, BATCH_SIZE - 1 ) ;
+      logAll( batch ) ;
+      batch.clear() ;
+    }
+  }
+
+  /**
+   * Logs what remains when the JVM exits.
+   */
+  private void drain() {
+    final List< Entry > remaining = Lists.newArrayList() ;
+    queue.drainTo( remaining ) ;
+    logAll( remaining ) ;
+  }
+
+  @SuppressWarnings( { "UseOfSystemOutOrSystemErr" } )
+  private static void logAll( final List< Entry > entries ) {
+    for( final Entry entry : entries ) {
+      try {
+        entry.log() ;
+      } catch( RuntimeException e ) {
+        // Keep the thread alive for next entries.
+        e.printStackTrace( System.err ) ;
+      }
+    }
+  }
+
+
+// =====
+// Entry
+// =====
+
+  private static final class Entry {
+    private final AbstractLogger logger ;
+    private final Level level ;
+    private final Throwable throwable ;
+    private final String message ;
+    private final Object[] messageObjects ;
+
+    private Entry(
+        final AbstractLogger logger,
+        final Level level,
+        final Throwable throwable,
+        final String message,
+        final Object[] messageObjects
+    ) {
+      this.logger = logger ;
+      this.level = level ;
+      this.throwable = throwable ;
+      this.message = message ;
+      this.messageObjects = messageObjects ;
+    }
+
+    public void log() {
+      logger.log( level, AbstractLogger.buildMessage( message, messageObjects ), throwable ) ;
+    }
+  }
+
+
+// ==================
+// AsynchronousLogger
+// ==================
+
+  private final class AsynchronousLogger extends AbstractLogger {
+
+    private final AbstractLogger delegate ;
+
+    private AsynchronousLogger( final AbstractLogger delegate ) {
+      this.delegate = checkNotNull( delegate ) ;
+    }
+
+    @Override
+    protected void log( final Level level, final String message, final Throwable throwable ) {
+      logParts( level, throwable, message, null ) ;
+    }
+
+    @Override
+    protected void logParts(
+        final Level level,
+        final Throwable throwable,
+        final String message,
+        final Object[] messageObjects
+    ) {
+      if( ! queue.offer( new Entry( delegate, level, throwable, message, messageObjects ) ) ) {
+        delegate.logParts( level, throwable, message, messageObjects ) ;
+      }
+    }
+
+    @Override
+    protected boolean isEnabled( final Level level ) {
+      return delegate.isEnabled( level ) ;
+    }
+
+    @Override
+    public String getName() {
+      return delegate.getName() ;
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+      return delegate.isTraceEnabled() ;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+      return delegate.isDebugEnabled() ;
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+      return delegate.isInfoEnabled() ;
+    }
+  }
+
+}
@@ -118,12 +118,23 @@ import static com.google.common.base.Preconditions.checkState;
 
     private final String loggerName ;
 
+    /**
+     * Set at first logging after switching to another factory, so there is no more lookup
+     * nor locking.
+     */
+    private volatile AbstractLogger delegate = null ;
+
     private RecordingLogger( final String loggerName ) {
       this.loggerName = loggerName ;
     }
 
     @Override
     protected void log( final Level level, final String message, final Throwable throwable ) {
+      final AbstractLogger knownDelegate = delegate ;
+      if( knownDelegate != null ) {
+        knownDelegate.log( level, message, throwable ) ;
+        return ;
+      }
       synchronized( LOCK ) {
         final AbstractLogger maybeDelegate = ( AbstractLogger ) LoggerFactory.getLogger( loggerName );
         if( maybeDelegate == this ) {
@@ -133,11 +144,36 @@ import static com.google.common.base.Preconditions.checkState;
               loggerName, Thread.currentThread().getName(), level, message, throwable ) ) ;
         } else {
           // Switched to another factory.
+          delegate = maybeDelegate ;
           maybeDelegate.log( level, message, throwable ) ;
         }
       }
     }
 
+    @Override
+    protected void logParts(
+        final Level level,
+        final Throwable throwable,
+        final String message,
+        final Object[] messageObjects
+    ) {
+      final AbstractLogger knownDelegate = delegate ;
+      if( knownDelegate == null ) {
+        super.logParts( level, throwable, message, messageObjects ) ;
+      } else {
+        knownDelegate.logParts( level, throwable, message, messageObjects ) ;
+      }
+    }
+
+    /**
+     * Everything is enabled until we know the delegate.
+     */
+    @Override
+    protected boolean isEnabled( final Level level ) {
+      final AbstractLogger knownDelegate = delegate ;
+      return knownDelegate == null || knownDelegate.isEnabled( level ) ;
+    }
+
     @Override
     public String getName() {
       return loggerName ;
@@ -145,17 +181,17 @@ import static com.google.common.base.Preconditions.checkState;
 
     @Override
     public boolean isTraceEnabled() {
-      return true ;
+      return isEnabled( Level.TRACE ) ;
     }
 
     @Override
     public boolean isDebugEnabled() {
-      return true ;
+      return isEnabled( Level.DEBUG ) ;
     }
 
     @Override
     public boolean isInfoEnabled() {
-      return true ;
+      return isEnabled( Level.INFO ) ;
     }
   }
 
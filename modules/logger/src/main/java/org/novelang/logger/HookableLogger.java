@@ -95,6 +95,19 @@ public class HookableLogger extends AbstractLogger{
     }
   }
 
+  /**
+   * An installed hook gets everything.
+   */
+  @Override
+  protected boolean isEnabled( final Level level ) {
+    synchronized( lock ) {
+      if( hook != null ) {
+        return true ;
+      }
+    }
+    return delegate.isEnabled( level ) ;
+  }
+
   @Override
   public String getName() {
     return delegate.getName() ;
@@ -25,6 +25,8 @@ package org.novelang.logger;
  *
  * When not in a test environment (as reported by {@link #isTestEnvironment()}, provided
  * loggers log in memory until the call to {@link #configurationComplete()} occurs.
+ * Then, if the {@value #ASYNCHRONOUS_SYSTEMPROPERTYNAME} system property is set to
+ * {@code true}, loggers build messages and log them in a dedicated thread.
  *
  * @author Laurent Caillette
  */
@@ -79,7 +81,13 @@ public abstract class LoggerFactory {
   public static void configurationComplete() {
     synchronized( LOCK ) {
       if( loggerFactory instanceof DeferringLoggerFactory ) {
-        final LoggerFactory effectiveLoggerFactory = createEffectiveLoggerFactory() ;
+        final LoggerFactory effectiveLoggerFactory ;
+        if( Boolean.getBoolean( ASYNCHRONOUS_SYSTEMPROPERTYNAME ) ) {
+          effectiveLoggerFactory =
+              new AsynchronousLoggerFactory( createEffectiveLoggerFactory() ) ;
+        } else {
+          effectiveLoggerFactory = createEffectiveLoggerFactory() ;
+        }
         DeferringLoggerFactory.flush( effectiveLoggerFactory ) ;
         loggerFactory = effectiveLoggerFactory ;
         LoggerFactory.getLogger( LoggerFactory.class ).info(
@@ -92,6 +100,8 @@ public abstract class LoggerFactory {
 
   protected abstract Logger doGetLogger( String name ) ;
 
+  public static final String ASYNCHRONOUS_SYSTEMPROPERTYNAME = "org.novelang.log.asynchronous" ;
+
 
 // =========
 // Internals
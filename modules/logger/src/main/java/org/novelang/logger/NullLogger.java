@@ -31,6 +31,11 @@ public final class NullLogger extends AbstractLogger {
   protected void log( final Level level, final String message, final Throwable throwable ) {
   }
 
+  @Override
+  protected boolean isEnabled( final Level level ) {
+    return false ;
+  }
+
   @Override
   public String getName() {
     return getClass().getSimpleName() ;
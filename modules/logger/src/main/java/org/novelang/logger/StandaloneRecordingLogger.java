@@ -55,6 +55,11 @@ public class StandaloneRecordingLogger extends AbstractLogger {
     }
   }
 
+  @Override
+  protected boolean isEnabled( final Level level ) {
+    return true ;
+  }
+
   @Override
   public String getName() {
     throw new UnsupportedOperationException( "Should never be called" ) ;
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.nhovestone.report;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import org.novelang.parser.antlr.RuleProfile;
+
+/**
+ * Graphs a {@link RuleProfile} report, as written by
+ * {@link org.novelang.parser.antlr.ParserProfiler}.
+ * Shows the most time-consuming rules, with their invocation counts.
+ * <p>
+ * Usage: {@code RuleProfileGrapher <report file> <svg file>}.
+ *
+ * @author Laurent Caillette
+ */
+public class RuleProfileGrapher {
+
+  private static final int DEFAULT_RULE_COUNT = 20 ;
+
+  private static final int DEFAULT_WIDTH_VECTORUNIT = 500 ;
+  private static final int DEFAULT_HEIGHT_VECTORUNIT = 500 ;
+
+  private static final String VECTORUNIT = "px" ;
+
+  private static final String TIME_SERIES = "Cumulative time (ms)" ;
+  private static final String INVOCATION_SERIES = "Invocations (thousands)" ;
+  private static final String BACKTRACKING_SERIES = "Backtracking invocations (thousands)" ;
+
+  private RuleProfileGrapher() { }
+
+  public static BufferedImage create(
+      final List< RuleProfile.RuleStatistics > statistics,
+      final int widthPixels,
+      final int heightPixels
+  ) {
+    return createChart( statistics, DEFAULT_RULE_COUNT )
+        .createBufferedImage( widthPixels, heightPixels ) ;
+  }
+
+  public static void exportChartAsSvg(
+      final File svgFile,
+      final List< RuleProfile.RuleStatistics > statistics
+  ) throws IOException {
+    Grapher.exportChartAsSvg(
+        svgFile,
+        createChart( statistics, DEFAULT_RULE_COUNT ),
+        DEFAULT_WIDTH_VECTORUNIT,
+        DEFAULT_HEIGHT_VECTORUNIT,
+        VECTORUNIT
+    ) ;
+  }
+
+  /**
+   * @param statistics a non-null list, most time-consuming rules first,
+   *     as {@link RuleProfile#read(Reader)} returns it.
+   */
+  private static JFreeChart createChart(
+      final List< RuleProfile.RuleStatistics > statistics,
+      final int maximumRuleCount
+  ) {
+    final DefaultCategoryDataset dataset = new DefaultCategoryDataset() ;
+    for( final RuleProfile.RuleStatistics ruleStatistics :
+        statistics.subList( 0, Math.min( maximumRuleCount, statistics.size() ) )
+    ) {
+      final String ruleName = ruleStatistics.getRuleName() ;
+      dataset.addValue(
+          ( double ) ruleStatistics.getCumulativeNanoseconds() / 1000000.0,
+          TIME_SERIES,
+          ruleName
+      ) ;
+      dataset.addValue(
+          ( double ) ruleStatistics.getInvocationCount() / 1000.0,
+          INVOCATION_SERIES,
+          ruleName
+      ) ;
+      dataset.addValue(
+          ( double ) ruleStatistics.getBacktrackingCount() / 1000.0,
+          BACKTRACKING_SERIES,
+          ruleName
+      ) ;
+    }
+
+    final JFreeChart chart = ChartFactory.createBarChart(
+        null,                        // chart title
+        "Rule",                      // domain axis label
+        null,                        // range axis label
+        dataset,                     // data
+        PlotOrientation.HORIZONTAL,  // orientation
+        true,                        // include legend
+        false,                       // tooltips
+        false                        // urls
+    ) ;
+    final CategoryPlot plot = ( CategoryPlot ) chart.getPlot() ;
+    plot.getDomainAxis().setMaximumCategoryLabelWidthRatio( 0.3f ) ;
+    return chart ;
+  }
+
+  public static void main( final String[] arguments ) throws IOException {
+    if( arguments.length != 2 ) {
+      System.err.println(
+          "Usage: " + RuleProfileGrapher.class.getName() + " <report file> <svg file>" ) ;
+      System.exit( 1 ) ;
+    }
+    final List< RuleProfile.RuleStatistics > statistics ;
+    final Reader reader = new InputStreamReader(
+        new FileInputStream( arguments[ 0 ] ), Charsets.UTF_8 ) ;
+    try {
+      statistics = RuleProfile.read( reader ) ;
+    } finally {
+      reader.close() ;
+    }
+    exportChartAsSvg( new File( arguments[ 1 ] ), statistics ) ;
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.novelist;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import org.novelang.common.Location;
+import org.novelang.common.LocationFactory;
+import org.novelang.common.SyntacticTree;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.parser.antlr.DelegatingPartParser;
+import org.novelang.parser.antlr.TreeConverter;
+
+/**
+ * Compares heap taken by {@link SyntacticTree}s parsed from generated text, with and without
+ * compact trees (see {@link TreeConverter}).
+ * Run with a fixed heap size (like {@code -Xms512m -Xmx512m}) for steadier figures.
+ *
+ * @author Laurent Caillette
+ */
+public class CompactTreeDemo {
+
+  @Test
+  public void compareHeapFootprint() {
+    final String content = generate( LEVEL_COUNT ) ;
+    LOGGER.info( "Generated ", content.length(), " characters." ) ;
+
+    final String propertyBefore = System.getProperty( TreeConverter.COMPACT_SYSTEMPROPERTYNAME ) ;
+    try {
+      final long compact = measureRetainedHeap( content, true ) ;
+      final long regular = measureRetainedHeap( content, false ) ;
+      LOGGER.info(
+          "Retained heap for ", PARSE_COUNT, " parsings: ",
+          "regular ", regular / 1024, " kB, ",
+          "compact ", compact / 1024, " kB."
+      ) ;
+    } finally {
+      if( propertyBefore == null ) {
+        System.clearProperty( TreeConverter.COMPACT_SYSTEMPROPERTYNAME ) ;
+      } else {
+        System.setProperty( TreeConverter.COMPACT_SYSTEMPROPERTYNAME, propertyBefore ) ;
+      }
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( CompactTreeDemo.class ) ;
+
+  private static final int LEVEL_COUNT = 200 ;
+
+  private static final int PARSE_COUNT = 10 ;
+
+  private static final LocationFactory LOCATION_FACTORY = new LocationFactory() {
+    @Override
+    public Location createLocation( final int line, final int column ) {
+      return new Location( "generated", line, column ) ;
+    }
+    @Override
+    public Location createLocation() {
+      return new Location( "generated" ) ;
+    }
+  } ;
+
+  private static String generate( final int levelCount ) {
+    final Generator< Level > levelGenerator =
+        new LevelGenerator( GenerationDefaults.FOR_LEVELS ) ;
+    final StringBuilder textBuilder = new StringBuilder() ;
+    for( int i = 0 ; i < levelCount ; i ++ ) {
+      textBuilder.append( levelGenerator.generate().getLiteral() ) ;
+    }
+    return textBuilder.toString() ;
+  }
+
+  /**
+   * Keeps several parsed trees alive so their footprint dominates noise.
+   */
+  private static long measureRetainedHeap( final String content, final boolean compact ) {
+    System.setProperty( TreeConverter.COMPACT_SYSTEMPROPERTYNAME, Boolean.toString( compact ) ) ;
+    final List< SyntacticTree > retained = Lists.newArrayListWithCapacity( PARSE_COUNT ) ;
+    final long before = usedHeap() ;
+    for( int i = 0 ; i < PARSE_COUNT ; i ++ ) {
+      retained.add( new DelegatingPartParser( content, LOCATION_FACTORY ).parse() ) ;
+    }
+    final long after = usedHeap() ;
+    LOGGER.debug( "Retained ", retained.size(), " trees." ) ;
+    return after - before ;
+  }
+
+  private static long usedHeap() {
+    final Runtime runtime = Runtime.getRuntime() ;
+    for( int i = 0 ; i < 3 ; i ++ ) {
+      System.gc() ;
+    }
+    return runtime.totalMemory() - runtime.freeMemory() ;
+  }
+
+}
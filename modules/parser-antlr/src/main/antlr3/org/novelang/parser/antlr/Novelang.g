@@ -143,7 +143,7 @@ import org.slf4j.LoggerFactory;
 
   @Override
   public void traceIn( String s, int ruleIndex ) {
-    delegate.traceIn( s, ruleIndex ) ;
+    delegate.traceIn( s, ruleIndex, state.backtracking ) ;
   }
 
   @Override
@@ -1560,6 +1560,7 @@ bigNumberedListItem
   ;
 
 smallDashedListItem
+  options { memoize = true ; } // Tried by syntactic predicates, see ParserProfiler.
   : HYPHEN_MINUS 
     { delegate.enterBlockDelimiterBoundary( input.LT( 1 ) ) ; }
     ( b += whitespace b += mixedDelimitedTightblock )+
@@ -1568,6 +1569,7 @@ smallDashedListItem
   ;
 
 smallNumberedListItem
+  options { memoize = true ; } // Tried by syntactic predicates, see ParserProfiler.
   : NUMBER_SIGN
     { delegate.enterBlockDelimiterBoundary( input.LT( 1 ) ) ; }
     ( b += whitespace b += mixedDelimitedTightblock )+
@@ -1798,6 +1800,7 @@ punctuationSign
 // ===================================
 
 url
+  options { memoize = true ; } // Tried by syntactic predicates, see ParserProfiler.
   : ( http = httpUrl -> { delegate.createTree( URL_LITERAL, $http.text ) } )	
   | ( file = fileUrl -> { delegate.createTree( URL_LITERAL, $file.text ) } )	 
   ;
@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.parser.antlr;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.novelang.common.Location;
+import org.novelang.common.LocationFactory;
+import org.novelang.common.Problem;
+import org.novelang.common.SyntacticTree;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+import org.novelang.parser.PartParser;
+
+/**
+ * Parses a big Novella as several chunks on an {@link Executor}, then stitches
+ * chunk trees together.
+ * <p>
+ * Chunks start at a level introducer ({@code ==} at the start of a line) following
+ * a blank line, outside of a literal or a block quote. Each chunk starts with the blank lines
+ * before the level introducer, so the separators it yields are the same as with the
+ * whole text. {@link Location}s get shifted to the position of the chunk in the whole text.
+ * <p>
+ * If the text is too small to give two chunks, or if any chunk has a {@link Problem},
+ * this class parses the whole text sequentially, so it always gives the same result
+ * (tree and problems) as {@link DelegatingPartParser}.
+ * <p>
+ * The thread calling {@link #parse()} runs every chunk that no thread of the
+ * {@link Executor} picked yet, so there is no deadlock if {@link #parse()} itself runs on
+ * a saturated {@link Executor}.
+ *
+ * @author Laurent Caillette
+ */
+public class ChunkedPartParser implements PartParser {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( ChunkedPartParser.class ) ;
+
+  /**
+   * Under this size, parsing a chunk costs too little to be worth a task.
+   */
+  public static final int DEFAULT_MINIMUM_CHUNK_LENGTH = 64 * 1024 ;
+
+  private final String text ;
+  private final LocationFactory locationFactory ;
+  private final Executor executor ;
+  private final int minimumChunkLength ;
+
+  /**
+   * Null until a sequential parsing happened.
+   */
+  private DelegatingPartParser sequentialParser = null ;
+
+  public ChunkedPartParser(
+      final String text,
+      final LocationFactory locationFactory,
+      final Executor executor
+  ) {
+    this( text, locationFactory, executor, DEFAULT_MINIMUM_CHUNK_LENGTH ) ;
+  }
+
+  public ChunkedPartParser(
+      final String text,
+      final LocationFactory locationFactory,
+      final Executor executor,
+      final int minimumChunkLength
+  ) {
+    this.text = Preconditions.checkNotNull( text ) ;
+    this.locationFactory = Preconditions.checkNotNull( locationFactory ) ;
+    this.executor = Preconditions.checkNotNull( executor ) ;
+    Preconditions.checkArgument( minimumChunkLength > 0 ) ;
+    this.minimumChunkLength = minimumChunkLength ;
+  }
+
+  @Override
+  public boolean hasProblem() {
+    return sequentialParser != null && sequentialParser.hasProblem() ;
+  }
+
+  @Override
+  public Iterable< Problem > getProblems() {
+    return sequentialParser == null ?
+        ImmutableList.< Problem >of() : sequentialParser.getProblems() ;
+  }
+
+  @Override
+  public SyntacticTree parse() {
+    final int[] chunkStarts = findChunkStarts( text, minimumChunkLength ) ;
+    if( chunkStarts.length < 2 ) {
+      return parseSequentially() ;
+    }
+
+    final List< FutureTask< SyntacticTree > > tasks =
+        Lists.newArrayListWithCapacity( chunkStarts.length ) ;
+    for( int chunkIndex = 0 ; chunkIndex < chunkStarts.length ; chunkIndex ++ ) {
+      final int start = chunkStarts[ chunkIndex ] ;
+      final int end = chunkIndex + 1 < chunkStarts.length ?
+          chunkStarts[ chunkIndex + 1 ] : text.length() ;
+      tasks.add( new FutureTask< SyntacticTree >( new ChunkParsing( start, end ) ) ) ;
+    }
+    for( int chunkIndex = 1 ; chunkIndex < tasks.size() ; chunkIndex ++ ) {
+      try {
+        executor.execute( tasks.get( chunkIndex ) ) ;
+      } catch( RejectedExecutionException e ) {
+        LOGGER.debug( "Executor rejected chunk ", chunkIndex, ", will run it in caller." ) ;
+      }
+    }
+
+    final List< SyntacticTree > children = Lists.newArrayList() ;
+    SyntacticTree firstChunkTree = null ;
+    boolean chunkFailed = false ;
+    for( final FutureTask< SyntacticTree > task : tasks ) {
+      task.run() ; // Does nothing if already started.
+      final SyntacticTree chunkTree ;
+      try {
+        chunkTree = task.get() ;
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt() ;
+        throw new RuntimeException( e ) ;
+      } catch( ExecutionException e ) {
+        throw Throwables.propagate( e.getCause() ) ;
+      }
+      if( chunkTree == null ) {
+        chunkFailed = true ;
+      } else if( ! chunkFailed ) {
+        if( firstChunkTree == null ) {
+          firstChunkTree = chunkTree ;
+        }
+        for( final SyntacticTree child : chunkTree.getChildren() ) {
+          children.add( child ) ;
+        }
+      }
+    }
+
+    if( chunkFailed ) {
+      LOGGER.debug( "Problem in some chunk, parsing again as a whole to report it." ) ;
+      return parseSequentially() ;
+    }
+    LOGGER.debug( "Parsed ", text.length(), " characters as ", chunkStarts.length, " chunks." ) ;
+    return firstChunkTree.adopt( children ) ;
+  }
+
+  private SyntacticTree parseSequentially() {
+    sequentialParser = new DelegatingPartParser( text, locationFactory ) ;
+    return sequentialParser.parse() ;
+  }
+
+  private class ChunkParsing implements Callable< SyntacticTree > {
+
+    private final int start ;
+    private final int end ;
+
+    public ChunkParsing( final int start, final int end ) {
+      this.start = start ;
+      this.end = end ;
+    }
+
+    /**
+     * @return a possibly null object, null if there was a problem.
+     */
+    @Override
+    public SyntacticTree call() {
+      final DelegatingPartParser parser = new DelegatingPartParser(
+          text.substring( start, end ),
+          start == 0 ? locationFactory : new ShiftingLocationFactory( locationFactory, text, start )
+      ) ;
+      final SyntacticTree tree = parser.parse() ;
+      return parser.hasProblem() ? null : tree ;
+    }
+  }
+
+
+// ========
+// Chunking
+// ========
+
+  private static final String LEVEL_INTRODUCER = "==" ;
+  private static final String LITERAL_START = "<<<" ;
+  private static final String LITERAL_END = ">>>" ;
+  private static final String BLOCK_QUOTE_START = "<<" ;
+  private static final String BLOCK_QUOTE_END = ">>" ;
+  private static final String BLOCK_COMMENT_START = "{{" ;
+  private static final String BLOCK_COMMENT_END = "}}" ;
+
+  /**
+   * Finds where chunks start. Chunk boundaries are conservative: when in doubt, don't split.
+   *
+   * @return a non-null array, starting with 0.
+   */
+  /*package*/ static int[] findChunkStarts( final String text, final int minimumChunkLength ) {
+    if( text.length() < minimumChunkLength * 2 ) {
+      return new int[] { 0 } ;
+    }
+    final List< Integer > starts = Lists.newArrayList() ;
+    starts.add( 0 ) ;
+
+    int lastChunkStart = 0 ;
+    int lastContentEnd = -1 ; // Just after last character which is not a separator.
+    boolean blankLineSinceContent = false ;
+    boolean inLiteral = false ;
+    boolean inBlockQuote = false ;
+    boolean inBlockComment = false ;
+    int lineStart = 0 ;
+
+    while( lineStart < text.length() ) {
+      int lineEnd = text.indexOf( '\n', lineStart ) ;
+      final int nextLineStart = lineEnd < 0 ? text.length() : lineEnd + 1 ;
+      if( lineEnd < 0 ) {
+        lineEnd = text.length() ;
+      }
+      final String line = trimEnd( text.substring( lineStart, lineEnd ) ) ;
+
+      if( line.length() == 0 ) {
+        blankLineSinceContent = lastContentEnd >= 0 ;
+      } else {
+        if( inLiteral ) {
+          inLiteral = ! line.startsWith( LITERAL_END ) ;
+        } else if( inBlockComment ) {
+          inBlockComment = isInBlockCommentAfter( line, true ) ;
+        } else if( line.startsWith( LITERAL_START ) ) {
+          inLiteral = true ;
+        } else {
+          if( ! inBlockQuote
+              && blankLineSinceContent
+              && line.startsWith( LEVEL_INTRODUCER )
+              && lastContentEnd - lastChunkStart >= minimumChunkLength
+              && text.length() - lastContentEnd >= minimumChunkLength
+          ) {
+            starts.add( lastContentEnd ) ;
+            lastChunkStart = lastContentEnd ;
+          }
+          if( line.startsWith( BLOCK_QUOTE_START ) ) {
+            inBlockQuote = true ;
+          }
+          if( inBlockQuote && line.endsWith( BLOCK_QUOTE_END ) ) {
+            inBlockQuote = false ;
+          }
+          inBlockComment = isInBlockCommentAfter( line, false ) ;
+        }
+        lastContentEnd = lineStart + line.length() ;
+        blankLineSinceContent = false ;
+      }
+      lineStart = nextLineStart ;
+    }
+
+    final int[] result = new int[ starts.size() ] ;
+    for( int i = 0 ; i < result.length ; i ++ ) {
+      result[ i ] = starts.get( i ) ;
+    }
+    return result ;
+  }
+
+  /**
+   * Follows block comments opening and closing in given line. A comment ends with the first
+   * closing sequence after the opening one, as the lexer's {@code BLOCK_COMMENT} is not greedy.
+   *
+   * @param inBlockComment true if the line starts inside a block comment.
+   * @return true if the line ends inside a block comment.
+   */
+  private static boolean isInBlockCommentAfter(
+      final String line,
+      final boolean startsInBlockComment
+  ) {
+    boolean inBlockComment = startsInBlockComment ;
+    int position = 0 ;
+    while( true ) {
+      final String searched = inBlockComment ? BLOCK_COMMENT_END : BLOCK_COMMENT_START ;
+      final int found = line.indexOf( searched, position ) ;
+      if( found < 0 ) {
+        return inBlockComment ;
+      }
+      inBlockComment = ! inBlockComment ;
+      position = found + searched.length() ;
+    }
+  }
+
+  /**
+   * Removes trailing spaces and carriage returns, which the grammar treats as separators.
+   */
+  private static String trimEnd( final String line ) {
+    int end = line.length() ;
+    while( end > 0 && ( line.charAt( end - 1 ) == ' ' || line.charAt( end - 1 ) == '\r' ) ) {
+      end -- ;
+    }
+    return line.substring( 0, end ) ;
+  }
+
+  /**
+   * Gives {@link Location}s in the whole text for a chunk starting at some offset.
+   * Counts lines the same way as {@link org.antlr.runtime.ANTLRStringStream} does:
+   * only {@code '\n'} starts a new line.
+   */
+  /*package*/ static class ShiftingLocationFactory implements LocationFactory {
+
+    private final LocationFactory locationFactory ;
+    private final int lineOffset ;
+    private final int columnOffset ;
+
+    public ShiftingLocationFactory(
+        final LocationFactory locationFactory,
+        final String text,
+        final int offset
+    ) {
+      this.locationFactory = locationFactory ;
+      int lineCount = 0 ;
+      for( int i = 0 ; i < offset ; i ++ ) {
+        if( text.charAt( i ) == '\n' ) {
+          lineCount ++ ;
+        }
+      }
+      this.lineOffset = lineCount ;
+      this.columnOffset = offset - ( text.lastIndexOf( '\n', offset - 1 ) + 1 ) ;
+    }
+
+    @Override
+    public Location createLocation( final int line, final int column ) {
+      return locationFactory.createLocation(
+          line + lineOffset,
+          line == 1 ? column + columnOffset : column
+      ) ;
+    }
+
+    @Override
+    public Location createLocation() {
+      return locationFactory.createLocation() ;
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.parser.antlr;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import org.novelang.common.Location;
+import org.novelang.common.LocationFactory;
+import org.novelang.logger.Logger;
+import org.novelang.logger.LoggerFactory;
+
+/**
+ * Parses one Novella file and writes a {@link RuleProfile} report.
+ * This requires a parser generated with the {@code parser-profiling} Maven profile,
+ * otherwise rules are not instrumented and the report is empty.
+ * <p>
+ * Usage: {@code ParserProfiler <novella file> [<report file>]}. The report goes to
+ * standard output if there is no report file.
+ *
+ * @author Laurent Caillette
+ */
+public class ParserProfiler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( ParserProfiler.class ) ;
+
+  private ParserProfiler() { }
+
+  /**
+   * @return a non-null object.
+   */
+  public static RuleProfile profile( final String text, final LocationFactory locationFactory ) {
+    final DelegatingPartParser parser = new DelegatingPartParser( text, locationFactory ) ;
+    final RuleProfile ruleProfile = new RuleProfile() ;
+    parser.getDelegate().setRuleProfile( ruleProfile ) ;
+    final long start = System.nanoTime() ;
+    parser.parse() ;
+    LOGGER.info( "Parsed in ", ( System.nanoTime() - start ) / 1000000L, " ms." ) ;
+    if( parser.hasProblem() ) {
+      LOGGER.warn( "Parsing had problems, profile may not be representative: ",
+          parser.getProblems() ) ;
+    }
+    if( ruleProfile.isEmpty() ) {
+      LOGGER.warn( "No rule recorded, parser was not generated with parser-profiling profile." ) ;
+    }
+    return ruleProfile ;
+  }
+
+  public static void main( final String[] arguments ) throws IOException {
+    if( arguments.length < 1 || arguments.length > 2 ) {
+      System.err.println(
+          "Usage: " + ParserProfiler.class.getName() + " <novella file> [<report file>]" ) ;
+      System.exit( 1 ) ;
+    }
+    final File novellaFile = new File( arguments[ 0 ] ) ;
+    final String fileName = novellaFile.getName() ;
+    final RuleProfile ruleProfile = profile(
+        Files.toString( novellaFile, Charsets.UTF_8 ),
+        new LocationFactory() {
+          @Override
+          public Location createLocation( final int line, final int column ) {
+            return new Location( fileName, line, column ) ;
+          }
+          @Override
+          public Location createLocation() {
+            return new Location( fileName ) ;
+          }
+        }
+    ) ;
+
+    if( arguments.length == 2 ) {
+      final Writer writer =
+          new OutputStreamWriter( new FileOutputStream( arguments[ 1 ] ), Charsets.UTF_8 ) ;
+      try {
+        ruleProfile.write( writer ) ;
+      } finally {
+        writer.close() ;
+      }
+      LOGGER.info( "Wrote report into '", arguments[ 1 ], "'." ) ;
+    } else {
+      ruleProfile.write( new OutputStreamWriter( System.out, Charsets.UTF_8 ) ) ;
+    }
+  }
+
+}
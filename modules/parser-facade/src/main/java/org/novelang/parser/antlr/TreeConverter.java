@@ -17,9 +17,11 @@
 
 package org.novelang.parser.antlr;
 
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.antlr.runtime.tree.Tree;
 
 import org.novelang.common.Location;
@@ -31,16 +33,68 @@ import org.novelang.parser.NodeKind;
  * Converts a {@link org.antlr.runtime.tree.Tree} into a {@link org.novelang.common.SyntacticTree}.
  * This helps using lighter objects than those created by ANTLR, which keep a backpointer 
  * to the parent tree.
+ * <p>
+ * In compact mode (the default), converted trees share what they can:
+ * <ul>
+ *   <li>Leaves with the same text are the same instance (which also interns the text).</li>
+ *   <li>Punctuation signs, apostrophes and separators with the same content are the same
+ *   instance, without {@link Location}. Nothing uses the location of such small nodes.</li>
+ * </ul>
+ * Sharing happens inside one conversion (one parsed source), so there is no global pool
+ * to grow or to synchronize. Setting system property {@value #COMPACT_SYSTEMPROPERTYNAME}
+ * to {@code false} disables compact mode.
  * 
  * @author Laurent Caillette
  */
 public class TreeConverter {
 
+  public static final String COMPACT_SYSTEMPROPERTYNAME = "org.novelang.parser.compacttrees" ;
+
+  /**
+   * Node kinds for which location is of no use, so a node with same content can be shared.
+   */
+  private static final Set< NodeKind > SHAREABLE_NODEKINDS = Sets.immutableEnumSet(
+      NodeKind.PUNCTUATION_SIGN,
+      NodeKind.SIGN_COLON,
+      NodeKind.SIGN_COMMA,
+      NodeKind.SIGN_ELLIPSIS,
+      NodeKind.SIGN_EXCLAMATIONMARK,
+      NodeKind.SIGN_FULLSTOP,
+      NodeKind.SIGN_QUESTIONMARK,
+      NodeKind.SIGN_SEMICOLON,
+      NodeKind.APOSTROPHE_WORDMATE,
+      NodeKind.WHITESPACE_,
+      NodeKind.LINE_BREAK_
+  ) ;
+
   private TreeConverter() {}
 
-  public static SyntacticTree convert( 
+  public static boolean isCompactByDefault() {
+    return ! "false".equals( System.getProperty( COMPACT_SYSTEMPROPERTYNAME ) ) ;
+  }
+
+  public static SyntacticTree convert(
+      final Tree antlrTree,
+      final TokenNameProvider tokenNameProvider
+  ) {
+    return convert( antlrTree, tokenNameProvider, isCompactByDefault() ) ;
+  }
+
+  public static SyntacticTree convert(
+      final Tree antlrTree,
+      final TokenNameProvider tokenNameProvider,
+      final boolean compact
+  ) {
+    return convert( antlrTree, tokenNameProvider, compact ? new Pool() : null ) ;
+  }
+
+  /**
+   * @param pool a possibly null object, null meaning no sharing.
+   */
+  private static SyntacticTree convert(
       final Tree antlrTree, 
-      final TokenNameProvider tokenNameProvider 
+      final TokenNameProvider tokenNameProvider,
+      final Pool pool
   ) {
 
     final String originalText = antlrTree.getText() ;
@@ -48,7 +102,7 @@ public class TreeConverter {
     final NodeKind treeKind ;
     final Location location ;
     final String childText ;
-    final List< SyntacticTree > children ;
+    final SyntacticTree[] children ;
 
     if( antlrTree instanceof CustomTree ) { // Need to check because of ANTLR error nodes.
       final CustomTree customTree = ( CustomTree ) antlrTree ;
@@ -58,20 +112,21 @@ public class TreeConverter {
       childText = null ;
       location = null ;
     }
-    
-    if( antlrTree.getChildCount() > 0 ) {
-      children = Lists.newArrayList() ;
+
+    final int antlrChildCount = antlrTree.getChildCount() ;
+    if( antlrChildCount > 0 || childText != null ) {
+      // Exact size, no intermediate list.
+      children = new SyntacticTree[ antlrChildCount + ( childText == null ? 0 : 1 ) ] ;
+      int childIndex = 0 ;
       if( childText != null ) {
-        children.add( new SimpleTree( childText ) ) ;
+        children[ childIndex ++ ] = createLeaf( childText, pool ) ;
       }
-      for( int childIndex = 0 ; childIndex < antlrTree.getChildCount() ; childIndex ++ ) {
-        children.add( convert( antlrTree.getChild( childIndex ), tokenNameProvider ) ) ;
+      for( int antlrChildIndex = 0 ; antlrChildIndex < antlrChildCount ; antlrChildIndex ++ ) {
+        children[ childIndex ++ ] =
+            convert( antlrTree.getChild( antlrChildIndex ), tokenNameProvider, pool ) ;
       }
-    } else if( childText == null ) {
-      children = null ;
     } else {
-      children = Lists.newArrayList() ;
-      children.add( new SimpleTree( childText ) ) ;
+      children = null ;
     }
 
 
@@ -83,19 +138,93 @@ public class TreeConverter {
       treeKind = null ;
     }
 
-
-    // TODO pool punctuation signs and whitespaces.
-    if( children == null ) {
-      return treeKind == null ? 
-          new SimpleTree( treeText, location ) : 
-          new SimpleTree( treeKind, location ) 
+    if( treeKind == null ) {
+      if( children == null && location == null ) {
+        return createLeaf( treeText, pool ) ;
+      }
+      return children == null ?
+          new SimpleTree( treeText, location ) :
+          new SimpleTree( treeText, location, children )
       ;
     } else {
-      return treeKind == null ? 
-          new SimpleTree( treeText, location, children ) : 
-          new SimpleTree( treeKind, location, children ) 
+      if( pool != null && SHAREABLE_NODEKINDS.contains( treeKind ) ) {
+        final SyntacticTree shared = pool.getShared( treeKind, children ) ;
+        if( shared != null ) {
+          return shared ;
+        }
+      }
+      return children == null ?
+          new SimpleTree( treeKind, location ) :
+          new SimpleTree( treeKind, location, children )
       ;
     }
   }
+
+  private static SyntacticTree createLeaf( final String text, final Pool pool ) {
+    return pool == null ? new SimpleTree( text ) : pool.getLeaf( text ) ;
+  }
+
+  /**
+   * Shared instances for one conversion.
+   */
+  private static final class Pool {
+
+    private final Map< String, SyntacticTree > leaves = Maps.newHashMap() ;
+
+    /**
+     * Keys are the only child of a shareable node, which are shared themselves
+     * so identity equality applies. {@link #NO_CHILD} stands for childless nodes.
+     */
+    private final Map< NodeKind, Map< SyntacticTree, SyntacticTree > > shareds =
+        Maps.newEnumMap( NodeKind.class ) ;
+
+    /**
+     * All instances in {@link #leaves} and {@link #shareds}, {@link SimpleTree} relies on
+     * identity equality.
+     */
+    private final Set< SyntacticTree > sharedInstances = Sets.newHashSet() ;
+
+    private static final SyntacticTree NO_CHILD = new SimpleTree( "" ) ;
+
+    public SyntacticTree getLeaf( final String text ) {
+      SyntacticTree leaf = leaves.get( text ) ;
+      if( leaf == null ) {
+        leaf = new SimpleTree( text ) ;
+        leaves.put( text, leaf ) ;
+        sharedInstances.add( leaf ) ;
+      }
+      return leaf ;
+    }
+
+    /**
+     * @param children a possibly null array, containing shared trees.
+     * @return a possibly null object, null if given children don't allow sharing.
+     */
+    public SyntacticTree getShared( final NodeKind nodeKind, final SyntacticTree[] children ) {
+      final SyntacticTree key ;
+      if( children == null ) {
+        key = NO_CHILD ;
+      } else if( children.length == 1 && sharedInstances.contains( children[ 0 ] ) ) {
+        key = children[ 0 ] ;
+      } else {
+        return null ;
+      }
+      Map< SyntacticTree, SyntacticTree > sharedsForKind = shareds.get( nodeKind ) ;
+      if( sharedsForKind == null ) {
+        sharedsForKind = Maps.newHashMap() ;
+        shareds.put( nodeKind, sharedsForKind ) ;
+      }
+      SyntacticTree shared = sharedsForKind.get( key ) ;
+      if( shared == null ) {
+        shared = children == null ?
+            new SimpleTree( nodeKind ) :
+            new SimpleTree( nodeKind, children )
+        ;
+        sharedsForKind.put( key, shared ) ;
+        sharedInstances.add( shared ) ;
+      }
+      return shared ;
+    }
+  }
   
 }
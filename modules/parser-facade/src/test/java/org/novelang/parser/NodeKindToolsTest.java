@@ -43,4 +43,14 @@ public class NodeKindToolsTest {
     Assert.assertFalse( names.contains(
         NodeKindTools.tokenNameAsXmlElementName( NodeKind.WORD_.name() ) ) ) ;
   }
+
+  @Test
+  public void precomputedXmlElementNames() {
+    for( final NodeKind nodeKind : NodeKind.values() ) {
+      Assert.assertEquals(
+          NodeKindTools.tokenNameAsXmlElementName( nodeKind.name() ),
+          NodeKindTools.xmlElementName( nodeKind )
+      ) ;
+    }
+  }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.parser.antlr;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.novelang.parser.antlr.AntlrTestHelper.BREAK;
+
+import org.novelang.common.SyntacticTree;
+import org.novelang.common.tree.Treepath;
+
+/**
+ * Tests for {@link ChunkedPartParser}.
+ *
+ * @author Laurent Caillette
+ */
+public class ChunkedPartParserTest {
+
+  @Test
+  public void findNoChunkInSmallText() {
+    assertThat( ChunkedPartParser.findChunkStarts( TEXT, TEXT.length() ) )
+        .isEqualTo( new int[] { 0 } ) ;
+  }
+
+  @Test
+  public void findChunksOutsideOfLiteralAndBlockQuote() {
+    assertThat( ChunkedPartParser.findChunkStarts( TEXT, 1 ) ).isEqualTo( new int[] {
+        0,
+        TEXT.indexOf( BREAK + BREAK + "== Level 1" ),
+        TEXT.indexOf( BREAK + " " + BREAK + "== Level 2" ),
+        TEXT.indexOf( BREAK + BREAK + "== Level 3" )
+    } ) ;
+  }
+
+  @Test
+  public void findNoChunkInsideBlockQuote() {
+    final String text =
+        "p0" + BREAK +
+        BREAK +
+        "<<p1" + BREAK +
+        BREAK +
+        "== Not a level" + BREAK +
+        ">>"
+    ;
+    assertThat( ChunkedPartParser.findChunkStarts( text, 1 ) ).isEqualTo( new int[] { 0 } ) ;
+  }
+
+  @Test
+  public void findNoChunkInsideBlockComment() {
+    final String text =
+        "p0" + BREAK +
+        BREAK +
+        "{{ c1" + BREAK +
+        BREAK +
+        "== Not a level" + BREAK +
+        "}} p1" + BREAK +
+        BREAK +
+        "== Level 1 {{ c2 }}" + BREAK +
+        BREAK +
+        "p2"
+    ;
+    assertThat( ChunkedPartParser.findChunkStarts( text, 1 ) ).isEqualTo( new int[] {
+        0,
+        text.indexOf( BREAK + BREAK + "== Level 1" )
+    } ) ;
+  }
+
+  @Test
+  public void sameTreeAsSequentialParsing() {
+    final SyntacticTree expected =
+        new DelegatingPartParser( TEXT, TreeFixture.LOCATION_FACTORY ).parse() ;
+    final ChunkedPartParser chunkedParser =
+        new ChunkedPartParser( TEXT, TreeFixture.LOCATION_FACTORY, executorService, 1 ) ;
+    final SyntacticTree actual = chunkedParser.parse() ;
+
+    assertThat( chunkedParser.hasProblem() ).isFalse() ;
+    TreeFixture.assertEqualsWithSeparators(
+        Treepath.create( expected ), Treepath.create( actual ), true ) ;
+  }
+
+  @Test
+  public void sameProblemsAsSequentialParsing() {
+    final String text = TEXT + BREAK + BREAK + "== Broken" + BREAK + BREAK + "[[unbalanced" ;
+    final DelegatingPartParser sequentialParser =
+        new DelegatingPartParser( text, TreeFixture.LOCATION_FACTORY ) ;
+    sequentialParser.parse() ;
+    final ChunkedPartParser chunkedParser =
+        new ChunkedPartParser( text, TreeFixture.LOCATION_FACTORY, executorService, 1 ) ;
+    chunkedParser.parse() ;
+
+    assertThat( chunkedParser.hasProblem() ).isTrue() ;
+    assertThat( AntlrTestHelper.createProblemList( chunkedParser.getProblems() ) )
+        .isEqualTo( AntlrTestHelper.createProblemList( sequentialParser.getProblems() ) ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final String TEXT =
+      "p0 w01, w02." + BREAK +
+      BREAK +
+      "== Level 1" + BREAK +
+      BREAK +
+      "p1 w11" + BREAK +
+      "w12 ?" + BREAK +
+      BREAK +
+      "<<<" + BREAK +
+      BREAK +
+      "== Not a level" + BREAK +
+      ">>>" + BREAK +
+      " " + BREAK +
+      "== Level 2" + BREAK +
+      BREAK +
+      "<<p2" + BREAK +
+      BREAK +
+      "p3" + BREAK +
+      ">>" + BREAK +
+      BREAK +
+      "== Level 3" + BREAK +
+      BREAK +
+      "p4 w41 ..." + BREAK
+  ;
+
+  private final ExecutorService executorService = Executors.newFixedThreadPool( 2 ) ;
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow() ;
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.parser.antlr;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests for {@link RuleProfile}.
+ *
+ * @author Laurent Caillette
+ */
+public class RuleProfileTest {
+
+  @Test
+  public void countInvocationsAndBacktracking() {
+    final RuleProfile ruleProfile = new RuleProfile() ;
+    ruleProfile.enter( "paragraph", 0 ) ;
+    ruleProfile.enter( "url", 1 ) ;
+    ruleProfile.exit() ;
+    ruleProfile.enter( "url", 0 ) ;
+    ruleProfile.exit() ;
+    ruleProfile.exit() ;
+
+    final List< RuleProfile.RuleStatistics > statistics = ruleProfile.getStatistics() ;
+    assertThat( statistics ).hasSize( 2 ) ;
+    // Time is cumulative so the calling rule comes first.
+    assertThat( statistics.get( 0 ).getRuleName() ).isEqualTo( "paragraph" ) ;
+    assertThat( statistics.get( 0 ).getInvocationCount() ).isEqualTo( 1L ) ;
+    assertThat( statistics.get( 0 ).getBacktrackingCount() ).isEqualTo( 0L ) ;
+    assertThat( statistics.get( 1 ).getRuleName() ).isEqualTo( "url" ) ;
+    assertThat( statistics.get( 1 ).getInvocationCount() ).isEqualTo( 2L ) ;
+    assertThat( statistics.get( 1 ).getBacktrackingCount() ).isEqualTo( 1L ) ;
+  }
+
+  @Test
+  public void readWhatWasWritten() throws Exception {
+    final RuleProfile ruleProfile = new RuleProfile() ;
+    ruleProfile.enter( "novella", 0 ) ;
+    ruleProfile.enter( "paragraph", 2 ) ;
+    ruleProfile.exit() ;
+    ruleProfile.exit() ;
+    final StringWriter writer = new StringWriter() ;
+    ruleProfile.write( writer ) ;
+
+    final List< RuleProfile.RuleStatistics > read =
+        RuleProfile.read( new StringReader( writer.toString() ) ) ;
+    assertThat( read.toString() ).isEqualTo( ruleProfile.getStatistics().toString() ) ;
+  }
+
+}
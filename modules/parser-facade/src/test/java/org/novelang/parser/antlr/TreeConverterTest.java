@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.parser.antlr;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.Tree;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.common.ReflectionTools;
+import org.novelang.common.SyntacticTree;
+import org.novelang.parser.NodeKind;
+
+/**
+ * Tests for {@link TreeConverter}, mostly for sharing nodes in compact mode.
+ *
+ * @author Laurent Caillette
+ */
+public class TreeConverterTest {
+
+  @Test
+  public void compactTreeEqualsPlainTree() throws RecognitionException {
+    TreeFixture.assertEquals( convert( TEXT, false ), convert( TEXT, true ) ) ;
+  }
+
+  @Test
+  public void compactTreeSharesSignsAndLeaves() throws RecognitionException {
+    final SyntacticTree tree = convert( TEXT, true ) ;
+
+    final List< SyntacticTree > commas = collect( tree, NodeKind.SIGN_COMMA ) ;
+    assertThat( commas ).hasSize( 2 ) ;
+    assertThat( commas.get( 0 ) ).isSameAs( commas.get( 1 ) ) ;
+    assertThat( commas.get( 0 ).getLocation() ).isNull() ;
+
+    final List< SyntacticTree > words = collect( tree, NodeKind.WORD_ ) ;
+    assertThat( words ).hasSize( 3 ) ;
+    assertThat( words.get( 0 ) ).isNotSameAs( words.get( 2 ) ) ;
+    assertThat( words.get( 0 ).getChildAt( 0 ) ).isSameAs( words.get( 2 ).getChildAt( 0 ) ) ;
+  }
+
+  @Test
+  public void plainTreeSharesNothing() throws RecognitionException {
+    final SyntacticTree tree = convert( TEXT, false ) ;
+
+    final List< SyntacticTree > commas = collect( tree, NodeKind.SIGN_COMMA ) ;
+    assertThat( commas ).hasSize( 2 ) ;
+    assertThat( commas.get( 0 ) ).isNotSameAs( commas.get( 1 ) ) ;
+
+    final List< SyntacticTree > words = collect( tree, NodeKind.WORD_ ) ;
+    assertThat( words.get( 0 ).getChildAt( 0 ) )
+        .isNotSameAs( words.get( 2 ).getChildAt( 0 ) ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final String TEXT = "w, x, w" ;
+
+  private static SyntacticTree convert( final String text, final boolean compact )
+      throws RecognitionException
+  {
+    final CustomDelegatingParser parser = new CustomDelegatingParser(
+        ReflectionTools.getMethod( NovelangParser.class, "paragraph" ), text ) ;
+    final Tree antlrTree = ( Tree ) parser.callParserMethod() ;
+    AntlrTestHelper.checkSanity( parser ) ;
+    return TreeConverter.convert( antlrTree, parser.getDelegate(), compact ) ;
+  }
+
+  private static List< SyntacticTree > collect(
+      final SyntacticTree tree,
+      final NodeKind nodeKind
+  ) {
+    final List< SyntacticTree > collected = Lists.newArrayList() ;
+    collect( tree, nodeKind, collected ) ;
+    return collected ;
+  }
+
+  private static void collect(
+      final SyntacticTree tree,
+      final NodeKind nodeKind,
+      final List< SyntacticTree > collected
+  ) {
+    if( tree.isOneOf( nodeKind ) ) {
+      collected.add( tree ) ;
+    }
+    for( final SyntacticTree child : tree.getChildren() ) {
+      collect( child, nodeKind, collected ) ;
+    }
+  }
+}
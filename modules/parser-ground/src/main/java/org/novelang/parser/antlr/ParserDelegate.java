@@ -34,7 +34,13 @@ import org.novelang.parser.antlr.delimited.BlockDelimiter;
 public interface ParserDelegate {
   String unescapeCharacter( String escaped, int line, int column );
 
-  void traceIn( String s, int ruleIndex );
+  /**
+   * Called when entering a rule, only if the parser was generated with tracing on.
+   *
+   * @param backtracking greater than 0 when the parser is only evaluating a syntactic
+   *     predicate.
+   */
+  void traceIn( String s, int ruleIndex, int backtracking );
 
   void traceOut( String s, int ruleIndex );
 
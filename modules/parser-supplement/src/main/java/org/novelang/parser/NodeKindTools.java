@@ -56,6 +56,30 @@ public class NodeKindTools {
     return result ;
   }
 
+  /**
+   * Indexed by {@link NodeKind#ordinal()}.
+   */
+  private static final String[] XML_ELEMENT_NAMES ;
+  static {
+    final NodeKind[] nodeKinds = NodeKind.values() ;
+    XML_ELEMENT_NAMES = new String[ nodeKinds.length ] ;
+    for( final NodeKind nodeKind : nodeKinds ) {
+      XML_ELEMENT_NAMES[ nodeKind.ordinal() ] =
+          tokenNameAsXmlElementName( nodeKind.name() ).intern() ;
+    }
+  }
+
+  /**
+   * Same as {@link #tokenNameAsXmlElementName(String)} for {@link NodeKind#name()} but
+   * returns a precomputed, interned {@code String}.
+   *
+   * @param nodeKind a non-null object.
+   * @return a non-null object.
+   */
+  public static String xmlElementName( final NodeKind nodeKind ) {
+    return XML_ELEMENT_NAMES[ nodeKind.ordinal() ] ;
+  }
+
   private static final Function< String,String > TOKEN_NAME_AS_XML_ELEMENT_NAME =
       new Function< String, String >() {
         @Override
@@ -20,6 +20,7 @@ package org.novelang.parser.antlr;
 import java.util.Iterator;
 import java.util.List;
 
+import com.google.common.collect.Lists;
 import org.antlr.runtime.CommonToken;
 import org.antlr.runtime.MismatchedTokenException;
 import org.antlr.runtime.RecognitionException;
@@ -87,14 +88,33 @@ public class GrammarDelegate
   private static final Logger parserLogger = LoggerFactory.getLogger( GrammarDelegate.class ) ;
   private int loggingRuleDepth = 0 ;
 
+  /**
+   * Indents for each rule depth, so logging doesn't concatenate strings for every rule.
+   */
+  private final List< String > indents = Lists.newArrayList( "" ) ;
+
+  /**
+   * Null unless profiling.
+   */
+  private RuleProfile ruleProfile = null ;
+
+  /**
+   * Starts counting rule invocations. This only works with a parser generated with
+   * tracing on (see the {@code parser-profiling} Maven profile).
+   *
+   * @param ruleProfile a possibly null object, null means no profiling.
+   */
+  public void setRuleProfile( final RuleProfile ruleProfile ) {
+    this.ruleProfile = ruleProfile ;
+  }
+
   @Override
-  public void traceIn( final String s, final int ruleIndex ) {
+  public void traceIn( final String s, final int ruleIndex, final int backtracking ) {
     if( parserLogger.isDebugEnabled() ) {
-      String indent = "" ;
-      for( int i = 0 ; i < loggingRuleDepth ; i++ ) {
-        indent += ". " ;
-      }
-      parserLogger.debug( indent + s ) ;
+      parserLogger.debug( indent( loggingRuleDepth ), s ) ;
+    }
+    if( ruleProfile != null ) {
+      ruleProfile.enter( s, backtracking ) ;
     }
     loggingRuleDepth ++ ;
   }
@@ -102,6 +122,16 @@ public class GrammarDelegate
   @Override
   public void traceOut( final String s, final int ruleIndex ) {
     loggingRuleDepth -- ;
+    if( ruleProfile != null ) {
+      ruleProfile.exit() ;
+    }
+  }
+
+  private String indent( final int depth ) {
+    while( indents.size() <= depth ) {
+      indents.add( indents.get( indents.size() - 1 ) + ". " ) ;
+    }
+    return indents.get( depth ) ;
   }
 
 
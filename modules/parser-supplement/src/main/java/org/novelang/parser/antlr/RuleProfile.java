@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.parser.antlr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Counts rule invocations, invocations while evaluating a syntactic predicate (backtracking),
+ * and time spent in each rule of a parser generated with tracing on.
+ * Time is cumulative: it includes time spent in rules called from the rule.
+ * <p>
+ * This class is not thread-safe, there should be one instance per parser.
+ *
+ * @author Laurent Caillette
+ */
+public class RuleProfile {
+
+  private final Map< String, Counter > counters = Maps.newHashMap() ;
+
+  private final List< Counter > counterStack = Lists.newArrayList() ;
+  private final List< Long > startStack = Lists.newArrayList() ;
+
+  public void enter( final String ruleName, final int backtracking ) {
+    Counter counter = counters.get( ruleName ) ;
+    if( counter == null ) {
+      counter = new Counter() ;
+      counters.put( ruleName, counter ) ;
+    }
+    counter.invocationCount ++ ;
+    if( backtracking > 0 ) {
+      counter.backtrackingCount ++ ;
+    }
+    counterStack.add( counter ) ;
+    startStack.add( System.nanoTime() ) ;
+  }
+
+  public void exit() {
+    final int top = counterStack.size() - 1 ;
+    Preconditions.checkState( top >= 0, "Exiting more rules than entered" ) ;
+    final long start = startStack.remove( top ) ;
+    final Counter counter = counterStack.remove( top ) ;
+    counter.cumulativeNanoseconds += System.nanoTime() - start ;
+  }
+
+  public boolean isEmpty() {
+    return counters.isEmpty() ;
+  }
+
+  /**
+   * @return a non-null, immutable list, most time-consuming rules first.
+   */
+  public List< RuleStatistics > getStatistics() {
+    final List< RuleStatistics > statistics = Lists.newArrayList() ;
+    for( final Map.Entry< String, Counter > entry : counters.entrySet() ) {
+      final Counter counter = entry.getValue() ;
+      statistics.add( new RuleStatistics(
+          entry.getKey(),
+          counter.invocationCount,
+          counter.backtrackingCount,
+          counter.cumulativeNanoseconds
+      ) ) ;
+    }
+    Collections.sort( statistics, MOST_TIME_CONSUMING_FIRST ) ;
+    return ImmutableList.copyOf( statistics ) ;
+  }
+
+  private static class Counter {
+    private long invocationCount ;
+    private long backtrackingCount ;
+    private long cumulativeNanoseconds ;
+  }
+
+
+// ======
+// Report
+// ======
+
+  private static final String SEPARATOR = ";" ;
+
+  private static final String HEADER =
+      "rule" + SEPARATOR + "invocations" + SEPARATOR + "backtracking" + SEPARATOR + "nanoseconds" ;
+
+  /**
+   * Writes one line per rule, with fields separated by {@value #SEPARATOR}, 
+   * after a header line. Graphers in Nhovestone read this with {@link #read(Reader)}.
+   */
+  public void write( final Writer writer ) {
+    final PrintWriter printWriter = new PrintWriter( writer ) ;
+    printWriter.println( HEADER ) ;
+    for( final RuleStatistics statistics : getStatistics() ) {
+      printWriter.println(
+          statistics.getRuleName() + SEPARATOR +
+          statistics.getInvocationCount() + SEPARATOR +
+          statistics.getBacktrackingCount() + SEPARATOR +
+          statistics.getCumulativeNanoseconds()
+      ) ;
+    }
+    printWriter.flush() ;
+  }
+
+  /**
+   * Reads what {@link #write(Writer)} wrote.
+   *
+   * @return a non-null, immutable list, in the order of the report.
+   */
+  public static List< RuleStatistics > read( final Reader reader ) throws IOException {
+    final BufferedReader bufferedReader = new BufferedReader( reader ) ;
+    final String header = bufferedReader.readLine() ;
+    if( ! HEADER.equals( header ) ) {
+      throw new IOException( "Unexpected header: '" + header + "'" ) ;
+    }
+    final ImmutableList.Builder< RuleStatistics > statistics = ImmutableList.builder() ;
+    String line ;
+    while( ( line = bufferedReader.readLine() ) != null ) {
+      if( line.length() == 0 ) {
+        continue ;
+      }
+      final String[] fields = line.split( SEPARATOR ) ;
+      if( fields.length != 4 ) {
+        throw new IOException( "Unexpected line: '" + line + "'" ) ;
+      }
+      try {
+        statistics.add( new RuleStatistics(
+            fields[ 0 ],
+            Long.parseLong( fields[ 1 ] ),
+            Long.parseLong( fields[ 2 ] ),
+            Long.parseLong( fields[ 3 ] )
+        ) ) ;
+      } catch( NumberFormatException e ) {
+        throw new IOException( "Unexpected line: '" + line + "'" ) ;
+      }
+    }
+    return statistics.build() ;
+  }
+
+
+// ==============
+// RuleStatistics
+// ==============
+
+  private static final Comparator< RuleStatistics > MOST_TIME_CONSUMING_FIRST =
+      new Comparator< RuleStatistics >() {
+        @Override
+        public int compare( final RuleStatistics first, final RuleStatistics second ) {
+          final long difference =
+              second.getCumulativeNanoseconds() - first.getCumulativeNanoseconds() ;
+          if( difference == 0L ) {
+            return first.getRuleName().compareTo( second.getRuleName() ) ;
+          }
+          return difference > 0L ? 1 : -1 ;
+        }
+      }
+  ;
+
+  public static final class RuleStatistics {
+
+    private final String ruleName ;
+    private final long invocationCount ;
+    private final long backtrackingCount ;
+    private final long cumulativeNanoseconds ;
+
+    public RuleStatistics(
+        final String ruleName,
+        final long invocationCount,
+        final long backtrackingCount,
+        final long cumulativeNanoseconds
+    ) {
+      this.ruleName = Preconditions.checkNotNull( ruleName ) ;
+      this.invocationCount = invocationCount ;
+      this.backtrackingCount = backtrackingCount ;
+      this.cumulativeNanoseconds = cumulativeNanoseconds ;
+    }
+
+    public String getRuleName() {
+      return ruleName ;
+    }
+
+    public long getInvocationCount() {
+      return invocationCount ;
+    }
+
+    /**
+     * @return invocations happening while evaluating a syntactic predicate.
+     *     A high value (relative to {@link #getInvocationCount()}) makes the rule
+     *     a candidate for memoization.
+     */
+    public long getBacktrackingCount() {
+      return backtrackingCount ;
+    }
+
+    public long getCumulativeNanoseconds() {
+      return cumulativeNanoseconds ;
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "[" + ruleName +
+          " invocations=" + invocationCount +
+          " backtracking=" + backtrackingCount +
+          " nanoseconds=" + cumulativeNanoseconds +
+          "]"
+      ;
+    }
+  }
+
+}
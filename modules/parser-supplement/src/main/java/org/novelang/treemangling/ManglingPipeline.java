@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.treemangling;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.novelang.common.SyntacticTree;
+import org.novelang.common.tree.Treepath;
+import org.novelang.common.tree.TreepathTools;
+
+/**
+ * Applies several {@link Stage}s during one single depth-first traversal, so the tree
+ * gets rebuilt once instead of once per mangler.
+ * <p>
+ * A {@link Stage} only sees the children of one node at a time, after they were mangled
+ * by all {@link Stage}s. This works for manglers which don't need state crossing
+ * nesting levels; the ones that do (like {@code UrlMangler} or {@code TagMangler}) keep
+ * their own traversal.
+ *
+ * @author Laurent Caillette
+ */
+public final class ManglingPipeline {
+
+  private final ImmutableList< Stage > stages ;
+
+  public ManglingPipeline( final Stage... stages ) {
+    Preconditions.checkArgument( stages.length > 0 ) ;
+    this.stages = ImmutableList.copyOf( stages ) ;
+  }
+
+  public Treepath< SyntacticTree > mangle( final Treepath< SyntacticTree > treepath ) {
+    final SyntacticTree tree = treepath.getTreeAtEnd() ;
+    final SyntacticTree mangled = mangle( tree ) ;
+    return mangled == tree ? treepath : TreepathTools.replaceTreepathEnd( treepath, mangled ) ;
+  }
+
+  /**
+   * @param tree a non-null object.
+   * @return a non-null object, the same as {@code tree} if no {@link Stage} changed anything.
+   */
+  public SyntacticTree mangle( final SyntacticTree tree ) {
+    final boolean[] reaching = new boolean[ stages.size() ] ;
+    Arrays.fill( reaching, true ) ;
+    return mangle( tree, 0, reaching ) ;
+  }
+
+  private SyntacticTree mangle(
+      final SyntacticTree tree,
+      final int depth,
+      final boolean[] reaching
+  ) {
+    final int childCount = tree.getChildCount() ;
+    if( childCount == 0 ) {
+      return tree ;
+    }
+
+    final boolean[] reachingChildren = new boolean[ reaching.length ] ;
+    boolean anyReaching = false ;
+    for( int i = 0 ; i < reaching.length ; i ++ ) {
+      reachingChildren[ i ] = reaching[ i ] && stages.get( i ).entersInto( tree, depth ) ;
+      anyReaching |= reachingChildren[ i ] ;
+    }
+    if( ! anyReaching ) {
+      return tree ;
+    }
+
+    final List< SyntacticTree > children = Lists.newArrayListWithCapacity( childCount + 1 ) ;
+    boolean changed = false ;
+    for( int i = 0 ; i < childCount ; i ++ ) {
+      final SyntacticTree child = tree.getChildAt( i ) ;
+      final SyntacticTree mangledChild = mangle( child, depth + 1, reachingChildren ) ;
+      children.add( mangledChild ) ;
+      changed |= mangledChild != child ;
+    }
+    for( int i = 0 ; i < reachingChildren.length ; i ++ ) {
+      if( reachingChildren[ i ] ) {
+        changed |= stages.get( i ).mangleChildren( tree, children, depth ) ;
+      }
+    }
+    return changed ? tree.adopt( children ) : tree ;
+  }
+
+  /**
+   * One step of a {@link ManglingPipeline}.
+   */
+  public interface Stage {
+
+    /**
+     * Tells if this {@code Stage} should mangle the children of given tree, and go deeper
+     * into them.
+     *
+     * @param tree a non-null object.
+     * @param depth 0 for the tree the {@link ManglingPipeline} started from.
+     */
+    boolean entersInto( SyntacticTree tree, int depth ) ;
+
+    /**
+     * Changes the children of one tree, in place.
+     *
+     * @param parent the tree the children belong to, before they were mangled.
+     * @param children a non-null, modifiable list, with children already mangled.
+     * @param depth 0 for the tree the {@link ManglingPipeline} started from.
+     * @return true if {@code children} changed.
+     */
+    boolean mangleChildren( SyntacticTree parent, List< SyntacticTree > children, int depth ) ;
+  }
+
+}
@@ -16,6 +16,9 @@
  */
 package org.novelang.treemangling;
 
+import java.util.Iterator;
+import java.util.List;
+
 import static org.novelang.parser.NodeKind.*;
 
 import org.novelang.common.SimpleTree;
@@ -60,6 +63,33 @@ public final class SeparatorsMangler {
     return treepath ;
   }
 
+  /**
+   * Does the same as {@link #removeSeparators(Treepath)} as part of a {@link ManglingPipeline}.
+   */
+  public static final ManglingPipeline.Stage SEPARATOR_REMOVAL = new ManglingPipeline.Stage() {
+    @Override
+    public boolean entersInto( final SyntacticTree tree, final int depth ) {
+      return true ;
+    }
+
+    @Override
+    public boolean mangleChildren(
+        final SyntacticTree parent,
+        final List< SyntacticTree > children,
+        final int depth
+    ) {
+      boolean changed = false ;
+      final Iterator< SyntacticTree > iterator = children.iterator() ;
+      while( iterator.hasNext() ) {
+        if( iterator.next().isOneOf( NodeKind.WHITESPACE_, NodeKind.LINE_BREAK_ ) ) {
+          iterator.remove() ;
+          changed = true ;
+        }
+      }
+      return changed ;
+    }
+  } ;
+
 
 
 // ==============================  
@@ -124,6 +154,65 @@ public final class SeparatorsMangler {
     }
   }
 
+  /**
+   * Does the same as {@link #insertMandatoryWhitespaceNearApostrophe(Treepath)} as part of a
+   * {@link ManglingPipeline}. It must run before {@link #SEPARATOR_REMOVAL}.
+   */
+  public static final ManglingPipeline.Stage MANDATORY_WHITESPACE_INSERTION =
+      new ManglingPipeline.Stage() {
+        @Override
+        public boolean entersInto( final SyntacticTree tree, final int depth ) {
+          return ! tree.isOneOf( APOSTROPHE_WORDMATE )
+              && ! tree.isOneOf( TreeManglingConstants.NON_TRAVERSABLE_NODEKINDS )
+          ;
+        }
+
+        @Override
+        public boolean mangleChildren(
+            final SyntacticTree parent,
+            final List< SyntacticTree > children,
+            final int depth
+        ) {
+          boolean changed = false ;
+          for( int index = 0 ; index < children.size() ; index ++ ) {
+            if( children.get( index ).isOneOf( APOSTROPHE_WORDMATE ) ) {
+              if( hasWhitespaceThenWord( children, index, 1 ) ) {
+                children.add( index + 1, MANDATORY_WHITESPACE_TREE ) ;
+                changed = true ;
+              } else if( hasWhitespaceThenWord( children, index, -1 ) ) {
+                children.add( index, MANDATORY_WHITESPACE_TREE ) ;
+                index ++ ;  // Skip the apostrophe which moved right.
+                changed = true ;
+              }
+            }
+          }
+          return changed ;
+        }
+      }
+  ;
+
+  /**
+   * Same logic as {@link #insertMandatoryWhitespaceIfNeeded(Treepath, SiblingTraverser)}.
+   *
+   * @param step 1 for looking forward, -1 for looking backward.
+   */
+  private static boolean hasWhitespaceThenWord(
+      final List< SyntacticTree > siblings,
+      final int start,
+      final int step
+  ) {
+    boolean foundWhitespace = false ;
+    for( int index = start + step ; index >= 0 && index < siblings.size() ; index += step ) {
+      final SyntacticTree sibling = siblings.get( index ) ;
+      if( sibling.isOneOf( WHITESPACE_ ) ) {
+        foundWhitespace = true ;
+      } else {
+        return foundWhitespace && sibling.isOneOf( WORD_ ) ;
+      }
+    }
+    return false ;
+  }
+
 
 
 }
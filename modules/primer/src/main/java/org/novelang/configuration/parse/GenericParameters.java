@@ -57,6 +57,7 @@ public abstract class GenericParameters {
   private final File hyphenationDirectory ;
   private final Charset defaultSourceCharset ;
   private final Charset defaultRenderingCharset ;
+  private final Integer novellaCacheMegabytes ;
 
   private final File logDirectory ;
   private final File temporaryDirectory ;
@@ -82,6 +83,7 @@ public abstract class GenericParameters {
     options.addOption( GenericParametersConstants.OPTION_HYPHENATION_DIRECTORY ) ;
     options.addOption( GenericParametersConstants.OPTION_DEFAULT_SOURCE_CHARSET ) ;
     options.addOption( GenericParametersConstants.OPTION_DEFAULT_RENDERING_CHARSET ) ;
+    options.addOption( GenericParametersConstants.OPTION_NOVELLA_CACHE ) ;
     enrich( options ) ;
 
     helpPrinter = new HelpPrinter( options ) ;
@@ -122,6 +124,22 @@ public abstract class GenericParameters {
         defaultRenderingCharset = null ;
       }
 
+      if( line.hasOption( GenericParametersConstants.OPTION_NOVELLA_CACHE.getLongOpt() ) ) {
+        final String novellaCacheParameter =
+            line.getOptionValue( GenericParametersConstants.OPTION_NOVELLA_CACHE.getLongOpt() ) ;
+        try {
+          novellaCacheMegabytes = Integer.parseInt( novellaCacheParameter ) ;
+        } catch( NumberFormatException e ) {
+          throw new ArgumentException( e, helpPrinter ) ;
+        }
+        if( novellaCacheMegabytes < 0 ) {
+          throwArgumentException( "Negative value for "
+              + GenericParametersConstants.getNovellaCacheOptionDescription() ) ;
+        }
+      } else {
+        novellaCacheMegabytes = null ;
+      }
+
       if( line.hasOption( GenericParametersConstants.OPTION_STYLE_DIRECTORIES.getLongOpt() ) ) {
         final String[] styleDirectoriesNames =
             line.getOptionValues( GenericParametersConstants.OPTION_STYLE_DIRECTORIES.getLongOpt() ) ;
@@ -233,6 +251,14 @@ public abstract class GenericParameters {
     return defaultRenderingCharset;
   }
 
+  /**
+   * Returns the maximum cumulated size of parsed Novella files to keep in memory.
+   * @return a null object if undefined, a positive or zero value in megabytes otherwise.
+   */
+  public Integer getNovellaCacheMegabytes() {
+    return novellaCacheMegabytes ;
+  }
+
 // ==========
 // Extractors
 // ==========
@@ -96,6 +96,19 @@ public class GenericParametersConstants {
       .create()
   ;
 
+  public static final String OPTIONNAME_NOVELLA_CACHE = "novella-cache" ;
+
+  public static final Option OPTION_NOVELLA_CACHE = OptionBuilder
+      .withLongOpt( OPTIONNAME_NOVELLA_CACHE )
+      .withDescription(
+          "Maximum cumulated size of parsed Novella files to keep in memory, in megabytes "
+          + "(0 disables)"
+      )
+      .withValueSeparator()
+      .hasArg()
+      .create()
+  ;
+
   public static final String OPTIONPREFIX = "--" ;
 
   public static final String LOG_DIRECTORY_OPTION_NAME = "log-dir" ;
@@ -178,6 +191,13 @@ public class GenericParametersConstants {
     return createOptionDescription( OPTION_DEFAULT_RENDERING_CHARSET ) ;
   }
 
+  /**
+   * Returns a human-readable of {@link #OPTION_NOVELLA_CACHE}.
+   */
+  public static String getNovellaCacheOptionDescription() {
+    return createOptionDescription( OPTION_NOVELLA_CACHE ) ;
+  }
+
   protected static String createOptionDescription( final Option option ) {
     return OPTIONPREFIX + option.getLongOpt() + ", " + option.getDescription() ;
   }
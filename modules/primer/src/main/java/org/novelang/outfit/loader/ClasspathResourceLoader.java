@@ -71,7 +71,7 @@ public class ClasspathResourceLoader extends AbstractResourceLoader {
 
   @Override
   public InputStream maybeGetInputStream( final ResourceName resourceName ) {
-    final String absoluteName = path + "/" + resourceName.getName() ; // normalize( resourceName ) ;
+    final String absoluteName = getAbsoluteName( resourceName ) ;
 
     final URL url = reference.getResource( absoluteName ) ;
     if( null == url ) {
@@ -87,6 +87,15 @@ public class ClasspathResourceLoader extends AbstractResourceLoader {
     }
   }
 
+  @Override
+  public URL maybeLocate( final ResourceName resourceName ) {
+    return reference.getResource( getAbsoluteName( resourceName ) ) ;
+  }
+
+  private String getAbsoluteName( final ResourceName resourceName ) {
+    return path + "/" + resourceName.getName() ; // normalize( resourceName ) ;
+  }
+
   /**
    * Force "/" at beginning, removes "/" at end.
    */
@@ -19,6 +19,7 @@ package org.novelang.outfit.loader;
 import java.io.File;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URL;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
@@ -136,6 +137,23 @@ public class CompositeResourceLoader implements ResourceLoader {
     return null ;
   }
 
+  @Override
+  public URL maybeLocate( final ResourceName resourceName ) {
+    for( final AbstractResourceLoader resourceLoader : preferredResourceLoaders ) {
+      final URL url = resourceLoader.maybeLocate( resourceName ) ;
+      if( url != null ) {
+        return url ;
+      }
+    }
+    for( final AbstractResourceLoader resourceLoader : classpathResourceLoaders ) {
+      final URL url = resourceLoader.maybeLocate( resourceName ) ;
+      if( url != null ) {
+        return url ;
+      }
+    }
+    return null ;
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() ;
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.outfit.loader;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Delegates to another {@link ResourceLoader} and keeps track of every {@link ResourceName}
+ * it was asked to open, so we know what a stylesheet (with its imports and entities)
+ * depends on.
+ * The {@link ResourceStamp} is taken when opening the resource, so a change happening while
+ * reading it will be noticed later.
+ *
+ * @author Laurent Caillette
+ */
+public class RecordingResourceLoader implements ResourceLoader {
+
+  private final ResourceLoader delegate ;
+  private final Map< ResourceName, ResourceStamp > stamps = Maps.newLinkedHashMap() ;
+
+  public RecordingResourceLoader( final ResourceLoader delegate ) {
+    this.delegate = checkNotNull( delegate ) ;
+  }
+
+  @Override
+  public InputStream getInputStream( final ResourceName resourceName )
+      throws ResourceNotFoundException
+  {
+    final ResourceStamp stamp = ResourceStamp.create( delegate, resourceName ) ;
+    synchronized( stamps ) {
+      if( ! stamps.containsKey( resourceName ) ) {
+        stamps.put( resourceName, stamp ) ;
+      }
+    }
+    return delegate.getInputStream( resourceName ) ;
+  }
+
+  @Override
+  public URL maybeLocate( final ResourceName resourceName ) {
+    return delegate.maybeLocate( resourceName ) ;
+  }
+
+  /**
+   * @return a non-null object iterating in the order of first opening.
+   */
+  public ImmutableMap< ResourceName, ResourceStamp > getRecordedStamps() {
+    synchronized( stamps ) {
+      return ImmutableMap.copyOf( stamps ) ;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + delegate + "}" ;
+  }
+}
@@ -18,6 +18,7 @@
 package org.novelang.outfit.loader;
 
 import java.io.InputStream;
+import java.net.URL;
 
 /**
  * The most simple contract for loading a resource.
@@ -37,4 +38,15 @@ public interface ResourceLoader {
    */
   InputStream getInputStream( ResourceName resourceName ) throws ResourceNotFoundException ;
 
+  /**
+   * Returns the {@code URL} that {@link #getInputStream(ResourceName)} would open for
+   * the given resource name, without reading it.
+   * This is useful for telling if a resource changed since last time it was read.
+   *
+   * @param resourceName a non-null object.
+   * @return a possibly null object, if the resource doesn't exist or if the
+   *     {@code ResourceLoader} can't tell where it is.
+   */
+  URL maybeLocate( ResourceName resourceName ) ;
+
 }
@@ -18,6 +18,7 @@
 package org.novelang.outfit.loader;
 
 import java.io.InputStream;
+import java.net.URL;
 
 import com.google.common.base.Preconditions;
 
@@ -59,6 +60,12 @@ public class ResourceLoaderTools {
           }
         }
       }
+
+      @Override
+      public URL maybeLocate( final ResourceName resourceName ) {
+        final URL url = first.maybeLocate( resourceName ) ;
+        return url == null ? second.maybeLocate( resourceName ) : url ;
+      }
     } ;
   }
 
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.outfit.loader;
+
+import java.io.File;
+import java.net.URL;
+
+import org.apache.commons.io.FileUtils;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Tells apart two versions of the same resource, using its location and, for a file,
+ * its last modification time and its size.
+ * A resource that is not a plain file (like an entry of a jar file) is supposed to never change
+ * during the lifetime of the JVM.
+ * <p>
+ * Comparing locations as {@code String}s avoids {@code URL#equals(Object)} which may perform
+ * name resolution.
+ *
+ * @author Laurent Caillette
+ */
+public final class ResourceStamp {
+
+  private final String location ;
+  private final long lastModified ;
+  private final long length ;
+
+  /**
+   * Stands for a resource that couldn't be located.
+   */
+  public static final ResourceStamp MISSING = new ResourceStamp( "", -1L, -1L ) ;
+
+  private ResourceStamp( final String location, final long lastModified, final long length ) {
+    this.location = checkNotNull( location ) ;
+    this.lastModified = lastModified ;
+    this.length = length ;
+  }
+
+  /**
+   * @param url a possibly null object.
+   * @return a non-null object, {@link #MISSING} if {@code url} is null.
+   */
+  public static ResourceStamp create( final URL url ) {
+    if( url == null ) {
+      return MISSING ;
+    }
+    final File file = asFile( url ) ;
+    if( file == null ) {
+      return new ResourceStamp( url.toExternalForm(), 0L, 0L ) ;
+    } else {
+      return new ResourceStamp( url.toExternalForm(), file.lastModified(), file.length() ) ;
+    }
+  }
+
+  /**
+   * @return a non-null object.
+   */
+  public static ResourceStamp create( final File file ) {
+    return new ResourceStamp( file.getAbsolutePath(), file.lastModified(), file.length() ) ;
+  }
+
+  /**
+   * Locates given resource again, so a resource appearing in a directory with higher priority
+   * than the one it was previously found in gets a different {@code ResourceStamp}.
+   *
+   * @return a non-null object.
+   */
+  public static ResourceStamp create(
+      final ResourceLoader resourceLoader,
+      final ResourceName resourceName
+  ) {
+    return create( resourceLoader.maybeLocate( resourceName ) ) ;
+  }
+
+  /**
+   * @return a possibly null object, if given {@code URL} doesn't use the {@code file} protocol.
+   */
+  public static File asFile( final URL url ) {
+    return FileUtils.toFile( url ) ;
+  }
+
+  public boolean isMissing() {
+    return this == MISSING ;
+  }
+
+  public String getLocation() {
+    return location ;
+  }
+
+  public long getLastModified() {
+    return lastModified ;
+  }
+
+  public long getLength() {
+    return length ;
+  }
+
+  @Override
+  public boolean equals( final Object other ) {
+    if( this == other ) {
+      return true ;
+    }
+    if( other == null || getClass() != other.getClass() ) {
+      return false ;
+    }
+    final ResourceStamp that = ( ResourceStamp ) other ;
+    return lastModified == that.lastModified
+        && length == that.length
+        && location.equals( that.location )
+    ;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = location.hashCode() ;
+    result = 31 * result + ( int ) ( lastModified ^ ( lastModified >>> 32 ) ) ;
+    result = 31 * result + ( int ) ( length ^ ( length >>> 32 ) ) ;
+    return result ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + location + ";" + lastModified + ";" + length + "}" ;
+  }
+}
@@ -17,6 +17,7 @@
 
 package org.novelang.outfit.loader;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -62,15 +63,7 @@ public class UrlResourceLoader extends AbstractResourceLoader {
   @Override
   public InputStream maybeGetInputStream( final ResourceName resourceName ) {
 
-    final URL resourceUrl ;
-    try {
-      resourceUrl = new URL( base, resourceName.getName() ) ;
-    } catch( MalformedURLException e ) {
-      throw new RuntimeException( e ) ;
-    }
-    if( resourceUrl == null ) {
-      return null ;
-    }
+    final URL resourceUrl = resolve( resourceName ) ;
     try {
       final InputStream inputStream = resourceUrl.openStream() ;
       LOGGER.info( "Opened stream '", resourceUrl.toExternalForm(), "'." ) ;
@@ -81,4 +74,28 @@ public class UrlResourceLoader extends AbstractResourceLoader {
     }
   }
 
+  @Override
+  public URL maybeLocate( final ResourceName resourceName ) {
+    final URL resourceUrl = resolve( resourceName ) ;
+    final File file = ResourceStamp.asFile( resourceUrl ) ;
+    if( file == null ) {
+      try {
+        resourceUrl.openStream().close() ;
+        return resourceUrl ;
+      } catch( IOException e ) {
+        return null ;
+      }
+    } else {
+      return file.isFile() ? resourceUrl : null ;
+    }
+  }
+
+  private URL resolve( final ResourceName resourceName ) {
+    try {
+      return new URL( base, resourceName.getName() ) ;
+    } catch( MalformedURLException e ) {
+      throw new RuntimeException( e ) ;
+    }
+  }
+
 }
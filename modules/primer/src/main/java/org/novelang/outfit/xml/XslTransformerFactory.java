@@ -80,18 +80,25 @@ public abstract class XslTransformerFactory {
   }
 
 
-  
+
   public final TransformerHandler newTransformerHandler()
       throws TransformerConfigurationException, SAXException, IOException, TransformerCompositeException
   {
-    final SAXTransformerFactory saxTransformerFactory =
-        ( SAXTransformerFactory ) TransformerFactory.newInstance() ;
-
-    saxTransformerFactory.setURIResolver( uriResolver ) ;
+    return newTransformerHandler( newTemplates(), uriResolver, transformerErrorListener ) ;
+  }
 
-    if( transformerErrorListener != null ) {
-      saxTransformerFactory.setErrorListener( transformerErrorListener ) ;
-    }
+  /**
+   * Parses and compiles the stylesheet.
+   * Returned {@code Templates} are thread-safe so they can be kept for creating
+   * several {@code TransformerHandler}s.
+   *
+   * @return a non-null object.
+   */
+  public final Templates newTemplates()
+      throws TransformerConfigurationException, SAXException, IOException, TransformerCompositeException
+  {
+    final SAXTransformerFactory saxTransformerFactory =
+        createSaxTransformerFactory( uriResolver, transformerErrorListener ) ;
 
     final TemplatesHandler templatesHandler = saxTransformerFactory.newTemplatesHandler() ;
 
@@ -108,12 +115,40 @@ public abstract class XslTransformerFactory {
       transformerErrorListener.flush() ;
     }
 
-    final Templates templates = templatesHandler.getTemplates() ;
-    final TransformerHandler transformerHandler =
-        saxTransformerFactory.newTransformerHandler( templates ) ;
+    return templatesHandler.getTemplates() ;
+  }
 
-    return transformerHandler;
+  /**
+   * Creates a {@code TransformerHandler} from already-compiled {@code Templates}, which
+   * doesn't imply parsing any stylesheet.
+   *
+   * @param templates a non-null object.
+   * @param uriResolver a non-null object.
+   * @param transformerErrorListener a possibly null object.
+   * @return a non-null object.
+   */
+  public static TransformerHandler newTransformerHandler(
+      final Templates templates,
+      final URIResolver uriResolver,
+      final TransformerErrorListener transformerErrorListener
+  ) throws TransformerConfigurationException {
+    return createSaxTransformerFactory( uriResolver, transformerErrorListener )
+        .newTransformerHandler( templates ) ;
+  }
+
+  private static SAXTransformerFactory createSaxTransformerFactory(
+      final URIResolver uriResolver,
+      final TransformerErrorListener transformerErrorListener
+  ) {
+    final SAXTransformerFactory saxTransformerFactory =
+        ( SAXTransformerFactory ) TransformerFactory.newInstance() ;
+
+    saxTransformerFactory.setURIResolver( checkNotNull( uriResolver ) ) ;
 
+    if( transformerErrorListener != null ) {
+      saxTransformerFactory.setErrorListener( transformerErrorListener ) ;
+    }
+    return saxTransformerFactory ;
   }
 
   protected abstract void parse( final XMLReader reader ) throws IOException, SAXException ;
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2008 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.logger;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Tests for {@link AbstractLogger} and {@link AsynchronousLoggerFactory}.
+ *
+ * @author Laurent Caillette
+ */
+public class AbstractLoggerTest {
+
+  @Test
+  public void noMessageBuildingWhenLevelDisabled() {
+    final InfoLogger logger = new InfoLogger() ;
+    logger.debug( "Not built: ", FAILING_TO_STRING ) ;
+    logger.trace( new Exception(), FAILING_TO_STRING ) ;
+    assertThat( logger.getRecords() ).isEmpty() ;
+
+    logger.info( "Built: ", 1, null ) ;
+    assertThat( logger.getRecords() ).hasSize( 1 ) ;
+    assertThat( logger.getRecords().get( 0 ).getMessage() ).isEqualTo( "Built: 1<null>" ) ;
+  }
+
+  @Test
+  public void asynchronousLogging() throws InterruptedException {
+    final InfoLogger concreteLogger = new InfoLogger() ;
+    final LoggerFactory asynchronousLoggerFactory = new AsynchronousLoggerFactory(
+        new LoggerFactory() {
+          @Override
+          protected Logger doGetLogger( final String name ) {
+            return concreteLogger ;
+          }
+        }
+    ) ;
+    final Logger logger = asynchronousLoggerFactory.doGetLogger( "asynchronous" ) ;
+    logger.debug( "Not built: ", FAILING_TO_STRING ) ;
+    logger.info( "Built: ", 1 ) ;
+    logger.warn( "Single" ) ;
+
+    final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis( 10 ) ;
+    while( concreteLogger.getRecords().size() < 2 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 ) ;
+    }
+    assertThat( concreteLogger.getRecords() ).hasSize( 2 ) ;
+    assertThat( concreteLogger.getRecords().get( 0 ).getMessage() ).isEqualTo( "Built: 1" ) ;
+    assertThat( concreteLogger.getRecords().get( 1 ).getLevel() ).isSameAs( Level.WARN ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final Object FAILING_TO_STRING = new Object() {
+    @Override
+    public String toString() {
+      throw new AssertionError( "Should not be called" ) ;
+    }
+  } ;
+
+  private static class InfoLogger extends StandaloneRecordingLogger {
+    @Override
+    protected boolean isEnabled( final Level level ) {
+      return level.compareTo( Level.INFO ) <= 0 ;
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2008 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.logger;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * Measures the cost of a debug message with several parts, when debug level is disabled.
+ * "Building" is what happened before checking the level came first: the message
+ * got built, then dropped by the concrete logger.
+ *
+ * @author Laurent Caillette
+ */
+public class LoggingDemo {
+
+  @Test
+  public void disabledDebug() {
+    for( int round = 0 ; round < 5 ; round ++ ) {
+      final long building = measure( BUILDING_LOGGER ) ;
+      final long checking = measure( CHECKING_LOGGER ) ;
+      LOGGER.info( "Disabled debug: building ", building / CALL_COUNT, " ns/call, ",
+          "checking level first ", checking / CALL_COUNT, " ns/call." ) ;
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( LoggingDemo.class ) ;
+
+  private static final int CALL_COUNT = 1000000 ;
+
+  private static final File FILE = new File( "some/directory/part.novella" ) ;
+
+  private static long measure( final Logger logger ) {
+    final long start = System.nanoTime() ;
+    for( int i = 0 ; i < CALL_COUNT ; i ++ ) {
+      logger.debug( "Loading '", FILE, "' with charset ", "UTF-8", ", attempt ", i ) ;
+    }
+    return System.nanoTime() - start ;
+  }
+
+  private static class DiscardingLogger extends AbstractLogger {
+    @Override
+    protected void log( final Level level, final String message, final Throwable throwable ) { }
+
+    @Override
+    public String getName() {
+      return getClass().getSimpleName() ;
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+      return false ;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+      return false ;
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+      return true ;
+    }
+  }
+
+  private static final Logger BUILDING_LOGGER = new DiscardingLogger() {
+    @Override
+    protected boolean isEnabled( final Level level ) {
+      return true ;
+    }
+  } ;
+
+  private static final Logger CHECKING_LOGGER = new DiscardingLogger() ;
+
+}
@@ -17,6 +17,7 @@
 package org.novelang.outfit.loader;
 
 import java.io.InputStream;
+import java.net.URL;
 
 import org.apache.commons.io.input.NullInputStream;
 
@@ -36,6 +37,11 @@ public final class DummyResourceLoader extends AbstractResourceLoader {
     return inputStream ;
   }
 
+  @Override
+  public URL maybeLocate( final ResourceName resourceName ) {
+    return null ;
+  }
+
   @Override
   protected String getMultilineDescription() {
     return getClass().getSimpleName() ;
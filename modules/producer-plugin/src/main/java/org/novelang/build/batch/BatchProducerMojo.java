@@ -25,10 +25,13 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import org.novelang.Version;
+import org.novelang.configuration.parse.BatchParameters;
 import org.novelang.logger.ConcreteLoggerFactory;
 import org.novelang.logger.LoggerFactory;
 import org.novelang.nhovestone.driver.DocumentGeneratorDriver;
+import org.novelang.nhovestone.driver.DocumentGeneratorWorkerDriver;
 import org.novelang.nhovestone.driver.EngineDriver;
+import org.novelang.nhovestone.driver.WarmDocumentGenerator;
 import org.novelang.outfit.Husk;
 import org.novelang.outfit.shell.JavaClasses;
 import org.novelang.produce.DocumentProducer;
@@ -91,6 +94,32 @@ public class BatchProducerMojo extends AbstractProducerMojo {
    */
   private List< String > documentsToRender = null ;
 
+  /**
+   * Keeps the standalone JVM running after the build, so next builds reuse it instead of
+   * paying JVM startup and warm-up again.
+   *
+   * @parameter expression="${produce.warmWorker}"
+   */
+  @SuppressWarnings( { "FieldCanBeLocal" } )
+  private boolean warmWorker = false ;
+
+  /**
+   * How long the warm JVM waits for another build before exiting.
+   *
+   * @parameter expression="${produce.warmWorkerIdleMinutes}"
+   */
+  @SuppressWarnings( { "FieldCanBeLocal" } )
+  private Integer warmWorkerIdleMinutes = 30 ;
+
+  /**
+   * Where to record how to reach the warm JVM. Defaults to a file under
+   * {@code ~/.novelang}, one per working directory, so cleaning the project doesn't
+   * lose track of a running worker.
+   *
+   * @parameter expression="${produce.warmWorkerStateFile}"
+   */
+  private File warmWorkerStateFile = null ;
+
 
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
@@ -115,14 +144,24 @@ public class BatchProducerMojo extends AbstractProducerMojo {
     final String[] documentNames = documentsToRender.toArray(
         new String[ documentsToRender.size() ] ) ;
 
-    DocumentGeneratorDriver.Configuration configuration =
-        Husk.create( DocumentGeneratorDriver.Configuration.class )
+    if( warmWorker ) {
+      produceWithWarmWorker( classpathElements, version, documentNames ) ;
+    } else {
+      produceWithNewProcess( classpathElements, version, documentNames ) ;
+    }
+  }
+
+  private < CONFIGURATION extends EngineDriver.Configuration< CONFIGURATION > > CONFIGURATION
+  configure(
+      final CONFIGURATION blankConfiguration,
+      final List< String > classpathElements,
+      final Version version
+  ) {
+    CONFIGURATION configuration = blankConfiguration
         .withJavaClasses( new JavaClasses.ClasspathAndMain(
             EngineDriver.NOVELANG_BOOTSTRAP_MAIN_CLASS_NAME, classpathElements ) )
         .withContentRootDirectory( contentRootDirectory )
-        .withOutputDirectory( outputDirectory )
         .withWorkingDirectory( workingDirectory )
-        .withProgramArguments( documentNames )
         .withVersion( version )
     ;
 
@@ -132,6 +171,22 @@ public class BatchProducerMojo extends AbstractProducerMojo {
     if( jvmHeapSizeMegabytes != null ) {
       configuration = configuration.withJvmHeapSizeMegabytes( jvmHeapSizeMegabytes ) ;
     }
+    return configuration ;
+  }
+
+  private void produceWithNewProcess(
+      final List< String > classpathElements,
+      final Version version,
+      final String[] documentNames
+  ) throws MojoExecutionException {
+    final DocumentGeneratorDriver.Configuration configuration = configure(
+        Husk.create( DocumentGeneratorDriver.Configuration.class ),
+        classpathElements,
+        version
+    )
+        .withOutputDirectory( outputDirectory )
+        .withProgramArguments( documentNames )
+    ;
 
     final DocumentGeneratorDriver driver = new DocumentGeneratorDriver( configuration ) ;
     try {
@@ -145,4 +200,60 @@ public class BatchProducerMojo extends AbstractProducerMojo {
     }
   }
 
+  private void produceWithWarmWorker(
+      final List< String > classpathElements,
+      final Version version,
+      final String[] documentNames
+  ) throws MojoExecutionException, MojoFailureException {
+    final DocumentGeneratorWorkerDriver.Configuration configuration = configure(
+        Husk.create( DocumentGeneratorWorkerDriver.Configuration.class ),
+        classpathElements,
+        version
+    )
+        .withHeartbeatFatalDelayMilliseconds(
+            ( int ) TimeUnit.MINUTES.toMillis( warmWorkerIdleMinutes ) )
+    ;
+
+    final String[] arguments = new String[ documentNames.length + 2 ] ;
+    arguments[ 0 ] = "--" + BatchParameters.OPTIONNAME_OUTPUTDIRECTORY ;
+    arguments[ 1 ] = outputDirectory.getAbsolutePath() ;
+    System.arraycopy( documentNames, 0, arguments, 2, documentNames.length ) ;
+
+    final Iterable< String > problems ;
+    try {
+      final WarmDocumentGenerator warmDocumentGenerator =
+          WarmDocumentGenerator.connectOrStart( configuration, getWarmWorkerStateFile() ) ;
+      try {
+        problems = warmDocumentGenerator.generate( arguments ) ;
+      } finally {
+        warmDocumentGenerator.close() ;
+      }
+    } catch( Exception e ) {
+      throw new MojoExecutionException( "Warm worker execution failed", e ) ;
+    }
+
+    if( problems.iterator().hasNext() ) {
+      for( final String problem : problems ) {
+        getLog().error( problem ) ;
+      }
+      throw new MojoFailureException( "There were problems. See " + outputDirectory ) ;
+    }
+  }
+
+  /**
+   * Two projects don't share the same state file as they would keep restarting the worker
+   * of each other.
+   */
+  private File getWarmWorkerStateFile() {
+    if( warmWorkerStateFile == null ) {
+      return new File(
+          new File( System.getProperty( "user.home" ), ".novelang" ),
+          "worker-" + Integer.toHexString( workingDirectory.getAbsolutePath().hashCode() )
+              + ".properties"
+      ) ;
+    } else {
+      return warmWorkerStateFile ;
+    }
+  }
+
 }
\ No newline at end of file
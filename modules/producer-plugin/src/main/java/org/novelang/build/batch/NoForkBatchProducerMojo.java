@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -29,7 +30,8 @@ import org.apache.fop.apps.FopFactory;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
-import org.novelang.common.FileTools;
+import org.novelang.batch.BuildManifest;
+import org.novelang.batch.DocumentGenerator;
 import org.novelang.configuration.ConfigurationTools;
 import org.novelang.configuration.ContentConfiguration;
 import org.novelang.configuration.FopFontStatus;
@@ -39,6 +41,7 @@ import org.novelang.configuration.RenderingConfiguration;
 import org.novelang.configuration.RenditionKinematic;
 import org.novelang.logger.ConcreteLoggerFactory;
 import org.novelang.logger.LoggerFactory;
+import org.novelang.novella.NovellaCache;
 import org.novelang.outfit.DefaultCharset;
 import org.novelang.outfit.loader.ClasspathResourceLoader;
 import org.novelang.outfit.loader.CompositeResourceLoader;
@@ -48,7 +51,7 @@ import org.novelang.produce.DocumentProducer;
 import org.novelang.produce.DocumentRequest;
 import org.novelang.produce.GenericRequest;
 import org.novelang.produce.MalformedRequestException;
-import org.novelang.produce.StreamDirector;
+import org.novelang.rendering.PdfRenderingService;
 
 /**
  * Starts a {@link org.novelang.batch.DocumentGenerator} inside Maven's JVM.
@@ -101,35 +104,48 @@ public class NoForkBatchProducerMojo extends AbstractProducerMojo {
     ConcreteLoggerFactory.setMojoLog( getLog() ) ;
     LoggerFactory.configurationComplete() ;
 
+    final List< DocumentRequest > documentRequests =
+        new ArrayList< DocumentRequest >( documentsToRender.size() ) ;
+    for( final String requestAsString : documentsToRender ) {
+      try {
+        documentRequests.add( ( DocumentRequest ) GenericRequest.parse( requestAsString ) ) ;
+      } catch( MalformedRequestException e ) {
+        throw new MojoExecutionException( "Bad documentRequest: '" + requestAsString + "'", e ) ;
+      }
+    }
+
+    final ProducerConfiguration producerConfiguration = createProducerConfiguration() ;
+
+    final BuildManifest buildManifest ;
     try {
-      FileTools.createFreshDirectory( outputDirectory ) ;
+      // Other options are constants for a given product version.
+      buildManifest = BuildManifest.open(
+          outputDirectory,
+          producerConfiguration.getRenderingConfiguration(),
+          "workingDirectory=" + workingDirectory.getAbsolutePath()
+      ) ;
     } catch( IOException e ) {
       throw new MojoExecutionException( "Could not create/delete output directory", e ) ;
     }
 
-    final ProducerConfiguration producerConfiguration = createProducerConfiguration() ;
-
     final DocumentProducer producer = new DocumentProducer( producerConfiguration ) ;
-    for( final String requestAsString : documentsToRender ) {
-      final DocumentRequest documentRequest ;
-      try {
-        documentRequest = ( DocumentRequest )
-            GenericRequest.parse( requestAsString ) ;
-      } catch( MalformedRequestException e ) {
-        throw new MojoExecutionException( "Bad documentRequest: '" + requestAsString + "'", e ) ;
-      }
-      final StreamDirector streamDirector =
-          StreamDirector.forDirectory( documentRequest, outputDirectory ) ;
-      try {
-        producer.produce(
-            documentRequest,
-            producer.createRenderable( documentRequest ),
-            streamDirector
-        ) ;
-      } catch( Exception e ) {
-        throw new MojoExecutionException(
-            "Failed to produce document for '" + requestAsString + "'", e ) ;
+    try {
+      for( final DocumentRequest documentRequest : documentRequests ) {
+        try {
+          DocumentGenerator.processDocumentRequest(
+              documentRequest,
+              outputDirectory,
+              producer,
+              null,
+              buildManifest
+          ) ;
+        } catch( Exception e ) {
+          throw new MojoExecutionException( "Failed to produce document for '"
+              + documentRequest.getOriginalTarget() + "'", e ) ;
+        }
       }
+    } finally {
+      buildManifest.save( documentRequests ) ;
     }
   }
 
@@ -157,6 +173,7 @@ public class NoForkBatchProducerMojo extends AbstractProducerMojo {
     } catch( FOPException e ) {
       throw new MojoExecutionException( "Problem when configuring FOP", e ) ;
     }
+    final PdfRenderingService pdfRenderingService = new PdfRenderingService( fopFactory ) ;
 
     final RenderingConfiguration renderingConfiguration = new RenderingConfiguration() {
       @Override
@@ -169,6 +186,11 @@ public class NoForkBatchProducerMojo extends AbstractProducerMojo {
         return fopFactory ;
       }
 
+      @Override
+      public PdfRenderingService getPdfRenderingService() {
+        return pdfRenderingService ;
+      }
+
       @Override
       public FopFontStatus getCurrentFopFontStatus() {
         return null;
@@ -185,6 +207,9 @@ public class NoForkBatchProducerMojo extends AbstractProducerMojo {
       }
     } ;
 
+    final NovellaCache novellaCache = new NovellaCache(
+        ConfigurationTools.DEFAULT_NOVELLA_CACHE_MEGABYTES * 1024L * 1024L ) ;
+
     final ContentConfiguration contentConfiguration = new ContentConfiguration() {
       @Override
       public File getContentRoot() {
@@ -195,6 +220,11 @@ public class NoForkBatchProducerMojo extends AbstractProducerMojo {
       public Charset getSourceCharset() {
         return DefaultCharset.SOURCE ;
       }
+
+      @Override
+      public NovellaCache getNovellaCache() {
+        return novellaCache ;
+      }
     } ;
 
     final ExecutorService executorService = Executors.newSingleThreadExecutor(
@@ -86,6 +86,8 @@ public class DefaultJmxKit implements BootstrappingJmxKit {
               } else {
                 throw e ;
               }
+            } else {
+              throw e ;
             }
           }
         }
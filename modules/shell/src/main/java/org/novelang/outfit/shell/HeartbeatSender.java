@@ -31,7 +31,7 @@ import org.novelang.outfit.shell.insider.Insider;
  *
  * @author Laurent Caillette
  */
-/*package*/ class HeartbeatSender {
+public class HeartbeatSender {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( HeartbeatSender.class ) ;
 
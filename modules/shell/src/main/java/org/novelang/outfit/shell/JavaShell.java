@@ -320,6 +320,28 @@ public class JavaShell extends ProcessShell {
     return exitStatus ;
   }
 
+  /**
+   * Stops sending heartbeats and closes JMX connections, but leaves the process running.
+   * The {@link org.novelang.outfit.shell.insider.Insider} halts it when no
+   * {@link org.novelang.outfit.shell.insider.Insider#keepAlive()} comes during the delay set by
+   * {@link JavaShellParameters#getHeartbeatFatalDelayMilliseconds()}, so it makes sense with a
+   * delay long enough for other JVMs to connect to the process and keep it alive.
+   */
+  public void detach() {
+    LOGGER.info( "Detaching from ", getNickname(), "..." ) ;
+    synchronized( stateLock ) {
+      insider = null ;
+      if( heartbeatSender != null ) {
+        heartbeatSender.stop() ;
+        heartbeatSender = null ;
+      }
+      if( jmxBeanPool != null ) {
+        jmxBeanPool.closeConnections() ;
+      }
+    }
+    LOGGER.info( "Detached from ", getNickname(), "." ) ;
+  }
+
   private void cleanup() {
     insider = null ;
     try {
@@ -130,7 +130,16 @@ public class JmxBeanPool {
       }
     }
 
-    // Now we can close safely. The JMXConnector#close() method has no effect when called more than once.
+    // Now we can close safely.
+    closeConnections() ;
+  }
+
+  /**
+   * Closes the {@link javax.management.remote.JMXConnector}s but leaves JMX beans registered,
+   * so the other JVM keeps running as it did.
+   */
+  public void closeConnections() {
+    // The JMXConnector#close() method has no effect when called more than once.
     for( final JmxBeanValue value : managedBeans.values() ) {
       try {
         value.getConnectionBundle().connector.close() ;
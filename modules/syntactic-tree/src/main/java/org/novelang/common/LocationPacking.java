@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.common;
+
+/**
+ * Packs line and column of a {@link Location} into a {@code long}, so a {@link SimpleTree}
+ * doesn't need one {@link Location} object per node. The file name stays a field of
+ * the {@link SimpleTree}: {@code AbstractSourceReader} already gives the same {@code String}
+ * for every {@link Location} of a source file, so there is no table to share, to grow,
+ * or to lock.
+ * <p>
+ * Bit layout, from highest to lowest: 1 bit telling there is a location (0 means none),
+ * 31 bits for line plus 1, 32 bits for column plus 1 (0 means undefined, as -1 does for
+ * {@link Location}). Negative lines or columns become undefined,
+ * {@code Integer.MAX_VALUE} gets clamped to {@code Integer.MAX_VALUE - 1}.
+ *
+ * @author Laurent Caillette
+ */
+/*package*/ final class LocationPacking {
+
+  private LocationPacking() { }
+
+  public static final long NO_LOCATION = 0L ;
+
+  private static final long DEFINED = 1L << 63 ;
+  private static final int POSITION_BITS = 32 ;
+
+  /**
+   * Biggest value of a position plus 1, also masking out the {@link #DEFINED} bit.
+   */
+  private static final long MAXIMUM_PACKED_POSITION = Integer.MAX_VALUE ;
+
+  public static long pack( final Location location ) {
+    if( location == null ) {
+      return NO_LOCATION ;
+    }
+    return
+        DEFINED
+      | ( packPosition( location.getLine() ) << POSITION_BITS )
+      | packPosition( location.getColumn() )
+    ;
+  }
+
+  /**
+   * @param fileName the value of {@link Location#getFileName()} when packing.
+   * @return a possibly null object, null if {@code packed} is {@link #NO_LOCATION}.
+   */
+  public static Location unpack( final String fileName, final long packed ) {
+    if( packed == NO_LOCATION ) {
+      return null ;
+    }
+    return new Location(
+        fileName,
+        unpackPosition( packed >>> POSITION_BITS ),
+        unpackPosition( packed )
+    ) ;
+  }
+
+  private static long packPosition( final int position ) {
+    return position < 0 ? 0L : Math.min( ( long ) position + 1L, MAXIMUM_PACKED_POSITION ) ;
+  }
+
+  private static int unpackPosition( final long packed ) {
+    return ( int ) ( packed & MAXIMUM_PACKED_POSITION ) - 1 ;
+  }
+
+}
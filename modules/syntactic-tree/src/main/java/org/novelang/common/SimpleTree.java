@@ -19,7 +19,6 @@ package org.novelang.common;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
 import org.apache.commons.lang.ClassUtils;
 import org.apache.commons.lang.NullArgumentException;
 
@@ -35,14 +34,29 @@ public class SimpleTree extends ImmutableTree< SyntacticTree > implements Syntac
 
   private final String text ;
   private final NodeKind nodekind ;
-  private final Location location ;
+
+  /**
+   * Saves one {@link Location} object per node.
+   *
+   * @see LocationPacking
+   */
+  private final long location ;
+
+  /**
+   * Null if no {@link Location}, otherwise the one of the source file.
+   */
+  private final String fileName ;
 
   public SimpleTree( final String text, final SyntacticTree... children ) {
-    this( text, null, Lists.newArrayList( children ) ) ;
+    this( text, null, children ) ;
   }
 
   public SimpleTree( final String text, final Location location, final SyntacticTree... children ) {
-    this( text, location, Lists.newArrayList( children ) ) ;
+    super( children ) ;
+    this.location = LocationPacking.pack( location ) ;
+    this.fileName = location == null ? null : location.getFileName() ;
+    this.text = text ;
+    this.nodekind = null ;
   }
 
   public SimpleTree( final String text, final Iterable< ? extends SyntacticTree> children ) {
@@ -50,7 +64,7 @@ public class SimpleTree extends ImmutableTree< SyntacticTree > implements Syntac
   }
 
   public SimpleTree( final NodeKind nodeKind, final SyntacticTree... children ) {
-    this( nodeKind, Lists.newArrayList( children ) ) ;
+    this( nodeKind, null, children ) ;
   }
 
   public SimpleTree( 
@@ -58,7 +72,11 @@ public class SimpleTree extends ImmutableTree< SyntacticTree > implements Syntac
       final Location location, 
       final SyntacticTree... children 
   ) {
-    this( nodeKind, location, Lists.newArrayList( children ) ) ;
+    super( children ) ;
+    this.location = LocationPacking.pack( location ) ;
+    this.fileName = location == null ? null : location.getFileName() ;
+    this.nodekind = nodeKind ;
+    this.text = nodeKind.name() ;
   }
 
   public SimpleTree(
@@ -67,7 +85,8 @@ public class SimpleTree extends ImmutableTree< SyntacticTree > implements Syntac
       final Iterable< ? extends SyntacticTree > children
   ) {
     super( children ) ;
-    this.location = location ;
+    this.location = LocationPacking.pack( location ) ;
+    this.fileName = location == null ? null : location.getFileName() ;
     this.text = text ;
     this.nodekind = null ;
   }
@@ -78,24 +97,40 @@ public class SimpleTree extends ImmutableTree< SyntacticTree > implements Syntac
       final Iterable< ? extends SyntacticTree > children
   ) {
     super( children ) ;
-    this.location = location ;
+    this.location = LocationPacking.pack( location ) ;
+    this.fileName = location == null ? null : location.getFileName() ;
     this.nodekind = nodeKind ;
     this.text = nodeKind.name() ;
   }
 
+  /**
+   * Keeps already-packed location.
+   */
+  private SimpleTree(
+      final SimpleTree prototype,
+      final Iterable< ? extends SyntacticTree > children
+  ) {
+    super( children ) ;
+    this.location = prototype.location ;
+    this.fileName = prototype.fileName ;
+    this.nodekind = prototype.nodekind ;
+    this.text = prototype.text ;
+  }
+
   public SimpleTree( final NodeKind nodeKind, final Iterable< ? extends SyntacticTree > children ) {
     this( nodeKind, null, children ) ;
   }
 
+  @Override
+  protected SyntacticTree[] newChildArray( final SyntacticTree first, final int arraySize ) {
+    return new SyntacticTree[ arraySize ] ;
+  }
+
   @Override
   public SyntacticTree adopt( final Iterable< SyntacticTree > newChildren )
       throws NullArgumentException
   {
-    if( nodekind == null ) {
-      return new SimpleTree( getText(), getLocation(), newChildren ) ;
-    } else {
-      return new SimpleTree( getNodeKind(), getLocation(), newChildren ) ;
-    }
+    return new SimpleTree( this, newChildren ) ;
   }
 
   @Override
@@ -144,7 +179,7 @@ public class SimpleTree extends ImmutableTree< SyntacticTree > implements Syntac
 
   @Override
   public Location getLocation() {
-    return location ;
+    return LocationPacking.unpack( fileName, location ) ;
   }
 
   @Override
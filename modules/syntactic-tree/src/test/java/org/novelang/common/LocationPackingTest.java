@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.common;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.novelang.parser.NodeKind;
+
+/**
+ * Tests for {@link LocationPacking}, and for {@link SimpleTree} which uses it.
+ *
+ * @author Laurent Caillette
+ */
+public class LocationPackingTest {
+
+  @Test
+  public void noLocation() {
+    assertThat( LocationPacking.pack( null ) ).isEqualTo( LocationPacking.NO_LOCATION ) ;
+    assertThat( LocationPacking.unpack( FILE_NAME, LocationPacking.NO_LOCATION ) ).isNull() ;
+  }
+
+  @Test
+  public void roundTrip() {
+    verifyRoundTrip( new Location( FILE_NAME, 0, 0 ) ) ;
+    verifyRoundTrip( new Location( FILE_NAME, 12, 34 ) ) ;
+    verifyRoundTrip( new Location( FILE_NAME, Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 1 ) ) ;
+    verifyRoundTrip( new Location( null, 1, 2 ) ) ;
+  }
+
+  @Test
+  public void undefinedPositionIsStillALocation() {
+    final Location location = new Location( FILE_NAME ) ;
+    assertThat( LocationPacking.pack( location ) ).isNotEqualTo( LocationPacking.NO_LOCATION ) ;
+    verifyRoundTrip( location ) ;
+  }
+
+  @Test
+  public void negativePositionsBecomeUndefined() {
+    final Location unpacked = LocationPacking.unpack(
+        FILE_NAME, LocationPacking.pack( new Location( FILE_NAME, -5, -2 ) ) ) ;
+    assertThat( unpacked ).isEqualTo( new Location( FILE_NAME, -1, -1 ) ) ;
+    assertThat( unpacked.isPositionDefined() ).isFalse() ;
+  }
+
+  @Test
+  public void greatestPositionsGetClamped() {
+    final Location unpacked = LocationPacking.unpack( FILE_NAME, LocationPacking.pack(
+        new Location( FILE_NAME, Integer.MAX_VALUE, Integer.MAX_VALUE ) ) ) ;
+    assertThat( unpacked ).isEqualTo(
+        new Location( FILE_NAME, Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 1 ) ) ;
+  }
+
+  @Test
+  public void simpleTreeKeepsLocation() {
+    final Location location = new Location( FILE_NAME, 3, 4 ) ;
+    final SimpleTree tree = new SimpleTree( NodeKind.WORD_, location, new SimpleTree( "w" ) ) ;
+    assertThat( tree.getLocation() ).isEqualTo( location ) ;
+    assertThat( tree.getLocation().getFileName() ).isSameAs( FILE_NAME ) ;
+    assertThat( tree.getChildAt( 0 ).getLocation() ).isNull() ;
+    final SyntacticTree adopting =
+        tree.adopt( ImmutableList.< SyntacticTree >of( new SimpleTree( "v" ) ) ) ;
+    assertThat( adopting.getLocation() ).isEqualTo( location ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final String FILE_NAME = "some/file.nlp" ;
+
+  private static void verifyRoundTrip( final Location location ) {
+    final Location unpacked = LocationPacking.unpack(
+        location.getFileName(), LocationPacking.pack( location ) ) ;
+    assertThat( unpacked ).isEqualTo( location ) ;
+  }
+}
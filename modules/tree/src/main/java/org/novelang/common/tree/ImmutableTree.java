@@ -16,6 +16,7 @@
  */
 package org.novelang.common.tree;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -44,7 +45,14 @@ public abstract class ImmutableTree< T extends Tree< T > > implements Tree< T >
    * @throws NullArgumentException
    */
   protected ImmutableTree( final T... children ) throws NullArgumentException {
-    this( Lists.newArrayList( children ) ) ;
+    if( children == null || children.length == 0 ) {
+      this.children = null ;
+    } else {
+      this.children = newChildArray( children[ 0 ], children.length ) ;
+      for( int i = 0 ; i < children.length ; i++ ) {
+        this.children[ i ] = checkChild( children[ i ], i ) ;
+      }
+    }
   }
 
   /**
@@ -54,21 +62,53 @@ public abstract class ImmutableTree< T extends Tree< T > > implements Tree< T >
    * @throws NullArgumentException
    */
   protected ImmutableTree( final Iterable< ? extends T > children ) throws NullArgumentException {
-    final List< T > childList = Lists.newArrayList( children ) ;
-    if( childList.isEmpty() ) {
-      this.children = null ;
+    if( children instanceof Collection ) {
+      // Size known in advance, no need for an intermediate list.
+      final int size = ( ( Collection< ? extends T > ) children ).size() ;
+      if( size == 0 ) {
+        this.children = null ;
+      } else {
+        final Iterator< ? extends T > iterator = children.iterator() ;
+        final T first = checkChild( iterator.next(), 0 ) ;
+        this.children = newChildArray( first, size ) ;
+        this.children[ 0 ] = first ;
+        for( int i = 1 ; i < size ; i++ ) {
+          this.children[ i ] = checkChild( iterator.next(), i ) ;
+        }
+      }
     } else {
-      this.children = ( T[] ) createArray( this, childList.get( 0 ), childList.size() ) ;
-      for( int i = 0 ; i < childList.size() ; i++ ) {
-        final T child = childList.get( i ) ;
-        if( null == child ) {
-          throw new NullArgumentException( "Null child at index " + i ) ;
+      final List< T > childList = Lists.newArrayList( children ) ;
+      if( childList.isEmpty() ) {
+        this.children = null ;
+      } else {
+        this.children = newChildArray( childList.get( 0 ), childList.size() ) ;
+        for( int i = 0 ; i < childList.size() ; i++ ) {
+          this.children[ i ] = checkChild( childList.get( i ), i ) ;
         }
-        this.children[ i ] = childList.get( i ) ;
       }
     }
   }
 
+  private static < T > T checkChild( final T child, final int index ) {
+    if( null == child ) {
+      throw new NullArgumentException( "Null child at index " + index ) ;
+    }
+    return child ;
+  }
+
+  /**
+   * Creates the array holding children, exactly sized. Called from the constructor, so
+   * overriding methods must not rely on fields of the subclass.
+   * Default implementation calls {@link #createArray(Tree, Tree, int)}, which uses reflection;
+   * subclasses knowing their storage type may create the array directly.
+   *
+   * @param first first child, a non-null object.
+   * @param arraySize a strictly positive number.
+   */
+  protected T[] newChildArray( final T first, final int arraySize ) {
+    return ( T[] ) createArray( this, first, arraySize ) ;
+  }
+
   @Override
   public final int getChildCount() {
     return null == children ? 0 : children.length ;
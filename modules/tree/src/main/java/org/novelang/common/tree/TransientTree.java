@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.common.tree;
+
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * Mutable view over a {@link Tree}, for applying many structural changes and getting
+ * a new immutable {@link Tree} through one single {@link #freeze()}.
+ * <p>
+ * {@link TreeTools} and {@link TreepathTools} copy the children of the changed {@code Tree}
+ * and rebuild each ancestor on every change, so adding children one by one costs a time
+ * proportional to the square of their number. A {@code TransientTree} only copies children
+ * when created and when frozen.
+ * <p>
+ * A {@code TransientTree} has one single owner: it may be the child of only one other
+ * {@code TransientTree}, and becomes unusable once frozen. This class is not thread-safe.
+ *
+ * @author Laurent Caillette
+ */
+public final class TransientTree< T extends Tree< T > > {
+
+  /**
+   * Provides node values through {@link Tree#adopt(Iterable)}, its children are meaningless.
+   */
+  private final T prototype ;
+
+  /**
+   * Contains {@code T} instances, and {@code TransientTree<T>} instances for edited children.
+   */
+  private final List< Object > children ;
+
+  private boolean attached = false ;
+  private boolean frozen = false ;
+
+  private TransientTree( final T prototype, final List< Object > children ) {
+    this.prototype = Preconditions.checkNotNull( prototype ) ;
+    this.children = children ;
+  }
+
+  /**
+   * Creates a {@code TransientTree} with the node values and the children of given
+   * {@code Tree}.
+   *
+   * @param tree a non-null object.
+   */
+  public static< T extends Tree< T > > TransientTree< T > of( final T tree ) {
+    final int childCount = tree.getChildCount() ;
+    final List< Object > children = Lists.newArrayListWithCapacity( childCount ) ;
+    for( int i = 0 ; i < childCount ; i ++ ) {
+      children.add( tree.getChildAt( i ) ) ;
+    }
+    return new TransientTree< T >( tree, children ) ;
+  }
+
+  /**
+   * Creates a {@code TransientTree} with the node values of given {@code Tree}, but no child.
+   *
+   * @param prototype a non-null object.
+   */
+  public static< T extends Tree< T > > TransientTree< T > childless( final T prototype ) {
+    return new TransientTree< T >( prototype, Lists.newArrayList() ) ;
+  }
+
+  public int getChildCount() {
+    checkNotFrozen() ;
+    return children.size() ;
+  }
+
+  /**
+   * Returns the child at given index, or its prototype if it is being edited. In this case
+   * only node values are relevant, children may be out of date.
+   *
+   * @param index a value between [0, {@link #getChildCount()}[.
+   * @return a non-null object.
+   */
+  @SuppressWarnings( { "unchecked" } )
+  public T getChildNodeAt( final int index ) {
+    checkNotFrozen() ;
+    final Object child = children.get( index ) ;
+    if( child instanceof TransientTree ) {
+      return ( ( TransientTree< T > ) child ).prototype ;
+    } else {
+      return ( T ) child ;
+    }
+  }
+
+  /**
+   * Returns a {@code TransientTree} for editing the child at given index. Calling it again
+   * for the same index returns the same object.
+   *
+   * @param index a value between [0, {@link #getChildCount()}[.
+   * @return a non-null object.
+   */
+  @SuppressWarnings( { "unchecked" } )
+  public TransientTree< T > editChildAt( final int index ) {
+    checkNotFrozen() ;
+    final Object child = children.get( index ) ;
+    if( child instanceof TransientTree ) {
+      return ( TransientTree< T > ) child ;
+    } else {
+      final TransientTree< T > transientChild = of( ( T ) child ) ;
+      transientChild.attached = true ;
+      children.set( index, transientChild ) ;
+      return transientChild ;
+    }
+  }
+
+  /**
+   * @param child a non-null object.
+   */
+  public void addChildLast( final T child ) {
+    checkNotFrozen() ;
+    children.add( Preconditions.checkNotNull( child ) ) ;
+  }
+
+  /**
+   * Adds a {@code TransientTree} which gets frozen along with this one.
+   *
+   * @param child a non-null object with no other owner.
+   * @throws IllegalStateException if {@code child} is already a child or frozen.
+   */
+  public void addChildLast( final TransientTree< T > child ) {
+    checkNotFrozen() ;
+    child.checkNotFrozen() ;
+    Preconditions.checkState( ! child.attached, "Already attached" ) ;
+    Preconditions.checkArgument( child != this ) ;
+    child.attached = true ;
+    children.add( child ) ;
+  }
+
+  /**
+   * Creates the {@code Tree} with all the changes, making this object unusable.
+   *
+   * @return a non-null object.
+   * @throws IllegalStateException if this object is the child of another
+   *     {@code TransientTree}, or if already frozen.
+   */
+  public T freeze() {
+    Preconditions.checkState( ! attached, "Must be frozen by its owner" ) ;
+    return doFreeze() ;
+  }
+
+  @SuppressWarnings( { "unchecked" } )
+  private T doFreeze() {
+    checkNotFrozen() ;
+    frozen = true ;
+    final List< T > frozenChildren = Lists.newArrayListWithCapacity( children.size() ) ;
+    for( final Object child : children ) {
+      if( child instanceof TransientTree ) {
+        frozenChildren.add( ( ( TransientTree< T > ) child ).doFreeze() ) ;
+      } else {
+        frozenChildren.add( ( T ) child ) ;
+      }
+    }
+    children.clear() ;
+    return prototype.adopt( frozenChildren ) ;
+  }
+
+  private void checkNotFrozen() {
+    Preconditions.checkState( ! frozen, "Already frozen" ) ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "[" + prototype + "]" ;
+  }
+}
@@ -323,21 +323,9 @@ public class TreepathTools {
     ) ;
     
 
-    final T removed = treepath.getTreeAtEnd() ;
+    // Removing by index, as the same instance may appear more than once under one parent.
     final T parentOfRemoved = treepath.getTreeAtDistance( 1 ) ;
-
-    T newTree = null ;
-
-    for( int i = 0 ; i < parentOfRemoved.getChildCount() ; i++ ) {
-      final Tree child = parentOfRemoved.getChildAt( i ) ;
-      if( child == removed ) {
-        newTree = TreeTools.remove( parentOfRemoved, i ) ;
-        break ;
-      }
-    }
-    if( null == newTree ) {
-      throw new Error( "Internal error: found no end" ) ;
-    }
+    final T newTree = TreeTools.remove( parentOfRemoved, treepath.getIndexInPrevious() ) ;
     return replaceTreepathEnd( treepath.getPrevious(), newTree ) ;
   }
 
@@ -481,7 +469,11 @@ public class TreepathTools {
       final Treepath< T > currentTreepathInContainer = invertedPathForContainer.next() ;
       final Treepath< T > currentTreepathInSub = invertedPathForSub.next() ;
 
-      if( currentTreepathInContainer.getTreeAtEnd() == currentTreepathInSub.getTreeAtEnd() ) {
+      // Comparing indexes, as the same instance may appear at different places.
+      if( RemovalProgress.UNSPLIT == progress
+          && currentTreepathInContainer.getIndexInPrevious()
+              == currentTreepathInSub.getIndexInPrevious()
+      ) {
         if( ! invertedPathForSub.hasNext() ) {
           throw new IllegalArgumentException(
               "The subtree entierely contains the containing treepath" ) ;
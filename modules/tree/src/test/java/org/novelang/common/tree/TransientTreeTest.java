@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2011 Laurent Caillette
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.novelang.common.tree;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link TransientTree}.
+ *
+ * @author Laurent Caillette
+ */
+public class TransientTreeTest {
+
+  @Test
+  public void addToNestedChild() {
+    final MyTree child0 = MyTree.create( "child0" ) ;
+    final MyTree root = MyTree.create( "root", child0, MyTree.create( "child1" ) ) ;
+
+    final TransientTree< MyTree > transientRoot = TransientTree.of( root ) ;
+    final TransientTree< MyTree > transientChild1 = transientRoot.editChildAt( 1 ) ;
+    assertSame( transientChild1, transientRoot.editChildAt( 1 ) ) ;
+    assertEquals( "child1", transientRoot.getChildNodeAt( 1 ).getPayload() ) ;
+    transientChild1.addChildLast( MyTree.create( "new0" ) ) ;
+    transientChild1.addChildLast( MyTree.create( "new1" ) ) ;
+    final MyTree modified = transientRoot.freeze() ;
+
+    assertEquals( "root", modified.getPayload() ) ;
+    assertEquals( 2, modified.getChildCount() ) ;
+    assertSame( child0, modified.getChildAt( 0 ) ) ;
+    assertEquals( 2, modified.getChildAt( 1 ).getChildCount() ) ;
+    assertEquals( "new0", modified.getChildAt( 1 ).getChildAt( 0 ).getPayload() ) ;
+    assertEquals( "new1", modified.getChildAt( 1 ).getChildAt( 1 ).getPayload() ) ;
+    assertEquals( 0, root.getChildAt( 1 ).getChildCount() ) ;
+  }
+
+  @Test
+  public void addTransientChild() {
+    final TransientTree< MyTree > transientRoot =
+        TransientTree.childless( MyTree.create( "root", MyTree.create( "ignored" ) ) ) ;
+    final TransientTree< MyTree > transientChild =
+        TransientTree.childless( MyTree.create( "child" ) ) ;
+    transientRoot.addChildLast( transientChild ) ;
+    transientChild.addChildLast( MyTree.create( "grandchild" ) ) ;
+    final MyTree tree = transientRoot.freeze() ;
+
+    assertEquals( 1, tree.getChildCount() ) ;
+    assertEquals( "child", tree.getChildAt( 0 ).getPayload() ) ;
+    assertEquals( "grandchild", tree.getChildAt( 0 ).getChildAt( 0 ).getPayload() ) ;
+  }
+
+  @Test( expected = IllegalStateException.class )
+  public void noChangeAfterFreeze() {
+    final TransientTree< MyTree > transientTree = TransientTree.of( MyTree.create( "root" ) ) ;
+    transientTree.freeze() ;
+    transientTree.addChildLast( MyTree.create( "child" ) ) ;
+  }
+
+  @Test( expected = IllegalStateException.class )
+  public void onlyOwnerFreezes() {
+    final TransientTree< MyTree > transientRoot =
+        TransientTree.of( MyTree.create( "root", MyTree.create( "child" ) ) ) ;
+    transientRoot.editChildAt( 0 ).freeze() ;
+  }
+
+}
@@ -281,4 +281,42 @@ public class TreepathToolsTest {
     assertSame( child1, afterRemoval.getTreeAtDistance( 0 ) ) ;
   }
 
+  @Test
+  public void removeEndWithSameInstanceTwice() {
+    final MyTree shared = MyTree.create( "shared" ) ;
+    final MyTree child1 = MyTree.create( "child1" ) ;
+    final MyTree parent = MyTree.create( "parent", shared, child1, shared ) ;
+
+    // treepath: parent <- shared (last one)
+    final Treepath< MyTree > treepath = Treepath.create( parent, 2 ) ;
+
+    final Treepath< MyTree > afterRemoval = TreepathTools.removeEnd( treepath ) ;
+
+    assertEquals( 2, afterRemoval.getTreeAtEnd().getChildCount() ) ;
+    assertSame( shared, afterRemoval.getTreeAtEnd().getChildAt( 0 ) ) ;
+    assertSame( child1, afterRemoval.getTreeAtEnd().getChildAt( 1 ) ) ;
+  }
+
+  @Test
+  public void removeSubtreeWithSameInstanceTwice() {
+    final MyTree shared = MyTree.create( "shared" ) ;
+    final MyTree child1 = MyTree.create( "child1" ) ;
+    final MyTree parent = MyTree.create( "parent", shared, child1, shared ) ;
+    final MyTree grandParent = MyTree.create( "grandParent", parent ) ;
+
+    // treepath: grandParent <- parent <- shared (last one)
+    final Treepath< MyTree > container = Treepath.create( grandParent, 0, 2 ) ;
+
+    // treepath: grandParent <- parent <- shared (first one)
+    final Treepath< MyTree > subtree = Treepath.create( grandParent, 0, 0 ) ;
+
+    final Treepath< MyTree > afterRemoval = TreepathTools.removeSubtree( container, subtree ) ;
+
+    assertEquals( 3, afterRemoval.getLength() ) ;
+    assertEquals( 1, afterRemoval.getIndexInPrevious() ) ;
+    assertEquals( 2, afterRemoval.getTreeAtDistance( 1 ).getChildCount() ) ;
+    assertSame( child1, afterRemoval.getTreeAtDistance( 1 ).getChildAt( 0 ) ) ;
+    assertSame( shared, afterRemoval.getTreeAtEnd() ) ;
+  }
+
 }
\ No newline at end of file
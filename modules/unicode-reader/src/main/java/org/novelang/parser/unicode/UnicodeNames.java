@@ -17,6 +17,8 @@
 
 package org.novelang.parser.unicode;
 
+import java.io.IOException;
+import java.net.URL;
 
 import org.novelang.build.CodeGenerationTools;
 import org.novelang.logger.Logger;
@@ -46,24 +48,37 @@ public class UnicodeNames {
    */
   public static String getPureName( final char character ) {
     final Exception exception ;
-    final String characterAsString = ( int ) character +
-        " (" + toHexadecimalString( character ) + ")" ;
     try {
-      final String pureName = new UnicodeNamesBinaryReader(
-          UnicodeNames.class.getResource( CodeGenerationTools.UNICODE_NAMES_BINARY ) ).getName( character ) ;
+      final String pureName = ReaderHolder.getReader().getName( character ) ;
       if( pureName == null ) {
-        LOGGER.warn( "No name found for character ", characterAsString ) ;
-      } else {
-        LOGGER.debug( "Found name for character ", characterAsString, " '", pureName, "'" ) ;
+        LOGGER.warn( "No name found for character ", describe( character ) ) ;
+      } else if( LOGGER.isDebugEnabled() ) {
+        LOGGER.debug( "Found name for character ", describe( character ), " '", pureName, "'" ) ;
       }
       return pureName ;
     } catch( Exception e ) {
       exception = e ;
     }
-    LOGGER.error( exception, "No name found for character ", characterAsString ) ;
+    LOGGER.error( exception, "No name found for character ", describe( character ) ) ;
     return null ;
   }
 
+  /**
+   * Returns the pure Unicode names of all characters of given text, reading the table once.
+   *
+   * @param text a non-null object.
+   * @return a non-null array of the size of {@code text}, containing null for each character
+   *     with no name.
+   */
+  public static String[] getPureNames( final CharSequence text ) {
+    try {
+      return ReaderHolder.getReader().getNames( text ) ;
+    } catch( Exception e ) {
+      LOGGER.error( e, "Could not read names for '", text, "'" ) ;
+      return new String[ text.length() ] ;
+    }
+  }
+
 
   /**
    * Returns Unicode name with hexadecimal value.
@@ -81,8 +96,45 @@ public class UnicodeNames {
     }
   }
 
+  private static String describe( final char character ) {
+    return ( int ) character + " (" + toHexadecimalString( character ) + ")" ;
+  }
+
   private static String toHexadecimalString( final char character ) {
     return "0x" + TextTools.to16ByteHex( character ).toUpperCase();
   }
 
+  /**
+   * Lazy initialization, so the table gets loaded once, on first request.
+   */
+  private static class ReaderHolder {
+
+    private static final UnicodeNamesBinaryReader READER ;
+    private static final IOException LOADING_EXCEPTION ;
+
+    static {
+      UnicodeNamesBinaryReader reader = null ;
+      IOException loadingException = null ;
+      final URL resource =
+          UnicodeNames.class.getResource( CodeGenerationTools.UNICODE_NAMES_BINARY ) ;
+      try {
+        if( resource == null ) {
+          throw new IOException( "Missing resource " + CodeGenerationTools.UNICODE_NAMES_BINARY ) ;
+        }
+        reader = new UnicodeNamesBinaryReader( resource ) ;
+      } catch( IOException e ) {
+        loadingException = e ;
+      }
+      READER = reader ;
+      LOADING_EXCEPTION = loadingException ;
+    }
+
+    public static UnicodeNamesBinaryReader getReader() throws IOException {
+      if( READER == null ) {
+        throw LOADING_EXCEPTION ;
+      }
+      return READER ;
+    }
+  }
+
 }
@@ -17,17 +17,29 @@
 
 package org.novelang.parser.unicode;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 
 import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
 
 
 /**
  * Reads the binary file generated by {@link org.novelang.build.unicode.UnicodeNamesGenerator}.
+ * <p>
+ * The whole table is read once: memory-mapped if it is a plain file, copied into a direct
+ * {@code ByteBuffer} otherwise (when it sits in a jar). A lookup is then a few reads at
+ * known offsets, and decoded names are kept so asking twice for the same character allocates
+ * nothing.
+ * <p>
+ * This class is thread-safe.
  *
  * @author Laurent Caillette
  */
@@ -35,92 +47,141 @@ import com.google.common.base.Preconditions;
 
   private static final Charset CHARSET = Charset.forName( "UTF-8" ) ;
 
-  private final URL resourceUrl ;
+  /**
+   * Read-only, always accessed with absolute positions so it can be shared among threads.
+   */
+  private final ByteBuffer table ;
 
-  public UnicodeNamesBinaryReader( final URL resourceUrl ) {
-    this.resourceUrl = Preconditions.checkNotNull( resourceUrl ) ;
+  private final int characterCount ;
+
+  /**
+   * Decoded names, indexed by character. Unsynchronized access is fine since a
+   * {@code String} is immutable: at worst a name gets decoded twice.
+   */
+  private final String[] names ;
+
+  public UnicodeNamesBinaryReader( final URL resourceUrl ) throws IOException {
+    this( load( Preconditions.checkNotNull( resourceUrl ) ) ) ;
   }
 
-  public String getName( final char character ) throws IOException, CharacterOutOfBoundsException {
-    final InputStream inputStream = resourceUrl.openStream() ;
-    final String name ;
-    try {
-      name = readName( inputStream, character ) ;
-    } finally {
-      inputStream.close() ;
-    }
-    return name;
+  /*package*/ UnicodeNamesBinaryReader( final ByteBuffer table ) throws IOException {
+    this.table = table ;
+    this.characterCount = readCharacterCount( table ) ;
+    this.names = new String[ characterCount ] ;
   }
 
-  /*package*/ static String readName( final InputStream inputStream, final char character )
-      throws IOException, CharacterOutOfBoundsException {
-    final byte[] characterCountAsBytes = new byte[ 4 ] ;
-    if( inputStream.read( characterCountAsBytes ) != 4 ) {
-      throw new IOException( "Could not read character count, missing bytes" ) ;
-    }
-    final long characterCount = asLong( characterCountAsBytes ) ;
-    if( characterCount > 256 * 256 ) {
-      throw new IOException( "Incorrect character count, may not exceed 65536" ) ;
-    }
+  /**
+   * @return a possibly null object, null if there is no name for this character.
+   */
+  public String getName( final char character ) throws CharacterOutOfBoundsException {
     if( character >= characterCount ) {
-      throw new CharacterOutOfBoundsException( ( int ) characterCount, character ) ;
+      throw new CharacterOutOfBoundsException( characterCount, character ) ;
     }
-
-    final int firstOffset = character * 4 ;
-    skipForSure( inputStream, firstOffset ) ;
-
-    final byte[] nameOffsetAsBytes = new byte[ 4 ] ;
-    if( inputStream.read( nameOffsetAsBytes ) != 4 ) {
-      throw new IOException( "Could not read offset, missing bytes" ) ;
+    String name = names[ character ] ;
+    if( name == null ) {
+      name = decodeName( table, character ) ;
+      names[ character ] = name ;
     }
-    final long nameOffsetFromStart = asLong( nameOffsetAsBytes );
+    return name ;
+  }
 
-    if( nameOffsetFromStart == 0 ) {
-      return null ;
+  /**
+   * Returns the names of all characters of given text, in the same order.
+   *
+   * @return a non-null array, containing null for each character with no name.
+   */
+  public String[] getNames( final CharSequence text ) throws CharacterOutOfBoundsException {
+    final String[] textNames = new String[ text.length() ] ;
+    for( int i = 0 ; i < textNames.length ; i ++ ) {
+      textNames[ i ] = getName( text.charAt( i ) ) ;
     }
+    return textNames ;
+  }
 
-    final long relativeNameOffset = nameOffsetFromStart - firstOffset - 8 ;
-    skipForSure( inputStream, relativeNameOffset ) ;
-
-    final ByteArrayOutputStream nameBytes = new ByteArrayOutputStream() ;
-    while( true ) {
-      final int read = inputStream.read() ;
-      if( read == 0 ) {
-        break ;
-      } else {
-        nameBytes.write( read ) ;
+  private static ByteBuffer load( final URL resourceUrl ) throws IOException {
+    if( "file".equals( resourceUrl.getProtocol() ) ) {
+      final File file ;
+      try {
+        file = new File( resourceUrl.toURI() ) ;
+      } catch( URISyntaxException e ) {
+        throw new IOException( "Bad URL: " + resourceUrl + " (" + e.getMessage() + ")" ) ;
       }
+      final FileInputStream fileInputStream = new FileInputStream( file ) ;
+      try {
+        final FileChannel channel = fileInputStream.getChannel() ;
+        // Mapping remains valid after closing the channel.
+        return channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) ;
+      } finally {
+        fileInputStream.close() ;
+      }
+    } else {
+      final InputStream inputStream = resourceUrl.openStream() ;
+      final byte[] bytes ;
+      try {
+        bytes = ByteStreams.toByteArray( inputStream ) ;
+      } finally {
+        inputStream.close() ;
+      }
+      final ByteBuffer buffer = ByteBuffer.allocateDirect( bytes.length ) ;
+      buffer.put( bytes ) ;
+      buffer.flip() ;
+      return buffer ;
     }
-
-    return nameBytes.toString( CHARSET.name() ) ;
   }
 
-  /*package*/ static long asLong( final byte[] nameOffsetAsBytes ) {
-    Preconditions.checkArgument( nameOffsetAsBytes.length == 4 ) ;
-    long nameOffsetFromStart = 0 ;
-    for( int i = 0 ; i < 4 ; i ++ ) {
-      nameOffsetFromStart <<= 8 ; // Does nothing at the first iteration.
-
-      // Get rid of the sign of the byte by and'ing it.
-      final long unsignedByteAsLong = nameOffsetAsBytes[ i ]  & 0x000000FF ;
-      nameOffsetFromStart |= unsignedByteAsLong;
+  private static int readCharacterCount( final ByteBuffer table ) throws IOException {
+    if( table.limit() < 4 ) {
+      throw new IOException( "Could not read character count, missing bytes" ) ;
     }
-    return nameOffsetFromStart ;
+    final long characterCount = readUnsignedInt( table, 0 ) ;
+    if( characterCount > 256 * 256 ) {
+      throw new IOException( "Incorrect character count, may not exceed 65536" ) ;
+    }
+    if( table.limit() < 4 + characterCount * 4 ) {
+      throw new IOException( "Could not read offsets, missing bytes" ) ;
+    }
+    return ( int ) characterCount ;
   }
 
-  private static void skipForSure( final InputStream inputStream, final long relativeOffset )
-      throws IOException
+  /**
+   * Reads one name, using absolute positions only.
+   *
+   * @return a possibly null object.
+   */
+  /*package*/ static String readName( final ByteBuffer table, final char character )
+      throws IOException, CharacterOutOfBoundsException
   {
+    final int characterCount = readCharacterCount( table ) ;
+    if( character >= characterCount ) {
+      throw new CharacterOutOfBoundsException( characterCount, character ) ;
+    }
+    return decodeName( table, character ) ;
+  }
 
-    long skipped = 0 ;
-    while( skipped < relativeOffset ) {
-      skipped += inputStream.skip( relativeOffset - skipped ) ;
+  private static String decodeName( final ByteBuffer table, final int character ) {
+    final long nameOffset = readUnsignedInt( table, 4 + character * 4 ) ;
+    if( nameOffset == 0 ) {
+      return null ;
     }
-    
-    if( skipped != relativeOffset ) {
-      throw new IOException( "Attempted to skip " + relativeOffset + " but skipped " + skipped ) ;
+    final int start = ( int ) nameOffset ;
+    int end = start ;
+    while( table.get( end ) != 0 ) {
+      end ++ ;
     }
+    final byte[] nameBytes = new byte[ end - start ] ;
+    for( int i = 0 ; i < nameBytes.length ; i ++ ) {
+      nameBytes[ i ] = table.get( start + i ) ;
+    }
+    return new String( nameBytes, CHARSET ) ;
+  }
+
+  private static long readUnsignedInt( final ByteBuffer table, final int index ) {
+    return table.getInt( index ) & 0xFFFFFFFFL ;
   }
 
+  /*package*/ static long asLong( final byte[] nameOffsetAsBytes ) {
+    Preconditions.checkArgument( nameOffsetAsBytes.length == 4 ) ;
+    return readUnsignedInt( ByteBuffer.wrap( nameOffsetAsBytes ), 0 ) ;
+  }
 
 }
@@ -17,12 +17,19 @@
 
 package org.novelang.parser.unicode;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.google.common.io.Files;
+import org.junit.Rule;
 
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+import org.novelang.testing.junit.MethodSupport;
 
 /**
  * Tets for {@link UnicodeNamesBinaryReader}.
@@ -55,6 +62,18 @@ public class UnicodeNamesBinaryReaderTest {
     verify( BYTES_ZERO_ONE, '\u0002', "" ) ;
   }
 
+  @Test
+  public void readNamesFromMappedFile() throws IOException, CharacterOutOfBoundsException {
+    final File file = new File( methodSupport.getDirectory(), "names.bin" ) ;
+    Files.write( BYTES_ZERO_BLANK_TWO, file ) ;
+    final UnicodeNamesBinaryReader reader = new UnicodeNamesBinaryReader( file.toURI().toURL() ) ;
+    assertArrayEquals(
+        new String[] { "Two", null, "Zero" },
+        reader.getNames( "\u0002\u0001\u0000" )
+    ) ;
+    assertSame( reader.getName( '\u0002' ), reader.getName( '\u0002' ) ) ;
+  }
+
   @Test
   public void longFromByteArray() {
     final byte[] bytes = { 0, 4, 6, -128 } ;
@@ -74,13 +93,16 @@ public class UnicodeNamesBinaryReaderTest {
 // Fixture
 // =======
 
+  @Rule
+  public final MethodSupport methodSupport = new MethodSupport() ;
+
   private static void verify(
       final byte[] binary,
       final char character,
       final String expectedName
   ) throws IOException, CharacterOutOfBoundsException {
-    final InputStream inputStream = new ByteArrayInputStream( binary ) ;
-    final String actualName = UnicodeNamesBinaryReader.readName( inputStream, character ) ;
+    final String actualName =
+        UnicodeNamesBinaryReader.readName( ByteBuffer.wrap( binary ), character ) ;
     assertEquals( expectedName, actualName ) ;
   }
 